@@ -0,0 +1,67 @@
+package ru.dgritsenko.bam.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.Transaction;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки методов {@link Account}.
+ * <p>
+ * Баланс счета поддерживается инкрементально, поэтому {@link #getBalance()} не зависит от размера истории,
+ * а полный пересчет баланса по истории (цена "холодного" баланса) измеряет {@link #recalculateBalance()}.
+ * {@link #buildTransaction()} - базовая стоимость создания транзакции, входящая в {@link #addTransaction()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+    @Param({"1000", "100000"})
+    private int historySize;
+
+    private Account account;
+    private Random random;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        account = BenchmarkData.createAccount(100_000_001, historySize);
+        random = new Random(historySize);
+    }
+
+    @Benchmark
+    public Money getBalance() {
+        return account.getBalance();
+    }
+
+    @Benchmark
+    public boolean recalculateBalance() {
+        return account.verifyBalance();
+    }
+
+    @Benchmark
+    public Transaction buildTransaction() {
+        return BenchmarkData.createDeposit(random, account);
+    }
+
+    @Benchmark
+    public void addTransaction() {
+        account.addTransaction(BenchmarkData.createDeposit(random, account));
+    }
+}
@@ -0,0 +1,56 @@
+package ru.dgritsenko.bam.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.printer.AccountConsolePrinter;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк вывода транзакций счета {@link AccountConsolePrinter#printTransactions(Account)}.
+ * <p>На время измерения стандартный вывод заменяется потоком без записи, поэтому измеряется только форматирование.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountConsolePrinterBenchmark {
+    @Param({"100", "10000"})
+    private int historySize;
+
+    private Account account;
+    private PrintStream systemOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        account = BenchmarkData.createAccount(100_000_001, historySize);
+        systemOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(systemOut);
+    }
+
+    @Benchmark
+    public void printTransactions() {
+        AccountConsolePrinter.printTransactions(account);
+    }
+}
@@ -0,0 +1,139 @@
+package ru.dgritsenko.bam.benchmark;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.bank.TransactionType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Класс подготовки данных для бенчмарков.
+ * <p>Данные генерируются детерминированно, поэтому запуски бенчмарков сравнимы между собой.
+ */
+final class BenchmarkData {
+    private static final long FIRST_ACCOUNT_NUMBER = 100_000_000;
+    private static final String HOLDER_NAME = "Ivanov I";
+
+    // Сумма начального пополнения, достаточная для любого количества списаний в бенчмарках
+    private static final Money INITIAL_DEPOSIT = Money.of(1_000_000_000);
+
+    private BenchmarkData() {}
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает счет с начальным пополнением и указанным количеством последующих пополнений.
+     *
+     * @param accountNumber номер счета
+     * @param historySize количество транзакций истории (не считая начального пополнения)
+     *
+     * @return созданный счет
+     */
+    static Account createAccount(long accountNumber, int historySize) {
+        Random random = new Random(accountNumber);
+        Account account = createEmptyAccount(accountNumber);
+        account.addTransaction(createTransaction(random, account, TransactionType.DEPOSIT, INITIAL_DEPOSIT, null));
+
+        for (int i = 0; i < historySize; i++) {
+            Money amount = Money.ofMinorUnits(random.nextInt(1, 100_000));
+            account.addTransaction(createTransaction(random, account, TransactionType.DEPOSIT, amount, null));
+        }
+
+        return account;
+    }
+
+    /**
+     * Создает счета с историями транзакций, в которых каждая третья транзакция - перевод на случайный счет.
+     *
+     * @param accountsCount количество счетов
+     * @param transactionsPerAccount количество транзакций каждого счета
+     *
+     * @return созданные счета
+     */
+    static List<Account> createAccounts(int accountsCount, int transactionsPerAccount) {
+        Random random = new Random(accountsCount);
+        List<Account> accounts = new ArrayList<>(accountsCount);
+
+        for (int i = 0; i < accountsCount; i++) {
+            accounts.add(createEmptyAccount(FIRST_ACCOUNT_NUMBER + i));
+        }
+
+        for (Account account : accounts) {
+            for (int i = 0; i < transactionsPerAccount; i++) {
+                Money amount = Money.ofMinorUnits(random.nextInt(1, 100_000));
+                Transaction transaction = i % 3 == 0
+                        ? createTransaction(random, account, TransactionType.TRANSFER, amount,
+                                accounts.get(random.nextInt(accountsCount)))
+                        : createTransaction(random, account, TransactionType.DEPOSIT, amount, null);
+
+                account.addTransaction(transaction);
+            }
+        }
+
+        return accounts;
+    }
+
+    /**
+     * Создает подтвержденную транзакцию пополнения счета.
+     *
+     * @param random источник случайных значений
+     * @param account счет
+     *
+     * @return созданная транзакция
+     */
+    static Transaction createDeposit(Random random, Account account) {
+        return createTransaction(random, account, TransactionType.DEPOSIT, Money.of(1), null);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает счет без транзакций.
+     *
+     * @param accountNumber номер счета
+     *
+     * @return созданный счет
+     */
+    private static Account createEmptyAccount(long accountNumber) {
+        return new Account.Builder()
+                .setAccountNumber(accountNumber)
+                .setHolderName(HOLDER_NAME)
+                .setTransactions(new ArrayList<>())
+                .build();
+    }
+
+    /**
+     * Создает подтвержденную транзакцию.
+     *
+     * @param random источник случайных значений (для UUID)
+     * @param fromAccount счет транзакции
+     * @param transactionType тип транзакции
+     * @param amount сумма
+     * @param toAccount второй счет операции или {@code null}
+     *
+     * @return созданная транзакция
+     */
+    private static Transaction createTransaction(Random random, Account fromAccount, TransactionType transactionType,
+                                                 Money amount, Account toAccount)
+    {
+        return new Transaction.Builder()
+                .setUUID(new UUID(random.nextLong(), random.nextLong()))
+                .setDate(LocalDateTime.now())
+                .setFromAccount(fromAccount)
+                .setTransactionType(transactionType)
+                .setAmount(amount)
+                .setToAccount(toAccount)
+                .setStatus(TransactionStatus.COMMITTED)
+                .buildWithoutValidations();
+    }
+}
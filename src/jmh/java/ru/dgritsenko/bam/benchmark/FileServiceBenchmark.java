@@ -0,0 +1,74 @@
+package ru.dgritsenko.bam.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.datastorage.FileService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки сохранения и загрузки файла данных {@link FileService} при разном общем количестве транзакций
+ * (по 1000 транзакций на счет).
+ * <p>Файлы создаются во временном каталоге. Для 10 млн транзакций требуется около 6 ГБ памяти.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class FileServiceBenchmark {
+    private static final int TRANSACTIONS_PER_ACCOUNT = 1000;
+
+    @Param({"10000", "1000000", "10000000"})
+    private int transactionsCount;
+
+    private final FileService fileService = new FileService();
+    private List<Account> accounts;
+    private Path directory;
+    private Path loadPath;
+    private Path savePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        accounts = BenchmarkData.createAccounts(transactionsCount / TRANSACTIONS_PER_ACCOUNT, TRANSACTIONS_PER_ACCOUNT);
+        directory = Files.createTempDirectory("bam-benchmark");
+        loadPath = directory.resolve("load.data");
+        savePath = directory.resolve("save.data");
+
+        fileService.saveAccountsFile(accounts, loadPath.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(loadPath);
+        Files.deleteIfExists(savePath);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        fileService.saveAccountsFile(accounts, savePath.toString());
+    }
+
+    @Benchmark
+    public List<Account> load() throws IOException, ClassNotFoundException {
+        return fileService.loadAccountsFile(loadPath.toString());
+    }
+}
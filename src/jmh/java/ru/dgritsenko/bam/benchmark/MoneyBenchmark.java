@@ -0,0 +1,165 @@
+package ru.dgritsenko.bam.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.dgritsenko.bam.bank.Money;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки представлений денежной суммы: {@code double}, {@link BigDecimal} и {@link Money}
+ * (минимальные единицы валюты в {@code long}).
+ * <p>
+ * Для каждого представления измеряются сумма всех операций ({@code sum*}) и баланс истории счета
+ * ({@code balance*}), в котором пополнения прибавляются, а списания вычитаются. Варианты {@code Long}
+ * работают с примитивными минимальными единицами, как инкрементальный баланс {@code Account},
+ * варианты {@code Money} - с объектами {@link Money}, как пересчет баланса по истории транзакций.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+    @Param({"1000", "1000000"})
+    private int operationsCount;
+
+    private double[] doubleAmounts;
+    private BigDecimal[] bigDecimalAmounts;
+    private long[] minorUnitsAmounts;
+    private Money[] moneyAmounts;
+
+    // Признак списания для каждой операции
+    private boolean[] isWithdrawal;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(operationsCount);
+
+        doubleAmounts = new double[operationsCount];
+        bigDecimalAmounts = new BigDecimal[operationsCount];
+        minorUnitsAmounts = new long[operationsCount];
+        moneyAmounts = new Money[operationsCount];
+        isWithdrawal = new boolean[operationsCount];
+
+        for (int i = 0; i < operationsCount; i++) {
+            Money amount = Money.ofMinorUnits(random.nextInt(1, 100_000));
+
+            doubleAmounts[i] = amount.getMinorUnits() / (double) Money.MINOR_UNITS_PER_UNIT;
+            bigDecimalAmounts[i] = amount.toBigDecimal();
+            minorUnitsAmounts[i] = amount.getMinorUnits();
+            moneyAmounts[i] = amount;
+            isWithdrawal[i] = random.nextInt(3) == 0;
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. SUM
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Benchmark
+    public double sumDouble() {
+        double sum = 0;
+
+        for (double amount : doubleAmounts) {
+            sum += amount;
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimal() {
+        BigDecimal sum = BigDecimal.ZERO;
+
+        for (BigDecimal amount : bigDecimalAmounts) {
+            sum = sum.add(amount);
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public long sumLong() {
+        long sum = 0;
+
+        for (long amount : minorUnitsAmounts) {
+            sum = Math.addExact(sum, amount);
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public Money sumMoney() {
+        Money sum = Money.ZERO;
+
+        for (Money amount : moneyAmounts) {
+            sum = sum.plus(amount);
+        }
+
+        return sum;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. BALANCE
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Benchmark
+    public double balanceDouble() {
+        double balance = 0;
+
+        for (int i = 0; i < operationsCount; i++) {
+            balance += isWithdrawal[i] ? -doubleAmounts[i] : doubleAmounts[i];
+        }
+
+        return balance;
+    }
+
+    @Benchmark
+    public BigDecimal balanceBigDecimal() {
+        BigDecimal balance = BigDecimal.ZERO;
+
+        for (int i = 0; i < operationsCount; i++) {
+            balance = isWithdrawal[i] ? balance.subtract(bigDecimalAmounts[i]) : balance.add(bigDecimalAmounts[i]);
+        }
+
+        return balance;
+    }
+
+    @Benchmark
+    public long balanceLong() {
+        long balance = 0;
+
+        for (int i = 0; i < operationsCount; i++) {
+            balance = isWithdrawal[i]
+                    ? Math.subtractExact(balance, minorUnitsAmounts[i])
+                    : Math.addExact(balance, minorUnitsAmounts[i]);
+        }
+
+        return balance;
+    }
+
+    @Benchmark
+    public Money balanceMoney() {
+        Money balance = Money.ZERO;
+
+        for (int i = 0; i < operationsCount; i++) {
+            balance = isWithdrawal[i] ? balance.minus(moneyAmounts[i]) : balance.plus(moneyAmounts[i]);
+        }
+
+        return balance;
+    }
+}
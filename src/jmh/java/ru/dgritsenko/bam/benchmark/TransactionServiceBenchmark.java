@@ -0,0 +1,61 @@
+package ru.dgritsenko.bam.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.TransactionService;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки банковских операций {@link TransactionService} при разном размере истории счета.
+ * <p>Счета пересоздаются перед каждой итерацией, поэтому история растет только в пределах итерации.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionServiceBenchmark {
+    private static final Money AMOUNT = Money.ofMinorUnits(1);
+
+    @Param({"0", "10000", "1000000"})
+    private int historySize;
+
+    private Account fromAccount;
+    private Account toAccount;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fromAccount = BenchmarkData.createAccount(100_000_001, historySize);
+        toAccount = BenchmarkData.createAccount(100_000_002, historySize);
+    }
+
+    @Benchmark
+    public TransactionStatus deposit() {
+        return TransactionService.deposit(fromAccount, AMOUNT);
+    }
+
+    @Benchmark
+    public TransactionStatus withdrawal() {
+        return TransactionService.withdrawal(fromAccount, AMOUNT);
+    }
+
+    @Benchmark
+    public TransactionStatus transfer() {
+        return TransactionService.transfer(fromAccount, AMOUNT, toAccount);
+    }
+}
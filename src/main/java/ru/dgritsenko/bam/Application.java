@@ -1,10 +1,24 @@
 package ru.dgritsenko.bam;
 
 import ru.dgritsenko.bam.bank.BankService;
+import ru.dgritsenko.bam.datastorage.BackgroundDataStorage;
 import ru.dgritsenko.bam.datastorage.DataStorage;
 import ru.dgritsenko.bam.datastorage.FileService;
+import ru.dgritsenko.bam.datastorage.InstrumentedDataStorage;
+import ru.dgritsenko.bam.datastorage.JournalFileService;
+import ru.dgritsenko.bam.datastorage.MappedFileService;
+import ru.dgritsenko.bam.datastorage.ShardedFileService;
+import ru.dgritsenko.bam.metrics.MetricsRegistry;
 import ru.dgritsenko.bam.userinterface.console.ConsoleUserInterface;
 import ru.dgritsenko.bam.userinterface.UserInterface;
+import ru.dgritsenko.bam.userinterface.http.HttpUserInterface;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 
 /**
  * Главный класс приложения, содержащий точку входа.
@@ -14,15 +28,131 @@ public class Application {
      * Точка входа в приложение.
      */
     public static void main(String[] args) {
+        // Метрики (отключаются системным свойством bam.metrics=false)
+        if (MetricsRegistry.ENABLED) {
+            startMetrics();
+        }
+
         // Сервис работы с данными
-        DataStorage dataStorage = new FileService();
+        DataStorage dataStorage = createDataStorage(System.getProperty("bam.storage", "file"));
 
         // Сервис работы с банковскими операциями
         BankService bankService = new BankService(dataStorage);
 
+        if (MetricsRegistry.ENABLED) {
+            bankService.registerMetrics();
+        }
+
+        // Движок операций с единственным потоком изменения счетов (задается системным свойством bam.engine)
+        if (Boolean.getBoolean("bam.engine")) {
+            bankService.startEngine();
+        }
+
         // Сервис для взаимодействия с пользователем
-        UserInterface userInterface = new ConsoleUserInterface();
+        UserInterface userInterface = getUserInterface(System.getProperty("bam.ui", "console"));
         userInterface.setBankService(bankService);
-        userInterface.run();
+
+        try {
+            userInterface.run();
+        } finally {
+            bankService.stopEngine();
+            bankService.unregisterMetrics();
+            closeDataStorage(dataStorage);
+        }
+    }
+
+    /**
+     * Закрывает сервис работы с данными, если он поддерживает закрытие: сохраняет несохраненные изменения,
+     * останавливает фоновые потоки и освобождает файлы.
+     *
+     * @param dataStorage сервис работы с данными
+     *
+     * @throws UncheckedIOException если произошла ошибка ввода-вывода при закрытии
+     */
+    private static void closeDataStorage(DataStorage dataStorage) {
+        if (dataStorage instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+
+    /**
+     * Создает сервис работы с данными по названию способа хранения, добавляя сбор метрик
+     * и фоновое сохранение изменений (задается системным свойством {@code bam.async}).
+     *
+     * @param storageName название способа хранения (см. {@link #getDataStorage(String)})
+     *
+     * @return сервис работы с данными
+     */
+    private static DataStorage createDataStorage(String storageName) {
+        DataStorage dataStorage = getDataStorage(storageName);
+        DataStorage measuredStorage = MetricsRegistry.ENABLED
+                ? new InstrumentedDataStorage(dataStorage, storageName)
+                : dataStorage;
+
+        return Boolean.getBoolean("bam.async") ? new BackgroundDataStorage(measuredStorage) : measuredStorage;
+    }
+
+    /**
+     * Регистрирует MBean метрик и, если задано системное свойство {@code bam.metrics.dump}, запускает
+     * периодическую запись отчета по метрикам в указанный файл с интервалом {@code bam.metrics.dumpInterval}
+     * секунд (по умолчанию 60).
+     */
+    private static void startMetrics() {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        registry.registerMBean();
+
+        String dumpPath = System.getProperty("bam.metrics.dump");
+
+        if (dumpPath != null) {
+            Path path = Path.of(dumpPath);
+            Duration interval = Duration.ofSeconds(Long.getLong("bam.metrics.dumpInterval", 60));
+
+            registry.startPeriodicDump(interval, report -> {
+                try {
+                    Files.writeString(path, report);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+    }
+
+    /**
+     * Создает пользовательский интерфейс по названию (задается системным свойством {@code bam.ui}).
+     *
+     * @param userInterfaceName название интерфейса: {@code console} - консольный интерфейс,
+     *                          {@code http} - HTTP-сервер с JSON API
+     *
+     * @return пользовательский интерфейс
+     */
+    private static UserInterface getUserInterface(String userInterfaceName) {
+        return switch (userInterfaceName) {
+            case "http" -> new HttpUserInterface();
+            default -> new ConsoleUserInterface();
+        };
+    }
+
+    /**
+     * Создает сервис работы с данными по названию способа хранения
+     * (задается системным свойством {@code bam.storage}).
+     *
+     * @param storageName название способа хранения: {@code file} - файл со всеми счетами,
+     *                    {@code mapped} - файл со всеми счетами, отображаемый в память,
+     *                    {@code journal} - журнал изменений,
+     *                    {@code sharded} - счета, распределенные по нескольким файлам
+     *
+     * @return сервис работы с данными
+     */
+    public static DataStorage getDataStorage(String storageName) {
+        return switch (storageName) {
+            case "mapped" -> new MappedFileService();
+            case "journal" -> new JournalFileService();
+            case "sharded" -> new ShardedFileService();
+            default -> new FileService();
+        };
     }
-}
\ No newline at end of file
+}
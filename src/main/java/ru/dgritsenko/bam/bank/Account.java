@@ -1,5 +1,8 @@
 package ru.dgritsenko.bam.bank;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.text.MessageFormat;
@@ -7,7 +10,14 @@ import java.util.Objects;
 import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,6 +25,10 @@ import java.util.regex.Pattern;
  * Класс, представляющий банковский счет.
  * <p>Содержит информацию о владельце счета, номере счета, списке транзакций и балансе.
  * <p>Создание объекта выполняется через {@link Builder}.
+ * <p>Изменение транзакций и баланса выполняется под блокировкой счета ({@link #getLock()}),
+ * поэтому счет можно использовать из нескольких потоков.
+ * <p>История транзакций может загружаться по требованию из {@link TransactionHistorySource}:
+ * до первого обращения к транзакциям счет хранит только сохраненный баланс и количество транзакций.
  */
 public class Account implements Serializable {
     @Serial
@@ -22,11 +36,22 @@ public class Account implements Serializable {
 
     private final long accountNumber;
     private String holderName;
-    private final List<Transaction> transactions;
+    private List<Transaction> transactions;
 
-    // Кэширование баланса
-    private transient double cachedBalance;
-    private transient boolean balanceIsValid;
+    // Индекс транзакций по UUID (восстанавливается после десериализации)
+    private transient Map<UUID, Transaction> transactionIndex;
+
+    // Источник еще не загруженной истории транзакций и количество транзакций в ней
+    // (transactions и transactionIndex равны null, пока история не загружена)
+    private transient TransactionHistorySource historySource;
+    private transient int historySize;
+
+    // Текущий баланс в минимальных единицах валюты, поддерживаемый инкрементально
+    // (пересчитывается после десериализации)
+    private transient long balance;
+
+    // Блокировка счета (защищает список транзакций, индекс и баланс)
+    private transient ReentrantLock lock;
 
     // -----------------------------------------------------------------------------------------------------------------
     // OVERRIDDEN
@@ -54,7 +79,65 @@ public class Account implements Serializable {
     private Account(Builder builder) {
         this.accountNumber = builder.accountNumber;
         this.holderName = builder.holderName;
-        this.transactions = builder.transactions;
+        this.lock = new ReentrantLock();
+
+        if (builder.historySource != null) {
+            this.historySource = builder.historySource;
+            this.historySize = builder.historySize;
+            this.balance = builder.balance.getMinorUnits();
+        } else {
+            this.transactions = builder.transactions;
+            this.transactionIndex = getIndexedTransactions(transactions);
+            this.balance = getCalculatedBalance(accountNumber, transactions);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // SERIALIZATION
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Восстанавливает счет из потока, перестраивает индекс транзакций по UUID и пересчитывает баланс.
+     *
+     * @param in поток для чтения объекта
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении
+     * @throws ClassNotFoundException если класс объекта в потоке не найден
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        transactionIndex = getIndexedTransactions(transactions);
+        balance = getCalculatedBalance(accountNumber, transactions);
+        lock = new ReentrantLock();
+    }
+
+    /**
+     * Записывает счет в поток.
+     * <p>Список транзакций копируется под блокировкой счета, а запись выполняется уже без нее,
+     * поэтому сохранение не конфликтует с параллельными операциями и не блокирует связанные счета.
+     *
+     * @param out поток для записи объекта
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        List<Transaction> transactionsSnapshot;
+
+        lock.lock();
+        try {
+            ensureHistoryLoaded();
+            transactionsSnapshot = new ArrayList<>(transactions);
+        } finally {
+            lock.unlock();
+        }
+
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("accountNumber", accountNumber);
+        fields.put("holderName", holderName);
+        fields.put("transactions", transactionsSnapshot);
+        out.writeFields();
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -69,8 +152,108 @@ public class Account implements Serializable {
         return holderName;
     }
 
+    /**
+     * Возвращает снимок списка транзакций счета на момент вызова.
+     * <p>Если история транзакций еще не загружена, она загружается из источника.
+     *
+     * @return неизменяемый список транзакций
+     *
+     * @throws java.io.UncheckedIOException если не удалось загрузить историю транзакций
+     */
     public List<Transaction> getTransactions() {
-        return Collections.unmodifiableList(transactions);
+        lock.lock();
+        try {
+            ensureHistoryLoaded();
+            return Collections.unmodifiableList(new ArrayList<>(transactions));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает диапазон транзакций счета на момент вызова.
+     * <p>
+     * Если история транзакций еще не загружена, диапазон читается из источника без загрузки всей истории
+     * в счет: возвращаемые транзакции не сохраняются в счете и предназначены только для просмотра.
+     *
+     * @param fromIndex индекс первой транзакции (включительно)
+     * @param toIndex индекс последней транзакции (не включительно)
+     *
+     * @return неизменяемый список транзакций диапазона
+     *
+     * @throws IndexOutOfBoundsException если диапазон выходит за пределы истории транзакций
+     * @throws java.io.UncheckedIOException если не удалось прочитать транзакции
+     */
+    public List<Transaction> getTransactions(int fromIndex, int toIndex) {
+        lock.lock();
+        try {
+            if (transactions != null) {
+                return Collections.unmodifiableList(new ArrayList<>(transactions.subList(fromIndex, toIndex)));
+            }
+
+            Objects.checkFromToIndex(fromIndex, toIndex, historySize);
+            return Collections.unmodifiableList(historySource.loadTransactions(this, fromIndex, toIndex));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает транзакцию счета по ее UUID.
+     *
+     * @param uuid UUID транзакции
+     *
+     * @return транзакция счета или {@code null}, если транзакции с таким UUID в счете нет
+     *
+     * @throws java.io.UncheckedIOException если не удалось загрузить историю транзакций
+     */
+    public Transaction getTransaction(UUID uuid) {
+        lock.lock();
+        try {
+            ensureHistoryLoaded();
+            return transactionIndex.get(uuid);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество транзакций счета без загрузки истории транзакций.
+     *
+     * @return количество транзакций
+     */
+    public int getTransactionCount() {
+        lock.lock();
+        try {
+            return transactions != null ? transactions.size() : historySize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Проверяет, загружена ли история транзакций счета.
+     *
+     * @return {@code true}, если транзакции счета находятся в памяти
+     */
+    public boolean isHistoryLoaded() {
+        lock.lock();
+        try {
+            return transactions != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает блокировку счета.
+     * <p>Удержание блокировки делает атомарной последовательность операций со счетом
+     * (например, проверку баланса и добавление транзакции списания).
+     *
+     * @return блокировка счета
+     */
+    public ReentrantLock getLock() {
+        return lock;
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -96,25 +279,120 @@ public class Account implements Serializable {
      *
      * @throws NullPointerException если {@code transaction} равен {@code null}
      * @throws IllegalArgumentException если {@code transaction} уже существует в списке
+     * @throws java.io.UncheckedIOException если не удалось загрузить историю транзакций
      */
     public void addTransaction(Transaction transaction) {
         // Проверка на null
         Objects.requireNonNull(transaction, "Транзакция не должна быть null");
 
-        // Проверка на уникальность транзакции
-        if (transactions.contains(transaction)) {
-            String errMsg = MessageFormat.format(
-                    "Транзакция не уникальна \"{0}\": " +
-                            "транзакция уже есть в списке транзакций счета \"{1}\"",
-                    transaction.getUuid(), this
-            );
-            throw new IllegalArgumentException(errMsg);
+        lock.lock();
+        try {
+            ensureHistoryLoaded();
+
+            // Проверка на уникальность транзакции (по индексу, без перебора списка)
+            if (transactionIndex.putIfAbsent(transaction.getUuid(), transaction) != null) {
+                String errMsg = MessageFormat.format(
+                        "Транзакция не уникальна \"{0}\": " +
+                                "транзакция уже есть в списке транзакций счета \"{1}\"",
+                        transaction.getUuid(), this
+                );
+                throw new IllegalArgumentException(errMsg);
+            }
+
+            transactions.add(transaction);
+
+            // Баланс изменяется только на сумму добавленной транзакции
+            if (transaction.getStatus().isCommitted()) {
+                balance += getBalanceDelta(transaction);
+            }
+        } finally {
+            lock.unlock();
         }
+    }
+
+    /**
+     * Добавляет пакет транзакций в список транзакций счета под одним захватом блокировки
+     * с одним изменением баланса.
+     * <p>Уникальность проверяется для всего пакета до его добавления: если хотя бы одна транзакция
+     * не уникальна, ни одна транзакция пакета не добавляется.
+     *
+     * @param newTransactions транзакции для добавления
+     *
+     * @throws NullPointerException если {@code newTransactions} или любая из транзакций равны {@code null}
+     * @throws IllegalArgumentException если транзакция пакета уже существует в списке или повторяется в пакете
+     * @throws java.io.UncheckedIOException если не удалось загрузить историю транзакций
+     */
+    public void addTransactions(List<Transaction> newTransactions) {
+        // Проверка на null
+        Objects.requireNonNull(newTransactions, "Список транзакций не должен быть null");
+
+        Map<UUID, Transaction> newTransactionIndex = HashMap.newHashMap(newTransactions.size());
+        long balanceDelta = 0;
 
-        transactions.add(transaction);
+        for (Transaction transaction : newTransactions) {
+            Objects.requireNonNull(transaction, "Транзакция не должна быть null");
+
+            if (newTransactionIndex.putIfAbsent(transaction.getUuid(), transaction) != null) {
+                String errMsg = MessageFormat.format(
+                        "Транзакция не уникальна \"{0}\": транзакция повторяется в пакете", transaction.getUuid());
+                throw new IllegalArgumentException(errMsg);
+            }
 
-        // При обновлении списка транзакций требуется пересчет кэша баланса
-        balanceIsValid = false;
+            if (transaction.getStatus().isCommitted()) {
+                balanceDelta += getBalanceDelta(transaction);
+            }
+        }
+
+        lock.lock();
+        try {
+            ensureHistoryLoaded();
+
+            // Проверка на уникальность транзакций пакета до изменения счета
+            for (UUID uuid : newTransactionIndex.keySet()) {
+                if (transactionIndex.containsKey(uuid)) {
+                    String errMsg = MessageFormat.format(
+                            "Транзакция не уникальна \"{0}\": " +
+                                    "транзакция уже есть в списке транзакций счета \"{1}\"",
+                            uuid, this
+                    );
+                    throw new IllegalArgumentException(errMsg);
+                }
+            }
+
+            transactionIndex.putAll(newTransactionIndex);
+            transactions.addAll(newTransactions);
+            balance += balanceDelta;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Корректирует баланс счета при смене статуса его транзакции.
+     * <p>Вызывается из {@link Transaction#setStatus(TransactionStatus)}.
+     *
+     * @param transaction транзакция, статус которой изменен
+     * @param oldStatus предыдущий статус транзакции
+     * @param newStatus новый статус транзакции
+     */
+    void transactionStatusChanged(Transaction transaction, TransactionStatus oldStatus, TransactionStatus newStatus) {
+        lock.lock();
+        try {
+            // Учитываются только транзакции, уже добавленные в список транзакций счета
+            // (добавление транзакции загружает историю, поэтому незагруженная история ее не содержит)
+            if (transactionIndex == null || transactionIndex.get(transaction.getUuid()) != transaction) {
+                return;
+            }
+
+            if (oldStatus != null && oldStatus.isCommitted()) {
+                balance -= getBalanceDelta(transaction);
+            }
+            if (newStatus.isCommitted()) {
+                balance += getBalanceDelta(transaction);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -122,32 +400,73 @@ public class Account implements Serializable {
     // -----------------------------------------------------------------------------------------------------------------
 
     /**
-     * Возвращает текущий баланс счета, вычисляя его на основе подтвержденных транзакций.
+     * Возвращает текущий баланс счета.
      * <p>
-     * Использует кэширование для оптимизации.
+     * Баланс поддерживается инкрементально при добавлении транзакций и смене их статуса,
+     * поэтому вызов не требует перебора истории транзакций.
      *
      * @return текущий баланс счета
      */
-    public double getBalance() {
-        double balance = 0;
+    public Money getBalance() {
+        lock.lock();
+        try {
+            return Money.ofMinorUnits(balance);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        if (balanceIsValid) {
-            // Если данные актуальны, используется кэшированный баланс
-            balance = cachedBalance;
-        } else {
-            // Если данные неактуальны, баланс пересчитывается
-            for (Transaction transaction : transactions) {
-                // Учитываются только подтвержденные транзакции
-                if (transaction.getStatus().isCommitted()) {
-                    double transactionAmount = transaction.getAmount();
-                    balance += transaction.getTransactionType().isAddition() ? transactionAmount : -transactionAmount;
-                }
-            }
-            cachedBalance = balance;
-            balanceIsValid = true;
+    /**
+     * Проверяет, достаточно ли на счете средств для списания суммы.
+     *
+     * @param amount сумма списания
+     *
+     * @return {@code true}, если баланс счета не меньше {@code amount}
+     */
+    public boolean hasSufficientFunds(Money amount) {
+        lock.lock();
+        try {
+            return balance >= amount.getMinorUnits();
+        } finally {
+            lock.unlock();
         }
+    }
 
-        return balance;
+    /**
+     * Выполняет сверку баланса: пересчитывает его по всем подтвержденным транзакциям
+     * и заменяет им текущее значение.
+     *
+     * @return {@code true} если текущий баланс совпал с пересчитанным
+     *
+     * @throws java.io.UncheckedIOException если не удалось загрузить историю транзакций
+     */
+    public boolean verifyBalance() {
+        lock.lock();
+        try {
+            ensureHistoryLoaded();
+            long calculatedBalance = getCalculatedBalance(accountNumber, transactions);
+            boolean isValid = calculatedBalance == balance;
+            balance = calculatedBalance;
+
+            return isValid;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Загружает историю транзакций из источника, если она еще не загружена.
+     * <p>Вызывается под блокировкой счета. Сохраненный баланс не пересчитывается.
+     */
+    private void ensureHistoryLoaded() {
+        if (transactions != null) {
+            return;
+        }
+
+        List<Transaction> loadedTransactions = new ArrayList<>(historySource.loadTransactions(this));
+        transactionIndex = getIndexedTransactions(loadedTransactions);
+        transactions = loadedTransactions;
+        historySource = null;
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -246,23 +565,36 @@ public class Account implements Serializable {
      *
      * @throws NullPointerException если одно из значений {@code transactions} равно {@code null}
      *
-     * @throws IllegalArgumentException если в {@code transactions} есть неуникальные значения
+     * @throws IllegalArgumentException если в {@code transactions} есть транзакции с одинаковыми UUID
+     *                                  (в сообщении перечисляются все повторяющиеся UUID)
      */
     private static List<Transaction> validTransactions(List<Transaction> transactions) {
-        int currentIndex = 0;
+        Set<UUID> uuids = HashSet.newHashSet(transactions.size());
+        Set<UUID> duplicateUuids = null;
 
         for (Transaction transaction : transactions) {
             // Проверка на null
             Objects.requireNonNull(transaction, "В списке транзакций не должно быть null");
 
-            // Проверка на уникальность транзакций в списке
-            int lastTransactionIndex = transactions.lastIndexOf(transaction);
+            // Проверка на уникальность транзакций в списке (за один проход)
+            UUID uuid = transaction.getUuid();
 
-            if(currentIndex != lastTransactionIndex) {
-                throw new IllegalArgumentException("Некорректный список транзакций: список транзакций содержит дубли");
+            if (!uuids.add(uuid)) {
+                if (duplicateUuids == null) {
+                    duplicateUuids = new LinkedHashSet<>();
+                }
+                duplicateUuids.add(uuid);
             }
         }
 
+        if (duplicateUuids != null) {
+            String errMsg = MessageFormat.format(
+                    "Некорректный список транзакций: список транзакций содержит дубли {0}",
+                    duplicateUuids
+            );
+            throw new IllegalArgumentException(errMsg);
+        }
+
         return transactions;
     }
 
@@ -270,13 +602,77 @@ public class Account implements Serializable {
     // METHODS. STATIC WORK WITH FIELD DATA
     // -----------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Вычисляет баланс по всем подтвержденным транзакциям списка.
+     * <p>Пересчет может быть записан Java Flight Recorder как {@link BalanceRecalculationEvent}.
+     *
+     * @param accountNumber номер счета (для события пересчета)
+     * @param transactions список транзакций
+     *
+     * @return вычисленный баланс в минимальных единицах валюты
+     */
+    private static long getCalculatedBalance(long accountNumber, List<Transaction> transactions) {
+        BalanceRecalculationEvent event = new BalanceRecalculationEvent();
+        event.begin();
+
+        long calculatedBalance = 0;
+
+        for (Transaction transaction : transactions) {
+            // Учитываются только подтвержденные транзакции
+            if (transaction.getStatus().isCommitted()) {
+                calculatedBalance += getBalanceDelta(transaction);
+            }
+        }
+
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.accountNumber = accountNumber;
+            event.historyLength = transactions.size();
+            event.commit();
+        }
+
+        return calculatedBalance;
+    }
+
+    /**
+     * Возвращает изменение баланса счета, которое вносит транзакция.
+     *
+     * @param transaction транзакция
+     *
+     * @return сумма транзакции в минимальных единицах валюты со знаком в зависимости от типа транзакции
+     */
+    private static long getBalanceDelta(Transaction transaction) {
+        long transactionAmount = transaction.getAmount().getMinorUnits();
+        return transaction.getTransactionType().isAddition() ? transactionAmount : -transactionAmount;
+    }
+
+    /**
+     * Строит индекс транзакций по UUID.
+     *
+     * @param transactions список транзакций
+     *
+     * @return индекс транзакций, где ключ - UUID транзакции
+     */
+    private static Map<UUID, Transaction> getIndexedTransactions(List<Transaction> transactions) {
+        Map<UUID, Transaction> indexedTransactions = HashMap.newHashMap(transactions.size());
+
+        for (Transaction transaction : transactions) {
+            indexedTransactions.putIfAbsent(transaction.getUuid(), transaction);
+        }
+
+        return indexedTransactions;
+    }
+
     /**
      * Генерирует случайный номер счета в диапазоне 100000000-999999999.
+     * <p>Уникальность номера не гарантируется: счета {@link BankService} получают номера
+     * через {@link AccountNumberAllocator}.
      *
      * @return сгенерированный номер счета
      */
     public static long getGeneratedAccountNumber() {
-        return 100_000_000 + ThreadLocalRandom.current().nextLong(900_000_001);
+        return 100_000_000 + ThreadLocalRandom.current().nextLong(900_000_000);
     }
 
     /**
@@ -310,6 +706,9 @@ public class Account implements Serializable {
         private long accountNumber;
         private String holderName;
         private List<Transaction> transactions;
+        private TransactionHistorySource historySource;
+        private int historySize;
+        private Money balance;
 
         // -------------------------------------------------------------------------------------------------------------
         // BUILDER. CONSTRUCTORS
@@ -346,6 +745,22 @@ public class Account implements Serializable {
             return this;
         }
 
+        /**
+         * Устанавливает историю транзакций, загружаемую по требованию, вместо списка транзакций.
+         *
+         * @param historySource источник истории транзакций
+         * @param historySize количество транзакций в истории
+         * @param balance сохраненный баланс счета
+         *
+         * @return построитель
+         */
+        public Builder setTransactionHistory(TransactionHistorySource historySource, int historySize, Money balance) {
+            this.historySource = historySource;
+            this.historySize = historySize;
+            this.balance = balance;
+            return this;
+        }
+
         // -------------------------------------------------------------------------------------------------------------
         // BUILDER. BUILDING
         // -------------------------------------------------------------------------------------------------------------
@@ -382,9 +797,11 @@ public class Account implements Serializable {
                     ? getGeneratedAccountNumber()
                     : validAccountNumber(accountNumber);
 
-            transactions = transactions == null
-                    ? new ArrayList<>()
-                    : validTransactions(transactions);
+            if (historySource == null) {
+                transactions = transactions == null
+                        ? new ArrayList<>()
+                        : validTransactions(transactions);
+            }
 
             // Расширенные проверки
             holderName = validHolderName(holderName);
@@ -0,0 +1,196 @@
+package ru.dgritsenko.bam.bank;
+
+import java.text.MessageFormat;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+/**
+ * Класс, выдающий уникальные номера счетов в диапазоне 100000000-999999999.
+ * <p>
+ * Номер вычисляется из порядкового номера выдачи (счетчика) перестановкой на основе сети Фейстеля,
+ * поэтому разные значения счетчика всегда дают разные номера, а сами номера выглядят случайными.
+ * Перестановка детерминирована и обратима, поэтому после перезапуска приложения счетчик восстанавливается
+ * по номерам загруженных счетов (см. {@link #restore(List)}). Номера, занятые иначе (например, выданные
+ * ранее случайным генератором), пропускаются при выдаче. Каждое значение счетчика проверяется не более
+ * одного раза, поэтому выдача номера выполняется за амортизированное константное время.
+ * <p>Класс потокобезопасен.
+ */
+public class AccountNumberAllocator {
+    private static final long MIN_ACCOUNT_NUMBER = 100_000_000;
+    private static final long ACCOUNT_NUMBER_RANGE = 900_000_000;
+
+    // Параметры сети Фейстеля: 30-битный блок (2^30 > 900 000 000) из двух половин по 15 бит
+    private static final int HALF_BITS = 15;
+    private static final int HALF_MASK = (1 << HALF_BITS) - 1;
+    private static final int[] ROUND_KEYS = {0x5bd1, 0x1b87, 0x3c6e, 0x7f4a};
+
+    private final AtomicLong counter = new AtomicLong();
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Выдает новый уникальный номер счета.
+     *
+     * @param isTaken проверка занятости номера (например, наличие счета с таким номером в индексе счетов)
+     *
+     * @return уникальный номер счета
+     *
+     * @throws IllegalStateException если все номера счетов исчерпаны
+     */
+    public long allocate(LongPredicate isTaken) {
+        while (true) {
+            long index = counter.getAndIncrement();
+
+            if (index >= ACCOUNT_NUMBER_RANGE) {
+                counter.set(ACCOUNT_NUMBER_RANGE);
+                throw new IllegalStateException("Не удалось выдать номер счета: все номера счетов исчерпаны");
+            }
+
+            long accountNumber = MIN_ACCOUNT_NUMBER + permute(index);
+
+            if (!isTaken.test(accountNumber)) {
+                return accountNumber;
+            }
+        }
+    }
+
+    /**
+     * Восстанавливает счетчик выдачи по номерам загруженных счетов.
+     * <p>Номера, выданные этим классом, соответствуют непрерывному префиксу значений счетчика,
+     * поэтому счетчик устанавливается на первое значение, номер для которого еще не занят.
+     *
+     * @param accounts загруженные счета
+     */
+    public void restore(List<Account> accounts) {
+        int accountsCount = accounts.size();
+        BitSet usedIndexes = new BitSet(accountsCount);
+
+        for (Account account : accounts) {
+            long accountNumber = account.getAccountNumber();
+
+            if (accountNumber >= MIN_ACCOUNT_NUMBER && accountNumber < MIN_ACCOUNT_NUMBER + ACCOUNT_NUMBER_RANGE) {
+                long index = getAllocationIndex(accountNumber);
+
+                // Первое свободное значение не превышает количества счетов, большие значения не нужны
+                if (index < accountsCount) {
+                    usedIndexes.set((int) index);
+                }
+            }
+        }
+
+        long firstFreeIndex = usedIndexes.nextClearBit(0);
+        counter.accumulateAndGet(firstFreeIndex, Math::max);
+    }
+
+    /**
+     * Возвращает порядковый номер выдачи, которому соответствует номер счета.
+     *
+     * @param accountNumber номер счета
+     *
+     * @return порядковый номер выдачи
+     *
+     * @throws IllegalArgumentException если {@code accountNumber} вне диапазона 100000000-999999999
+     */
+    public static long getAllocationIndex(long accountNumber) {
+        long value = accountNumber - MIN_ACCOUNT_NUMBER;
+
+        if (value < 0 || value >= ACCOUNT_NUMBER_RANGE) {
+            String errMsg = MessageFormat.format(
+                    "Некорректный номер счета \"{0}\": " +
+                            "Номер счета должен быть в диапазоне от 100 000 000 до 999 999 999",
+                    Long.toString(accountNumber)
+            );
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        do {
+            value = inverseFeistel(value);
+        } while (value >= ACCOUNT_NUMBER_RANGE);
+
+        return value;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Переставляет значение в диапазоне [0, 900000000).
+     * <p>Сеть Фейстеля задает перестановку на 30-битных значениях; значения за пределами диапазона
+     * повторно пропускаются через сеть ("cycle walking"), что сохраняет взаимную однозначность.
+     *
+     * @param index значение в диапазоне [0, 900000000)
+     *
+     * @return переставленное значение в том же диапазоне
+     */
+    private static long permute(long index) {
+        long value = index;
+
+        do {
+            value = feistel(value);
+        } while (value >= ACCOUNT_NUMBER_RANGE);
+
+        return value;
+    }
+
+    /**
+     * Прямой проход сети Фейстеля по 30-битному значению.
+     *
+     * @param value исходное значение
+     *
+     * @return зашифрованное значение
+     */
+    private static long feistel(long value) {
+        int left = (int) (value >>> HALF_BITS) & HALF_MASK;
+        int right = (int) value & HALF_MASK;
+
+        for (int roundKey : ROUND_KEYS) {
+            int next = left ^ round(right, roundKey);
+            left = right;
+            right = next;
+        }
+
+        return ((long) left << HALF_BITS) | right;
+    }
+
+    /**
+     * Обратный проход сети Фейстеля по 30-битному значению.
+     *
+     * @param value зашифрованное значение
+     *
+     * @return исходное значение
+     */
+    private static long inverseFeistel(long value) {
+        int left = (int) (value >>> HALF_BITS) & HALF_MASK;
+        int right = (int) value & HALF_MASK;
+
+        for (int i = ROUND_KEYS.length - 1; i >= 0; i--) {
+            int previous = right ^ round(left, ROUND_KEYS[i]);
+            right = left;
+            left = previous;
+        }
+
+        return ((long) left << HALF_BITS) | right;
+    }
+
+    /**
+     * Раундовая функция сети Фейстеля.
+     *
+     * @param half половина блока
+     * @param roundKey ключ раунда
+     *
+     * @return перемешанное 15-битное значение
+     */
+    private static int round(int half, int roundKey) {
+        int value = (half ^ roundKey) * 0x9e3779b1;
+        value ^= value >>> 15;
+        value *= 0x85ebca6b;
+        value ^= value >>> 13;
+
+        return value & HALF_MASK;
+    }
+}
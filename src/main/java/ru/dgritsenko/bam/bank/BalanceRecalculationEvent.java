@@ -0,0 +1,28 @@
+package ru.dgritsenko.bam.bank;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие Java Flight Recorder, представляющее полный пересчет баланса счета по истории транзакций
+ * (при создании счета с транзакциями, десериализации и сверке баланса).
+ * <p>Событие отключено по умолчанию и включается настройками записи {@code bam.jfc}.
+ */
+@Name("ru.dgritsenko.bam.BalanceRecalculation")
+@Label("Balance Recalculation")
+@Category({"Bank Account Management", "Bank"})
+@Description("Полный пересчет баланса счета по истории транзакций")
+@Enabled(false)
+@StackTrace(false)
+final class BalanceRecalculationEvent extends jdk.jfr.Event {
+    @Label("Account Number")
+    long accountNumber;
+
+    @Label("History Length")
+    @Description("Количество транзакций в истории счета")
+    int historyLength;
+}
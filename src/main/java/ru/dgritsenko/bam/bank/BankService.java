@@ -1,37 +1,110 @@
 package ru.dgritsenko.bam.bank;
 
 import ru.dgritsenko.bam.datastorage.DataStorage;
+import ru.dgritsenko.bam.metrics.Gauge;
+import ru.dgritsenko.bam.metrics.LatencyHistogram;
+import ru.dgritsenko.bam.metrics.MetricsRegistry;
+import ru.dgritsenko.bam.util.LongHashMap;
 
 import java.io.IOException;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Сервис для управления банковскими счетами и транзакциями.
+ * <p>Сервис потокобезопасен: список и индекс счетов защищены блокировкой чтения-записи,
+ * а операции по счетам выполняются {@link TransactionService} под блокировками счетов.
+ * <p>Длительность операций, загрузки, сохранения и создания счетов записывается в гистограммы задержек
+ * {@code bank.*} реестра метрик, а количество счетов доступно как показатель {@code bank.accounts}
+ * после вызова {@link #registerMetrics()}.
+ * <p>После запуска движка операций ({@link #startEngine()}) операции выполняются единственным потоком
+ * {@link TransactionEngine} в порядке поступления, а хранилище данных уведомляется о транзакциях в том же порядке.
  */
 public class BankService {
+    private static final long PROGRESS_INTERVAL_MILLIS = 200;
+
+    // Гистограммы задержек операций, индексированные порядковым номером типа операции
+    private static final LatencyHistogram[] TRANSACTION_LATENCIES = createTransactionLatencies();
+    private static final LatencyHistogram LOAD_LATENCY = MetricsRegistry.getDefault().histogram("bank.loadAccounts");
+    private static final LatencyHistogram SAVE_LATENCY = MetricsRegistry.getDefault().histogram("bank.saveAccounts");
+    private static final LatencyHistogram CREATE_ACCOUNT_LATENCY =
+            MetricsRegistry.getDefault().histogram("bank.createAccount");
+    private static final LatencyHistogram BATCH_LATENCY = MetricsRegistry.getDefault().histogram("bank.performBatch");
+    private static final String ACCOUNTS_GAUGE_NAME = "bank.accounts";
+
     private final DataStorage dataStorage;
     private final List<Account> accounts;
 
+    // Индекс счетов по номеру счета
+    private final LongHashMap<Account> accountsByNumber;
+
+    // Выдача уникальных номеров для новых счетов
+    private final AccountNumberAllocator accountNumberAllocator;
+
+    // Создаваемые счета, о которых еще уведомляется хранилище данных: номера заняты, но счета недоступны
+    private final LongHashMap<Account> pendingAccountsByNumber;
+
+    // Блокировка списка и индекса счетов, а также создаваемых счетов
+    private final ReadWriteLock accountsLock;
+
+    // Движок операций или null, если операции выполняются вызывающими потоками
+    private volatile TransactionEngine engine;
+
+    // Показатель количества счетов или null, если показатель не зарегистрирован
+    private Gauge accountsGauge;
+
     // -----------------------------------------------------------------------------------------------------------------
     // CONSTRUCTORS
     // -----------------------------------------------------------------------------------------------------------------
 
     /**
-     * Создает сервис банковского приложения и загружает сохраненные данные.
+     * Создает сервис банковского приложения.
+     * <p>Показатель количества счетов регистрируется отдельно ({@link #registerMetrics()}).
      */
     public BankService(DataStorage dataStorage) {
         this.dataStorage = dataStorage;
         this.accounts = new ArrayList<>();
+        this.accountsByNumber = new LongHashMap<>();
+        this.accountNumberAllocator = new AccountNumberAllocator();
+        this.pendingAccountsByNumber = new LongHashMap<>();
+        this.accountsLock = new ReentrantReadWriteLock();
     }
 
     // -----------------------------------------------------------------------------------------------------------------
     // GETTERS
     // -----------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Возвращает снимок списка счетов на момент вызова.
+     *
+     * @return неизменяемый список счетов
+     */
     public List<Account> getAccounts() {
-        return Collections.unmodifiableList(accounts);
+        accountsLock.readLock().lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(accounts));
+        } finally {
+            accountsLock.readLock().unlock();
+        }
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -39,14 +112,59 @@ public class BankService {
     // -----------------------------------------------------------------------------------------------------------------
 
     /**
-     * Загружает данные списка счетов в {@code accounts}.
+     * Загружает данные списка счетов в {@code accounts}, добавляет их в индекс счетов по номеру
+     * и восстанавливает состояние выдачи номеров счетов.
      *
      * @throws IOException если произошла ошибка ввода-вывода при чтении файла
      * @throws ClassNotFoundException если класс объекта в файле не найден
      */
     public void loadAccounts() throws IOException, ClassNotFoundException {
+        long startTime = startTimer();
+        addLoadedAccounts(dataStorage.loadAccounts());
+        recordLatency(LOAD_LATENCY, startTime);
+    }
+
+    /**
+     * Загружает данные списка счетов и до их добавления в {@code accounts} подготавливает счета к работе:
+     * параллельно загружает историю транзакций, не загруженную хранилищем данных, строит индексы транзакций
+     * и сверяет сохраненные балансы с историей. После загрузки операции не обращаются к хранилищу за историей.
+     *
+     * @param progressListener получатель уведомлений о ходе подготовки счетов
+     *
+     * @throws NullPointerException если {@code progressListener} равен {@code null}
+     * @throws IOException если произошла ошибка ввода-вывода при чтении файла, данные повреждены
+     *                     или сохраненный баланс счета не совпадает с историей транзакций
+     * @throws ClassNotFoundException если класс объекта в файле не найден
+     */
+    public void loadAccounts(LoadProgressListener progressListener) throws IOException, ClassNotFoundException {
+        Objects.requireNonNull(progressListener, "Получатель уведомлений не должен быть null");
+
+        long startTime = startTimer();
         List<Account> loadedAccounts = dataStorage.loadAccounts();
-        accounts.addAll(loadedAccounts);
+        warmUpAccounts(loadedAccounts, progressListener);
+        addLoadedAccounts(loadedAccounts);
+        recordLatency(LOAD_LATENCY, startTime);
+    }
+
+    /**
+     * Добавляет загруженные счета в {@code accounts} и в индекс счетов по номеру
+     * и восстанавливает состояние выдачи номеров счетов.
+     *
+     * @param loadedAccounts загруженные счета
+     */
+    private void addLoadedAccounts(List<Account> loadedAccounts) {
+        accountsLock.writeLock().lock();
+        try {
+            accounts.addAll(loadedAccounts);
+
+            for (Account account : loadedAccounts) {
+                accountsByNumber.put(account.getAccountNumber(), account);
+            }
+
+            accountNumberAllocator.restore(accounts);
+        } finally {
+            accountsLock.writeLock().unlock();
+        }
     }
 
     /**
@@ -55,23 +173,225 @@ public class BankService {
      * @throws IOException если произошла ошибка ввода-вывода при записи файла
      */
     public void saveAccounts() throws IOException {
-        dataStorage.saveAccounts(accounts);
+        long startTime = startTimer();
+        dataStorage.saveAccounts(getAccounts());
+        recordLatency(SAVE_LATENCY, startTime);
     }
 
     /**
-     * Создает новый счет, добавляет в список и возвращает его.
+     * Создает новый счет с уникальным номером, добавляет в список и возвращает его.
+     * <p>Хранилище данных уведомляется о счете до того, как счет станет доступен для операций. Блокировка
+     * списка счетов захватывается только для выдачи номера и для добавления счета, поэтому поиск счетов
+     * не ожидает записи в хранилище. На время уведомления номер счета остается занятым.
      *
      * @return созданный счет
      *
      * @throws NullPointerException если {@code holderName} равен {@code null}
      * @throws IllegalArgumentException если {@code holderName} имеет неверный формат
+     * @throws UncheckedIOException если хранилищу данных не удалось сохранить счет
      */
     public Account createAccount(String holderName) {
-        Account account = new Account.Builder().setHolderName(holderName).build();
-        accounts.add(account);
+        long startTime = startTimer();
+        Account account;
+
+        accountsLock.writeLock().lock();
+        try {
+            long accountNumber = accountNumberAllocator.allocate(this::isAccountNumberTaken);
+
+            account = new Account.Builder()
+                    .setAccountNumber(accountNumber)
+                    .setHolderName(holderName)
+                    .build();
+
+            pendingAccountsByNumber.put(accountNumber, account);
+        } finally {
+            accountsLock.writeLock().unlock();
+        }
+
+        boolean isSaved = false;
+
+        try {
+            dataStorage.accountCreated(account);
+            isSaved = true;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            accountsLock.writeLock().lock();
+            try {
+                pendingAccountsByNumber.remove(account.getAccountNumber());
+
+                if (isSaved) {
+                    accounts.add(account);
+                    accountsByNumber.put(account.getAccountNumber(), account);
+                }
+            } finally {
+                accountsLock.writeLock().unlock();
+            }
+        }
+
+        recordLatency(CREATE_ACCOUNT_LATENCY, startTime);
         return account;
     }
 
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. METRICS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Регистрирует показатель {@code bank.accounts} (количество счетов сервиса) в реестре метрик.
+     * <p>Реестр хранит ссылку на сервис до вызова {@link #unregisterMetrics()}. Повторный вызов не изменяет
+     * регистрацию, а показатель другого сервиса с тем же названием заменяется.
+     */
+    public synchronized void registerMetrics() {
+        if (accountsGauge != null) {
+            return;
+        }
+
+        accountsGauge = this::getNumberOfAccounts;
+        MetricsRegistry.getDefault().gauge(ACCOUNTS_GAUGE_NAME, accountsGauge);
+    }
+
+    /**
+     * Удаляет показатель {@code bank.accounts} сервиса из реестра метрик, если он зарегистрирован.
+     * <p>Показатель, зарегистрированный после этого другим сервисом, не удаляется.
+     */
+    public synchronized void unregisterMetrics() {
+        if (accountsGauge == null) {
+            return;
+        }
+
+        MetricsRegistry.getDefault().removeGauge(ACCOUNTS_GAUGE_NAME, accountsGauge);
+        accountsGauge = null;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. IMPORT
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Добавляет импортированные счета (например, при переносе счетов из другой системы).
+     * <p>Уникальность номеров проверяется для всего списка до добавления. Хранилище данных уведомляется
+     * о всех счетах одним вызовом ({@link DataStorage#accountsCreated(List)}) до того, как счета станут
+     * доступны. Как и при создании счета, блокировка списка счетов захватывается только для резервирования
+     * номеров и для добавления счетов, поэтому поиск счетов не ожидает записи в хранилище. Если хранилищу
+     * не удалось сохранить счета, ни один из них не добавляется.
+     *
+     * @param importedAccounts импортированные счета
+     *
+     * @throws NullPointerException если {@code importedAccounts} или любой из счетов равны {@code null}
+     * @throws IllegalArgumentException если номер счета уже существует или повторяется в списке
+     * @throws IllegalStateException если запущен движок операций
+     * @throws UncheckedIOException если хранилищу данных не удалось сохранить счет
+     */
+    public void addImportedAccounts(List<Account> importedAccounts) {
+        Objects.requireNonNull(importedAccounts, "Список счетов не должен быть null");
+        checkEngineStopped();
+
+        for (Account account : importedAccounts) {
+            Objects.requireNonNull(account, "Счет не должен быть null");
+        }
+
+        accountsLock.writeLock().lock();
+        try {
+            LongHashMap<Account> importedAccountsByNumber = new LongHashMap<>(importedAccounts.size());
+
+            for (Account account : importedAccounts) {
+                long accountNumber = account.getAccountNumber();
+
+                if (isAccountNumberTaken(accountNumber)
+                        || importedAccountsByNumber.putIfAbsent(accountNumber, account) != null) {
+                    String errMsg = MessageFormat.format(
+                            "Номер счета не уникален \"{0}\": счет с таким номером уже существует",
+                            Long.toString(accountNumber));
+                    throw new IllegalArgumentException(errMsg);
+                }
+            }
+
+            for (Account account : importedAccounts) {
+                pendingAccountsByNumber.put(account.getAccountNumber(), account);
+            }
+        } finally {
+            accountsLock.writeLock().unlock();
+        }
+
+        boolean isSaved = false;
+
+        try {
+            dataStorage.accountsCreated(importedAccounts);
+            isSaved = true;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            accountsLock.writeLock().lock();
+            try {
+                for (Account account : importedAccounts) {
+                    pendingAccountsByNumber.remove(account.getAccountNumber());
+                }
+
+                if (isSaved) {
+                    accounts.addAll(importedAccounts);
+
+                    for (Account account : importedAccounts) {
+                        accountsByNumber.put(account.getAccountNumber(), account);
+                    }
+                }
+            } finally {
+                accountsLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Добавляет импортированные транзакции в их счета (историю операций, перенесенную из другой системы).
+     * <p>Транзакции не проверяются на достаточность средств. Транзакции одного счета добавляются под одним
+     * захватом его блокировки с одним изменением баланса ({@link Account#addTransactions(List)}), а хранилище
+     * данных уведомляется о всех транзакциях одним вызовом. Если добавление прервано исключением,
+     * хранилище все равно уведомляется о транзакциях, уже добавленных в счета.
+     *
+     * @param importedTransactions импортированные транзакции
+     *
+     * @throws NullPointerException если {@code importedTransactions} или любая из транзакций равны {@code null}
+     * @throws IllegalArgumentException если транзакция уже существует в счете или повторяется в списке
+     * @throws IllegalStateException если запущен движок операций
+     * @throws UncheckedIOException если хранилищу данных не удалось сохранить транзакции
+     *                              или не удалось загрузить историю транзакций счета
+     */
+    public void addImportedTransactions(List<Transaction> importedTransactions) {
+        Objects.requireNonNull(importedTransactions, "Список транзакций не должен быть null");
+        checkEngineStopped();
+
+        Map<Account, List<Transaction>> accountGroups = new LinkedHashMap<>();
+
+        for (Transaction transaction : importedTransactions) {
+            Objects.requireNonNull(transaction, "Транзакция не должна быть null");
+            accountGroups.computeIfAbsent(transaction.getFromAccount(), _ -> new ArrayList<>()).add(transaction);
+        }
+
+        List<Transaction> addedTransactions = new ArrayList<>(importedTransactions.size());
+
+        try {
+            for (Map.Entry<Account, List<Transaction>> accountGroup : accountGroups.entrySet()) {
+                accountGroup.getKey().addTransactions(accountGroup.getValue());
+                addedTransactions.addAll(accountGroup.getValue());
+            }
+        } catch (RuntimeException exception) {
+            // Транзакции, уже добавленные в счета, передаются в хранилище до выхода с ошибкой
+            if (!addedTransactions.isEmpty()) {
+                try {
+                    transactionsPosted(addedTransactions);
+                } catch (RuntimeException storageException) {
+                    exception.addSuppressed(storageException);
+                }
+            }
+
+            throw exception;
+        }
+
+        if (!addedTransactions.isEmpty()) {
+            transactionsPosted(addedTransactions);
+        }
+    }
+
     // -----------------------------------------------------------------------------------------------------------------
     // METHODS. GETTING DATA
     // -----------------------------------------------------------------------------------------------------------------
@@ -86,7 +406,29 @@ public class BankService {
      * @throws IndexOutOfBoundsException если {@code indexInAccounts} не существует в {@code accounts}
      */
     public Account getAccount(int indexInAccounts) {
-        return accounts.get(indexInAccounts);
+        accountsLock.readLock().lock();
+        try {
+            return accounts.get(indexInAccounts);
+        } finally {
+            accountsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает счет по номеру счета.
+     * <p>Поиск выполняется по индексу за константное время, независимо от количества счетов.
+     *
+     * @param accountNumber номер счета
+     *
+     * @return счет или {@code null}, если счета с таким номером нет
+     */
+    public Account findAccount(long accountNumber) {
+        accountsLock.readLock().lock();
+        try {
+            return accountsByNumber.get(accountNumber);
+        } finally {
+            accountsLock.readLock().unlock();
+        }
     }
 
     /**
@@ -95,7 +437,12 @@ public class BankService {
      * @return количество счетов
      */
     public int getNumberOfAccounts() {
-        return accounts.size();
+        accountsLock.readLock().lock();
+        try {
+            return accounts.size();
+        } finally {
+            accountsLock.readLock().unlock();
+        }
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -113,13 +460,22 @@ public class BankService {
      *
      * @throws NullPointerException если любой из обязательных параметров равен {@code null}
      * @throws IllegalArgumentException если {@code amount} <= {@code 0}
+     * @throws UncheckedIOException если хранилищу данных не удалось сохранить транзакции
+     * @throws IllegalStateException если движок операций останавливается во время вызова
      */
     public TransactionStatus performTransaction(
             TransactionType transactionType,
             Account fromAccount,
-            double amount)
+            Money amount)
     {
-        return TransactionService.perform(transactionType, fromAccount, amount);
+        long startTime = startTimer();
+        TransactionEngine currentEngine = engine;
+        TransactionStatus status = currentEngine != null
+                ? currentEngine.perform(buildCommand(transactionType, fromAccount, amount, null))
+                : TransactionService.perform(transactionType, fromAccount, amount, this::transactionsPosted);
+        recordLatency(TRANSACTION_LATENCIES[transactionType.ordinal()], startTime);
+
+        return status;
     }
 
     /**
@@ -134,13 +490,395 @@ public class BankService {
      *
      * @throws NullPointerException если любой из обязательных параметров равен {@code null}
      * @throws IllegalArgumentException если {@code amount} <= {@code 0}
+     * @throws UncheckedIOException если хранилищу данных не удалось сохранить транзакции
+     * @throws IllegalStateException если движок операций останавливается во время вызова
      */
     public TransactionStatus performTransaction(
             TransactionType transactionType,
             Account fromAccount,
-            double amount,
+            Money amount,
+            Account toAccount)
+    {
+        long startTime = startTimer();
+        TransactionEngine currentEngine = engine;
+        TransactionStatus status = currentEngine != null
+                ? currentEngine.perform(buildCommand(transactionType, fromAccount, amount, toAccount))
+                : TransactionService.perform(transactionType, fromAccount, amount, toAccount, this::transactionsPosted);
+        recordLatency(TRANSACTION_LATENCIES[transactionType.ordinal()], startTime);
+
+        return status;
+    }
+
+    /**
+     * Выполняет пакет операций (например, зачисление зарплат).
+     * <p>Операции одного счета применяются под одним захватом его блокировки с одним изменением баланса,
+     * а транзакции всего пакета передаются в хранилище данных одним вызовом (см.
+     * {@link TransactionService#performBatch(List, TransactionListener)}). Если запущен движок операций,
+     * команды пакета передаются ему и выполняются по одной в порядке пакета.
+     *
+     * @param commands команды пакета
+     *
+     * @return статусы операций в порядке команд пакета
+     *
+     * @throws NullPointerException если {@code commands} или любая из команд равны {@code null}
+     * @throws UncheckedIOException если хранилищу данных не удалось сохранить транзакции
+     * @throws IllegalStateException если движок операций останавливается во время вызова
+     */
+    public List<TransactionStatus> performBatch(List<TransactionCommand> commands) {
+        long startTime = startTimer();
+        TransactionEngine currentEngine = engine;
+        List<TransactionStatus> statuses = currentEngine != null
+                ? performBatch(currentEngine, commands)
+                : TransactionService.performBatch(commands, this::transactionsPosted);
+        recordLatency(BATCH_LATENCY, startTime);
+
+        return statuses;
+    }
+
+    /**
+     * Передает команду на выполнение без ожидания результата.
+     * <p>Если движок операций не запущен, команда выполняется в вызывающем потоке и возвращается
+     * завершенный результат.
+     *
+     * @param command команда
+     *
+     * @return статус операции, завершаемый исключением, если операцию не удалось выполнить
+     *         или хранилищу данных не удалось сохранить транзакции
+     *
+     * @throws NullPointerException если {@code command} равен {@code null}
+     */
+    public CompletableFuture<TransactionStatus> submitTransaction(TransactionCommand command) {
+        Objects.requireNonNull(command, "Команда не должна быть null");
+
+        TransactionEngine currentEngine = engine;
+
+        if (currentEngine != null) {
+            return currentEngine.submit(command);
+        }
+
+        try {
+            return CompletableFuture.completedFuture(command.getToAccount() == null
+                    ? performTransaction(command.getTransactionType(), command.getFromAccount(), command.getAmount())
+                    : performTransaction(command.getTransactionType(), command.getFromAccount(),
+                            command.getAmount(), command.getToAccount()));
+        } catch (RuntimeException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. ENGINE
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Запускает движок операций с буфером на 65536 команд.
+     *
+     * @throws IllegalStateException если движок уже запущен
+     */
+    public void startEngine() {
+        startEngine(new TransactionEngine(this::transactionsPosted));
+    }
+
+    /**
+     * Запускает движок операций.
+     *
+     * @param ringSize размер кольцевого буфера команд (степень двойки)
+     *
+     * @throws IllegalArgumentException если {@code ringSize} не является положительной степенью двойки
+     * @throws IllegalStateException если движок уже запущен
+     */
+    public void startEngine(int ringSize) {
+        startEngine(new TransactionEngine(this::transactionsPosted, ringSize));
+    }
+
+    /**
+     * Останавливает движок операций, дожидаясь выполнения принятых команд.
+     * Последующие операции выполняются вызывающими потоками. Если движок не запущен, действий не выполняется.
+     * <p>Операции, переданные во время остановки, завершаются исключением {@link IllegalStateException}:
+     * они не выполняются вызывающими потоками, пока движок не применил все принятые команды.
+     */
+    public synchronized void stopEngine() {
+        TransactionEngine currentEngine = engine;
+
+        if (currentEngine != null) {
+            currentEngine.close();
+            engine = null;
+        }
+    }
+
+    /**
+     * Устанавливает запущенный движок операций.
+     *
+     * @param newEngine запущенный движок
+     *
+     * @throws IllegalStateException если движок уже запущен
+     */
+    private synchronized void startEngine(TransactionEngine newEngine) {
+        if (engine != null) {
+            newEngine.close();
+            throw new IllegalStateException("Движок операций уже запущен");
+        }
+
+        engine = newEngine;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Проверяет, занят ли номер счетом сервиса или создаваемым счетом. Вызывается под блокировкой списка счетов.
+     *
+     * @param accountNumber номер счета
+     *
+     * @return {@code true}, если номер занят
+     */
+    private boolean isAccountNumberTaken(long accountNumber) {
+        return accountsByNumber.containsKey(accountNumber) || pendingAccountsByNumber.containsKey(accountNumber);
+    }
+
+    /**
+     * Передает команды пакета движку операций и ожидает результатов всех команд.
+     *
+     * @param currentEngine движок операций
+     * @param commands команды пакета
+     *
+     * @return статусы операций в порядке команд пакета
+     *
+     * @throws NullPointerException если {@code commands} или любая из команд равны {@code null}
+     */
+    private static List<TransactionStatus> performBatch(
+            TransactionEngine currentEngine,
+            List<TransactionCommand> commands)
+    {
+        Objects.requireNonNull(commands, "Список команд не должен быть null");
+
+        for (TransactionCommand command : commands) {
+            Objects.requireNonNull(command, "Команда пакета не должна быть null");
+        }
+
+        List<CompletableFuture<TransactionStatus>> replies = new ArrayList<>(commands.size());
+
+        for (TransactionCommand command : commands) {
+            replies.add(currentEngine.submit(command));
+        }
+
+        List<TransactionStatus> statuses = new ArrayList<>(replies.size());
+
+        for (CompletableFuture<TransactionStatus> reply : replies) {
+            try {
+                statuses.add(reply.join());
+            } catch (CompletionException exception) {
+                if (exception.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+
+                throw exception;
+            }
+        }
+
+        return Collections.unmodifiableList(statuses);
+    }
+
+    /**
+     * Проверяет, что движок операций не запущен.
+     *
+     * @throws IllegalStateException если движок операций запущен
+     */
+    private void checkEngineStopped() {
+        if (engine != null) {
+            throw new IllegalStateException("Импорт недоступен при запущенном движке операций");
+        }
+    }
+
+    /**
+     * Создает команду операции для движка операций.
+     *
+     * @param transactionType тип операции
+     * @param fromAccount счет отправителя
+     * @param amount сумма операции
+     * @param toAccount счет получателя или {@code null}
+     *
+     * @return команда
+     *
+     * @throws NullPointerException если любой из обязательных параметров равен {@code null}
+     * @throws IllegalArgumentException если {@code amount} <= {@code 0}
+     */
+    private static TransactionCommand buildCommand(
+            TransactionType transactionType,
+            Account fromAccount,
+            Money amount,
             Account toAccount)
     {
-        return TransactionService.perform(transactionType, fromAccount, amount, toAccount);
+        return new TransactionCommand.Builder()
+                .setTransactionType(transactionType)
+                .setFromAccount(fromAccount)
+                .setAmount(amount)
+                .setToAccount(toAccount)
+                .build();
+    }
+
+    /**
+     * Параллельно подготавливает счета к работе, периодически уведомляя о ходе подготовки.
+     *
+     * @param loadedAccounts загруженные счета
+     * @param progressListener получатель уведомлений о ходе подготовки счетов
+     *
+     * @throws IOException если не удалось загрузить историю транзакций счета
+     *                     или сохраненный баланс счета не совпадает с историей транзакций
+     */
+    private static void warmUpAccounts(List<Account> loadedAccounts, LoadProgressListener progressListener)
+            throws IOException
+    {
+        int totalAccounts = loadedAccounts.size();
+        AtomicInteger preparedAccounts = new AtomicInteger();
+
+        try (ForkJoinPool pool = new ForkJoinPool()) {
+            ForkJoinTask<Void> task = pool.submit(
+                    new WarmUpTask(loadedAccounts, 0, totalAccounts, preparedAccounts));
+
+            while (true) {
+                progressListener.progressChanged(preparedAccounts.get(), totalAccounts);
+
+                try {
+                    task.get(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException _) {
+                    // Подготовка продолжается: очередное уведомление о ходе подготовки
+                } catch (InterruptedException exception) {
+                    task.cancel(true);
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Подготовка счетов прервана", exception);
+                } catch (ExecutionException exception) {
+                    switch (exception.getCause()) {
+                        case UncheckedIOException cause -> throw cause.getCause();
+                        case RuntimeException cause -> throw cause;
+                        case Error cause -> throw cause;
+                        default -> throw new IOException(exception.getCause());
+                    }
+                }
+            }
+        }
+
+        progressListener.progressChanged(totalAccounts, totalAccounts);
+    }
+
+    /**
+     * Возвращает время начала измеряемого действия.
+     *
+     * @return текущее значение {@link System#nanoTime()} или {@code 0}, если метрики отключены
+     */
+    private static long startTimer() {
+        return MetricsRegistry.ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Записывает длительность завершенного действия в гистограмму задержек, если метрики включены.
+     *
+     * @param histogram гистограмма задержек
+     * @param startTime время начала действия ({@link #startTimer()})
+     */
+    private static void recordLatency(LatencyHistogram histogram, long startTime) {
+        if (MetricsRegistry.ENABLED) {
+            histogram.record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Создает гистограммы задержек операций для всех типов операций.
+     *
+     * @return гистограммы, индексированные порядковым номером типа операции
+     */
+    private static LatencyHistogram[] createTransactionLatencies() {
+        TransactionType[] transactionTypes = TransactionType.values();
+        LatencyHistogram[] histograms = new LatencyHistogram[transactionTypes.length];
+
+        for (TransactionType transactionType : transactionTypes) {
+            String typeName = transactionType.name().toLowerCase(Locale.ROOT);
+            histograms[transactionType.ordinal()] = MetricsRegistry.getDefault()
+                    .histogram("bank.transaction." + typeName);
+        }
+
+        return histograms;
+    }
+
+    /**
+     * Передает транзакции завершенной операции в хранилище данных.
+     *
+     * @param transactions транзакции операции
+     *
+     * @throws UncheckedIOException если хранилищу данных не удалось сохранить транзакции
+     */
+    private void transactionsPosted(List<Transaction> transactions) {
+        try {
+            dataStorage.transactionsPosted(transactions);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // WARM UP TASK NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс задачи подготовки диапазона загруженных счетов к работе.
+     * <p>Диапазон делится пополам, пока не станет меньше {@link #THRESHOLD} счетов.
+     */
+    private static final class WarmUpTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private static final int THRESHOLD = 64;
+
+        // Задача выполняется только в пуле потоков и не сериализуется
+        private final transient List<Account> accounts;
+        private final int fromIndex;
+        private final int toIndex;
+        private final AtomicInteger preparedAccounts;
+
+        /**
+         * Создает задачу подготовки счетов.
+         *
+         * @param accounts загруженные счета
+         * @param fromIndex индекс первого счета диапазона (включительно)
+         * @param toIndex индекс последнего счета диапазона (не включительно)
+         * @param preparedAccounts счетчик подготовленных счетов
+         */
+        private WarmUpTask(List<Account> accounts, int fromIndex, int toIndex, AtomicInteger preparedAccounts) {
+            this.accounts = accounts;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.preparedAccounts = preparedAccounts;
+        }
+
+        /**
+         * Загружает историю транзакций счетов диапазона и сверяет их сохраненные балансы с историей.
+         *
+         * @throws UncheckedIOException если не удалось загрузить историю транзакций
+         *                              или сохраненный баланс счета не совпадает с историей транзакций
+         */
+        @Override
+        protected void compute() {
+            if (toIndex - fromIndex > THRESHOLD) {
+                int middleIndex = (fromIndex + toIndex) >>> 1;
+                invokeAll(new WarmUpTask(accounts, fromIndex, middleIndex, preparedAccounts),
+                        new WarmUpTask(accounts, middleIndex, toIndex, preparedAccounts));
+                return;
+            }
+
+            for (int i = fromIndex; i < toIndex; i++) {
+                Account account = accounts.get(i);
+
+                // Баланс счета с загруженной историей уже рассчитан или проверен при чтении
+                if (!account.isHistoryLoaded() && !account.verifyBalance()) {
+                    String errMsg = MessageFormat.format(
+                            "Сохраненный баланс счета \"{0}\" не совпадает с историей транзакций", account);
+                    throw new UncheckedIOException(new IOException(errMsg));
+                }
+            }
+
+            preparedAccounts.addAndGet(toIndex - fromIndex);
+        }
     }
-}
\ No newline at end of file
+}
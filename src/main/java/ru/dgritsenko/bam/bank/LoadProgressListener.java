@@ -0,0 +1,18 @@
+package ru.dgritsenko.bam.bank;
+
+/**
+ * Интерфейс получателя уведомлений о ходе подготовки загруженных счетов к работе.
+ * <p>
+ * Уведомления отправляются {@link BankService#loadAccounts(LoadProgressListener)} в потоке, вызвавшем загрузку,
+ * не реже нескольких раз в секунду, а последнее уведомление сообщает о подготовке всех счетов.
+ */
+@FunctionalInterface
+public interface LoadProgressListener {
+    /**
+     * Обрабатывает изменение хода подготовки счетов.
+     *
+     * @param preparedAccounts количество подготовленных счетов
+     * @param totalAccounts общее количество загруженных счетов
+     */
+    void progressChanged(int preparedAccounts, int totalAccounts);
+}
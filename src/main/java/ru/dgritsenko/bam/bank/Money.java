@@ -0,0 +1,247 @@
+package ru.dgritsenko.bam.bank;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.Objects;
+
+/**
+ * Класс, представляющий денежную сумму с фиксированной точностью.
+ * <p>Сумма хранится целым числом минимальных единиц валюты (копеек) в {@code long}, поэтому
+ * сложение и сравнение сумм выполняются точно и без промежуточных объектов.
+ * Количество знаков после запятой задается константой {@link #SCALE}.
+ * <p>Объекты класса неизменяемы.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Количество знаков дробной части (минимальных единиц валюты в основной единице - 10^SCALE).
+     */
+    public static final int SCALE = 2;
+
+    /**
+     * Количество минимальных единиц валюты в одной основной единице.
+     */
+    public static final long MINOR_UNITS_PER_UNIT = 100;
+
+    /**
+     * Нулевая сумма.
+     */
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает строковое представление суммы в формате: "ЦелаяЧасть.ДробнаяЧасть" (например, "1500.25").
+     *
+     * @return строковое представление суммы
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    /**
+     * Сравнивает суммы на равенство.
+     *
+     * @param object объект для сравнения
+     *
+     * @return {@code true}, если {@code object} - сумма с тем же количеством минимальных единиц
+     */
+    @Override
+    public boolean equals(Object object) {
+        return this == object || (object instanceof Money money && minorUnits == money.minorUnits);
+    }
+
+    /**
+     * Возвращает хэш-код суммы.
+     *
+     * @return хэш-код суммы
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    /**
+     * Сравнивает суммы по величине.
+     *
+     * @param money сумма для сравнения
+     *
+     * @return отрицательное число, ноль или положительное число, если текущая сумма меньше, равна или больше
+     */
+    @Override
+    public int compareTo(Money money) {
+        return Long.compare(minorUnits, money.minorUnits);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Служебный конструктор, объекты создаются через статические методы {@code of...}.
+     *
+     * @param minorUnits сумма в минимальных единицах валюты
+     */
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. STATIC CREATING
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает сумму из количества минимальных единиц валюты.
+     *
+     * @param minorUnits сумма в минимальных единицах валюты (копейках)
+     *
+     * @return сумма
+     */
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Создает сумму из целого количества основных единиц валюты.
+     *
+     * @param units сумма в основных единицах валюты (рублях)
+     *
+     * @return сумма
+     *
+     * @throws ArithmeticException если сумма выходит за пределы {@code long} в минимальных единицах
+     */
+    public static Money of(long units) {
+        return ofMinorUnits(Math.multiplyExact(units, MINOR_UNITS_PER_UNIT));
+    }
+
+    /**
+     * Создает сумму из десятичного значения.
+     *
+     * @param amount десятичное значение суммы
+     *
+     * @return сумма
+     *
+     * @throws NullPointerException если {@code amount} равен {@code null}
+     * @throws ArithmeticException если {@code amount} имеет больше {@link #SCALE} знаков после запятой
+     *                             или выходит за пределы {@code long} в минимальных единицах
+     */
+    public static Money of(BigDecimal amount) {
+        Objects.requireNonNull(amount, "Сумма не должна быть null");
+
+        try {
+            return ofMinorUnits(amount.setScale(SCALE).unscaledValue().longValueExact());
+        } catch (ArithmeticException _) {
+            String errMsg = MessageFormat.format(
+                    "Некорректная сумма \"{0}\": сумма должна иметь не более {1} знаков после запятой " +
+                            "и не выходить за допустимый диапазон",
+                    amount.toPlainString(), SCALE
+            );
+            throw new ArithmeticException(errMsg);
+        }
+    }
+
+    /**
+     * Создает сумму из строкового представления (например, "1500.25").
+     *
+     * @param amount строковое представление суммы
+     *
+     * @return сумма
+     *
+     * @throws NullPointerException если {@code amount} равен {@code null}
+     * @throws NumberFormatException если {@code amount} не является числом
+     * @throws ArithmeticException если {@code amount} имеет больше {@link #SCALE} знаков после запятой
+     */
+    public static Money parse(String amount) {
+        Objects.requireNonNull(amount, "Сумма не должна быть null");
+        return of(new BigDecimal(amount.strip()));
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. ARITHMETIC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает сумму текущего и переданного значений.
+     *
+     * @param money слагаемое
+     *
+     * @return результат сложения
+     *
+     * @throws ArithmeticException при переполнении
+     */
+    public Money plus(Money money) {
+        return ofMinorUnits(Math.addExact(minorUnits, money.minorUnits));
+    }
+
+    /**
+     * Возвращает разность текущего и переданного значений.
+     *
+     * @param money вычитаемое
+     *
+     * @return результат вычитания
+     *
+     * @throws ArithmeticException при переполнении
+     */
+    public Money minus(Money money) {
+        return ofMinorUnits(Math.subtractExact(minorUnits, money.minorUnits));
+    }
+
+    /**
+     * Возвращает сумму с противоположным знаком.
+     *
+     * @return сумма с противоположным знаком
+     *
+     * @throws ArithmeticException при переполнении
+     */
+    public Money negate() {
+        return ofMinorUnits(Math.negateExact(minorUnits));
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. GETTING DATA
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Проверяет, что сумма больше нуля.
+     *
+     * @return {@code true}, если сумма больше нуля
+     */
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    /**
+     * Проверяет, что сумма меньше нуля.
+     *
+     * @return {@code true}, если сумма меньше нуля
+     */
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    /**
+     * Возвращает сумму в виде десятичного значения с {@link #SCALE} знаками после запятой.
+     *
+     * @return десятичное значение суммы
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
@@ -1,7 +1,14 @@
 package ru.dgritsenko.bam.bank;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.MessageFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -12,17 +19,36 @@ import java.util.UUID;
  * Класс, представляющий банковскую транзакцию.
  * <p>Содержит информацию о типе, сумме, участниках, статусе и дате транзакции.
  * <p>Создание объекта выполняется через {@link Builder}.
+ * <p>Сериализованная форма совместима с прежней версией класса, хранившей сумму в {@code double}
+ * (см. {@link #readObject(ObjectInputStream)}).
  */
 public class Transaction implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
-    private final UUID uuid;
-    private final LocalDateTime date;
-    private final Account fromAccount;
-    private final TransactionType transactionType;
-    private final double amount;
-    private final Account toAccount;
+    /**
+     * Поля сериализованной формы: поля прежней версии класса (сумма {@code amount} - в {@code double})
+     * и точная сумма в минимальных единицах валюты {@code amountMinorUnits}.
+     */
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("uuid", UUID.class),
+            new ObjectStreamField("date", LocalDateTime.class),
+            new ObjectStreamField("fromAccount", Account.class),
+            new ObjectStreamField("transactionType", TransactionType.class),
+            new ObjectStreamField("amount", double.class),
+            new ObjectStreamField("amountMinorUnits", long.class),
+            new ObjectStreamField("toAccount", Account.class),
+            new ObjectStreamField("status", TransactionStatus.class)
+    };
+
+    // Поля не объявлены final, так как восстанавливаются из сериализованной формы в readObject
+    private UUID uuid;
+    private LocalDateTime date;
+    private Account fromAccount;
+    private TransactionType transactionType;
+    private Money amount;
+    private Account toAccount;
     private TransactionStatus status;
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -58,6 +84,80 @@ public class Transaction implements Serializable {
         this.status = builder.status;
     }
 
+    // -----------------------------------------------------------------------------------------------------------------
+    // SERIALIZATION
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Восстанавливает транзакцию из потока.
+     * <p>Если в потоке нет точной суммы {@code amountMinorUnits} (данные сохранены прежней версией класса),
+     * сумма вычисляется из {@code double} округлением до {@link Money#SCALE} знаков после запятой.
+     *
+     * @param in поток для чтения объекта
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении
+     * @throws InvalidObjectException если сумма в потоке не является конечным числом
+     * @throws ClassNotFoundException если класс объекта в потоке не найден
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+
+        uuid = (UUID) fields.get("uuid", null);
+        date = (LocalDateTime) fields.get("date", null);
+        fromAccount = (Account) fields.get("fromAccount", null);
+        transactionType = (TransactionType) fields.get("transactionType", null);
+        toAccount = (Account) fields.get("toAccount", null);
+        status = (TransactionStatus) fields.get("status", null);
+
+        amount = fields.defaulted("amountMinorUnits")
+                ? toMoney(fields.get("amount", 0.0))
+                : Money.ofMinorUnits(fields.get("amountMinorUnits", 0L));
+    }
+
+    /**
+     * Записывает транзакцию в поток.
+     * <p>Сумма записывается и в {@code double} (для прежней версии класса), и точно в минимальных единицах.
+     *
+     * @param out поток для записи объекта
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("uuid", uuid);
+        fields.put("date", date);
+        fields.put("fromAccount", fromAccount);
+        fields.put("transactionType", transactionType);
+        fields.put("amount", amount.toBigDecimal().doubleValue());
+        fields.put("amountMinorUnits", amount.getMinorUnits());
+        fields.put("toAccount", toAccount);
+        fields.put("status", status);
+        out.writeFields();
+    }
+
+    /**
+     * Преобразует сумму прежней версии класса в {@link Money} с округлением до {@link Money#SCALE} знаков.
+     *
+     * @param amount сумма в {@code double}
+     *
+     * @return сумма
+     *
+     * @throws InvalidObjectException если {@code amount} не является конечным числом
+     *                                или выходит за допустимый диапазон
+     */
+    private static Money toMoney(double amount) throws InvalidObjectException {
+        try {
+            return Money.of(BigDecimal.valueOf(amount).setScale(Money.SCALE, RoundingMode.HALF_UP));
+        } catch (NumberFormatException | ArithmeticException exception) {
+            String errMsg = MessageFormat.format("Некорректная сумма транзакции \"{0}\"", Double.toString(amount));
+            InvalidObjectException invalidObjectException = new InvalidObjectException(errMsg);
+            invalidObjectException.initCause(exception);
+            throw invalidObjectException;
+        }
+    }
+
     // -----------------------------------------------------------------------------------------------------------------
     // GETTERS
     // -----------------------------------------------------------------------------------------------------------------
@@ -88,7 +188,7 @@ public class Transaction implements Serializable {
         return transactionType;
     }
 
-    public double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
@@ -106,13 +206,19 @@ public class Transaction implements Serializable {
 
     /**
      * Устанавливает новый статус транзакции.
+     * <p>Если транзакция уже добавлена в счет, баланс счета корректируется на ее сумму.
      *
      * @param status новый статус
      *
      * @throws NullPointerException если {@code status} равен {@code null}
      */
     public void setStatus(TransactionStatus status) {
+        TransactionStatus oldStatus = this.status;
         this.status = Objects.requireNonNull(status, "Статус не должен быть null");
+
+        if (oldStatus != status && fromAccount != null) {
+            fromAccount.transactionStatusChanged(this, oldStatus, status);
+        }
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -126,10 +232,15 @@ public class Transaction implements Serializable {
      *
      * @return корректная сумма транзакции
      *
+     * @throws NullPointerException если {@code amount} равен {@code null}
      * @throws IllegalArgumentException если {@code amount} <= {@code 0}
      */
-    private static double validAmount(double amount) {
-        if (amount <= 0) {
+    private static Money validAmount(Money amount) {
+        // Проверка на null
+        Objects.requireNonNull(amount, "Сумма транзакции не должна быть null");
+
+        // Проверка на формат
+        if (!amount.isPositive()) {
             String errMsg = MessageFormat.format(
                     "Некорректная сумма транзакции \"{0}\": " +
                     "сумма транзакции должна быть больше нуля",
@@ -176,7 +287,7 @@ public class Transaction implements Serializable {
         private LocalDateTime date;
         private Account fromAccount;
         private TransactionType transactionType;
-        private double amount;
+        private Money amount;
         private Account toAccount;
         private TransactionStatus status;
 
@@ -211,7 +322,7 @@ public class Transaction implements Serializable {
             return this;
         }
 
-        public Builder setAmount(double amount) {
+        public Builder setAmount(Money amount) {
             this.amount = amount;
             return this;
         }
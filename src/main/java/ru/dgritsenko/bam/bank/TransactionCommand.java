@@ -0,0 +1,168 @@
+package ru.dgritsenko.bam.bank;
+
+import java.text.MessageFormat;
+import java.util.Objects;
+
+/**
+ * Класс, представляющий команду на выполнение банковской операции: тип операции, счета и сумму.
+ * <p>В отличие от {@link Transaction}, команда не изменяет счета и не имеет статуса: она передается
+ * на выполнение (например, в {@link TransactionEngine}), а результатом выполнения является статус операции.
+ * <p>Создание объекта выполняется через {@link Builder}.
+ */
+public final class TransactionCommand {
+    private final TransactionType transactionType;
+    private final Account fromAccount;
+    private final Money amount;
+    private final Account toAccount;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает строковое представление команды в формате: "Тип Сумма: Счет -> Счет получателя".
+     *
+     * @return строковое представление команды
+     */
+    @Override
+    public String toString() {
+        return toAccount == null
+                ? MessageFormat.format("{0} {1}: {2}", transactionType, amount, fromAccount)
+                : MessageFormat.format("{0} {1}: {2} -> {3}", transactionType, amount, fromAccount, toAccount);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Служебный конструктор для создания объекта через {@link TransactionCommand.Builder}.
+     *
+     * @param builder статический вложенный класс-источник данных для заполнения
+     */
+    private TransactionCommand(Builder builder) {
+        this.transactionType = builder.transactionType;
+        this.fromAccount = builder.fromAccount;
+        this.amount = builder.amount;
+        this.toAccount = builder.toAccount;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public TransactionType getTransactionType() {
+        return transactionType;
+    }
+
+    public Account getFromAccount() {
+        return fromAccount;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public Account getToAccount() {
+        return toAccount;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // BUILDER NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный статичный класс, представляющий построитель родительского класса {@link TransactionCommand}.
+     * <p>Содержит поля идентичные полям родительского класса.
+     * Каждое поле имеет set-метод для установки значения.
+     */
+    public static class Builder {
+        private TransactionType transactionType;
+        private Account fromAccount;
+        private Money amount;
+        private Account toAccount;
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. CONSTRUCTORS
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Создает построитель для последующего создания основного класса {@link TransactionCommand}.
+         */
+        public Builder() {
+            super();
+        }
+
+        public Builder setTransactionType(TransactionType transactionType) {
+            this.transactionType = transactionType;
+            return this;
+        }
+
+        public Builder setFromAccount(Account fromAccount) {
+            this.fromAccount = fromAccount;
+            return this;
+        }
+
+        public Builder setAmount(Money amount) {
+            this.amount = amount;
+            return this;
+        }
+
+        public Builder setToAccount(Account toAccount) {
+            this.toAccount = toAccount;
+            return this;
+        }
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. BUILDING
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Валидирует значения полей и создает экземпляр основного класса {@link TransactionCommand}.
+         *
+         * @return новая команда
+         *
+         * @throws NullPointerException если любой из обязательных параметров равен {@code null}
+         * @throws IllegalArgumentException если сумма не больше нуля или счет получателя указан для операции,
+         *                                  которая его не использует
+         */
+        public TransactionCommand build() {
+            validate();
+            return new TransactionCommand(this);
+        }
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. MISC
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Валидирует результат заполнения полей построителя.
+         */
+        private void validate() {
+            // Проверки на null
+            transactionType = Objects.requireNonNull(transactionType, "Тип транзакции не должен быть null");
+            fromAccount = Objects.requireNonNull(fromAccount, "Счет не должен быть null");
+            amount = Objects.requireNonNull(amount, "Сумма транзакции не должна быть null");
+
+            // Расширенные проверки
+            if (!amount.isPositive()) {
+                String errMsg = MessageFormat.format(
+                        "Некорректная сумма транзакции \"{0}\": сумма транзакции должна быть больше нуля", amount);
+                throw new IllegalArgumentException(errMsg);
+            }
+
+            // Счет получателя обязателен для перевода и поступления и не используется пополнением и снятием
+            boolean isToAccountRequired = transactionType.hasToAccount() || transactionType == TransactionType.CREDIT;
+
+            if (isToAccountRequired && toAccount == null) {
+                String errMsg = MessageFormat.format(
+                        "Счет получателя не должен быть null при типе транзакции \"{0}\"", transactionType);
+                throw new NullPointerException(errMsg);
+            } else if (!isToAccountRequired && toAccount != null) {
+                String errMsg = MessageFormat.format(
+                        "Счет получателя не используется при типе транзакции \"{0}\"", transactionType);
+                throw new IllegalArgumentException(errMsg);
+            }
+        }
+    }
+}
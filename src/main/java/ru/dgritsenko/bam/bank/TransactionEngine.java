@@ -0,0 +1,557 @@
+package ru.dgritsenko.bam.bank;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Движок операций с единственным потоком, изменяющим счета (по образцу LMAX Disruptor).
+ * <p>
+ * Команды ({@link TransactionCommand}) от любого количества потоков-производителей публикуются в кольцевой
+ * буфер, ячейки которого созданы заранее. Каждой команде при публикации присваивается номер, и команды
+ * обрабатываются тремя потоками-потребителями строго в порядке номеров:
+ * <ol>
+ *     <li>поток применения проводит транзакции ({@link TransactionService#postTransactions}); он единственный
+ *     изменяет счета, поэтому производители не захватывают блокировки счетов и не ожидают друг друга;</li>
+ *     <li>поток журнала передает транзакции каждой команды получателю уведомлений (например, хранилищу
+ *     данных) в том же порядке, поэтому журнал точно воспроизводит порядок применения;</li>
+ *     <li>поток ответов завершает результаты команд ({@link CompletableFuture}) и освобождает ячейки.</li>
+ * </ol>
+ * Потребители обрабатывают все доступные команды пакетом и публикуют свой прогресс один раз на пакет.
+ * Не найдя работы, потребитель недолго ожидает активно, а затем приостанавливается до того, как предыдущий
+ * этап (производитель для потока применения) опубликует новые команды, поэтому простаивающий движок
+ * не расходует процессор. Производитель ожидает, только если буфер заполнен командами, ответ на которые
+ * еще не отправлен.
+ * <p>Операции, выполненные движком, учитываются в счетчиках операций и событиях JFR {@link TransactionEvent}
+ * так же, как операции {@link TransactionService}.
+ * <p>
+ * Счета по-прежнему захватывают собственные блокировки при изменении, чтобы потоки чтения (выписки, баланс,
+ * сохранение) видели согласованное состояние. Поскольку изменяет счета только поток применения, эти
+ * блокировки не оспариваются другими операциями. Пока движок работает, операции со счетами должны
+ * выполняться только через него.
+ */
+public class TransactionEngine implements Closeable {
+    private static final int DEFAULT_RING_SIZE = 1 << 16;
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Slot[] ring;
+    private final int mask;
+    private final TransactionListener journal;
+
+    // Номер следующей команды; отрицательное значение - движок остановлен и новые команды не принимаются
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    // Номера последних команд, обработанных каждым потребителем
+    private final AtomicLong appliedSequence = new AtomicLong(-1);
+    private final AtomicLong journaledSequence = new AtomicLong(-1);
+    private final AtomicLong repliedSequence = new AtomicLong(-1);
+
+    // Ожидание работы потребителями
+    private final Waiter applierWaiter = new Waiter();
+    private final Waiter journalWaiter = new Waiter();
+    private final Waiter replierWaiter = new Waiter();
+
+    private final Thread applierThread;
+    private final Thread journalThread;
+    private final Thread replierThread;
+    private volatile boolean isStopped;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает и запускает движок операций с буфером на 65536 команд.
+     *
+     * @param journal получатель уведомлений о транзакциях каждой команды или {@code null}
+     */
+    public TransactionEngine(TransactionListener journal) {
+        this(journal, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * Создает и запускает движок операций.
+     *
+     * @param journal получатель уведомлений о транзакциях каждой команды или {@code null}
+     * @param ringSize размер кольцевого буфера (степень двойки)
+     *
+     * @throws IllegalArgumentException если {@code ringSize} не является положительной степенью двойки
+     */
+    public TransactionEngine(TransactionListener journal, int ringSize) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            String errMsg = MessageFormat.format(
+                    "Некорректный размер буфера \"{0}\": размер должен быть положительной степенью двойки",
+                    ringSize);
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        this.ring = new Slot[ringSize];
+        this.mask = ringSize - 1;
+        this.journal = journal;
+
+        for (int i = 0; i < ringSize; i++) {
+            ring[i] = new Slot();
+        }
+
+        this.applierThread = startThread(this::runApplier, "bam-engine-applier");
+        this.journalThread = startThread(this::runJournal, "bam-engine-journal");
+        this.replierThread = startThread(this::runReplier, "bam-engine-replier");
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Публикует команду для выполнения.
+     * <p>Результат завершается потоком ответов после применения команды и уведомления журнала; зависимые
+     * действия, добавленные без указания исполнителя, выполняются в этом потоке.
+     *
+     * @param command команда
+     *
+     * @return статус операции, завершаемый исключением, если операцию не удалось выполнить или записать в журнал
+     *
+     * @throws NullPointerException если {@code command} равен {@code null}
+     * @throws IllegalStateException если движок остановлен
+     */
+    public CompletableFuture<TransactionStatus> submit(TransactionCommand command) {
+        Objects.requireNonNull(command, "Команда не должна быть null");
+
+        long sequence = claim();
+
+        // Ячейка свободна, когда ответ на команду, занимавшую ее на предыдущем круге, отправлен
+        int attempts = 0;
+        while (sequence - ring.length > repliedSequence.get()) {
+            attempts = backOff(attempts);
+        }
+
+        CompletableFuture<TransactionStatus> reply = new CompletableFuture<>();
+        Slot slot = ring[(int) sequence & mask];
+        slot.command = command;
+        slot.reply = reply;
+        slot.publish(sequence);
+        applierWaiter.wake();
+
+        return reply;
+    }
+
+    /**
+     * Выполняет команду и ожидает ее результата.
+     *
+     * @param command команда
+     *
+     * @return статус операции
+     *
+     * @throws NullPointerException если {@code command} равен {@code null}
+     * @throws IllegalStateException если движок остановлен
+     * @throws RuntimeException исключение, с которым завершилось выполнение команды или запись в журнал
+     */
+    public TransactionStatus perform(TransactionCommand command) {
+        try {
+            return submit(command).join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw exception;
+        }
+    }
+
+    /**
+     * Останавливает движок: прекращает прием команд, ожидает выполнения всех принятых команд
+     * и завершает потоки-потребители. Повторный вызов не выполняет действий.
+     */
+    @Override
+    public void close() {
+        long sequence;
+
+        do {
+            sequence = nextSequence.get();
+
+            if (sequence < 0) {
+                return;
+            }
+        } while (!nextSequence.compareAndSet(sequence, -sequence - 1));
+
+        int attempts = 0;
+        while (repliedSequence.get() < sequence - 1) {
+            attempts = backOff(attempts);
+        }
+
+        isStopped = true;
+        applierWaiter.wake();
+        journalWaiter.wake();
+        replierWaiter.wake();
+
+        joinUninterruptibly(applierThread);
+        joinUninterruptibly(journalThread);
+        joinUninterruptibly(replierThread);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. CONSUMERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Применяет опубликованные команды в порядке номеров.
+     */
+    private void runApplier() {
+        long next = 0;
+        int attempts = 0;
+
+        while (true) {
+            if (ring[(int) next & mask].getPublishedSequence() != next) {
+                if (isStopped) {
+                    return;
+                } else if (attempts < SPIN_TRIES + YIELD_TRIES) {
+                    attempts = backOff(attempts);
+                    continue;
+                }
+
+                // Условие ожидания проверяется повторно после объявления ожидания, чтобы не пропустить публикацию
+                applierWaiter.prepare();
+                if (ring[(int) next & mask].getPublishedSequence() != next && !isStopped) {
+                    applierWaiter.park();
+                } else {
+                    applierWaiter.cancel();
+                }
+                continue;
+            }
+
+            attempts = 0;
+
+            // Применяются все опубликованные подряд команды, прогресс публикуется один раз на пакет
+            Slot slot;
+            while ((slot = ring[(int) next & mask]).getPublishedSequence() == next) {
+                apply(slot);
+                next++;
+            }
+
+            appliedSequence.setRelease(next - 1);
+            journalWaiter.wake();
+        }
+    }
+
+    /**
+     * Передает журналу транзакции примененных команд в порядке номеров.
+     */
+    private void runJournal() {
+        long next = 0;
+        int attempts = 0;
+
+        while (true) {
+            long available = appliedSequence.getAcquire();
+
+            if (available < next) {
+                if (isStopped) {
+                    return;
+                } else if (attempts < SPIN_TRIES + YIELD_TRIES) {
+                    attempts = backOff(attempts);
+                    continue;
+                }
+
+                journalWaiter.prepare();
+                if (appliedSequence.getAcquire() < next && !isStopped) {
+                    journalWaiter.park();
+                } else {
+                    journalWaiter.cancel();
+                }
+                continue;
+            }
+
+            attempts = 0;
+
+            for (; next <= available; next++) {
+                Slot slot = ring[(int) next & mask];
+
+                if (journal != null && slot.failure == null) {
+                    try {
+                        journal.transactionsPosted(slot.transactions);
+                    } catch (RuntimeException exception) {
+                        slot.failure = exception;
+                    }
+                }
+            }
+
+            journaledSequence.setRelease(available);
+            replierWaiter.wake();
+        }
+    }
+
+    /**
+     * Завершает результаты команд, записанных в журнал, и освобождает их ячейки.
+     */
+    private void runReplier() {
+        long next = 0;
+        int attempts = 0;
+
+        while (true) {
+            long available = journaledSequence.getAcquire();
+
+            if (available < next) {
+                if (isStopped) {
+                    return;
+                } else if (attempts < SPIN_TRIES + YIELD_TRIES) {
+                    attempts = backOff(attempts);
+                    continue;
+                }
+
+                replierWaiter.prepare();
+                if (journaledSequence.getAcquire() < next && !isStopped) {
+                    replierWaiter.park();
+                } else {
+                    replierWaiter.cancel();
+                }
+                continue;
+            }
+
+            attempts = 0;
+
+            for (; next <= available; next++) {
+                Slot slot = ring[(int) next & mask];
+                CompletableFuture<TransactionStatus> reply = slot.reply;
+                RuntimeException failure = slot.failure;
+                List<Transaction> transactions = slot.transactions;
+
+                slot.clear();
+
+                if (failure != null) {
+                    reply.completeExceptionally(failure);
+                } else {
+                    reply.complete(transactions.getFirst().getStatus());
+                }
+            }
+
+            repliedSequence.setRelease(available);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Захватывает номер для следующей команды.
+     *
+     * @return номер команды
+     *
+     * @throws IllegalStateException если движок остановлен
+     */
+    private long claim() {
+        while (true) {
+            long sequence = nextSequence.get();
+
+            if (sequence < 0) {
+                throw new IllegalStateException("Движок операций остановлен");
+            } else if (nextSequence.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Проводит транзакции команды ячейки и сохраняет в ячейке результат.
+     * <p>Операция учитывается в счетчиках операций и событии JFR; длительность события - время применения
+     * команды (время записи в журнал отражают события хранилища данных).
+     *
+     * @param slot ячейка с командой
+     */
+    private static void apply(Slot slot) {
+        TransactionCommand command = slot.command;
+
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+
+        try {
+            List<Transaction> transactions = TransactionService.postTransactions(command.getTransactionType(),
+                    command.getFromAccount(), command.getAmount(), command.getToAccount());
+            Transaction transaction = transactions.getFirst();
+
+            TransactionService.countOperation(command.getTransactionType(), transaction.getStatus());
+            TransactionService.commitEvent(event, transaction);
+            slot.transactions = transactions;
+        } catch (RuntimeException exception) {
+            slot.failure = exception;
+        }
+    }
+
+    /**
+     * Выполняет очередную попытку ожидания: сначала активное ожидание, затем уступка процессора,
+     * затем короткая приостановка потока.
+     * <p>Используется производителями при заполненном буфере и при остановке движка; потребители после
+     * активного ожидания и уступки процессора приостанавливаются до появления работы ({@link Waiter}).
+     *
+     * @param attempts количество предыдущих попыток
+     *
+     * @return количество попыток с учетом текущей
+     */
+    private static int backOff(int attempts) {
+        if (attempts < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (attempts < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+
+        return attempts + 1;
+    }
+
+    /**
+     * Создает и запускает поток-потребитель.
+     *
+     * @param runnable действие потока
+     * @param name имя потока
+     *
+     * @return запущенный поток
+     */
+    private static Thread startThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+
+        return thread;
+    }
+
+    /**
+     * Ожидает завершения потока, сохраняя признак прерывания текущего потока.
+     *
+     * @param thread поток
+     */
+    private static void joinUninterruptibly(Thread thread) {
+        boolean isInterrupted = false;
+
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException _) {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // WAITER NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс ожидания работы потоком-потребителем.
+     * <p>
+     * Потребитель объявляет ожидание ({@link #prepare()}), повторно проверяет наличие работы и только затем
+     * приостанавливается ({@link #park()}). Поток, опубликовавший работу, будит ожидающего потребителя
+     * ({@link #wake()}). Обе стороны разделяют запись и последующее чтение полным барьером памяти, поэтому
+     * либо потребитель увидит новую работу при повторной проверке, либо публикующий поток увидит ожидание.
+     */
+    private static final class Waiter {
+        // Ожидающий поток или null, если потребитель не ожидает
+        private volatile Thread thread;
+
+        /**
+         * Объявляет текущий поток ожидающим. После вызова наличие работы должно быть проверено повторно.
+         */
+        private void prepare() {
+            thread = Thread.currentThread();
+            VarHandle.fullFence();
+        }
+
+        /**
+         * Приостанавливает текущий поток до пробуждения и снимает объявление ожидания.
+         * <p>Поток может быть пробужден без появления работы, поэтому вызывающий код проверяет ее повторно.
+         */
+        private void park() {
+            LockSupport.park(this);
+            thread = null;
+        }
+
+        /**
+         * Снимает объявление ожидания без приостановки потока.
+         */
+        private void cancel() {
+            thread = null;
+        }
+
+        /**
+         * Будит ожидающий поток, если он есть. Вызывается после публикации работы.
+         */
+        private void wake() {
+            VarHandle.fullFence();
+            Thread waitingThread = thread;
+
+            if (waitingThread != null) {
+                LockSupport.unpark(waitingThread);
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // SLOT NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс ячейки кольцевого буфера.
+     * <p>Поля команды записываются производителем до публикации номера ячейки, а поля результата -
+     * потребителями до публикации их прогресса, поэтому обычные поля видимы следующему потребителю.
+     */
+    private static final class Slot {
+        private static final VarHandle SEQUENCE;
+
+        static {
+            try {
+                SEQUENCE = MethodHandles.lookup().findVarHandle(Slot.class, "sequence", long.class);
+            } catch (ReflectiveOperationException exception) {
+                throw new ExceptionInInitializerError(exception);
+            }
+        }
+
+        // Номер опубликованной в ячейке команды
+        private long sequence = -1;
+
+        private TransactionCommand command;
+        private CompletableFuture<TransactionStatus> reply;
+        private List<Transaction> transactions;
+        private RuntimeException failure;
+
+        /**
+         * Публикует команду ячейки.
+         *
+         * @param sequence номер команды
+         */
+        private void publish(long sequence) {
+            SEQUENCE.setRelease(this, sequence);
+        }
+
+        /**
+         * Возвращает номер опубликованной в ячейке команды.
+         *
+         * @return номер команды
+         */
+        private long getPublishedSequence() {
+            return (long) SEQUENCE.getAcquire(this);
+        }
+
+        /**
+         * Освобождает ссылки ячейки на команду и ее результат.
+         */
+        private void clear() {
+            command = null;
+            reply = null;
+            transactions = null;
+            failure = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.dgritsenko.bam.bank;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Событие Java Flight Recorder, представляющее выполнение операции {@link TransactionService}.
+ * <p>Длительность события включает ожидание блокировок счетов и уведомление получателя транзакций
+ * (сохранение в хранилище данных), а для операций {@link TransactionEngine} - применение команды потоком
+ * применения. Событие отключено по умолчанию и включается настройками записи {@code bam.jfc}.
+ */
+@Name("ru.dgritsenko.bam.Transaction")
+@Label("Transaction")
+@Category({"Bank Account Management", "Bank"})
+@Description("Выполнение банковской операции")
+@Enabled(false)
+@StackTrace(false)
+@Threshold("1 ms")
+final class TransactionEvent extends jdk.jfr.Event {
+    @Label("Transaction Type")
+    String transactionType;
+
+    @Label("Account Number")
+    long accountNumber;
+
+    @Label("To Account Number")
+    long toAccountNumber;
+
+    @Label("Amount")
+    @Description("Сумма в минимальных единицах валюты")
+    long amount;
+
+    @Label("Status")
+    String status;
+}
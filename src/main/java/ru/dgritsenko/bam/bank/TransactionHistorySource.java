@@ -0,0 +1,39 @@
+package ru.dgritsenko.bam.bank;
+
+import java.util.List;
+
+/**
+ * Интерфейс источника истории транзакций счета, загружаемой по требованию.
+ * <p>
+ * Реализуется слоем хранения данных: счет создается с номером, именем владельца и сохраненным балансом,
+ * а список транзакций запрашивается у источника только при первом обращении к нему
+ * (см. {@link Account.Builder#setTransactionHistory(TransactionHistorySource, int, Money)}).
+ * Часть истории можно прочитать без загрузки всей истории в счет (см. {@link Account#getTransactions(int, int)}).
+ */
+public interface TransactionHistorySource {
+    /**
+     * Загружает все транзакции счета в порядке их проведения.
+     *
+     * @param account счет, история которого загружается
+     *
+     * @return список транзакций счета
+     *
+     * @throws java.io.UncheckedIOException если произошла ошибка ввода-вывода при чтении данных
+     */
+    default List<Transaction> loadTransactions(Account account) {
+        return loadTransactions(account, 0, account.getTransactionCount());
+    }
+
+    /**
+     * Загружает диапазон транзакций счета в порядке их проведения.
+     *
+     * @param account счет, история которого загружается
+     * @param fromIndex индекс первой транзакции (включительно)
+     * @param toIndex индекс последней транзакции (не включительно)
+     *
+     * @return список транзакций диапазона
+     *
+     * @throws java.io.UncheckedIOException если произошла ошибка ввода-вывода при чтении данных
+     */
+    List<Transaction> loadTransactions(Account account, int fromIndex, int toIndex);
+}
@@ -0,0 +1,20 @@
+package ru.dgritsenko.bam.bank;
+
+import java.util.List;
+
+/**
+ * Интерфейс получателя уведомлений о проведенных транзакциях.
+ * <p>
+ * Уведомление отправляется {@link TransactionService} после завершения операции (вне блокировок счетов)
+ * и содержит все транзакции операции в их окончательном статусе: для перевода это транзакция
+ * перевода счета-отправителя и транзакция зачисления счета-получателя.
+ */
+@FunctionalInterface
+public interface TransactionListener {
+    /**
+     * Обрабатывает транзакции завершенной операции.
+     *
+     * @param transactions транзакции операции
+     */
+    void transactionsPosted(List<Transaction> transactions);
+}
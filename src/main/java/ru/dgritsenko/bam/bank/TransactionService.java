@@ -1,10 +1,33 @@
 package ru.dgritsenko.bam.bank;
 
+import ru.dgritsenko.bam.metrics.Counter;
+import ru.dgritsenko.bam.metrics.MetricsRegistry;
+
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Класс-обработчик банковских транзакций.
  * <p>Содержит статические методы для выполнения различных типов операций.
+ * <p>Операции потокобезопасны: проверка баланса и добавление транзакций выполняются под блокировками
+ * участвующих счетов. Блокировки двух счетов захватываются в порядке возрастания номеров счетов,
+ * поэтому встречные переводы не приводят к взаимной блокировке.
+ * <p>Количество подтвержденных и отмененных операций по типам учитывается счетчиками
+ * {@code transactions.<тип>.committed} и {@code transactions.<тип>.canceled} реестра метрик,
+ * а каждая операция может быть записана Java Flight Recorder как {@link TransactionEvent}.
  */
 public final class TransactionService {
+    // Счетчики операций по статусу, индексированные порядковым номером типа операции
+    private static final Counter[] COMMITTED_COUNTERS = createCounters("committed");
+    private static final Counter[] CANCELED_COUNTERS = createCounters("canceled");
 
     private TransactionService() {}
 
@@ -27,14 +50,36 @@ public final class TransactionService {
     public static TransactionStatus perform(
             TransactionType transactionType,
             Account fromAccount,
-            double amount)
+            Money amount)
+    {
+        return perform(transactionType, fromAccount, amount, (TransactionListener) null);
+    }
+
+    /**
+     * Выполняет операцию, не требующую указания счета получателя, и уведомляет о проведенных транзакциях.
+     *
+     * @param transactionType тип операции ({@link TransactionType#DEPOSIT} или {@link TransactionType#WITHDRAW})
+     * @param fromAccount счет отправителя
+     * @param amount сумма операции
+     * @param listener получатель уведомления о транзакциях операции или {@code null}
+     *
+     * @return статус выполненной операции
+     *
+     * @throws NullPointerException если любой из обязательных параметров равен {@code null}
+     * @throws IllegalArgumentException если {@code amount} <= {@code 0}
+     */
+    public static TransactionStatus perform(
+            TransactionType transactionType,
+            Account fromAccount,
+            Money amount,
+            TransactionListener listener)
     {
         TransactionStatus status = null;
 
         if (transactionType == TransactionType.DEPOSIT) {
-            status = deposit(fromAccount, amount);
+            status = processIncreasing(fromAccount, transactionType, amount, null, listener);
         } else if (transactionType == TransactionType.WITHDRAW) {
-            status = withdrawal(fromAccount, amount);
+            status = processReducing(fromAccount, transactionType, amount, null, listener);
         }
 
         return status;
@@ -56,15 +101,39 @@ public final class TransactionService {
     public static TransactionStatus perform(
             TransactionType transactionType,
             Account fromAccount,
-            double amount,
+            Money amount,
             Account toAccount)
+    {
+        return perform(transactionType, fromAccount, amount, toAccount, null);
+    }
+
+    /**
+     * Выполняет операцию, требующую указания счета получателя, и уведомляет о проведенных транзакциях.
+     *
+     * @param transactionType тип операции ({@link TransactionType#CREDIT}или {@link TransactionType#TRANSFER})
+     * @param fromAccount счет отправителя
+     * @param amount сумма операции
+     * @param toAccount счет получателя
+     * @param listener получатель уведомления о транзакциях операции или {@code null}
+     *
+     * @return статус выполненной операции
+     *
+     * @throws NullPointerException если любой из обязательных параметров равен {@code null}
+     * @throws IllegalArgumentException если {@code amount} <= {@code 0}
+     */
+    public static TransactionStatus perform(
+            TransactionType transactionType,
+            Account fromAccount,
+            Money amount,
+            Account toAccount,
+            TransactionListener listener)
     {
         TransactionStatus status = null;
 
         if (transactionType == TransactionType.CREDIT) {
-            status = credit(fromAccount, amount, toAccount);
+            status = processIncreasing(fromAccount, transactionType, amount, toAccount, listener);
         } else if (transactionType == TransactionType.TRANSFER) {
-            status = transfer(fromAccount, amount, toAccount);
+            status = processReducing(fromAccount, transactionType, amount, toAccount, listener);
         }
 
         return status;
@@ -81,8 +150,8 @@ public final class TransactionService {
      * @throws NullPointerException если {@code fromAccount} равен {@code null}
      * @throws IllegalArgumentException если {@code amount} <= {@code 0}
      */
-    public static TransactionStatus deposit(Account fromAccount, double amount) {
-        return processIncreasing(fromAccount, TransactionType.DEPOSIT, amount, null);
+    public static TransactionStatus deposit(Account fromAccount, Money amount) {
+        return processIncreasing(fromAccount, TransactionType.DEPOSIT, amount, null, null);
     }
 
     /**
@@ -97,8 +166,8 @@ public final class TransactionService {
      * @throws NullPointerException если любой из обязательных параметров равен {@code null}
      * @throws IllegalArgumentException если {@code amount} <= {@code 0}
      */
-    public static TransactionStatus credit(Account fromAccount, double amount, Account toAccount) {
-        return processIncreasing(fromAccount, TransactionType.CREDIT, amount, toAccount);
+    public static TransactionStatus credit(Account fromAccount, Money amount, Account toAccount) {
+        return processIncreasing(fromAccount, TransactionType.CREDIT, amount, toAccount, null);
     }
 
     /**
@@ -112,8 +181,8 @@ public final class TransactionService {
      * @throws NullPointerException если {@code fromAccount} равен {@code null}
      * @throws IllegalArgumentException если {@code amount} <= {@code 0}
      */
-    public static TransactionStatus withdrawal(Account fromAccount, double amount) {
-        return processReducing(fromAccount, TransactionType.WITHDRAW, amount, null);
+    public static TransactionStatus withdrawal(Account fromAccount, Money amount) {
+        return processReducing(fromAccount, TransactionType.WITHDRAW, amount, null, null);
     }
 
     /**
@@ -128,8 +197,192 @@ public final class TransactionService {
      * @throws NullPointerException если любой из обязательных параметров равен {@code null}
      * @throws IllegalArgumentException если {@code amount} <= {@code 0}
      */
-    public static TransactionStatus transfer(Account fromAccount, double amount, Account toAccount) {
-        return processReducing(fromAccount, TransactionType.TRANSFER, amount, toAccount);
+    public static TransactionStatus transfer(Account fromAccount, Money amount, Account toAccount) {
+        return processReducing(fromAccount, TransactionType.TRANSFER, amount, toAccount, null);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. BATCH
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Выполняет пакет операций и уведомляет о транзакциях всего пакета одним вызовом.
+     * <p>
+     * Команды, затрагивающие один счет (пополнение, снятие, поступление), группируются по счету: транзакции
+     * группы создаются без повторной валидации (команды проверены при создании), достаточность средств
+     * проверяется по балансу, накопленному внутри группы, и группа добавляется в счет под одним захватом его
+     * блокировки с одним изменением баланса ({@link Account#addTransactions(List)}). Порядок команд счета
+     * в группе совпадает с порядком в пакете. Перевод выполняется в своей позиции пакета: перед ним проводятся
+     * накопленные группы обоих его счетов, а следующие команды этих счетов образуют новые группы. Поэтому статусы
+     * операций совпадают со статусами при выполнении тех же команд по одной в порядке пакета.
+     * <p>
+     * Если выполнение пакета прервано исключением, получатель все равно уведомляется о транзакциях,
+     * уже добавленных в счета.
+     *
+     * @param commands команды пакета
+     * @param listener получатель уведомления о транзакциях пакета или {@code null}
+     *
+     * @return статусы операций в порядке команд пакета
+     *
+     * @throws NullPointerException если {@code commands} или любая из команд равны {@code null}
+     */
+    public static List<TransactionStatus> performBatch(List<TransactionCommand> commands, TransactionListener listener) {
+        Objects.requireNonNull(commands, "Список команд не должен быть null");
+
+        // Проверка команд до изменения счетов
+        for (int i = 0; i < commands.size(); i++) {
+            if (commands.get(i) == null) {
+                String errMsg = MessageFormat.format("Команда пакета с индексом {0} не должна быть null", i);
+                throw new NullPointerException(errMsg);
+            }
+        }
+
+        // Накопленные группы команд по счету (переводы затрагивают два счета и выполняются отдельно)
+        Map<Account, List<Integer>> accountGroups = new LinkedHashMap<>();
+        TransactionStatus[] statuses = new TransactionStatus[commands.size()];
+        List<Transaction> postedTransactions = new ArrayList<>(commands.size());
+        LocalDateTime date = LocalDateTime.now();
+
+        try {
+            for (int index = 0; index < commands.size(); index++) {
+                TransactionCommand command = commands.get(index);
+
+                if (!command.getTransactionType().hasToAccount()) {
+                    accountGroups.computeIfAbsent(command.getFromAccount(), _ -> new ArrayList<>()).add(index);
+                    continue;
+                }
+
+                // Команды счетов перевода, предшествующие ему в пакете, проводятся до перевода
+                postAccountGroup(command.getFromAccount(), accountGroups, commands, date, statuses, postedTransactions);
+                postAccountGroup(command.getToAccount(), accountGroups, commands, date, statuses, postedTransactions);
+
+                List<Transaction> transactions;
+
+                lockAccounts(command.getFromAccount(), command.getToAccount());
+                try {
+                    transactions = postTransactions(command.getTransactionType(), command.getFromAccount(),
+                            command.getAmount(), command.getToAccount());
+                } finally {
+                    unlockAccounts(command.getFromAccount(), command.getToAccount());
+                }
+
+                statuses[index] = transactions.getFirst().getStatus();
+                countOperation(command.getTransactionType(), statuses[index]);
+                postedTransactions.addAll(transactions);
+            }
+
+            for (Account account : List.copyOf(accountGroups.keySet())) {
+                postAccountGroup(account, accountGroups, commands, date, statuses, postedTransactions);
+            }
+        } catch (RuntimeException exception) {
+            // Транзакции, уже добавленные в счета, передаются получателю до выхода с ошибкой
+            if (!postedTransactions.isEmpty()) {
+                try {
+                    notifyListener(listener, postedTransactions);
+                } catch (RuntimeException listenerException) {
+                    exception.addSuppressed(listenerException);
+                }
+            }
+
+            throw exception;
+        }
+
+        notifyListener(listener, postedTransactions);
+
+        return List.of(statuses);
+    }
+
+    /**
+     * Проводит накопленную группу команд счета, если она есть, и удаляет ее из накопленных групп.
+     *
+     * @param account счет
+     * @param accountGroups накопленные группы команд по счету
+     * @param commands команды пакета
+     * @param date дата транзакций пакета
+     * @param statuses статусы операций пакета
+     * @param postedTransactions транзакции, добавленные в счета
+     */
+    private static void postAccountGroup(
+            Account account,
+            Map<Account, List<Integer>> accountGroups,
+            List<TransactionCommand> commands,
+            LocalDateTime date,
+            TransactionStatus[] statuses,
+            List<Transaction> postedTransactions)
+    {
+        List<Integer> indexes = accountGroups.remove(account);
+
+        if (indexes == null) {
+            return;
+        }
+
+        List<Transaction> transactions = postAccountBatch(account, commands, indexes, date);
+
+        for (int i = 0; i < indexes.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            statuses[indexes.get(i)] = transaction.getStatus();
+            countOperation(transaction.getTransactionType(), transaction.getStatus());
+        }
+
+        postedTransactions.addAll(transactions);
+    }
+
+    /**
+     * Проводит команды одного счета под одним захватом его блокировки.
+     *
+     * @param account счет
+     * @param commands команды пакета
+     * @param indexes индексы команд счета в пакете
+     * @param date дата транзакций пакета
+     *
+     * @return транзакции в порядке индексов
+     */
+    private static List<Transaction> postAccountBatch(
+            Account account,
+            List<TransactionCommand> commands,
+            List<Integer> indexes,
+            LocalDateTime date)
+    {
+        List<Transaction> transactions = new ArrayList<>(indexes.size());
+
+        ReentrantLock lock = account.getLock();
+        lock.lock();
+        try {
+            long availableFunds = account.getBalance().getMinorUnits();
+
+            for (int index : indexes) {
+                TransactionCommand command = commands.get(index);
+                long amount = command.getAmount().getMinorUnits();
+                TransactionStatus status;
+
+                if (command.getTransactionType().isAddition()) {
+                    status = TransactionStatus.COMMITTED;
+                    availableFunds += amount;
+                } else if (availableFunds >= amount) {
+                    status = TransactionStatus.COMMITTED;
+                    availableFunds -= amount;
+                } else {
+                    status = TransactionStatus.CANCELED;
+                }
+
+                // Команда проверена при создании, поэтому транзакция создается без повторной валидации
+                transactions.add(new Transaction.Builder()
+                        .setUUID(UUID.randomUUID())
+                        .setDate(date)
+                        .setFromAccount(account)
+                        .setTransactionType(command.getTransactionType())
+                        .setAmount(command.getAmount())
+                        .setToAccount(command.getToAccount())
+                        .setStatus(status)
+                        .buildWithoutValidations());
+            }
+
+            account.addTransactions(transactions);
+        } finally {
+            lock.unlock();
+        }
+
+        return transactions;
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -144,6 +397,7 @@ public final class TransactionService {
      * @param transactionType тип операции ({@link TransactionType#DEPOSIT})
      * @param amount сумма
      * @param toAccount счет-источник (для {@link TransactionType#CREDIT}) или {@code null} (для {@link TransactionType#DEPOSIT})
+     * @param listener получатель уведомления о транзакции или {@code null}
      *
      * @return статус транзакции
      *
@@ -154,18 +408,27 @@ public final class TransactionService {
     private static TransactionStatus processIncreasing(
             Account fromAccount,
             TransactionType transactionType,
-            double amount,
-            Account toAccount)
+            Money amount,
+            Account toAccount,
+            TransactionListener listener)
     {
-        Transaction transaction = new Transaction.Builder()
-                .setFromAccount(fromAccount)
-                .setTransactionType(transactionType)
-                .setAmount(amount)
-                .setToAccount(toAccount)
-                .setStatus(TransactionStatus.COMMITTED)
-                .build();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
 
-        fromAccount.addTransaction(transaction);
+        Transaction transaction = buildTransaction(
+                fromAccount, transactionType, amount, toAccount, TransactionStatus.COMMITTED);
+
+        ReentrantLock lock = fromAccount.getLock();
+        lock.lock();
+        try {
+            fromAccount.addTransaction(transaction);
+        } finally {
+            lock.unlock();
+        }
+
+        countOperation(transactionType, transaction.getStatus());
+        notifyListener(listener, List.of(transaction));
+        commitEvent(event, transaction);
 
         return transaction.getStatus();
     }
@@ -173,11 +436,13 @@ public final class TransactionService {
     /**
      * Обрабатывает транзакции, уменьшающие баланс счета.
      * Проверяет достаточность средств. Если средств недостаточно, транзакция отменяется.
+     * Перевод выполняется в две фазы (см. {@link #transferInTwoPhases(Account, TransactionType, Money, Account)}).
      *
      * @param fromAccount счет, с которого списываются средства
      * @param transactionType тип операции ({@link TransactionType#TRANSFER} или {@code {@link TransactionType#WITHDRAW}})
      * @param amount сумма
      * @param toAccount счет-получатель (для {@link TransactionType#TRANSFER}) или null (для {@link TransactionType#WITHDRAW})
+     * @param listener получатель уведомления о транзакциях операции или {@code null}
      *
      * @return статус транзакции
      *
@@ -188,31 +453,292 @@ public final class TransactionService {
     private static TransactionStatus processReducing(
             Account fromAccount,
             TransactionType transactionType,
-            double amount,
+            Money amount,
+            Account toAccount,
+            TransactionListener listener)
+    {
+        Objects.requireNonNull(fromAccount, "Счет не должен быть null");
+
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+
+        // Проверка баланса и списание выполняются атомарно относительно других операций с теми же счетами
+        List<Transaction> postedTransactions;
+
+        lockAccounts(fromAccount, toAccount);
+        try {
+            postedTransactions = postTransactions(transactionType, fromAccount, amount, toAccount);
+        } finally {
+            unlockAccounts(fromAccount, toAccount);
+        }
+
+        // Статус операции - статус транзакции счета-отправителя
+        Transaction transaction = postedTransactions.getFirst();
+        countOperation(transactionType, transaction.getStatus());
+
+        notifyListener(listener, postedTransactions);
+        commitEvent(event, transaction);
+
+        return transaction.getStatus();
+    }
+
+    /**
+     * Проводит транзакции операции без захвата блокировок счетов.
+     * <p>Пополнение и поступление подтверждаются сразу. Для уменьшающих баланс операций проверяется
+     * достаточность средств: если средств недостаточно, транзакция отменяется, иначе перевод выполняется
+     * в две фазы, а снятие подтверждается.
+     * <p>Вызывающий код обеспечивает исключительный доступ к счетам операции: удерживает их блокировки
+     * или является единственным потоком, изменяющим счета ({@link TransactionEngine}).
+     *
+     * @param transactionType тип операции
+     * @param fromAccount счет операции
+     * @param amount сумма
+     * @param toAccount второй счет операции или {@code null}
+     *
+     * @return транзакции операции; первая - транзакция счета {@code fromAccount}
+     *
+     * @throws NullPointerException если любой из обязательных параметров равен {@code null}
+     * @throws IllegalArgumentException если {@code amount} <= {@code 0}
+     */
+    static List<Transaction> postTransactions(
+            TransactionType transactionType,
+            Account fromAccount,
+            Money amount,
+            Account toAccount)
+    {
+        if (transactionType.isAddition()) {
+            Transaction transaction = buildTransaction(
+                    fromAccount, transactionType, amount, toAccount, TransactionStatus.COMMITTED);
+            fromAccount.addTransaction(transaction);
+            return List.of(transaction);
+        } else if (!fromAccount.hasSufficientFunds(amount)) {
+            Transaction transaction = buildTransaction(
+                    fromAccount, transactionType, amount, toAccount, TransactionStatus.CANCELED);
+            fromAccount.addTransaction(transaction);
+            return List.of(transaction);
+        } else if (transactionType.hasToAccount()) {
+            return transferInTwoPhases(fromAccount, transactionType, amount, toAccount);
+        }
+
+        Transaction transaction = buildTransaction(
+                fromAccount, transactionType, amount, toAccount, TransactionStatus.COMMITTED);
+        fromAccount.addTransaction(transaction);
+        return List.of(transaction);
+    }
+
+    /**
+     * Выполняет перевод как единое целое в две фазы.
+     * <p>Сначала в оба счета добавляются транзакции перевода и зачисления со статусом
+     * {@link TransactionStatus#UNCOMMITTED}, не влияющие на баланс. Затем обе транзакции подтверждаются.
+     * Если любой из шагов завершился ошибкой, обе транзакции отменяются.
+     * <p>Если ошибка произошла после добавления транзакции перевода в историю счета-отправителя, перевод
+     * завершается как отмененная операция: возвращаются отмененные транзакции, уже добавленные в историю
+     * счетов, чтобы получатель уведомлений сохранил их так же, как транзакции других отмененных операций.
+     * Если транзакция перевода не добавлена, счета не изменены и исключение передается вызывающему коду.
+     * <p>Вызывается под блокировками обоих счетов, поэтому другие потоки не видят перевод
+     * примененным только к одному из счетов.
+     *
+     * @param fromAccount счет, с которого списываются средства
+     * @param transactionType тип операции ({@link TransactionType#TRANSFER})
+     * @param amount сумма
+     * @param toAccount счет-получатель
+     *
+     * @return транзакции перевода: транзакция счета-отправителя и транзакция зачисления счета-получателя
+     *
+     * @throws NullPointerException если любой из обязательных параметров равен {@code null}
+     * @throws IllegalArgumentException если {@code amount} <= {@code 0} или транзакцию перевода
+     *                                  не удалось добавить в историю счета-отправителя
+     */
+    private static List<Transaction> transferInTwoPhases(
+            Account fromAccount,
+            TransactionType transactionType,
+            Money amount,
             Account toAccount)
     {
-        TransactionStatus status;
+        // Построение (и валидация) обеих транзакций до изменения счетов
+        Transaction debitTransaction = buildTransaction(
+                fromAccount, transactionType, amount, toAccount, TransactionStatus.UNCOMMITTED);
+        Transaction creditTransaction = buildTransaction(
+                toAccount, TransactionType.CREDIT, amount, fromAccount, TransactionStatus.UNCOMMITTED);
+
+        boolean isDebitAdded = false;
+        boolean isCreditAdded = false;
+        boolean isCommitted = false;
+
+        try {
+            // Фаза 1: обе стороны перевода добавляются без влияния на баланс
+            fromAccount.addTransaction(debitTransaction);
+            isDebitAdded = true;
+            toAccount.addTransaction(creditTransaction);
+            isCreditAdded = true;
 
-        if (fromAccount.getBalance() >= amount) {
-            if (transactionType.hasToAccount()) {
-                status = credit(toAccount, amount, fromAccount);
-            } else {
-                status = TransactionStatus.COMMITTED;
+            // Фаза 2: обе стороны перевода подтверждаются
+            debitTransaction.setStatus(TransactionStatus.COMMITTED);
+            creditTransaction.setStatus(TransactionStatus.COMMITTED);
+            isCommitted = true;
+        } catch (RuntimeException exception) {
+            if (!isDebitAdded) {
+                throw exception;
+            }
+
+            // Транзакции, оставшиеся в истории счетов, возвращаются для уведомления (отменяются в finally)
+            return isCreditAdded
+                    ? List.of(debitTransaction, creditTransaction)
+                    : List.of(debitTransaction);
+        } finally {
+            if (!isCommitted) {
+                debitTransaction.setStatus(TransactionStatus.CANCELED);
+                creditTransaction.setStatus(TransactionStatus.CANCELED);
             }
-        } else {
-            status = TransactionStatus.CANCELED;
         }
 
-        Transaction transaction = new Transaction.Builder()
+        return List.of(debitTransaction, creditTransaction);
+    }
+
+    /**
+     * Завершает событие операции и записывает его, если событие включено и превысило порог длительности.
+     *
+     * @param event событие операции
+     * @param transaction транзакция счета-отправителя
+     */
+    static void commitEvent(TransactionEvent event, Transaction transaction) {
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.transactionType = transaction.getTransactionType().name();
+            event.accountNumber = transaction.getFromAccount().getAccountNumber();
+            event.toAccountNumber = transaction.getToAccount() != null
+                    ? transaction.getToAccount().getAccountNumber()
+                    : 0;
+            event.amount = transaction.getAmount().getMinorUnits();
+            event.status = transaction.getStatus().name();
+            event.commit();
+        }
+    }
+
+    /**
+     * Учитывает завершенную операцию в счетчиках операций по статусу.
+     *
+     * @param transactionType тип операции
+     * @param status статус операции
+     */
+    static void countOperation(TransactionType transactionType, TransactionStatus status) {
+        if (MetricsRegistry.ENABLED) {
+            Counter[] counters = status.isCommitted() ? COMMITTED_COUNTERS : CANCELED_COUNTERS;
+            counters[transactionType.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Создает счетчики операций с указанным статусом для всех типов операций.
+     *
+     * @param statusName название статуса в названиях счетчиков
+     *
+     * @return счетчики, индексированные порядковым номером типа операции
+     */
+    private static Counter[] createCounters(String statusName) {
+        TransactionType[] transactionTypes = TransactionType.values();
+        Counter[] counters = new Counter[transactionTypes.length];
+
+        for (TransactionType transactionType : transactionTypes) {
+            String typeName = transactionType.name().toLowerCase(Locale.ROOT);
+            counters[transactionType.ordinal()] = MetricsRegistry.getDefault()
+                    .counter("transactions." + typeName + "." + statusName);
+        }
+
+        return counters;
+    }
+
+    /**
+     * Уведомляет получателя о транзакциях завершенной операции.
+     *
+     * @param listener получатель уведомления или {@code null}
+     * @param transactions транзакции операции
+     */
+    private static void notifyListener(TransactionListener listener, List<Transaction> transactions) {
+        if (listener != null) {
+            listener.transactionsPosted(transactions);
+        }
+    }
+
+    /**
+     * Создает транзакцию с валидацией параметров.
+     *
+     * @param fromAccount счет, к которому относится транзакция
+     * @param transactionType тип операции
+     * @param amount сумма
+     * @param toAccount второй счет операции или {@code null}
+     * @param status статус транзакции
+     *
+     * @return новая транзакция
+     *
+     * @throws NullPointerException если любой из обязательных параметров равен {@code null}
+     * @throws IllegalArgumentException если {@code amount} <= {@code 0}
+     */
+    private static Transaction buildTransaction(
+            Account fromAccount,
+            TransactionType transactionType,
+            Money amount,
+            Account toAccount,
+            TransactionStatus status)
+    {
+        return new Transaction.Builder()
                 .setFromAccount(fromAccount)
                 .setTransactionType(transactionType)
                 .setAmount(amount)
                 .setToAccount(toAccount)
                 .setStatus(status)
                 .build();
-        
-        fromAccount.addTransaction(transaction);
+    }
 
-        return transaction.getStatus();
+    /**
+     * Захватывает блокировки счетов в глобальном порядке (по возрастанию номера счета).
+     *
+     * @param account счет
+     * @param otherAccount второй счет или {@code null}
+     */
+    private static void lockAccounts(Account account, Account otherAccount) {
+        if (otherAccount == null || otherAccount == account) {
+            account.getLock().lock();
+        } else if (isLockedFirst(account, otherAccount)) {
+            account.getLock().lock();
+            otherAccount.getLock().lock();
+        } else {
+            otherAccount.getLock().lock();
+            account.getLock().lock();
+        }
+    }
+
+    /**
+     * Освобождает блокировки счетов, захваченные {@link #lockAccounts(Account, Account)}.
+     *
+     * @param account счет
+     * @param otherAccount второй счет или {@code null}
+     */
+    private static void unlockAccounts(Account account, Account otherAccount) {
+        account.getLock().unlock();
+
+        if (otherAccount != null && otherAccount != account) {
+            otherAccount.getLock().unlock();
+        }
+    }
+
+    /**
+     * Определяет, захватывается ли блокировка счета раньше блокировки другого счета.
+     *
+     * @param account счет
+     * @param otherAccount другой счет
+     *
+     * @return {@code true}, если блокировка {@code account} захватывается первой
+     */
+    private static boolean isLockedFirst(Account account, Account otherAccount) {
+        int order = Long.compare(account.getAccountNumber(), otherAccount.getAccountNumber());
+
+        // Совпадение номеров возможно только у счетов, созданных вне BankService
+        if (order == 0) {
+            order = Integer.compare(System.identityHashCode(account), System.identityHashCode(otherAccount));
+        }
+
+        return order < 0;
     }
 }
\ No newline at end of file
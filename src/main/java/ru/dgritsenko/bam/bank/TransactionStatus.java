@@ -2,6 +2,8 @@ package ru.dgritsenko.bam.bank;
 
 /**
  * Перечисление, представляющее возможные статусы транзакции.
+ * <p>{@link #UNCOMMITTED} используется для промежуточного состояния перевода: такие транзакции
+ * не учитываются в балансе до подтверждения ({@link #COMMITTED}) или отмены ({@link #CANCELED}).
  */
 public enum TransactionStatus {
     UNCOMMITTED("Не подтверждена"),
@@ -0,0 +1,299 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.bank.TransactionHistorySource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.zip.CRC32C;
+
+/**
+ * Класс чтения счетов из двоичного файла данных в формате {@link AccountDataWriter}.
+ * <p>
+ * Чтение выполняется в два этапа: при создании объекта читаются заголовок и раздел счетов,
+ * затем {@link #readTransactions(LongFunction)} читает транзакции. Между этапами счета можно
+ * зарегистрировать в общем индексе, если транзакции ссылаются на счета из других файлов.
+ * <p>
+ * Если указан источник истории транзакций, второй этап не выполняется: счета создаются с сохраненным
+ * балансом и историей, загружаемой по требованию, а смещения историй в файле возвращает
+ * {@link #getTransactionOffsets()}.
+ * <p>
+ * Для файлов версии 2 проверяются завершающий блок (признак полностью записанного файла) и контрольная
+ * сумма раздела счетов, а после чтения транзакций - контрольная сумма всех данных.
+ */
+final class AccountDataReader {
+    private static final short FIRST_VERSION = 1;
+    private static final int BUFFER_BYTES = 8 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long channelBytesRead;
+
+    // Контрольная сумма прочитанных данных (байты буфера до checksumMark уже учтены)
+    private final CRC32C checksum = new CRC32C();
+    private int checksumMark;
+    private final boolean hasTrailer;
+    private int expectedFileChecksum;
+    private long expectedBodyBytes;
+
+    private final long checkpointId;
+    private final List<Account> accounts;
+    private final long[] balances;
+    private final int[] transactionCounts;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает объект чтения из указанного канала и читает заголовок и раздел счетов.
+     *
+     * @param channel канал для чтения
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении или данные некорректны
+     */
+    AccountDataReader(FileChannel channel) throws IOException {
+        this(channel, null);
+    }
+
+    /**
+     * Создает объект чтения из указанного канала и читает заголовок и раздел счетов.
+     *
+     * @param channel канал для чтения (позиция канала должна соответствовать началу файла)
+     * @param historySource источник истории транзакций создаваемых счетов или {@code null},
+     *                      если транзакции читаются через {@link #readTransactions(LongFunction)}
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении или данные некорректны
+     */
+    AccountDataReader(FileChannel channel, TransactionHistorySource historySource) throws IOException {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        this.buffer.flip();
+
+        // Заголовок
+        require(Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES);
+        int magic = buffer.getInt();
+        short version = buffer.getShort();
+
+        if (magic != AccountDataWriter.MAGIC) {
+            throw BinaryCodec.getCorruptedDataException("неизвестный формат файла");
+        }
+        if (version < FIRST_VERSION || version > AccountDataWriter.VERSION) {
+            throw BinaryCodec.getCorruptedDataException(
+                    MessageFormat.format("неподдерживаемая версия формата {0}", version));
+        }
+
+        this.hasTrailer = version > FIRST_VERSION;
+        int expectedAccountsChecksum = hasTrailer ? readTrailer() : 0;
+
+        this.checkpointId = buffer.getLong();
+        int accountsCount = buffer.getInt();
+
+        if (accountsCount < 0) {
+            throw BinaryCodec.getCorruptedDataException("количество счетов");
+        }
+
+        // Раздел счетов
+        this.accounts = new ArrayList<>(accountsCount);
+        this.balances = new long[accountsCount];
+        this.transactionCounts = new int[accountsCount];
+
+        for (int i = 0; i < accountsCount; i++) {
+            require(Long.BYTES + Short.BYTES);
+            long accountNumber = buffer.getLong();
+            require(buffer.getShort(buffer.position()) + Short.BYTES + Long.BYTES + Integer.BYTES);
+            String holderName = BinaryCodec.getString(buffer);
+            balances[i] = buffer.getLong();
+            transactionCounts[i] = buffer.getInt();
+
+            if (transactionCounts[i] < 0) {
+                throw BinaryCodec.getCorruptedDataException(
+                        MessageFormat.format("количество транзакций счета {0}", Long.toString(accountNumber)));
+            }
+
+            Account.Builder accountBuilder = new Account.Builder()
+                    .setAccountNumber(accountNumber)
+                    .setHolderName(holderName);
+
+            if (historySource != null) {
+                accountBuilder.setTransactionHistory(
+                        historySource, transactionCounts[i], Money.ofMinorUnits(balances[i]));
+            } else {
+                accountBuilder.setTransactions(new ArrayList<>(transactionCounts[i]));
+            }
+
+            accounts.add(accountBuilder.buildWithoutValidations());
+        }
+
+        if (hasTrailer) {
+            updateChecksum();
+
+            if ((int) checksum.getValue() != expectedAccountsChecksum) {
+                throw BinaryCodec.getCorruptedDataException("контрольная сумма раздела счетов");
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public long getCheckpointId() {
+        return checkpointId;
+    }
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Возвращает смещения историй транзакций счетов от начала файла в порядке {@link #getAccounts()}.
+     * <p>Допустимо только до чтения транзакций.
+     *
+     * @return смещения историй транзакций
+     */
+    long[] getTransactionOffsets() {
+        long[] transactionOffsets = new long[accounts.size()];
+        long offset = getConsumedBytes();
+
+        for (int i = 0; i < transactionOffsets.length; i++) {
+            transactionOffsets[i] = offset;
+            offset += (long) transactionCounts[i] * BinaryCodec.TRANSACTION_BYTES;
+        }
+
+        return transactionOffsets;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Читает транзакции всех счетов и проверяет, что баланс каждого счета совпадает с сохраненным.
+     *
+     * @param accountResolver поиск счета по номеру (для второго счета операции)
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении или данные некорректны
+     */
+    void readTransactions(LongFunction<Account> accountResolver) throws IOException {
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+
+            for (int j = 0; j < transactionCounts[i]; j++) {
+                require(BinaryCodec.TRANSACTION_BYTES);
+                Transaction transaction = BinaryCodec.getTransaction(buffer, account, accountResolver);
+                account.addTransaction(transaction);
+            }
+
+            if (account.getBalance().getMinorUnits() != balances[i]) {
+                throw BinaryCodec.getCorruptedDataException(
+                        MessageFormat.format("баланс счета {0}", Long.toString(account.getAccountNumber())));
+            }
+        }
+
+        if (hasTrailer) {
+            updateChecksum();
+
+            if (getConsumedBytes() != expectedBodyBytes || (int) checksum.getValue() != expectedFileChecksum) {
+                throw BinaryCodec.getCorruptedDataException("контрольная сумма файла");
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Обеспечивает наличие в буфере указанного количества непрочитанных байт, дочитывая канал.
+     *
+     * @param bytes требуемое количество байт
+     *
+     * @throws IOException если данные закончились раньше или произошла ошибка ввода-вывода при чтении
+     */
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        updateChecksum();
+        buffer.compact();
+        checksumMark = 0;
+
+        try {
+            while (buffer.position() < bytes) {
+                int bytesRead = channel.read(buffer);
+
+                if (bytesRead < 0) {
+                    throw BinaryCodec.getCorruptedDataException("неожиданный конец файла");
+                }
+
+                channelBytesRead += bytesRead;
+            }
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Учитывает в контрольной сумме байты, разобранные с момента последнего учета.
+     */
+    private void updateChecksum() {
+        int position = buffer.position();
+        checksum.update(buffer.slice(checksumMark, position - checksumMark));
+        checksumMark = position;
+    }
+
+    /**
+     * Возвращает количество разобранных байт от начала файла.
+     *
+     * @return количество байт
+     */
+    private long getConsumedBytes() {
+        return channelBytesRead - buffer.remaining();
+    }
+
+    /**
+     * Читает и проверяет завершающий блок файла.
+     * <p>Позиция канала не изменяется.
+     *
+     * @return контрольная сумма заголовка с разделом счетов
+     *
+     * @throws IOException если завершающий блок отсутствует или некорректен (файл записан не полностью)
+     */
+    private int readTrailer() throws IOException {
+        long size = channel.size();
+        ByteBuffer trailer = ByteBuffer.allocate(AccountDataWriter.TRAILER_BYTES);
+
+        if (size >= AccountDataWriter.TRAILER_BYTES) {
+            long trailerPosition = size - AccountDataWriter.TRAILER_BYTES;
+
+            int bytesRead = 0;
+
+            while (trailer.hasRemaining() && bytesRead >= 0) {
+                bytesRead = channel.read(trailer, trailerPosition + trailer.position());
+            }
+        }
+
+        trailer.flip();
+
+        if (trailer.remaining() < AccountDataWriter.TRAILER_BYTES
+                || trailer.getInt(0) != AccountDataWriter.TRAILER_MAGIC
+                || trailer.getLong(3 * Integer.BYTES) != size - AccountDataWriter.TRAILER_BYTES)
+        {
+            throw BinaryCodec.getCorruptedDataException("файл записан не полностью");
+        }
+
+        expectedFileChecksum = trailer.getInt(2 * Integer.BYTES);
+        expectedBodyBytes = trailer.getLong(3 * Integer.BYTES);
+
+        return trailer.getInt(Integer.BYTES);
+    }
+}
@@ -0,0 +1,344 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.util.LongHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Класс записи счетов в двоичный файл данных.
+ * <p>
+ * Формат файла:
+ * <ul>
+ *     <li>заголовок: сигнатура {@link #MAGIC} ({@code int}), версия формата {@link #VERSION} ({@code short}),
+ *     номер контрольной точки ({@code long}), количество счетов ({@code int});</li>
+ *     <li>раздел счетов: для каждого счета номер ({@code long}), имя владельца (длина и байты UTF-8),
+ *     баланс в минимальных единицах валюты ({@code long}) и количество транзакций ({@code int});</li>
+ *     <li>раздел транзакций: транзакции всех счетов в порядке раздела счетов, каждая - запись фиксированной
+ *     длины в формате {@link BinaryCodec};</li>
+ *     <li>завершающий блок (с версии 2): сигнатура {@link #TRAILER_MAGIC} ({@code int}), контрольные суммы
+ *     CRC32C заголовка с разделом счетов и всех данных до завершающего блока ({@code int}) и длина данных
+ *     до завершающего блока ({@code long}).</li>
+ * </ul>
+ * Раздел счетов предшествует транзакциям, поэтому при чтении все счета существуют до разбора ссылок
+ * транзакций на счета, а смещение истории любого счета вычисляется по количеству транзакций.
+ * Завершающий блок записывается последним, поэтому его отсутствие означает, что файл записан не полностью;
+ * отдельная контрольная сумма раздела счетов позволяет проверить его без чтения транзакций.
+ * <p>
+ * История счета, не загруженная в память, копируется из хранилища без разбора транзакций,
+ * если передан {@link StoredTransactionHistory}.
+ */
+final class AccountDataWriter {
+    /**
+     * Сигнатура файла данных ("BAMD").
+     */
+    static final int MAGIC = 0x42414D44;
+
+    /**
+     * Версия формата файла данных.
+     */
+    static final short VERSION = 2;
+
+    /**
+     * Сигнатура завершающего блока ("BAMT").
+     */
+    static final int TRAILER_MAGIC = 0x42414D54;
+
+    /**
+     * Размер завершающего блока в байтах.
+     */
+    static final int TRAILER_BYTES = 3 * Integer.BYTES + Long.BYTES;
+
+    private static final int BUFFER_BYTES = 8 * 1024 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    // Контрольная сумма и объем данных, записанных до завершающего блока
+    private final CRC32C checksum = new CRC32C();
+    private final WritableByteChannel checksumChannel = new ChecksumChannel();
+    private long bodyBytes;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает объект записи в указанный канал.
+     *
+     * @param channel канал для записи
+     */
+    AccountDataWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Записывает счета и их транзакции.
+     * <p>
+     * Транзакции и баланс каждого счета фиксируются под блокировкой счета, поэтому запись допустима
+     * параллельно с операциями. Счета, на которые ссылаются транзакции, но которых нет в {@code accounts}
+     * (например, созданные во время записи), добавляются автоматически.
+     *
+     * @param accounts счета для записи
+     * @param checkpointId номер контрольной точки (произвольное значение, сохраняемое в заголовке)
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи
+     */
+    void write(List<Account> accounts, long checkpointId) throws IOException {
+        write(accounts, checkpointId, null);
+    }
+
+    /**
+     * Записывает счета и их транзакции, копируя незагруженные истории транзакций из хранилища.
+     *
+     * @param accounts счета для записи
+     * @param checkpointId номер контрольной точки (произвольное значение, сохраняемое в заголовке)
+     * @param storedHistory сохраненные истории транзакций или {@code null}
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи
+     */
+    void write(List<Account> accounts, long checkpointId, StoredTransactionHistory storedHistory)
+            throws IOException
+    {
+        write(accounts, checkpointId, storedHistory, null);
+    }
+
+    /**
+     * Записывает только указанные счета и их транзакции.
+     * <p>
+     * В отличие от {@link #write(List, long, StoredTransactionHistory)} счета, на которые ссылаются транзакции,
+     * но которых нет в {@code accounts}, не записываются, а добавляются в {@code referencedAccounts}:
+     * вызывающий код должен сохранить их в другом файле.
+     *
+     * @param accounts счета для записи
+     * @param checkpointId номер контрольной точки (произвольное значение, сохраняемое в заголовке)
+     * @param storedHistory сохраненные истории транзакций или {@code null}
+     * @param referencedAccounts список для счетов, на которые ссылаются транзакции, или {@code null},
+     *                           если такие счета записываются в этот же файл
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи
+     */
+    void write(List<Account> accounts, long checkpointId, StoredTransactionHistory storedHistory,
+               List<Account> referencedAccounts) throws IOException
+    {
+        List<AccountState> accountStates = getAccountStates(accounts, storedHistory, referencedAccounts);
+
+        // Заголовок
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putLong(checkpointId);
+        buffer.putInt(accountStates.size());
+
+        // Раздел счетов
+        for (AccountState accountState : accountStates) {
+            Account account = accountState.account;
+            byte[] holderName = account.getHolderName().getBytes(StandardCharsets.UTF_8);
+
+            ensureRemaining(Long.BYTES + BinaryCodec.getStringBytes(holderName) + Long.BYTES + Integer.BYTES);
+            buffer.putLong(account.getAccountNumber());
+            BinaryCodec.putString(buffer, holderName);
+            buffer.putLong(accountState.balance);
+            buffer.putInt(accountState.transactionCount);
+        }
+
+        flush();
+        int accountsChecksum = (int) checksum.getValue();
+
+        // Раздел транзакций
+        for (AccountState accountState : accountStates) {
+            if (accountState.isStored) {
+                flush();
+                storedHistory.copyTransactions(accountState.account, accountState.transactionCount, checksumChannel);
+                continue;
+            }
+
+            for (Transaction transaction : accountState.transactions) {
+                ensureRemaining(BinaryCodec.TRANSACTION_BYTES);
+                BinaryCodec.putTransaction(buffer, transaction);
+            }
+        }
+
+        flush();
+
+        // Завершающий блок (не входит в контрольную сумму)
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+        trailer.putInt(TRAILER_MAGIC);
+        trailer.putInt(accountsChecksum);
+        trailer.putInt((int) checksum.getValue());
+        trailer.putLong(bodyBytes);
+        trailer.flip();
+
+        while (trailer.hasRemaining()) {
+            channel.write(trailer);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Фиксирует состояние счетов для записи, дополняя список счетами, на которые ссылаются транзакции.
+     *
+     * @param accounts счета для записи
+     * @param storedHistory сохраненные истории транзакций или {@code null}
+     * @param referencedAccounts список для счетов, на которые ссылаются транзакции, вместо их записи
+     *                           или {@code null}
+     *
+     * @return зафиксированные состояния счетов
+     */
+    private static List<AccountState> getAccountStates(List<Account> accounts,
+                                                       StoredTransactionHistory storedHistory,
+                                                       List<Account> referencedAccounts)
+    {
+        List<Account> pendingAccounts = new ArrayList<>(accounts);
+        LongHashMap<Account> includedAccounts = new LongHashMap<>(pendingAccounts.size());
+        List<AccountState> accountStates = new ArrayList<>(pendingAccounts.size());
+
+        for (Account account : pendingAccounts) {
+            includedAccounts.put(account.getAccountNumber(), account);
+        }
+
+        for (int i = 0; i < pendingAccounts.size(); i++) {
+            AccountState accountState = new AccountState(pendingAccounts.get(i), storedHistory);
+            accountStates.add(accountState);
+
+            for (Transaction transaction : accountState.transactions) {
+                Account toAccount = transaction.getToAccount();
+
+                if (toAccount != null && includedAccounts.putIfAbsent(toAccount.getAccountNumber(), toAccount) == null) {
+                    if (referencedAccounts != null) {
+                        referencedAccounts.add(toAccount);
+                    } else {
+                        pendingAccounts.add(toAccount);
+                    }
+                }
+            }
+        }
+
+        return accountStates;
+    }
+
+    /**
+     * Обеспечивает наличие свободного места в буфере, при необходимости записывая его содержимое в канал.
+     *
+     * @param bytes требуемое количество байт
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Записывает содержимое буфера в канал.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Записывает в канал все оставшиеся байты буфера, учитывая их в контрольной сумме.
+     *
+     * @param source буфер
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи
+     */
+    private void writeFully(ByteBuffer source) throws IOException {
+        checksum.update(source.duplicate());
+        bodyBytes += source.remaining();
+
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CHECKSUM CHANNEL NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс канала, записывающего данные в канал файла с учетом их в контрольной сумме.
+     * <p>Используется для копирования сохраненных историй транзакций.
+     */
+    private final class ChecksumChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int bytes = source.remaining();
+            writeFully(source);
+            return bytes;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // ACCOUNT STATE NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс, представляющий согласованное состояние счета на момент записи.
+     */
+    private static final class AccountState {
+        private final Account account;
+        private final long balance;
+        private final int transactionCount;
+        private final List<Transaction> transactions;
+        private final boolean isStored;
+
+        /**
+         * Фиксирует транзакции и баланс счета под его блокировкой.
+         * <p>Незагруженная история транзакций не загружается, если ее можно скопировать из хранилища.
+         *
+         * @param account счет
+         * @param storedHistory сохраненные истории транзакций или {@code null}
+         */
+        private AccountState(Account account, StoredTransactionHistory storedHistory) {
+            ReentrantLock lock = account.getLock();
+
+            lock.lock();
+            try {
+                this.account = account;
+                this.balance = account.getBalance().getMinorUnits();
+
+                // Незагруженная история не изменялась с момента чтения файла и копируется при записи
+                this.isStored = storedHistory != null && !account.isHistoryLoaded() && storedHistory.contains(account);
+
+                if (isStored) {
+                    this.transactions = List.of();
+                    this.transactionCount = account.getTransactionCount();
+                } else {
+                    this.transactions = account.getTransactions();
+                    this.transactionCount = transactions.size();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
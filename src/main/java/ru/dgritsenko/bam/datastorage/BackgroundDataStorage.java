@@ -0,0 +1,471 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Реализация интерфейса {@link DataStorage}, сохраняющая изменения в фоновом потоке.
+ * <p>
+ * Уведомления о созданных счетах и проведенных транзакциях только накапливаются в памяти, поэтому
+ * операции не выполняют ввод-вывод. Фоновый поток передает накопленные изменения основному хранилищу
+ * пакетом: сначала уведомления в исходном порядке, затем {@link DataStorage#saveChangedAccounts(List,
+ * java.util.Collection)} для счетов, измененных с предыдущего сохранения (повторные изменения одного
+ * счета объединяются).
+ * <p>
+ * Сохранение выполняется не реже, чем раз в заданный интервал, и досрочно при накоплении заданного
+ * количества изменений. Если сохранение не успевает за операциями и количество несохраненных изменений
+ * достигает предела, операции ожидают завершения текущего сохранения. Так объем изменений, которые могут
+ * быть потеряны при сбое, ограничен интервалом сохранения и пределом несохраненных изменений.
+ * <p>
+ * При ошибке сохранения изменения остаются в очереди и сохраняются повторно, а ошибка передается
+ * следующим операциям до успешного сохранения.
+ */
+public class BackgroundDataStorage implements DataStorage, Closeable {
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int DEFAULT_FLUSH_THRESHOLD = 1000;
+
+    private final DataStorage dataStorage;
+    private final long flushIntervalNanos;
+    private final int flushThreshold;
+    private final int maxPendingChanges;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition pendingChangesDrained = lock.newCondition();
+    private final Condition flushCompleted = lock.newCondition();
+
+    // Все счета и несохраненные изменения (защищены lock)
+    private final List<Account> accounts = new ArrayList<>();
+    private Batch pendingBatch = new Batch();
+    private long requestedFlushes;
+    private long completedFlushes;
+    private IOException flushFailure;
+    private boolean isClosed;
+
+    private final Thread writerThread;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает фоновое сохранение с интервалом 1 секунда и досрочным сохранением каждые 1000 изменений.
+     *
+     * @param dataStorage основное хранилище данных
+     *
+     * @throws NullPointerException если {@code dataStorage} равен {@code null}
+     */
+    public BackgroundDataStorage(DataStorage dataStorage) {
+        this(dataStorage, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_FLUSH_THRESHOLD, 4 * DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    /**
+     * Создает фоновое сохранение с указанными параметрами.
+     *
+     * @param dataStorage основное хранилище данных
+     * @param flushIntervalMillis максимальный интервал между сохранениями в миллисекундах
+     * @param flushThreshold количество несохраненных изменений, при котором сохранение выполняется досрочно
+     * @param maxPendingChanges количество несохраненных изменений, при котором операции ожидают сохранения
+     *
+     * @throws NullPointerException если {@code dataStorage} равен {@code null}
+     * @throws IllegalArgumentException если {@code flushIntervalMillis} или {@code flushThreshold} <= {@code 0}
+     *                                  или {@code maxPendingChanges} меньше {@code flushThreshold}
+     */
+    public BackgroundDataStorage(DataStorage dataStorage, long flushIntervalMillis, int flushThreshold,
+                                 int maxPendingChanges)
+    {
+        this.dataStorage = Objects.requireNonNull(dataStorage, "Хранилище данных не должно быть null");
+
+        if (flushIntervalMillis <= 0 || flushThreshold <= 0 || maxPendingChanges < flushThreshold) {
+            String errMsg = MessageFormat.format(
+                    "Некорректные параметры фонового сохранения (интервал \"{0}\", порог \"{1}\", предел \"{2}\"): " +
+                            "интервал и порог должны быть больше нуля, предел - не меньше порога",
+                    flushIntervalMillis, flushThreshold, maxPendingChanges
+            );
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.flushThreshold = flushThreshold;
+        this.maxPendingChanges = maxPendingChanges;
+
+        this.writerThread = new Thread(this::runWriter, "bam-background-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Загружает список банковских счетов из основного хранилища.
+     *
+     * @return список загруженных счетов
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении
+     * @throws ClassNotFoundException если класс объекта в файле не найден
+     */
+    @Override
+    public List<Account> loadAccounts() throws IOException, ClassNotFoundException {
+        List<Account> loadedAccounts = dataStorage.loadAccounts();
+
+        lock.lock();
+        try {
+            accounts.addAll(loadedAccounts);
+        } finally {
+            lock.unlock();
+        }
+
+        return loadedAccounts;
+    }
+
+    /**
+     * Сохраняет все накопленные изменения и ожидает завершения сохранения.
+     *
+     * @param accounts список счетов (не используется: хранилище отслеживает счета самостоятельно)
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сохранении
+     */
+    @Override
+    public void saveAccounts(List<Account> accounts) throws IOException {
+        flush();
+    }
+
+    /**
+     * Добавляет созданный счет в очередь сохранения.
+     *
+     * @param account созданный счет
+     *
+     * @throws IOException если предыдущее фоновое сохранение завершилось ошибкой
+     */
+    @Override
+    public void accountCreated(Account account) throws IOException {
+        lock.lock();
+        try {
+            awaitPendingChangesCapacity();
+
+            accounts.add(account);
+            pendingBatch.createdAccounts.add(account);
+            pendingBatch.changedAccounts.add(account);
+            pendingChangeAdded(1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Добавляет созданные счета в очередь сохранения.
+     * <p>Счета передаются основному хранилищу одним вызовом {@link DataStorage#accountsCreated(List)}
+     * вместе с другими счетами, созданными до сохранения.
+     *
+     * @param createdAccounts созданные счета
+     *
+     * @throws IOException если предыдущее фоновое сохранение завершилось ошибкой
+     */
+    @Override
+    public void accountsCreated(List<Account> createdAccounts) throws IOException {
+        lock.lock();
+        try {
+            awaitPendingChangesCapacity();
+
+            accounts.addAll(createdAccounts);
+            pendingBatch.createdAccounts.addAll(createdAccounts);
+            pendingBatch.changedAccounts.addAll(createdAccounts);
+            pendingChangeAdded(createdAccounts.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Добавляет транзакции операции в очередь сохранения и отмечает их счета как измененные.
+     *
+     * @param transactions транзакции операции
+     *
+     * @throws IOException если предыдущее фоновое сохранение завершилось ошибкой
+     */
+    @Override
+    public void transactionsPosted(List<Transaction> transactions) throws IOException {
+        lock.lock();
+        try {
+            awaitPendingChangesCapacity();
+
+            pendingBatch.postedTransactions.addAll(transactions);
+
+            for (Transaction transaction : transactions) {
+                pendingBatch.changedAccounts.add(transaction.getFromAccount());
+            }
+
+            pendingChangeAdded(transactions.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сохраняет накопленные изменения, останавливает фоновый поток и закрывает основное хранилище,
+     * если оно поддерживает закрытие.
+     * <p>Основное хранилище закрывается после завершения фонового потока, даже если сохранение не удалось.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сохранении или закрытии основного хранилища
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            lock.lock();
+            try {
+                isClosed = true;
+                flushRequested.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            joinUninterruptibly(writerThread);
+
+            if (dataStorage instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Запрашивает сохранение всех накопленных изменений и ожидает его завершения.
+     *
+     * @throws IOException если сохранение завершилось ошибкой
+     */
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            long flushNumber = ++requestedFlushes;
+            flushRequested.signalAll();
+
+            while (completedFlushes < flushNumber && !isClosed) {
+                flushCompleted.awaitUninterruptibly();
+            }
+
+            throwIfFailed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. BACKGROUND WRITER
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Цикл фонового потока: ожидает интервала, порога изменений или запроса сохранения и сохраняет пакет.
+     */
+    private void runWriter() {
+        while (true) {
+            Batch batch;
+            List<Account> accountsSnapshot;
+            long flushNumber;
+
+            lock.lock();
+            try {
+                long remainingNanos = flushIntervalNanos;
+
+                while (!isClosed
+                        && pendingBatch.changesCount < flushThreshold
+                        && completedFlushes == requestedFlushes
+                        && remainingNanos > 0)
+                {
+                    try {
+                        remainingNanos = flushRequested.awaitNanos(remainingNanos);
+                    } catch (InterruptedException _) {
+                        // Прерывание фонового потока равносильно закрытию: ожидающие сохранения освобождаются
+                        isClosed = true;
+                        flushCompleted.signalAll();
+                        pendingChangesDrained.signalAll();
+                        return;
+                    }
+                }
+
+                if (isClosed) {
+                    return;
+                }
+
+                // Пакет забирается целиком: операции продолжают накапливать изменения во время сохранения
+                batch = pendingBatch;
+                pendingBatch = new Batch();
+                accountsSnapshot = batch.isEmpty() ? List.of() : new ArrayList<>(accounts);
+                flushNumber = requestedFlushes;
+                pendingChangesDrained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            IOException failure = null;
+
+            try {
+                save(batch, accountsSnapshot);
+            } catch (IOException exception) {
+                failure = exception;
+            } catch (RuntimeException exception) {
+                failure = new IOException(exception);
+            }
+
+            lock.lock();
+            try {
+                if (failure != null) {
+                    // Несохраненный пакет возвращается в очередь перед изменениями, накопленными за время сохранения
+                    batch.append(pendingBatch);
+                    pendingBatch = batch;
+                }
+
+                flushFailure = failure;
+                completedFlushes = flushNumber;
+                flushCompleted.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Передает пакет изменений основному хранилищу.
+     *
+     * @param batch пакет изменений
+     * @param accountsSnapshot список всех счетов на момент формирования пакета
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сохранении
+     */
+    private void save(Batch batch, List<Account> accountsSnapshot) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Счета сохраняются раньше транзакций, которые могут на них ссылаться
+        if (!batch.createdAccounts.isEmpty()) {
+            dataStorage.accountsCreated(batch.createdAccounts);
+        }
+
+        if (!batch.postedTransactions.isEmpty()) {
+            dataStorage.transactionsPosted(batch.postedTransactions);
+        }
+
+        dataStorage.saveChangedAccounts(accountsSnapshot, batch.changedAccounts);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Ожидает, пока количество несохраненных изменений не станет меньше предела.
+     * <p>Вызывается под блокировкой.
+     *
+     * @throws IOException если предыдущее фоновое сохранение завершилось ошибкой
+     */
+    private void awaitPendingChangesCapacity() throws IOException {
+        while (pendingBatch.changesCount >= maxPendingChanges && flushFailure == null && !isClosed) {
+            flushRequested.signalAll();
+            pendingChangesDrained.awaitUninterruptibly();
+        }
+
+        throwIfFailed();
+    }
+
+    /**
+     * Учитывает добавленные изменения и при достижении порога будит фоновый поток.
+     * <p>Вызывается под блокировкой.
+     *
+     * @param changesCount количество добавленных изменений
+     */
+    private void pendingChangeAdded(int changesCount) {
+        pendingBatch.changesCount += changesCount;
+
+        if (pendingBatch.changesCount >= flushThreshold) {
+            flushRequested.signalAll();
+        }
+    }
+
+    /**
+     * Выбрасывает ошибку последнего фонового сохранения, если оно завершилось неудачно.
+     * <p>Вызывается под блокировкой.
+     *
+     * @throws IOException если последнее фоновое сохранение завершилось ошибкой
+     */
+    private void throwIfFailed() throws IOException {
+        if (flushFailure != null) {
+            throw new IOException("Не удалось сохранить изменения в фоновом режиме", flushFailure);
+        }
+    }
+
+    /**
+     * Ожидает завершения потока, сохраняя признак прерывания текущего потока.
+     *
+     * @param thread поток
+     */
+    private static void joinUninterruptibly(Thread thread) {
+        boolean isInterrupted = false;
+
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException _) {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // BATCH NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс, представляющий пакет несохраненных изменений.
+     */
+    private static final class Batch {
+        private final List<Account> createdAccounts = new ArrayList<>();
+        private final List<Transaction> postedTransactions = new ArrayList<>();
+        private final Set<Account> changedAccounts = new LinkedHashSet<>();
+        private int changesCount;
+
+        /**
+         * Проверяет, есть ли в пакете изменения.
+         *
+         * @return {@code true}, если пакет пуст
+         */
+        private boolean isEmpty() {
+            return changesCount == 0;
+        }
+
+        /**
+         * Добавляет в конец пакета изменения другого пакета.
+         *
+         * @param batch пакет изменений
+         */
+        private void append(Batch batch) {
+            createdAccounts.addAll(batch.createdAccounts);
+            postedTransactions.addAll(batch.postedTransactions);
+            changedAccounts.addAll(batch.changedAccounts);
+            changesCount += batch.changesCount;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.bank.TransactionType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.function.LongFunction;
+
+/**
+ * Класс с методами записи и чтения счетов и транзакций в компактном двоичном виде.
+ * <p>
+ * Транзакция записывается полями фиксированной длины ({@link #TRANSACTION_BYTES} байт):
+ * UUID (два {@code long}), дата (микросекунды от начала эпохи), тип и статус (по одному байту),
+ * сумма в минимальных единицах валюты и номер второго счета операции ({@code 0}, если его нет).
+ * Счет-владелец транзакции не записывается: он определяется контекстом записи.
+ */
+final class BinaryCodec {
+    /**
+     * Размер записи транзакции в байтах.
+     */
+    static final int TRANSACTION_BYTES = 2 * Long.BYTES + Long.BYTES + 2 * Byte.BYTES + 2 * Long.BYTES;
+
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+    private static final TransactionStatus[] TRANSACTION_STATUSES = TransactionStatus.values();
+
+    private BinaryCodec() {}
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. TRANSACTIONS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Записывает транзакцию в буфер.
+     *
+     * @param buffer буфер для записи (не менее {@link #TRANSACTION_BYTES} свободных байт)
+     * @param transaction транзакция
+     */
+    static void putTransaction(ByteBuffer buffer, Transaction transaction) {
+        UUID uuid = transaction.getUuid();
+        Account toAccount = transaction.getToAccount();
+
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        buffer.putLong(toEpochMicros(transaction.getDate()));
+        buffer.put((byte) transaction.getTransactionType().ordinal());
+        buffer.put((byte) transaction.getStatus().ordinal());
+        buffer.putLong(transaction.getAmount().getMinorUnits());
+        buffer.putLong(toAccount == null ? 0 : toAccount.getAccountNumber());
+    }
+
+    /**
+     * Читает транзакцию из буфера.
+     *
+     * @param buffer буфер для чтения
+     * @param fromAccount счет-владелец транзакции
+     * @param accountResolver поиск счета по номеру (для второго счета операции)
+     *
+     * @return прочитанная транзакция
+     *
+     * @throws IOException если данные транзакции некорректны
+     */
+    static Transaction getTransaction(ByteBuffer buffer, Account fromAccount, LongFunction<Account> accountResolver)
+            throws IOException
+    {
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        LocalDateTime date = fromEpochMicros(buffer.getLong());
+        int typeOrdinal = buffer.get();
+        int statusOrdinal = buffer.get();
+        long amount = buffer.getLong();
+        long toAccountNumber = buffer.getLong();
+
+        if (typeOrdinal < 0 || typeOrdinal >= TRANSACTION_TYPES.length
+                || statusOrdinal < 0 || statusOrdinal >= TRANSACTION_STATUSES.length) {
+            throw getCorruptedDataException(MessageFormat.format("транзакция {0}", uuid));
+        }
+
+        Account toAccount = null;
+
+        if (toAccountNumber != 0) {
+            toAccount = accountResolver.apply(toAccountNumber);
+
+            if (toAccount == null) {
+                throw getCorruptedDataException(
+                        MessageFormat.format("счет {0} не найден", Long.toString(toAccountNumber)));
+            }
+        }
+
+        return new Transaction.Builder()
+                .setUUID(uuid)
+                .setDate(date)
+                .setFromAccount(fromAccount)
+                .setTransactionType(TRANSACTION_TYPES[typeOrdinal])
+                .setAmount(Money.ofMinorUnits(amount))
+                .setToAccount(toAccount)
+                .setStatus(TRANSACTION_STATUSES[statusOrdinal])
+                .buildWithoutValidations();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. STRINGS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает размер строки в записи (длина и байты UTF-8).
+     *
+     * @param bytes строка в кодировке UTF-8
+     *
+     * @return размер в байтах
+     */
+    static int getStringBytes(byte[] bytes) {
+        return Short.BYTES + bytes.length;
+    }
+
+    /**
+     * Записывает строку в буфер (длина и байты UTF-8).
+     *
+     * @param buffer буфер для записи
+     * @param bytes строка в кодировке UTF-8
+     */
+    static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Читает строку из буфера.
+     *
+     * @param buffer буфер для чтения
+     *
+     * @return прочитанная строка
+     */
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает исключение о некорректных данных.
+     *
+     * @param details описание ошибки
+     *
+     * @return исключение
+     */
+    static IOException getCorruptedDataException(String details) {
+        return new IOException(MessageFormat.format("Данные повреждены: {0}", details));
+    }
+
+    /**
+     * Преобразует дату в микросекунды от начала эпохи (дата рассматривается как время UTC).
+     *
+     * @param date дата
+     *
+     * @return количество микросекунд
+     */
+    private static long toEpochMicros(LocalDateTime date) {
+        return ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), date);
+    }
+
+    /**
+     * Преобразует микросекунды от начала эпохи в дату.
+     *
+     * @param epochMicros количество микросекунд
+     *
+     * @return дата
+     */
+    private static LocalDateTime fromEpochMicros(long epochMicros) {
+        long epochSecond = Math.floorDiv(epochMicros, 1_000_000L);
+        int nanos = (int) Math.floorMod(epochMicros, 1_000_000L) * 1_000;
+        return LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC);
+    }
+}
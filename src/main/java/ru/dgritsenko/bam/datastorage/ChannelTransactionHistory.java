@@ -0,0 +1,72 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Источник истории транзакций, читающий транзакции счетов из открытого файла данных позиционным чтением.
+ * <p>Позиционное чтение не изменяет позицию канала, поэтому класс потокобезопасен.
+ */
+final class ChannelTransactionHistory extends StoredTransactionHistory {
+    private final FileChannel channel;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает источник истории транзакций по открытому файлу данных.
+     *
+     * @param channel канал файла данных
+     */
+    ChannelTransactionHistory(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Override
+    ByteBuffer read(long offset, long bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(bytes));
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw BinaryCodec.getCorruptedDataException("неожиданный конец файла");
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    /**
+     * Копирует сохраненные записи транзакций счета в канал средствами операционной системы,
+     * не загружая их в память.
+     */
+    @Override
+    void copyTransactions(Account account, int transactionCount, WritableByteChannel target) throws IOException {
+        long offset = getOffset(account);
+        long bytes = (long) transactionCount * BinaryCodec.TRANSACTION_BYTES;
+        long copiedBytes = 0;
+
+        while (copiedBytes < bytes) {
+            long transferredBytes = channel.transferTo(offset + copiedBytes, bytes - copiedBytes, target);
+
+            if (transferredBytes <= 0) {
+                throw BinaryCodec.getCorruptedDataException("неожиданный конец файла");
+            }
+
+            copiedBytes += transferredBytes;
+        }
+    }
+
+    @Override
+    long getSize() throws IOException {
+        return channel.size();
+    }
+}
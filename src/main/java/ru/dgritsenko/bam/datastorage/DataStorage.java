@@ -1,8 +1,10 @@
 package ru.dgritsenko.bam.datastorage;
 
 import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Transaction;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -11,6 +13,10 @@ import java.util.List;
  * Определяет контракт для классов, реализующих механизмы сохранения и загрузки
  * данных. Реализации могут использовать различные способы
  * хранения данных (файлы, базы данных и т.д.).
+ * <p>
+ * Помимо сохранения всего списка счетов, реализация может получать уведомления о каждом изменении
+ * (созданный счет, проведенные транзакции), например, для ведения журнала. По умолчанию уведомления
+ * игнорируются.
  */
 public interface DataStorage {
     /**
@@ -21,6 +27,22 @@ public interface DataStorage {
      * @throws IOException если произошла ошибка ввода-вывода при записи файла
      */
     void saveAccounts(List<Account> accounts) throws IOException;
+
+    /**
+     * Сохраняет изменения банковских счетов.
+     * <p>По умолчанию сохраняет весь список счетов. Реализация может сохранять только измененные счета.
+     *
+     * @param accounts список всех счетов
+     * @param changedAccounts счета, измененные с момента предыдущего сохранения
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи файла
+     */
+    default void saveChangedAccounts(List<Account> accounts, Collection<Account> changedAccounts)
+            throws IOException
+    {
+        saveAccounts(accounts);
+    }
+
     /**
      * Загружает список банковских счетов.
      *
@@ -30,4 +52,38 @@ public interface DataStorage {
      * @throws ClassNotFoundException если класс объекта в файле не найден
      */
     List<Account> loadAccounts() throws IOException, ClassNotFoundException;
-}
\ No newline at end of file
+
+    /**
+     * Обрабатывает создание нового счета.
+     * <p>Вызывается до того, как счет станет доступен для операций.
+     *
+     * @param account созданный счет
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи данных
+     */
+    default void accountCreated(Account account) throws IOException {}
+
+    /**
+     * Обрабатывает создание нескольких счетов (например, импортированных).
+     * <p>Вызывается до того, как счета станут доступны для операций. По умолчанию обрабатывает каждый счет
+     * отдельно ({@link #accountCreated(Account)}). Реализация может сохранить счета как единое целое.
+     *
+     * @param accounts созданные счета
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи данных
+     */
+    default void accountsCreated(List<Account> accounts) throws IOException {
+        for (Account account : accounts) {
+            accountCreated(account);
+        }
+    }
+
+    /**
+     * Обрабатывает транзакции завершенной операции.
+     *
+     * @param transactions транзакции операции в окончательном статусе
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи данных
+     */
+    default void transactionsPosted(List<Transaction> transactions) throws IOException {}
+}
@@ -1,31 +1,81 @@
 package ru.dgritsenko.bam.datastorage;
 
 import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.util.LongHashMap;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Реализация интерфейса {@link DataStorage} для хранения данных в файловой системе.
  * <p>Предоставляет методы для сохранения и загрузки банковских счетов в/из файла.
- * Файл данных хранится в директории {@code Documents/BAM/Data/accounts.data}.
+ * По умолчанию файл данных хранится в директории {@code Documents/BAM/Data/accounts.data}.
+ * <p>Счета сохраняются в компактном двоичном формате {@link AccountDataWriter}: поля фиксированной длины,
+ * ссылки на счета - по номеру. Файлы, сохраненные прежними версиями приложения стандартной сериализацией Java
+ * (в том числе с суммами транзакций в {@code double}, см. {@link ru.dgritsenko.bam.bank.Transaction}),
+ * по-прежнему загружаются и при следующем сохранении перезаписываются в новом формате.
+ * <p>При загрузке читаются только номера, имена владельцев и сохраненные балансы счетов, а история
+ * транзакций счета читается из файла при первом обращении к ней (см. {@link ChannelTransactionHistory}).
+ * Файл остается открытым до {@link #close()}. При сохранении незагруженные истории копируются
+ * из открытого файла в новый, который затем заменяет прежний переименованием.
+ * <p>Чтение и запись файла счетов могут быть записаны Java Flight Recorder как {@link StorageIoEvent}.
  */
-public class FileService implements DataStorage {
-    private static final String ACCOUNTS_PATH;
+public class FileService implements DataStorage, Closeable {
+    static final String DATA_DIR;
+    static final String ACCOUNTS_PATH;
+
+    // Первые байты потока стандартной сериализации Java (STREAM_MAGIC)
+    private static final short SERIALIZATION_MAGIC = (short) 0xACED;
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
 
     static {
         String sep = File.separator;
         String homeDir = System.getProperty("user.home") + sep + "Documents";
-        String dataDir = homeDir + sep + "BAM" + sep + "Data";
-        ACCOUNTS_PATH = dataDir + sep + "accounts.data";
+        DATA_DIR = homeDir + sep + "BAM" + sep + "Data";
+        ACCOUNTS_PATH = DATA_DIR + sep + "accounts.data";
+    }
+
+    private final Path path;
+
+    // Открытый файл данных, из которого читаются незагруженные истории транзакций
+    private FileChannel historyChannel;
+    private ChannelTransactionHistory history;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает хранилище для файла данных приложения.
+     */
+    public FileService() {
+        this(Paths.get(ACCOUNTS_PATH));
+    }
+
+    /**
+     * Создает хранилище для указанного файла данных.
+     *
+     * @param path путь к файлу данных
+     *
+     * @throws NullPointerException если {@code path} равен {@code null}
+     */
+    public FileService(Path path) {
+        this.path = Objects.requireNonNull(path, "Путь к файлу данных не должен быть null");
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -33,16 +83,41 @@ public class FileService implements DataStorage {
     // -----------------------------------------------------------------------------------------------------------------
 
     /**
-     * Загружает список банковских счетов из файла.
+     * Загружает список банковских счетов из файла без истории транзакций.
+     * <p>Проверяются завершающий блок файла и контрольная сумма раздела счетов.
      *
      * @return список загруженных счетов
      *
-     * @throws IOException если произошла ошибка ввода-вывода при чтении файла
-     * @throws ClassNotFoundException если класс объекта в файле не найден
+     * @throws IOException если произошла ошибка ввода-вывода при чтении файла или данные повреждены
+     * @throws ClassNotFoundException если класс объекта в файле прежнего формата не найден
      */
     @Override
-    public List<Account> loadAccounts() throws IOException, ClassNotFoundException {
-        return (List<Account>) loadObject(ACCOUNTS_PATH);
+    public synchronized List<Account> loadAccounts() throws IOException, ClassNotFoundException {
+        StorageIoEvent event = new StorageIoEvent();
+        event.begin();
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            if (isSerializedFile(channel)) {
+                channel.close();
+                return loadAccountsFile(path.toString());
+            }
+
+            ChannelTransactionHistory newHistory = new ChannelTransactionHistory(channel);
+            AccountDataReader reader = new AccountDataReader(channel, newHistory);
+            newHistory.register(reader.getAccounts(), reader.getTransactionOffsets());
+
+            close();
+            historyChannel = channel;
+            history = newHistory;
+
+            commitIoEvent(event, StorageIoEvent.LOAD, path, channel.size(), reader.getAccounts().size());
+            return reader.getAccounts();
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
     }
 
     /**
@@ -53,8 +128,23 @@ public class FileService implements DataStorage {
      * @throws IOException если произошла ошибка ввода-вывода при записи файла
      */
     @Override
-    public void saveAccounts(List<Account> accounts) throws IOException {
-        saveObject(accounts, ACCOUNTS_PATH);
+    public synchronized void saveAccounts(List<Account> accounts) throws IOException {
+        writeAccountsFile(accounts, path, history);
+    }
+
+    /**
+     * Закрывает файл данных.
+     * <p>После закрытия незагруженные истории транзакций загруженных счетов недоступны.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при закрытии файла
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (historyChannel != null) {
+            historyChannel.close();
+            historyChannel = null;
+            history = null;
+        }
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -62,50 +152,184 @@ public class FileService implements DataStorage {
     // -----------------------------------------------------------------------------------------------------------------
 
     /**
-     * Загружает объект из указанного файла.
+     * Загружает счета вместе с историей транзакций из указанного файла.
+     * <p>Формат файла определяется по первым байтам: двоичный формат {@link AccountDataWriter}
+     * или стандартная сериализация Java (прежний формат). Для двоичного формата проверяются
+     * завершающий блок и контрольная сумма всего файла.
      *
      * @param fullPath полный путь к файлу
      *
-     * @return загруженный объект
+     * @return загруженные счета
      *
-     * @throws IOException если произошла ошибка ввода-вывода при чтении файла
-     * @throws ClassNotFoundException если класс объекта в файле не найден
+     * @throws IOException если произошла ошибка ввода-вывода при чтении файла или данные повреждены
+     * @throws ClassNotFoundException если класс объекта в файле прежнего формата не найден
      */
-    public Object loadObject(String fullPath) throws IOException, ClassNotFoundException {
-        FileInputStream fis = new FileInputStream(fullPath);
-        ObjectInputStream ois = new ObjectInputStream(fis);
-        return ois.readObject();
+    @SuppressWarnings("unchecked")
+    public List<Account> loadAccountsFile(String fullPath) throws IOException, ClassNotFoundException {
+        StorageIoEvent event = new StorageIoEvent();
+        event.begin();
+
+        Path filePath = Paths.get(fullPath);
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (isSerializedFile(channel)) {
+                InputStream inputStream = Channels.newInputStream(channel);
+                ObjectInputStream ois = new ObjectInputStream(inputStream);
+                List<Account> accounts = (List<Account>) ois.readObject();
+
+                commitIoEvent(event, StorageIoEvent.LOAD, filePath, channel.size(), accounts.size());
+                return accounts;
+            }
+
+            AccountDataReader reader = new AccountDataReader(channel);
+            List<Account> accounts = reader.getAccounts();
+            LongHashMap<Account> accountsByNumber = new LongHashMap<>(accounts.size());
+
+            for (Account account : accounts) {
+                accountsByNumber.put(account.getAccountNumber(), account);
+            }
+
+            reader.readTransactions(accountsByNumber::get);
+
+            commitIoEvent(event, StorageIoEvent.LOAD, filePath, channel.size(), accounts.size());
+            return accounts;
+        }
     }
 
     /**
-     * Сохраняет объект в указанный файл.
+     * Сохраняет счета в указанный файл.
      * <p>Создает все необходимые директории, если они не существуют.
      *
-     * @param object объект для сохранения
-     *
+     * @param accounts счета для сохранения
      * @param fullPath полный путь к файлу
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи файла
+     *                     или если не удалось создать директории
+     */
+    public void saveAccountsFile(List<Account> accounts, String fullPath) throws IOException {
+        writeAccountsFile(accounts, Paths.get(fullPath), null);
+    }
+
+    /**
+     * Проверяет, сохранен ли файл стандартной сериализацией Java (прежний формат).
+     * <p>Позиция канала не изменяется.
+     *
+     * @param channel канал файла
+     *
+     * @return {@code true}, если файл начинается с сигнатуры потока сериализации Java
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении файла
+     */
+    static boolean isSerializedFile(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(Short.BYTES);
+        channel.read(magic, 0);
+
+        return magic.position() == Short.BYTES && magic.getShort(0) == SERIALIZATION_MAGIC;
+    }
+
+    /**
+     * Записывает счета в файл формата {@link AccountDataWriter}.
+     * <p>
+     * Данные записываются через буфер во временный файл рядом с указанным, сбрасываются на диск и атомарно
+     * заменяют указанный файл переименованием, поэтому сбой или нехватка места во время записи не повреждают
+     * сохраненные ранее данные. Завершающий блок с контрольными суммами проверяется при загрузке.
+     * Открытые каналы и отображения прежнего файла остаются действительными, поэтому незагруженные
+     * истории транзакций продолжают читаться из него.
+     *
+     * @param accounts счета для записи
+     * @param path путь к файлу
+     * @param storedHistory сохраненные истории транзакций для копирования или {@code null}
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи файла
+     *                     или если не удалось создать директории
+     */
+    static void writeAccountsFile(List<Account> accounts, Path path, StoredTransactionHistory storedHistory)
+            throws IOException
+    {
+        writeAccountsFile(accounts, path, storedHistory, 0, null);
+    }
+
+    /**
+     * Записывает в файл формата {@link AccountDataWriter} только указанные счета
+     * (см. {@link AccountDataWriter#write(List, long, StoredTransactionHistory, List)}).
+     *
+     * @param accounts счета для записи
+     * @param path путь к файлу
+     * @param storedHistory сохраненные истории транзакций для копирования или {@code null}
+     * @param checkpointId значение, сохраняемое в заголовке файла
+     * @param referencedAccounts список для счетов, на которые ссылаются транзакции, но которых нет
+     *                           в {@code accounts}, или {@code null}, если такие счета записываются в этот же файл
+     *
      * @throws IOException если произошла ошибка ввода-вывода при записи файла
      *                     или если не удалось создать директории
      */
-    public void saveObject(Object object, String fullPath) throws IOException {
-        Path path = Paths.get(fullPath);
-        Path parentPath = path.getParent();
-        String dir = (parentPath != null) ? parentPath.toString() : "";
+    static void writeAccountsFile(List<Account> accounts, Path path, StoredTransactionHistory storedHistory,
+                                  long checkpointId, List<Account> referencedAccounts) throws IOException
+    {
+        StorageIoEvent event = new StorageIoEvent();
+        event.begin();
 
-        boolean isDataMightBeSaved = true;
-        File checkableDir = new File(dir);
+        Path parentPath = path.toAbsolutePath().getParent();
 
-        if (!checkableDir.exists()) {
-            isDataMightBeSaved = checkableDir.mkdirs();
+        try {
+            Files.createDirectories(parentPath);
+        } catch (IOException exception) {
+            String errMsg = MessageFormat.format("Не удалось создать каталог для записи данных: {0}", parentPath);
+            throw new IOException(errMsg, exception);
         }
 
-        if (isDataMightBeSaved) {
-            FileOutputStream fos = new FileOutputStream(fullPath);
-            ObjectOutputStream oos = new ObjectOutputStream(fos);
-            oos.writeObject(object);
-        } else {
-            String errMsg = MessageFormat.format("Не удалось создать каталог для записи данных: {0}", dir);
-            throw new IOException(errMsg);
+        Path tempPath = parentPath.resolve(path.getFileName() + TEMP_FILE_SUFFIX);
+        long bytes;
+
+        try (FileChannel channel = FileChannel.open(tempPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            new AccountDataWriter(channel).write(accounts, checkpointId, storedHistory, referencedAccounts);
+            channel.force(true);
+            bytes = channel.size();
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(tempPath);
+            throw exception;
+        }
+
+        Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(parentPath);
+
+        commitIoEvent(event, StorageIoEvent.SAVE, path, bytes, accounts.size());
+    }
+
+    /**
+     * Сбрасывает на диск содержимое каталога (например, после переименования файла).
+     * <p>Если файловая система не поддерживает открытие каталога (Windows), сброс не выполняется.
+     *
+     * @param directory каталог
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException _) {
+            // Каталог нельзя открыть для сброса на диск (например, в Windows)
+        }
+    }
+
+    /**
+     * Завершает событие чтения или записи файла счетов и записывает его, если событие включено.
+     *
+     * @param event событие
+     * @param operation операция ({@link StorageIoEvent#LOAD} или {@link StorageIoEvent#SAVE})
+     * @param path путь к файлу
+     * @param bytes размер файла в байтах
+     * @param accounts количество прочитанных или записанных счетов
+     */
+    static void commitIoEvent(StorageIoEvent event, String operation, Path path, long bytes, int accounts) {
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.path = path.toString();
+            event.bytes = bytes;
+            event.accounts = accounts;
+            event.commit();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package ru.dgritsenko.bam.datastorage;
+
+/**
+ * Перечисление, представляющее политики сброса журнала на диск (fsync):
+ * <ul>
+ *     <li>{@link #PER_RECORD} - каждая запись сбрасывается на диск до возврата управления;</li>
+ *     <li>{@link #GROUP_COMMIT} - запись ожидает сброса на диск, но один сброс подтверждает записи
+ *     всех потоков, ожидающих его одновременно;</li>
+ *     <li>{@link #INTERVAL} - записи сбрасываются на диск фоновым потоком с заданным интервалом,
+ *     при сбое могут быть потеряны записи за последний интервал.</li>
+ * </ul>
+ */
+public enum FsyncPolicy {
+    PER_RECORD("После каждой записи"),
+    GROUP_COMMIT("Групповой сброс"),
+    INTERVAL("По интервалу");
+
+    private final String title;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает строковое представление политики.
+     *
+     * @return строковое представление политики
+     */
+    @Override
+    public String toString() {
+        return getTitle();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Конструктор перечисления.
+     *
+     * @param title название политики
+     */
+    FsyncPolicy(String title) {
+        this.title = title;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public String getTitle() {
+        return title;
+    }
+}
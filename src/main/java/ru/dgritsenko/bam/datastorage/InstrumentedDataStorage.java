@@ -0,0 +1,206 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.metrics.Counter;
+import ru.dgritsenko.bam.metrics.LatencyHistogram;
+import ru.dgritsenko.bam.metrics.MetricsRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Реализация интерфейса {@link DataStorage}, измеряющая обращения к другому хранилищу данных.
+ * <p>
+ * Длительность каждого метода хранилища записывается в гистограмму задержек
+ * {@code storage.<название>.<метод>}, а обращения, завершившиеся исключением, учитываются счетчиком
+ * {@code storage.<название>.failures} реестра {@link MetricsRegistry#getDefault()}. Если метрики отключены
+ * ({@link MetricsRegistry#ENABLED}), обращения передаются хранилищу без измерений.
+ */
+public class InstrumentedDataStorage implements DataStorage, Closeable {
+    private final DataStorage dataStorage;
+
+    private final LatencyHistogram saveAccountsLatency;
+    private final LatencyHistogram saveChangedAccountsLatency;
+    private final LatencyHistogram loadAccountsLatency;
+    private final LatencyHistogram accountCreatedLatency;
+    private final LatencyHistogram accountsCreatedLatency;
+    private final LatencyHistogram transactionsPostedLatency;
+    private final Counter failures;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает измеряемое хранилище данных.
+     *
+     * @param dataStorage хранилище данных
+     * @param name название хранилища в названиях метрик
+     *
+     * @throws NullPointerException если любой из параметров равен {@code null}
+     */
+    public InstrumentedDataStorage(DataStorage dataStorage, String name) {
+        this.dataStorage = Objects.requireNonNull(dataStorage, "Хранилище данных не должно быть null");
+        Objects.requireNonNull(name, "Название хранилища не должно быть null");
+
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        String prefix = "storage." + name + ".";
+
+        this.saveAccountsLatency = registry.histogram(prefix + "saveAccounts");
+        this.saveChangedAccountsLatency = registry.histogram(prefix + "saveChangedAccounts");
+        this.loadAccountsLatency = registry.histogram(prefix + "loadAccounts");
+        this.accountCreatedLatency = registry.histogram(prefix + "accountCreated");
+        this.accountsCreatedLatency = registry.histogram(prefix + "accountsCreated");
+        this.transactionsPostedLatency = registry.histogram(prefix + "transactionsPosted");
+        this.failures = registry.counter(prefix + "failures");
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void saveAccounts(List<Account> accounts) throws IOException {
+        if (!MetricsRegistry.ENABLED) {
+            dataStorage.saveAccounts(accounts);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        boolean isSucceeded = false;
+
+        try {
+            dataStorage.saveAccounts(accounts);
+            isSucceeded = true;
+        } finally {
+            record(saveAccountsLatency, startTime, isSucceeded);
+        }
+    }
+
+    @Override
+    public void saveChangedAccounts(List<Account> accounts, Collection<Account> changedAccounts)
+            throws IOException
+    {
+        if (!MetricsRegistry.ENABLED) {
+            dataStorage.saveChangedAccounts(accounts, changedAccounts);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        boolean isSucceeded = false;
+
+        try {
+            dataStorage.saveChangedAccounts(accounts, changedAccounts);
+            isSucceeded = true;
+        } finally {
+            record(saveChangedAccountsLatency, startTime, isSucceeded);
+        }
+    }
+
+    @Override
+    public List<Account> loadAccounts() throws IOException, ClassNotFoundException {
+        if (!MetricsRegistry.ENABLED) {
+            return dataStorage.loadAccounts();
+        }
+
+        long startTime = System.nanoTime();
+        boolean isSucceeded = false;
+
+        try {
+            List<Account> accounts = dataStorage.loadAccounts();
+            isSucceeded = true;
+            return accounts;
+        } finally {
+            record(loadAccountsLatency, startTime, isSucceeded);
+        }
+    }
+
+    @Override
+    public void accountCreated(Account account) throws IOException {
+        if (!MetricsRegistry.ENABLED) {
+            dataStorage.accountCreated(account);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        boolean isSucceeded = false;
+
+        try {
+            dataStorage.accountCreated(account);
+            isSucceeded = true;
+        } finally {
+            record(accountCreatedLatency, startTime, isSucceeded);
+        }
+    }
+
+    @Override
+    public void accountsCreated(List<Account> accounts) throws IOException {
+        if (!MetricsRegistry.ENABLED) {
+            dataStorage.accountsCreated(accounts);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        boolean isSucceeded = false;
+
+        try {
+            dataStorage.accountsCreated(accounts);
+            isSucceeded = true;
+        } finally {
+            record(accountsCreatedLatency, startTime, isSucceeded);
+        }
+    }
+
+    @Override
+    public void transactionsPosted(List<Transaction> transactions) throws IOException {
+        if (!MetricsRegistry.ENABLED) {
+            dataStorage.transactionsPosted(transactions);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        boolean isSucceeded = false;
+
+        try {
+            dataStorage.transactionsPosted(transactions);
+            isSucceeded = true;
+        } finally {
+            record(transactionsPostedLatency, startTime, isSucceeded);
+        }
+    }
+
+    /**
+     * Закрывает хранилище данных, если оно поддерживает закрытие.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при закрытии хранилища
+     */
+    @Override
+    public void close() throws IOException {
+        if (dataStorage instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Записывает длительность обращения к хранилищу и учитывает обращение, завершившееся исключением.
+     *
+     * @param histogram гистограмма задержек метода
+     * @param startTime время начала обращения ({@link System#nanoTime()})
+     * @param isSucceeded признак успешного завершения обращения
+     */
+    private void record(LatencyHistogram histogram, long startTime, boolean isSucceeded) {
+        histogram.record(System.nanoTime() - startTime);
+
+        if (!isSucceeded) {
+            failures.increment();
+        }
+    }
+}
@@ -0,0 +1,1110 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.util.LongHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Реализация интерфейса {@link DataStorage}, сохраняющая изменения в журнал предзаписи (write-ahead log).
+ * <p>
+ * Каждый созданный счет и каждая проведенная транзакция дописываются в конец текущего сегмента журнала
+ * ({@code Documents/BAM/Data/accounts.journal.N}) компактной двоичной записью через {@link FileChannel},
+ * поэтому стоимость сохранения пропорциональна объему изменения, а не объему всех данных.
+ * Сброс журнала на диск выполняется согласно {@link FsyncPolicy}.
+ * <p>
+ * Периодически (и по вызову {@link #checkpoint()}) создается контрольная точка: запись переключается
+ * на новый сегмент журнала, состояние всех счетов записывается в файл снимка ({@code accounts.snapshot})
+ * в формате {@link AccountDataWriter}, после чего сегменты, предшествующие новому, удаляются. Контрольная
+ * точка создается в фоновом потоке параллельно с операциями: состояние каждого счета фиксируется под его
+ * блокировкой, а операции, попавшие в снимок и в новый сегмент одновременно, при загрузке не дублируются.
+ * <p>
+ * При загрузке читается последний снимок, затем воспроизводятся сегменты журнала, созданные после него,
+ * поэтому время запуска ограничено объемом изменений за интервал между контрольными точками. Неполная
+ * или поврежденная запись в конце сегмента (например, после сбоя во время записи) отбрасывается,
+ * и сегмент усекается до последней корректной записи.
+ * <p>
+ * Формат записи: длина данных ({@code int}), контрольная сумма CRC32C данных ({@code int}) и данные:
+ * тип записи (байт), затем для счета - номер счета и имя владельца, для нескольких счетов - количество
+ * счетов ({@code int}) и для каждого номер и имя владельца, для операции - количество транзакций
+ * ({@code int}) и для каждой транзакции номер счета-владельца и транзакция в формате {@link BinaryCodec}.
+ * Все транзакции операции (обе стороны перевода, пакет операций) и все счета, созданные одним вызовом
+ * {@link #accountsCreated(List)}, защищены одной контрольной суммой, поэтому после сбоя они
+ * восстанавливаются целиком или не восстанавливаются совсем.
+ * Записи отдельных транзакций прежнего формата при загрузке также воспроизводятся.
+ */
+public class JournalFileService implements DataStorage, Closeable {
+    private static final String SEGMENT_FILE_PREFIX = "accounts.journal.";
+    private static final String LEGACY_JOURNAL_FILE_NAME = "accounts.journal";
+    private static final String SNAPSHOT_FILE_NAME = "accounts.snapshot";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 100;
+    private static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final byte ACCOUNT_RECORD = 1;
+    private static final byte TRANSACTION_RECORD = 2;
+    private static final byte OPERATION_RECORD = 3;
+    private static final byte ACCOUNTS_RECORD = 4;
+
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int OPERATION_TRANSACTION_BYTES = Long.BYTES + BinaryCodec.TRANSACTION_BYTES;
+    private static final int MAX_RECORD_BYTES = 256 * 1024 * 1024;
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final long checkpointIntervalMillis;
+
+    // Запись в журнал (позиции сквозные для всех сегментов)
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile FileChannel channel;
+    private long segmentNumber;
+    private long segmentStartPosition;
+    private volatile long writtenPosition;
+
+    // Сброс журнала на диск
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncCondition = syncLock.newCondition();
+    private long syncedPosition;
+    private boolean isSyncInProgress;
+    private volatile IOException fsyncFailure;
+
+    // Контрольные точки
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final ReentrantLock accountsLock = new ReentrantLock();
+    private final List<Account> accounts = new ArrayList<>();
+    private volatile boolean isLoaded;
+    private volatile IOException checkpointFailure;
+
+    private ScheduledExecutorService scheduler;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает журнал в каталоге данных приложения с групповым сбросом на диск
+     * и контрольной точкой каждые 5 минут.
+     */
+    public JournalFileService() {
+        this(Paths.get(FileService.DATA_DIR), FsyncPolicy.GROUP_COMMIT,
+                DEFAULT_FSYNC_INTERVAL_MILLIS, DEFAULT_CHECKPOINT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Создает журнал с указанными параметрами.
+     *
+     * @param directory каталог файлов журнала и снимка
+     * @param fsyncPolicy политика сброса журнала на диск
+     * @param fsyncIntervalMillis интервал сброса на диск в миллисекундах (для {@link FsyncPolicy#INTERVAL})
+     * @param checkpointIntervalMillis интервал создания контрольных точек в миллисекундах
+     *                                 ({@code 0} - только по вызову {@link #checkpoint()})
+     *
+     * @throws NullPointerException если {@code directory} или {@code fsyncPolicy} равен {@code null}
+     * @throws IllegalArgumentException если {@code fsyncIntervalMillis} <= {@code 0}
+     *                                  или {@code checkpointIntervalMillis} < {@code 0}
+     */
+    public JournalFileService(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+                              long checkpointIntervalMillis)
+    {
+        this.directory = Objects.requireNonNull(directory, "Каталог журнала не должен быть null");
+        this.fsyncPolicy = Objects.requireNonNull(fsyncPolicy, "Политика сброса не должна быть null");
+
+        if (fsyncIntervalMillis <= 0) {
+            String errMsg = MessageFormat.format(
+                    "Некорректный интервал сброса журнала \"{0}\": интервал должен быть больше нуля",
+                    fsyncIntervalMillis
+            );
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        if (checkpointIntervalMillis < 0) {
+            String errMsg = MessageFormat.format(
+                    "Некорректный интервал контрольных точек \"{0}\": интервал не должен быть меньше нуля",
+                    checkpointIntervalMillis
+            );
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает ошибку последней неудачной фоновой контрольной точки.
+     * <p>Неудачная контрольная точка не приводит к потере данных: сегменты журнала удаляются
+     * только после записи снимка.
+     *
+     * @return ошибка или {@code null}, если фоновые контрольные точки выполнялись успешно
+     */
+    public IOException getCheckpointFailure() {
+        return checkpointFailure;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Загружает список банковских счетов из последнего снимка и сегментов журнала, созданных после него.
+     * <p>После загрузки запускаются фоновые задачи сброса журнала и создания контрольных точек.
+     *
+     * @return список загруженных счетов
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении или данные повреждены
+     */
+    @Override
+    public List<Account> loadAccounts() throws IOException {
+        checkpointLock.lock();
+        writeLock.lock();
+        try {
+            closeChannel();
+            Files.createDirectories(directory);
+
+            List<Account> loadedAccounts = new ArrayList<>();
+            LongHashMap<Account> accountsByNumber = new LongHashMap<>();
+            long checkpointId = loadSnapshot(loadedAccounts, accountsByNumber);
+
+            migrateLegacyJournal();
+
+            long lastSegmentNumber = Math.max(checkpointId, 1);
+
+            for (long number : getSegmentNumbers()) {
+                Path segmentPath = getSegmentPath(number);
+
+                // Сегмент полностью учтен в снимке (контрольная точка прервана до удаления сегментов)
+                if (number < checkpointId) {
+                    Files.delete(segmentPath);
+                    continue;
+                }
+
+                try (FileChannel segmentChannel = FileChannel.open(segmentPath,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE))
+                {
+                    replay(segmentChannel, loadedAccounts, accountsByNumber);
+                }
+
+                lastSegmentNumber = number;
+            }
+
+            openSegment(lastSegmentNumber, 0);
+
+            accountsLock.lock();
+            try {
+                accounts.clear();
+                accounts.addAll(loadedAccounts);
+            } finally {
+                accountsLock.unlock();
+            }
+
+            isLoaded = true;
+            startBackgroundTasks();
+
+            return loadedAccounts;
+        } finally {
+            writeLock.unlock();
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает журнал на диск.
+     * <p>Все изменения уже записаны в журнал, поэтому полная перезапись счетов не требуется.
+     *
+     * @param accounts список счетов (не используется)
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сбросе журнала
+     */
+    @Override
+    public void saveAccounts(List<Account> accounts) throws IOException {
+        sync();
+    }
+
+    /**
+     * Сбрасывает журнал на диск.
+     * <p>Изменения уже записаны в журнал, поэтому перезапись измененных счетов не требуется.
+     *
+     * @param accounts список всех счетов (не используется)
+     * @param changedAccounts измененные счета (не используются)
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сбросе журнала
+     */
+    @Override
+    public void saveChangedAccounts(List<Account> accounts, Collection<Account> changedAccounts)
+            throws IOException
+    {
+        sync();
+    }
+
+    /**
+     * Дописывает в журнал запись о созданном счете.
+     *
+     * @param account созданный счет
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи журнала
+     */
+    @Override
+    public void accountCreated(Account account) throws IOException {
+        byte[] holderName = account.getHolderName().getBytes(StandardCharsets.UTF_8);
+        int payloadBytes = Byte.BYTES + Long.BYTES + BinaryCodec.getStringBytes(holderName);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + payloadBytes);
+        int recordStart = beginRecord(buffer, ACCOUNT_RECORD);
+        buffer.putLong(account.getAccountNumber());
+        BinaryCodec.putString(buffer, holderName);
+        finishRecord(buffer, recordStart);
+
+        append(buffer);
+
+        accountsLock.lock();
+        try {
+            accounts.add(account);
+        } finally {
+            accountsLock.unlock();
+        }
+    }
+
+    /**
+     * Дописывает в журнал созданные счета одной записью с общей контрольной суммой.
+     *
+     * @param createdAccounts созданные счета
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи журнала или счета
+     *                     не помещаются в одну запись журнала
+     */
+    @Override
+    public void accountsCreated(List<Account> createdAccounts) throws IOException {
+        List<byte[]> holderNames = new ArrayList<>(createdAccounts.size());
+        long payloadBytes = Byte.BYTES + Integer.BYTES;
+
+        for (Account account : createdAccounts) {
+            byte[] holderName = account.getHolderName().getBytes(StandardCharsets.UTF_8);
+            holderNames.add(holderName);
+            payloadBytes += Long.BYTES + BinaryCodec.getStringBytes(holderName);
+        }
+
+        if (payloadBytes > MAX_RECORD_BYTES) {
+            String errMsg = MessageFormat.format(
+                    "Счета ({0}) не помещаются в одну запись журнала", createdAccounts.size());
+            throw new IOException(errMsg);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + (int) payloadBytes);
+        int recordStart = beginRecord(buffer, ACCOUNTS_RECORD);
+        buffer.putInt(createdAccounts.size());
+
+        for (int i = 0; i < createdAccounts.size(); i++) {
+            buffer.putLong(createdAccounts.get(i).getAccountNumber());
+            BinaryCodec.putString(buffer, holderNames.get(i));
+        }
+
+        finishRecord(buffer, recordStart);
+
+        append(buffer);
+
+        accountsLock.lock();
+        try {
+            accounts.addAll(createdAccounts);
+        } finally {
+            accountsLock.unlock();
+        }
+    }
+
+    /**
+     * Дописывает в журнал транзакции операции одной записью с общей контрольной суммой.
+     *
+     * @param transactions транзакции операции
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи журнала или операция
+     *                     не помещается в одну запись журнала
+     */
+    @Override
+    public void transactionsPosted(List<Transaction> transactions) throws IOException {
+        long payloadBytes = Byte.BYTES + Integer.BYTES + (long) OPERATION_TRANSACTION_BYTES * transactions.size();
+
+        if (payloadBytes > MAX_RECORD_BYTES) {
+            String errMsg = MessageFormat.format(
+                    "Операция из {0} транзакций не помещается в одну запись журнала", transactions.size());
+            throw new IOException(errMsg);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + (int) payloadBytes);
+        int recordStart = beginRecord(buffer, OPERATION_RECORD);
+        buffer.putInt(transactions.size());
+
+        for (Transaction transaction : transactions) {
+            buffer.putLong(transaction.getFromAccount().getAccountNumber());
+            BinaryCodec.putTransaction(buffer, transaction);
+        }
+
+        finishRecord(buffer, recordStart);
+
+        append(buffer);
+    }
+
+    /**
+     * Останавливает фоновые задачи, сбрасывает журнал на диск и закрывает его.
+     * <p>Выполняющиеся фоновые сброс и контрольная точка завершаются до закрытия журнала.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сбросе или закрытии журнала
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService stoppedScheduler;
+
+        writeLock.lock();
+        try {
+            stoppedScheduler = scheduler;
+            scheduler = null;
+        } finally {
+            writeLock.unlock();
+        }
+
+        // Ожидание без блокировок: фоновая контрольная точка захватывает их сама
+        if (stoppedScheduler != null) {
+            stoppedScheduler.shutdown();
+            awaitTerminationUninterruptibly(stoppedScheduler);
+        }
+
+        checkpointLock.lock();
+        writeLock.lock();
+        try {
+            closeChannel();
+            isLoaded = false;
+        } finally {
+            writeLock.unlock();
+            checkpointLock.unlock();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. CHECKPOINT
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает контрольную точку: переключает запись на новый сегмент журнала, записывает снимок всех счетов
+     * и удаляет сегменты, предшествующие новому.
+     * <p>
+     * Операции не приостанавливаются: снимок фиксирует состояние каждого счета под его блокировкой,
+     * а изменения, внесенные после переключения сегмента, сохраняются в новом сегменте.
+     * Снимок записывается во временный файл и заменяет предыдущий атомарным переименованием,
+     * поэтому сбой во время контрольной точки оставляет предыдущий снимок и все сегменты без изменений.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи снимка или удалении сегментов
+     * @throws IllegalStateException если счета еще не загружены
+     */
+    public void checkpoint() throws IOException {
+        checkpointLock.lock();
+        try {
+            if (!isLoaded) {
+                throw new IllegalStateException("Контрольная точка недоступна до загрузки счетов");
+            }
+
+            long checkpointId = rotateSegment();
+            List<Account> checkpointAccounts;
+
+            accountsLock.lock();
+            try {
+                checkpointAccounts = new ArrayList<>(accounts);
+            } finally {
+                accountsLock.unlock();
+            }
+
+            Path snapshotPath = directory.resolve(SNAPSHOT_FILE_NAME);
+            Path tempPath = directory.resolve(SNAPSHOT_FILE_NAME + TEMP_FILE_SUFFIX);
+
+            try (FileChannel snapshotChannel = FileChannel.open(tempPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+            {
+                new AccountDataWriter(snapshotChannel).write(checkpointAccounts, checkpointId);
+                snapshotChannel.force(true);
+            }
+
+            Files.move(tempPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            FileService.syncDirectory(directory);
+
+            for (long number : getSegmentNumbers()) {
+                if (number < checkpointId) {
+                    Files.deleteIfExists(getSegmentPath(number));
+                }
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Создает контрольную точку из фонового потока, сохраняя ошибку (см. {@link #getCheckpointFailure()}).
+     */
+    private void checkpointInBackground() {
+        try {
+            checkpoint();
+            checkpointFailure = null;
+        } catch (IOException exception) {
+            checkpointFailure = exception;
+        }
+    }
+
+    /**
+     * Переключает запись на новый сегмент журнала, предварительно сбросив текущий сегмент на диск.
+     *
+     * @return номер нового сегмента
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сбросе или создании сегмента
+     */
+    private long rotateSegment() throws IOException {
+        writeLock.lock();
+        try {
+            ensureOpen();
+
+            // Исключение параллельного сброса: закрываемый канал не должен использоваться другими потоками
+            syncLock.lock();
+            try {
+                while (isSyncInProgress) {
+                    syncCondition.awaitUninterruptibly();
+                }
+                isSyncInProgress = true;
+            } finally {
+                syncLock.unlock();
+            }
+
+            boolean isSynced = false;
+
+            try {
+                channel.force(false);
+                isSynced = true;
+
+                // Новый сегмент открывается до закрытия текущего: при ошибке запись продолжается в текущий
+                FileChannel previousChannel = channel;
+                long nextSegmentNumber = segmentNumber + 1;
+                openSegment(nextSegmentNumber, writtenPosition);
+                previousChannel.close();
+
+                return nextSegmentNumber;
+            } finally {
+                syncLock.lock();
+                try {
+                    isSyncInProgress = false;
+                    if (isSynced) {
+                        syncedPosition = Math.max(syncedPosition, segmentStartPosition);
+                    }
+                    syncCondition.signalAll();
+                } finally {
+                    syncLock.unlock();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. WRITING
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Дописывает подготовленные записи в конец журнала и сбрасывает их на диск согласно политике.
+     *
+     * @param buffer буфер с записями
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи или сбросе журнала
+     */
+    private void append(ByteBuffer buffer) throws IOException {
+        IOException failure = fsyncFailure;
+        if (failure != null) {
+            throw new IOException("Журнал недоступен после ошибки фонового сброса на диск", failure);
+        }
+
+        buffer.flip();
+        long endPosition;
+
+        writeLock.lock();
+        try {
+            ensureOpen();
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            endPosition = segmentStartPosition + channel.position();
+            writtenPosition = endPosition;
+
+            // Сброс под блокировкой записи: каждая запись сбрасывается отдельно
+            if (fsyncPolicy == FsyncPolicy.PER_RECORD) {
+                channel.force(false);
+                return;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+            awaitSync(endPosition);
+        }
+    }
+
+    /**
+     * Ожидает сброса журнала на диск до указанной позиции.
+     * <p>Если сброс не выполняется, текущий поток выполняет его сам для всех записанных к этому моменту данных,
+     * иначе дожидается выполняющегося сброса. Так один вызов {@code force} подтверждает записи всех потоков.
+     *
+     * @param position позиция в журнале, до которой данные должны быть сброшены на диск
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сбросе журнала
+     */
+    private void awaitSync(long position) throws IOException {
+        while (true) {
+            long targetPosition;
+            FileChannel syncChannel;
+
+            syncLock.lock();
+            try {
+                while (isSyncInProgress && syncedPosition < position) {
+                    syncCondition.awaitUninterruptibly();
+                }
+
+                // Журнал закрыт: перед закрытием все записанные данные сброшены на диск
+                if (syncedPosition >= position || channel == null) {
+                    return;
+                }
+
+                isSyncInProgress = true;
+                targetPosition = writtenPosition;
+                syncChannel = channel;
+            } finally {
+                syncLock.unlock();
+            }
+
+            boolean isSynced = false;
+
+            try {
+                syncChannel.force(false);
+                isSynced = true;
+            } finally {
+                syncLock.lock();
+                try {
+                    isSyncInProgress = false;
+                    if (isSynced) {
+                        syncedPosition = Math.max(syncedPosition, targetPosition);
+                    }
+                    syncCondition.signalAll();
+                } finally {
+                    syncLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает на диск все записанные в журнал данные.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сбросе журнала
+     */
+    private void sync() throws IOException {
+        long position;
+
+        syncLock.lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+
+            position = writtenPosition;
+        } finally {
+            syncLock.unlock();
+        }
+
+        awaitSync(position);
+    }
+
+    /**
+     * Сбрасывает журнал на диск из фонового потока, сохраняя ошибку для последующих операций записи.
+     */
+    private void syncInBackground() {
+        try {
+            sync();
+        } catch (IOException exception) {
+            fsyncFailure = exception;
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. READING
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Загружает счета из файла снимка, если он существует.
+     *
+     * @param accounts список, в который добавляются загруженные счета
+     * @param accountsByNumber индекс, в который добавляются загруженные счета
+     *
+     * @return номер первого сегмента журнала, не учтенного в снимке, или {@code 0}, если снимка нет
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении снимка или снимок поврежден
+     */
+    private long loadSnapshot(List<Account> accounts, LongHashMap<Account> accountsByNumber) throws IOException {
+        Path snapshotPath = directory.resolve(SNAPSHOT_FILE_NAME);
+
+        if (!Files.exists(snapshotPath)) {
+            return 0;
+        }
+
+        try (FileChannel snapshotChannel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            AccountDataReader reader = new AccountDataReader(snapshotChannel);
+
+            for (Account account : reader.getAccounts()) {
+                accounts.add(account);
+                accountsByNumber.put(account.getAccountNumber(), account);
+            }
+
+            reader.readTransactions(accountsByNumber::get);
+
+            return reader.getCheckpointId();
+        }
+    }
+
+    /**
+     * Воспроизводит сегмент журнала с начала и применяет его записи к восстанавливаемым счетам.
+     * <p>Сегмент усекается до последней корректной записи.
+     *
+     * @param segmentChannel канал сегмента журнала
+     * @param accounts список восстанавливаемых счетов
+     * @param accountsByNumber индекс восстанавливаемых счетов по номеру
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении журнала или запись ссылается
+     *                     на несуществующий счет
+     */
+    private static void replay(FileChannel segmentChannel, List<Account> accounts,
+                               LongHashMap<Account> accountsByNumber) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        buffer.flip();
+        CRC32C checksum = new CRC32C();
+        long validPosition = 0;
+
+        segmentChannel.position(0);
+
+        while (true) {
+            int available = buffer.remaining();
+
+            if (available >= RECORD_HEADER_BYTES) {
+                int payloadBytes = buffer.getInt(buffer.position());
+
+                // Некорректная длина или запись длиннее остатка сегмента - признак поврежденного конца журнала
+                if (payloadBytes <= 0 || payloadBytes > MAX_RECORD_BYTES
+                        || validPosition + RECORD_HEADER_BYTES + payloadBytes > segmentChannel.size())
+                {
+                    break;
+                }
+
+                // Запись операции может не помещаться в буфер чтения
+                if (RECORD_HEADER_BYTES + payloadBytes > buffer.capacity()) {
+                    ByteBuffer largerBuffer = ByteBuffer.allocateDirect(RECORD_HEADER_BYTES + payloadBytes);
+                    largerBuffer.put(buffer);
+                    largerBuffer.flip();
+                    buffer = largerBuffer;
+                }
+
+                if (available >= RECORD_HEADER_BYTES + payloadBytes) {
+                    int recordStart = buffer.position();
+                    int expectedChecksum = buffer.getInt(recordStart + Integer.BYTES);
+                    ByteBuffer payload = buffer.slice(recordStart + RECORD_HEADER_BYTES, payloadBytes);
+
+                    checksum.reset();
+                    checksum.update(payload.duplicate());
+
+                    if ((int) checksum.getValue() != expectedChecksum) {
+                        break;
+                    }
+
+                    applyRecord(payload, accounts, accountsByNumber);
+
+                    buffer.position(recordStart + RECORD_HEADER_BYTES + payloadBytes);
+                    validPosition += RECORD_HEADER_BYTES + payloadBytes;
+                    continue;
+                }
+            }
+
+            // Дочитывание следующей порции журнала
+            buffer.compact();
+            int bytesRead = segmentChannel.read(buffer);
+            buffer.flip();
+
+            if (bytesRead < 0) {
+                break;
+            }
+        }
+
+        // Отбрасывание неполной или поврежденной записи в конце сегмента
+        if (validPosition < segmentChannel.size()) {
+            segmentChannel.truncate(validPosition);
+        }
+    }
+
+    /**
+     * Применяет запись журнала к восстанавливаемым счетам.
+     * <p>Повторное применение записи не изменяет счета.
+     *
+     * @param payload данные записи
+     * @param accounts список восстанавливаемых счетов
+     * @param accountsByNumber индекс восстанавливаемых счетов по номеру
+     *
+     * @throws IOException если запись некорректна или ссылается на несуществующий счет
+     */
+    private static void applyRecord(ByteBuffer payload, List<Account> accounts, LongHashMap<Account> accountsByNumber)
+            throws IOException
+    {
+        byte recordType = payload.get();
+
+        if (recordType == ACCOUNT_RECORD) {
+            long accountNumber = payload.getLong();
+            applyAccount(accountNumber, BinaryCodec.getString(payload), accounts, accountsByNumber);
+        } else if (recordType == ACCOUNTS_RECORD) {
+            int accountsCount = payload.getInt();
+
+            if (accountsCount < 0 || (long) accountsCount * Long.BYTES > payload.remaining()) {
+                throw BinaryCodec.getCorruptedDataException(
+                        MessageFormat.format("количество счетов {0}", accountsCount));
+            }
+
+            // Счета добавляются только после разбора всей записи
+            long[] accountNumbers = new long[accountsCount];
+            String[] holderNames = new String[accountsCount];
+
+            for (int i = 0; i < accountsCount; i++) {
+                accountNumbers[i] = payload.getLong();
+                holderNames[i] = BinaryCodec.getString(payload);
+            }
+
+            for (int i = 0; i < accountsCount; i++) {
+                applyAccount(accountNumbers[i], holderNames[i], accounts, accountsByNumber);
+            }
+        } else if (recordType == TRANSACTION_RECORD) {
+            applyTransaction(readTransaction(payload, accountsByNumber));
+        } else if (recordType == OPERATION_RECORD) {
+            int transactionsCount = payload.getInt();
+
+            if (transactionsCount < 0 || (long) transactionsCount * OPERATION_TRANSACTION_BYTES > payload.remaining()) {
+                throw BinaryCodec.getCorruptedDataException(
+                        MessageFormat.format("количество транзакций операции {0}", transactionsCount));
+            }
+
+            // Операция применяется только после разбора всех ее транзакций
+            List<Transaction> transactions = new ArrayList<>(transactionsCount);
+
+            for (int i = 0; i < transactionsCount; i++) {
+                transactions.add(readTransaction(payload, accountsByNumber));
+            }
+
+            for (Transaction transaction : transactions) {
+                applyTransaction(transaction);
+            }
+        } else {
+            throw BinaryCodec.getCorruptedDataException(MessageFormat.format("тип записи {0}", recordType));
+        }
+    }
+
+    /**
+     * Добавляет восстановленный счет без транзакций, если счета с таким номером еще нет.
+     *
+     * @param accountNumber номер счета
+     * @param holderName имя владельца
+     * @param accounts список восстанавливаемых счетов
+     * @param accountsByNumber индекс восстанавливаемых счетов по номеру
+     */
+    private static void applyAccount(long accountNumber, String holderName, List<Account> accounts,
+                                     LongHashMap<Account> accountsByNumber)
+    {
+        if (!accountsByNumber.containsKey(accountNumber)) {
+            Account account = new Account.Builder()
+                    .setAccountNumber(accountNumber)
+                    .setHolderName(holderName)
+                    .setTransactions(new ArrayList<>())
+                    .buildWithoutValidations();
+            accounts.add(account);
+            accountsByNumber.put(accountNumber, account);
+        }
+    }
+
+    /**
+     * Читает из записи журнала номер счета-владельца и транзакцию.
+     *
+     * @param payload данные записи
+     * @param accountsByNumber индекс восстанавливаемых счетов по номеру
+     *
+     * @return транзакция
+     *
+     * @throws IOException если транзакция некорректна или ссылается на несуществующий счет
+     */
+    private static Transaction readTransaction(ByteBuffer payload, LongHashMap<Account> accountsByNumber)
+            throws IOException
+    {
+        long accountNumber = payload.getLong();
+        Account account = accountsByNumber.get(accountNumber);
+
+        if (account == null) {
+            throw BinaryCodec.getCorruptedDataException(
+                    MessageFormat.format("счет {0} не найден", Long.toString(accountNumber)));
+        }
+
+        return BinaryCodec.getTransaction(payload, account, accountsByNumber::get);
+    }
+
+    /**
+     * Добавляет восстановленную транзакцию в счет-владелец, если она еще не добавлена.
+     *
+     * @param transaction транзакция
+     */
+    private static void applyTransaction(Transaction transaction) {
+        Account account = transaction.getFromAccount();
+
+        if (account.getTransaction(transaction.getUuid()) == null) {
+            account.addTransaction(transaction);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Открывает последний сегмент журнала для записи, если журнал еще не открыт.
+     * <p>Вызывается под блокировкой записи.
+     *
+     * @throws IOException если не удалось создать каталог или открыть сегмент журнала
+     */
+    private void ensureOpen() throws IOException {
+        if (channel != null) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        migrateLegacyJournal();
+
+        List<Long> segmentNumbers = getSegmentNumbers();
+        long lastSegmentNumber = segmentNumbers.isEmpty() ? 1 : segmentNumbers.getLast();
+
+        openSegment(lastSegmentNumber, 0);
+    }
+
+    /**
+     * Открывает сегмент журнала для дозаписи и делает его текущим.
+     * <p>Вызывается под блокировкой записи.
+     *
+     * @param number номер сегмента
+     * @param startPosition сквозная позиция журнала, соответствующая началу сегмента
+     *
+     * @throws IOException если не удалось открыть сегмент журнала
+     */
+    private void openSegment(long number, long startPosition) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(getSegmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = segmentChannel.size();
+        segmentChannel.position(size);
+
+        segmentNumber = number;
+        segmentStartPosition = startPosition;
+        writtenPosition = startPosition + size;
+
+        syncLock.lock();
+        try {
+            syncedPosition = Math.max(syncedPosition, startPosition + size);
+            channel = segmentChannel;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает текущий сегмент журнала на диск и закрывает его.
+     * <p>Вызывается под блокировкой записи. Канал закрывается после завершения выполняющегося сброса
+     * и становится недоступен для последующих сбросов до закрытия.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при сбросе или закрытии сегмента
+     */
+    private void closeChannel() throws IOException {
+        FileChannel closedChannel = channel;
+
+        if (closedChannel == null) {
+            return;
+        }
+
+        try {
+            sync();
+        } finally {
+            syncLock.lock();
+            try {
+                while (isSyncInProgress) {
+                    syncCondition.awaitUninterruptibly();
+                }
+
+                channel = null;
+                syncedPosition = 0;
+            } finally {
+                syncLock.unlock();
+            }
+
+            closedChannel.close();
+        }
+
+        writtenPosition = 0;
+    }
+
+    /**
+     * Запускает фоновый сброс журнала (для {@link FsyncPolicy#INTERVAL}) и создание контрольных точек.
+     * <p>Вызывается под блокировкой записи.
+     */
+    private void startBackgroundTasks() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "bam-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            scheduler.scheduleWithFixedDelay(
+                    this::syncInBackground, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        if (checkpointIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::checkpointInBackground,
+                    checkpointIntervalMillis, checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Ожидает завершения задач остановленного планировщика, сохраняя признак прерывания текущего потока.
+     *
+     * @param stoppedScheduler планировщик, для которого вызван {@code shutdown}
+     */
+    private static void awaitTerminationUninterruptibly(ScheduledExecutorService stoppedScheduler) {
+        boolean isInterrupted = false;
+
+        while (true) {
+            try {
+                if (stoppedScheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException _) {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Переименовывает файл журнала прежнего формата (единственный файл без номера) в первый сегмент.
+     *
+     * @throws IOException если не удалось переименовать файл
+     */
+    private void migrateLegacyJournal() throws IOException {
+        Path legacyPath = directory.resolve(LEGACY_JOURNAL_FILE_NAME);
+
+        if (Files.isRegularFile(legacyPath) && getSegmentNumbers().isEmpty()) {
+            Files.move(legacyPath, getSegmentPath(1), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Возвращает номера существующих сегментов журнала в порядке возрастания.
+     *
+     * @return номера сегментов
+     *
+     * @throws IOException если не удалось прочитать каталог журнала
+     */
+    private List<Long> getSegmentNumbers() throws IOException {
+        List<Long> segmentNumbers = new ArrayList<>();
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, SEGMENT_FILE_PREFIX + "*")) {
+            for (Path path : paths) {
+                String suffix = path.getFileName().toString().substring(SEGMENT_FILE_PREFIX.length());
+
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    segmentNumbers.add(Long.parseLong(suffix));
+                }
+            }
+        }
+
+        segmentNumbers.sort(null);
+        return segmentNumbers;
+    }
+
+    /**
+     * Возвращает путь к сегменту журнала.
+     *
+     * @param number номер сегмента
+     *
+     * @return путь к файлу сегмента
+     */
+    private Path getSegmentPath(long number) {
+        return directory.resolve(SEGMENT_FILE_PREFIX + number);
+    }
+
+    /**
+     * Начинает запись в буфере: резервирует место под заголовок и записывает тип записи.
+     *
+     * @param buffer буфер
+     * @param recordType тип записи
+     *
+     * @return позиция начала записи в буфере
+     */
+    private static int beginRecord(ByteBuffer buffer, byte recordType) {
+        int recordStart = buffer.position();
+        buffer.position(recordStart + RECORD_HEADER_BYTES);
+        buffer.put(recordType);
+        return recordStart;
+    }
+
+    /**
+     * Завершает запись в буфере: заполняет заголовок длиной данных и контрольной суммой.
+     *
+     * @param buffer буфер
+     * @param recordStart позиция начала записи в буфере
+     */
+    private static void finishRecord(ByteBuffer buffer, int recordStart) {
+        int payloadStart = recordStart + RECORD_HEADER_BYTES;
+        int payloadBytes = buffer.position() - payloadStart;
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(payloadStart, payloadBytes));
+
+        buffer.putInt(recordStart, payloadBytes);
+        buffer.putInt(recordStart + Integer.BYTES, (int) checksum.getValue());
+    }
+}
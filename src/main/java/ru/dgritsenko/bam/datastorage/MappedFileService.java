@@ -0,0 +1,129 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Реализация интерфейса {@link DataStorage}, отображающая файл данных в память.
+ * <p>
+ * Использует тот же файл и формат, что и {@link FileService} ({@code Documents/BAM/Data/accounts.data}).
+ * При загрузке читаются только заголовок и раздел счетов: номера, имена владельцев и сохраненные балансы.
+ * Транзакции счета разбираются из отображенного файла при первом обращении к ним
+ * (см. {@link MappedTransactionHistory}), поэтому время загрузки не зависит от объема истории.
+ * <p>
+ * При сохранении незагруженные истории копируются из отображенного файла без разбора. Новый файл
+ * записывается рядом с текущим и заменяет его переименованием, а отображение прежнего файла остается
+ * действительным до {@link #close()}, поэтому незагруженные счета продолжают читать из него свою историю.
+ * <p>
+ * Файлы прежних версий приложения (стандартная сериализация Java, в том числе с суммами транзакций
+ * в {@code double}) загружаются полностью через {@link FileService}.
+ */
+public class MappedFileService implements DataStorage, Closeable {
+    private final Path path;
+
+    private Arena arena;
+    private MappedTransactionHistory history;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает хранилище для файла данных приложения.
+     */
+    public MappedFileService() {
+        this(Paths.get(FileService.ACCOUNTS_PATH));
+    }
+
+    /**
+     * Создает хранилище для указанного файла данных.
+     *
+     * @param path путь к файлу данных
+     *
+     * @throws NullPointerException если {@code path} равен {@code null}
+     */
+    public MappedFileService(Path path) {
+        this.path = Objects.requireNonNull(path, "Путь к файлу данных не должен быть null");
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Отображает файл данных в память и загружает счета без истории транзакций.
+     *
+     * @return список загруженных счетов
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении файла или данные повреждены
+     * @throws ClassNotFoundException если класс объекта в файле прежнего формата не найден
+     */
+    @Override
+    public synchronized List<Account> loadAccounts() throws IOException, ClassNotFoundException {
+        StorageIoEvent event = new StorageIoEvent();
+        event.begin();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (FileService.isSerializedFile(channel)) {
+                return new FileService().loadAccountsFile(path.toString());
+            }
+
+            Arena newArena = Arena.ofShared();
+
+            try {
+                MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), newArena);
+                MappedTransactionHistory newHistory = new MappedTransactionHistory(segment);
+
+                AccountDataReader reader = new AccountDataReader(channel, newHistory);
+                newHistory.register(reader.getAccounts(), reader.getTransactionOffsets());
+
+                close();
+                arena = newArena;
+                history = newHistory;
+
+                FileService.commitIoEvent(
+                        event, StorageIoEvent.LOAD, path, channel.size(), reader.getAccounts().size());
+                return reader.getAccounts();
+            } catch (IOException | RuntimeException exception) {
+                newArena.close();
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Сохраняет список банковских счетов в файл.
+     * <p>Файл записывается во временный файл, сбрасывается на диск и атомарно заменяет текущий.
+     *
+     * @param accounts список счетов для сохранения
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи файла
+     */
+    @Override
+    public synchronized void saveAccounts(List<Account> accounts) throws IOException {
+        FileService.writeAccountsFile(accounts, path, history);
+    }
+
+    /**
+     * Освобождает отображение файла данных.
+     * <p>После закрытия незагруженные истории транзакций загруженных счетов недоступны.
+     */
+    @Override
+    public synchronized void close() {
+        if (arena != null) {
+            arena.close();
+            arena = null;
+            history = null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.dgritsenko.bam.datastorage;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+
+/**
+ * Источник истории транзакций, читающий транзакции счетов из отображенного в память файла данных.
+ * <p>Страницы файла загружаются операционной системой по мере чтения. Класс потокобезопасен.
+ */
+final class MappedTransactionHistory extends StoredTransactionHistory {
+    private final MemorySegment segment;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает источник истории транзакций по отображенному в память файлу данных.
+     *
+     * @param segment отображенный в память файл данных
+     */
+    MappedTransactionHistory(MemorySegment segment) {
+        this.segment = segment;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Override
+    ByteBuffer read(long offset, long bytes) {
+        return segment.asSlice(offset, bytes).asByteBuffer();
+    }
+
+    @Override
+    long getSize() {
+        return segment.byteSize();
+    }
+}
@@ -0,0 +1,565 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.AccountNumberAllocator;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.util.LongHashMap;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Реализация интерфейса {@link DataStorage}, распределяющая счета по нескольким файлам (сегментам).
+ * <p>
+ * Счет хранится в файле {@code accounts.shard.N}, где {@code N} - остаток от деления номера счета
+ * на количество сегментов (номера счетов выдаются псевдослучайно, поэтому сегменты заполняются
+ * равномерно). Каждый сегмент - файл формата {@link AccountDataWriter}, в заголовке которого вместо
+ * номера контрольной точки записано количество сегментов.
+ * <p>
+ * Сегменты загружаются параллельно в два этапа: сначала разделы счетов всех сегментов, затем транзакции,
+ * ссылки которых на счета других сегментов разрешаются по общему индексу счетов.
+ * <p>
+ * Хранилище отмечает сегменты созданных и измененных счетов (см. {@link #accountCreated(Account)},
+ * {@link #transactionsPosted(List)} и {@link #saveChangedAccounts(List, Collection)}) и при сохранении
+ * параллельно перезаписывает только отмеченные сегменты. Если транзакции ссылаются на счет, сегмент которого
+ * еще не сохранен, он сохраняется вместе с ними, поэтому все сохраненные ссылки разрешаются при загрузке.
+ * <p>
+ * Если сегментов нет, загружается файл {@link FileService}, и при первом сохранении счета распределяются
+ * по сегментам. При изменении количества сегментов все счета перераспределяются при первом сохранении.
+ */
+public class ShardedFileService implements DataStorage {
+    private static final int DEFAULT_SHARD_COUNT = 16;
+    private static final String SHARD_FILE_PREFIX = "accounts.shard.";
+
+    private final Path directory;
+    private final int shardCount;
+
+    // Счета по сегментам и отметки измененных сегментов (защищены shardsLock)
+    private final Object shardsLock = new Object();
+    private final LongHashMap<Account> accountsByNumber = new LongHashMap<>();
+    private final List<List<Account>> shardAccounts;
+    private final boolean[] dirtyShards;
+
+    // Файлы сегментов прежнего распределения, удаляемые после перезаписи всех сегментов
+    private final List<Path> staleShardPaths = new ArrayList<>();
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает хранилище из 16 сегментов в каталоге данных приложения.
+     */
+    public ShardedFileService() {
+        this(Paths.get(FileService.DATA_DIR), DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * Создает хранилище с указанными параметрами.
+     *
+     * @param directory каталог файлов сегментов
+     * @param shardCount количество сегментов
+     *
+     * @throws NullPointerException если {@code directory} равен {@code null}
+     * @throws IllegalArgumentException если {@code shardCount} <= {@code 0}
+     */
+    public ShardedFileService(Path directory, int shardCount) {
+        this.directory = Objects.requireNonNull(directory, "Каталог сегментов не должен быть null");
+
+        if (shardCount <= 0) {
+            String errMsg = MessageFormat.format(
+                    "Некорректное количество сегментов \"{0}\": количество должно быть больше нуля", shardCount);
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        this.shardCount = shardCount;
+        this.shardAccounts = new ArrayList<>(shardCount);
+        this.dirtyShards = new boolean[shardCount];
+
+        for (int i = 0; i < shardCount; i++) {
+            shardAccounts.add(new ArrayList<>());
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Параллельно загружает счета вместе с историей транзакций из всех сегментов.
+     * <p>Для каждого сегмента проверяются завершающий блок и контрольные суммы.
+     *
+     * @return список загруженных счетов в порядке их создания
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении файла или данные повреждены
+     * @throws ClassNotFoundException если класс объекта в файле прежнего формата не найден
+     */
+    @Override
+    public synchronized List<Account> loadAccounts() throws IOException, ClassNotFoundException {
+        List<Path> shardPaths = getShardPaths();
+
+        if (shardPaths.isEmpty()) {
+            Path accountsPath = Paths.get(FileService.ACCOUNTS_PATH);
+
+            if (!Files.exists(accountsPath)) {
+                throw new NoSuchFileException(getShardPath(0).toString());
+            }
+
+            List<Account> accounts = new FileService().loadAccountsFile(accountsPath.toString());
+            resetShards(accounts, false);
+            return accounts;
+        }
+
+        List<ShardReader> shardReaders = new ArrayList<>(shardPaths.size());
+
+        try {
+            // Этап 1: заголовки и разделы счетов всех сегментов
+            List<Callable<ShardReader>> openTasks = new ArrayList<>(shardPaths.size());
+
+            for (Path shardPath : shardPaths) {
+                openTasks.add(() -> new ShardReader(shardPath));
+            }
+
+            shardReaders.addAll(invokeAll(openTasks, shardReaders::add));
+
+            LongHashMap<Account> loadedAccountsByNumber = new LongHashMap<>();
+            List<Account> accounts = new ArrayList<>();
+            boolean isLayoutChanged = false;
+
+            for (ShardReader shardReader : shardReaders) {
+                isLayoutChanged |= shardReader.reader.getCheckpointId() != shardCount
+                        || shardReader.shardNumber >= shardCount;
+
+                for (Account account : shardReader.reader.getAccounts()) {
+                    if (loadedAccountsByNumber.putIfAbsent(account.getAccountNumber(), account) != null) {
+                        throw BinaryCodec.getCorruptedDataException(MessageFormat.format(
+                                "счет {0} сохранен в нескольких сегментах", Long.toString(account.getAccountNumber())));
+                    }
+
+                    isLayoutChanged |= getShardNumber(account) != shardReader.shardNumber;
+                    accounts.add(account);
+                }
+            }
+
+            // Этап 2: транзакции (индекс счетов далее только читается)
+            List<Callable<Void>> readTasks = new ArrayList<>(shardReaders.size());
+
+            for (ShardReader shardReader : shardReaders) {
+                readTasks.add(() -> {
+                    shardReader.reader.readTransactions(loadedAccountsByNumber::get);
+                    return null;
+                });
+            }
+
+            invokeAll(readTasks, null);
+
+            accounts.sort(Comparator.comparingLong(
+                    account -> AccountNumberAllocator.getAllocationIndex(account.getAccountNumber())));
+
+            if (isLayoutChanged) {
+                staleShardPaths.addAll(shardPaths);
+            }
+
+            resetShards(accounts, !isLayoutChanged);
+            return accounts;
+        } finally {
+            for (ShardReader shardReader : shardReaders) {
+                shardReader.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Сохраняет измененные сегменты.
+     * <p>Счета списка, о которых хранилище не было уведомлено, добавляются в свои сегменты.
+     *
+     * @param accounts список всех счетов
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи файла
+     */
+    @Override
+    public synchronized void saveAccounts(List<Account> accounts) throws IOException {
+        saveChangedAccounts(accounts, List.of());
+    }
+
+    /**
+     * Сохраняет сегменты указанных счетов и другие измененные сегменты.
+     *
+     * @param accounts список всех счетов
+     * @param changedAccounts счета, измененные с момента предыдущего сохранения
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи файла
+     */
+    @Override
+    public synchronized void saveChangedAccounts(List<Account> accounts, Collection<Account> changedAccounts)
+            throws IOException
+    {
+        synchronized (shardsLock) {
+            for (Account account : accounts) {
+                addAccount(account);
+            }
+
+            for (Account account : changedAccounts) {
+                dirtyShards[getShardNumber(account)] = true;
+            }
+        }
+
+        saveDirtyShards();
+    }
+
+    /**
+     * Добавляет созданный счет в его сегмент и отмечает сегмент как измененный.
+     *
+     * @param account созданный счет
+     */
+    @Override
+    public void accountCreated(Account account) {
+        synchronized (shardsLock) {
+            addAccount(account);
+        }
+    }
+
+    /**
+     * Добавляет созданные счета в их сегменты и отмечает сегменты как измененные.
+     *
+     * @param accounts созданные счета
+     */
+    @Override
+    public void accountsCreated(List<Account> accounts) {
+        synchronized (shardsLock) {
+            for (Account account : accounts) {
+                addAccount(account);
+            }
+        }
+    }
+
+    /**
+     * Отмечает сегменты счетов транзакций как измененные.
+     *
+     * @param transactions транзакции операции
+     */
+    @Override
+    public void transactionsPosted(List<Transaction> transactions) {
+        synchronized (shardsLock) {
+            for (Transaction transaction : transactions) {
+                dirtyShards[getShardNumber(transaction.getFromAccount())] = true;
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Параллельно перезаписывает измененные сегменты, а затем сегменты счетов, на которые ссылаются
+     * записанные транзакции, если эти сегменты еще не сохранены.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при записи файла
+     */
+    private void saveDirtyShards() throws IOException {
+        boolean[] requiredShards;
+
+        synchronized (shardsLock) {
+            requiredShards = dirtyShards.clone();
+        }
+
+        while (true) {
+            List<Callable<List<Account>>> writeTasks = new ArrayList<>();
+            List<Integer> writtenShards = new ArrayList<>();
+
+            synchronized (shardsLock) {
+                for (int i = 0; i < shardCount; i++) {
+                    if (requiredShards[i] && dirtyShards[i]) {
+                        // Отметка снимается до записи: изменения во время записи отмечают сегмент повторно
+                        dirtyShards[i] = false;
+                        writtenShards.add(i);
+                        writeTasks.add(getWriteTask(i, new ArrayList<>(shardAccounts.get(i))));
+                    }
+                }
+            }
+
+            if (writeTasks.isEmpty()) {
+                break;
+            }
+
+            List<List<Account>> referencedAccounts;
+
+            try {
+                referencedAccounts = invokeAll(writeTasks, null);
+            } catch (IOException | RuntimeException exception) {
+                synchronized (shardsLock) {
+                    for (int shardNumber : writtenShards) {
+                        dirtyShards[shardNumber] = true;
+                    }
+                }
+                throw exception;
+            }
+
+            Arrays.fill(requiredShards, false);
+
+            synchronized (shardsLock) {
+                for (List<Account> shardReferencedAccounts : referencedAccounts) {
+                    for (Account account : shardReferencedAccounts) {
+                        addAccount(account);
+                        requiredShards[getShardNumber(account)] = true;
+                    }
+                }
+            }
+        }
+
+        if (!staleShardPaths.isEmpty()) {
+            deleteStaleShards();
+        }
+    }
+
+    /**
+     * Возвращает задачу записи сегмента.
+     *
+     * @param shardNumber номер сегмента
+     * @param accounts счета сегмента
+     *
+     * @return задача, возвращающая счета других сегментов, на которые ссылаются записанные транзакции
+     */
+    private Callable<List<Account>> getWriteTask(int shardNumber, List<Account> accounts) {
+        return () -> {
+            List<Account> referencedAccounts = new ArrayList<>();
+            FileService.writeAccountsFile(accounts, getShardPath(shardNumber), null, shardCount, referencedAccounts);
+            return referencedAccounts;
+        };
+    }
+
+    /**
+     * Удаляет файлы сегментов прежнего распределения, не замененные новыми сегментами.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при удалении файла
+     */
+    private void deleteStaleShards() throws IOException {
+        for (Path shardPath : staleShardPaths) {
+            int shardNumber = getShardNumber(shardPath);
+
+            if (shardNumber >= shardCount) {
+                Files.deleteIfExists(shardPath);
+            }
+        }
+
+        staleShardPaths.clear();
+        FileService.syncDirectory(directory);
+    }
+
+    /**
+     * Заменяет счета сегментов загруженными счетами.
+     *
+     * @param accounts загруженные счета
+     * @param isSaved {@code true}, если счета уже сохранены в своих сегментах
+     */
+    private void resetShards(List<Account> accounts, boolean isSaved) {
+        synchronized (shardsLock) {
+            accountsByNumber.clear();
+
+            for (List<Account> shard : shardAccounts) {
+                shard.clear();
+            }
+
+            for (Account account : accounts) {
+                addAccount(account);
+            }
+
+            Arrays.fill(dirtyShards, !isSaved);
+        }
+    }
+
+    /**
+     * Добавляет счет в его сегмент, если он еще не добавлен, и отмечает сегмент как измененный.
+     * <p>Вызывается под блокировкой {@code shardsLock}.
+     *
+     * @param account счет
+     */
+    private void addAccount(Account account) {
+        if (accountsByNumber.putIfAbsent(account.getAccountNumber(), account) == null) {
+            int shardNumber = getShardNumber(account);
+            shardAccounts.get(shardNumber).add(account);
+            dirtyShards[shardNumber] = true;
+        }
+    }
+
+    /**
+     * Возвращает номер сегмента счета.
+     *
+     * @param account счет
+     *
+     * @return номер сегмента
+     */
+    private int getShardNumber(Account account) {
+        return (int) Math.floorMod(account.getAccountNumber(), (long) shardCount);
+    }
+
+    /**
+     * Возвращает путь к файлу сегмента.
+     *
+     * @param shardNumber номер сегмента
+     *
+     * @return путь к файлу
+     */
+    private Path getShardPath(int shardNumber) {
+        return directory.resolve(SHARD_FILE_PREFIX + shardNumber);
+    }
+
+    /**
+     * Возвращает номер сегмента по имени его файла.
+     *
+     * @param shardPath путь к файлу сегмента
+     *
+     * @return номер сегмента или {@code -1}, если имя файла не является именем сегмента
+     */
+    private static int getShardNumber(Path shardPath) {
+        String fileName = shardPath.getFileName().toString();
+
+        if (!fileName.startsWith(SHARD_FILE_PREFIX)) {
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(fileName.substring(SHARD_FILE_PREFIX.length()));
+        } catch (NumberFormatException _) {
+            return -1;
+        }
+    }
+
+    /**
+     * Возвращает пути к существующим файлам сегментов.
+     *
+     * @return пути к файлам сегментов в порядке номеров
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении каталога
+     */
+    private List<Path> getShardPaths() throws IOException {
+        List<Path> shardPaths = new ArrayList<>();
+
+        if (!Files.isDirectory(directory)) {
+            return shardPaths;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SHARD_FILE_PREFIX + "*")) {
+            for (Path path : stream) {
+                if (getShardNumber(path) >= 0) {
+                    shardPaths.add(path);
+                }
+            }
+        }
+
+        shardPaths.sort(Comparator.comparingInt(ShardedFileService::getShardNumber));
+        return shardPaths;
+    }
+
+    /**
+     * Выполняет задачи параллельно (не более одной задачи на процессор) и возвращает их результаты.
+     * <p>Если хотя бы одна задача завершилась ошибкой, выбрасывается первая ошибка после завершения всех задач.
+     *
+     * @param tasks задачи
+     * @param resultConsumer получатель результатов успешно завершенных задач при ошибке
+     *                       (например, для закрытия открытых ресурсов) или {@code null}
+     *
+     * @return результаты задач в порядке {@code tasks}
+     *
+     * @throws IOException если задача завершилась ошибкой ввода-вывода
+     */
+    private static <T> List<T> invokeAll(List<? extends Callable<T>> tasks,
+                                         Consumer<T> resultConsumer) throws IOException
+    {
+        int threadCount = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(threadCount, 1), runnable -> {
+            Thread thread = new Thread(runnable, "bam-shards");
+            thread.setDaemon(true);
+            return thread;
+        })) {
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        Throwable failure = null;
+
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException exception) {
+                if (failure == null) {
+                    failure = exception.getCause();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Прервано ожидание обработки сегментов", exception);
+            }
+        }
+
+        if (failure == null) {
+            return results;
+        }
+
+        if (resultConsumer != null) {
+            results.forEach(resultConsumer);
+        }
+
+        switch (failure) {
+            case IOException exception -> throw exception;
+            case RuntimeException exception -> throw exception;
+            case Error error -> throw error;
+            default -> throw new IOException(failure);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // SHARD READER NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс, представляющий открытый файл сегмента с прочитанным разделом счетов.
+     */
+    private static final class ShardReader {
+        private final int shardNumber;
+        private final FileChannel channel;
+        private final AccountDataReader reader;
+
+        /**
+         * Открывает файл сегмента и читает его заголовок и раздел счетов.
+         *
+         * @param shardPath путь к файлу сегмента
+         *
+         * @throws IOException если произошла ошибка ввода-вывода при чтении или данные некорректны
+         */
+        private ShardReader(Path shardPath) throws IOException {
+            this.shardNumber = getShardNumber(shardPath);
+            this.channel = FileChannel.open(shardPath, StandardOpenOption.READ);
+
+            try {
+                this.reader = new AccountDataReader(channel);
+            } catch (IOException | RuntimeException exception) {
+                channel.close();
+                throw exception;
+            }
+        }
+    }
+}
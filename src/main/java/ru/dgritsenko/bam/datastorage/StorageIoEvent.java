@@ -0,0 +1,37 @@
+package ru.dgritsenko.bam.datastorage;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие Java Flight Recorder, представляющее чтение или запись файла счетов.
+ * <p>Событие отключено по умолчанию и включается настройками записи {@code bam.jfc}.
+ */
+@Name("ru.dgritsenko.bam.StorageIo")
+@Label("Storage I/O")
+@Category({"Bank Account Management", "Storage"})
+@Description("Чтение или запись файла счетов")
+@Enabled(false)
+@StackTrace(false)
+final class StorageIoEvent extends jdk.jfr.Event {
+    static final String LOAD = "load";
+    static final String SAVE = "save";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Accounts")
+    int accounts;
+}
@@ -0,0 +1,163 @@
+package ru.dgritsenko.bam.datastorage;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.bank.TransactionHistorySource;
+import ru.dgritsenko.bam.util.LongHashMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Базовый класс источника истории транзакций, читающего транзакции счетов из файла данных
+ * в формате {@link AccountDataWriter}.
+ * <p>
+ * Записи транзакций имеют фиксированную длину, поэтому любой диапазон истории счета читается по смещению
+ * без чтения предшествующих транзакций. Сохраненную историю счета, не загруженную в память, можно
+ * перезаписать копированием байт (см. {@link AccountDataWriter}).
+ * <p>
+ * Источник заполняется один раз после чтения раздела счетов (см. {@link #register(List, long[])})
+ * и далее только читается.
+ */
+abstract class StoredTransactionHistory implements TransactionHistorySource {
+    private final LongHashMap<Account> accountsByNumber = new LongHashMap<>();
+    private final LongHashMap<Long> transactionOffsets = new LongHashMap<>();
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Читает и разбирает диапазон транзакций счета из файла данных.
+     *
+     * @param account счет, история которого загружается
+     * @param fromIndex индекс первой транзакции (включительно)
+     * @param toIndex индекс последней транзакции (не включительно)
+     *
+     * @return список транзакций диапазона
+     *
+     * @throws UncheckedIOException если произошла ошибка ввода-вывода при чтении или данные повреждены
+     * @throws IllegalStateException если история счета отсутствует в файле
+     */
+    @Override
+    public List<Transaction> loadTransactions(Account account, int fromIndex, int toIndex) {
+        Long offset = transactionOffsets.get(account.getAccountNumber());
+
+        if (offset == null) {
+            String errMsg = MessageFormat.format(
+                    "История транзакций счета \"{0}\" отсутствует в файле данных", account);
+            throw new IllegalStateException(errMsg);
+        }
+
+        int transactionCount = toIndex - fromIndex;
+        List<Transaction> transactions = new ArrayList<>(transactionCount);
+
+        try {
+            ByteBuffer storedTransactions = read(
+                    offset + (long) fromIndex * BinaryCodec.TRANSACTION_BYTES,
+                    (long) transactionCount * BinaryCodec.TRANSACTION_BYTES
+            );
+
+            for (int i = 0; i < transactionCount; i++) {
+                transactions.add(BinaryCodec.getTransaction(storedTransactions, account, accountsByNumber::get));
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        return transactions;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Регистрирует счета файла и смещения их историй транзакций.
+     *
+     * @param accounts счета файла
+     * @param offsets смещения историй транзакций от начала файла в порядке {@code accounts}
+     *
+     * @throws IOException если история транзакций счета выходит за пределы файла
+     */
+    void register(List<Account> accounts, long[] offsets) throws IOException {
+        long size = getSize();
+
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            long endOffset = offsets[i] + (long) account.getTransactionCount() * BinaryCodec.TRANSACTION_BYTES;
+
+            if (endOffset > size) {
+                throw BinaryCodec.getCorruptedDataException("неожиданный конец файла");
+            }
+
+            accountsByNumber.put(account.getAccountNumber(), account);
+            transactionOffsets.put(account.getAccountNumber(), offsets[i]);
+        }
+    }
+
+    /**
+     * Проверяет, сохранена ли история транзакций счета в файле данных.
+     *
+     * @param account счет
+     *
+     * @return {@code true}, если счет зарегистрирован в источнике
+     */
+    boolean contains(Account account) {
+        return transactionOffsets.containsKey(account.getAccountNumber());
+    }
+
+    /**
+     * Копирует сохраненные записи транзакций счета в канал без их разбора.
+     *
+     * @param account счет, зарегистрированный в источнике
+     * @param transactionCount количество копируемых транзакций (с начала истории)
+     * @param target канал для записи
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении или записи
+     */
+    void copyTransactions(Account account, int transactionCount, WritableByteChannel target) throws IOException {
+        ByteBuffer storedTransactions = read(getOffset(account), (long) transactionCount * BinaryCodec.TRANSACTION_BYTES);
+
+        while (storedTransactions.hasRemaining()) {
+            target.write(storedTransactions);
+        }
+    }
+
+    /**
+     * Возвращает смещение истории транзакций счета от начала файла данных.
+     *
+     * @param account счет, зарегистрированный в источнике
+     *
+     * @return смещение истории транзакций
+     */
+    long getOffset(Account account) {
+        return transactionOffsets.get(account.getAccountNumber());
+    }
+
+    /**
+     * Читает участок файла данных.
+     *
+     * @param offset смещение от начала файла
+     * @param bytes количество байт
+     *
+     * @return буфер с прочитанными байтами
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при чтении
+     */
+    abstract ByteBuffer read(long offset, long bytes) throws IOException;
+
+    /**
+     * Возвращает размер файла данных.
+     *
+     * @return размер файла в байтах
+     *
+     * @throws IOException если произошла ошибка ввода-вывода
+     */
+    abstract long getSize() throws IOException;
+}
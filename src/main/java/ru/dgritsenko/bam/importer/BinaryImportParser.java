@@ -0,0 +1,198 @@
+package ru.dgritsenko.bam.importer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Класс разбора файла импорта в компактном двоичном формате.
+ * <p>Записи имеют фиксированную длину (кроме имени владельца), поэтому поля читаются из буфера
+ * без разбора текста; значения полей проверяются предварительной проверкой порции.
+ */
+final class BinaryImportParser extends ImportParser {
+    /**
+     * Сигнатура файла ("BAMI").
+     */
+    static final int MAGIC = 0x42414D49;
+
+    /**
+     * Версия формата.
+     */
+    static final short VERSION = 1;
+
+    private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES;
+    private static final int ACCOUNT_RECORD_BYTES = Byte.BYTES + Long.BYTES + Short.BYTES;
+    private static final int TRANSACTION_RECORD_BYTES = Byte.BYTES + Long.BYTES
+            + 2 * Long.BYTES + Long.BYTES + 2 * Byte.BYTES + 2 * Long.BYTES;
+
+    private boolean isHeaderRead;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Открывает файл импорта в двоичном формате.
+     *
+     * @param path путь к файлу
+     *
+     * @throws IOException если не удалось открыть файл
+     */
+    BinaryImportParser(Path path) throws IOException {
+        super(path);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Читает очередную запись файла и добавляет ее в порцию.
+     *
+     * @param chunk порция
+     *
+     * @return {@code false}, если файл закончился
+     *
+     * @throws IOException если произошла ошибка ввода-вывода, файл не является файлом импорта
+     *                     или запись повреждена
+     */
+    @Override
+    protected boolean readRow(ImportChunk chunk) throws IOException {
+        if (!isHeaderRead) {
+            readHeader();
+        }
+
+        if (!ensureAvailable(Byte.BYTES)) {
+            return false;
+        }
+
+        rowNumber++;
+        byte kind = buffer.get(buffer.position());
+
+        if (kind == ImportChunk.ACCOUNT_ROW) {
+            readAccount(chunk);
+        } else if (kind == ImportChunk.TRANSACTION_ROW) {
+            readTransaction(chunk);
+        } else {
+            throw getCorruptedRecordException(MessageFormat.format("неизвестный вид записи {0}", kind));
+        }
+
+        return true;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. PARSING
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Читает и проверяет заголовок файла.
+     *
+     * @throws IOException если файл не является файлом импорта или версия формата не поддерживается
+     */
+    private void readHeader() throws IOException {
+        if (!ensureAvailable(HEADER_BYTES) || buffer.getInt() != MAGIC) {
+            throw new IOException("Файл не является двоичным файлом импорта");
+        }
+
+        short version = buffer.getShort();
+
+        if (version != VERSION) {
+            String errMsg = MessageFormat.format("Неподдерживаемая версия файла импорта {0}", version);
+            throw new IOException(errMsg);
+        }
+
+        isHeaderRead = true;
+    }
+
+    /**
+     * Читает запись счета: вид, номер счета, длина и байты имени владельца в UTF-8.
+     *
+     * @param chunk порция
+     *
+     * @throws IOException если запись обрезана
+     */
+    private void readAccount(ImportChunk chunk) throws IOException {
+        requireAvailable(ACCOUNT_RECORD_BYTES);
+        int nameBytes = Short.toUnsignedInt(buffer.getShort(buffer.position() + Byte.BYTES + Long.BYTES));
+        requireAvailable(ACCOUNT_RECORD_BYTES + nameBytes);
+
+        buffer.get();
+        long accountNumber = buffer.getLong();
+        buffer.getShort();
+
+        int nameStart = buffer.position();
+        buffer.position(nameStart + nameBytes);
+
+        try {
+            chunk.addAccountRow(rowNumber, accountNumber, parseHolderName(buffer, nameStart, nameStart + nameBytes));
+        } catch (IllegalArgumentException exception) {
+            chunk.addRejectedRow(rowNumber, exception.getMessage());
+        }
+    }
+
+    /**
+     * Читает запись транзакции: вид, номер счета-владельца и транзакция в формате записи транзакции
+     * хранилища данных (UUID, дата в микросекундах от начала эпохи UTC, тип и статус, сумма в минимальных
+     * единицах валюты, номер второго счета операции или {@code 0}).
+     *
+     * @param chunk порция
+     *
+     * @throws IOException если запись обрезана
+     */
+    private void readTransaction(ImportChunk chunk) throws IOException {
+        requireAvailable(TRANSACTION_RECORD_BYTES);
+
+        buffer.get();
+        long accountNumber = buffer.getLong();
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        long epochMicros = buffer.getLong();
+        byte type = buffer.get();
+        byte status = buffer.get();
+        long amount = buffer.getLong();
+        long toAccountNumber = buffer.getLong();
+
+        try {
+            LocalDateTime date = LocalDateTime.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000L),
+                    (int) Math.floorMod(epochMicros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+
+            chunk.addTransactionRow(rowNumber, accountNumber, uuid, date, type, status, amount, toAccountNumber);
+        } catch (DateTimeException _) {
+            String errMsg = MessageFormat.format("некорректная дата транзакции \"{0}\"", Long.toString(epochMicros));
+            chunk.addRejectedRow(rowNumber, errMsg);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Дочитывает файл, пока в буфере не будет указанного количества байт записи.
+     *
+     * @param bytes размер записи в байтах
+     *
+     * @throws IOException если файл закончился раньше
+     */
+    private void requireAvailable(int bytes) throws IOException {
+        if (!ensureAvailable(bytes)) {
+            throw getCorruptedRecordException("запись обрезана");
+        }
+    }
+
+    /**
+     * Возвращает исключение о поврежденной записи.
+     * <p>После поврежденной записи границы следующих записей неизвестны, поэтому разбор прекращается.
+     *
+     * @param details описание ошибки
+     *
+     * @return исключение
+     */
+    private IOException getCorruptedRecordException(String details) {
+        String errMsg = MessageFormat.format("Данные повреждены: запись {0}: {1}", Long.toString(rowNumber), details);
+        return new IOException(errMsg);
+    }
+}
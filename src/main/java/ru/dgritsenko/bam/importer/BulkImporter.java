@@ -0,0 +1,505 @@
+package ru.dgritsenko.bam.importer;
+
+import ru.dgritsenko.bam.Application;
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.BankService;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.bank.TransactionType;
+import ru.dgritsenko.bam.datastorage.DataStorage;
+import ru.dgritsenko.bam.util.LongHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Потоковый импорт счетов и истории транзакций из файла в {@link BankService} (например, при переносе
+ * счетов из другой системы).
+ * <p>
+ * Файл разбирается отдельным потоком порциями строк ({@link ImportChunk}), каждая порция проходит
+ * предварительную проверку полей, а вызывающий поток применяет проверенные порции: создает счета
+ * и транзакции без повторной валидации ({@code buildWithoutValidations}) и добавляет их в сервис
+ * ({@link BankService#addImportedAccounts(List)}, {@link BankService#addImportedTransactions(List)}).
+ * Порции создаются один раз и передаются между потоками по кругу, поэтому объем памяти импорта
+ * ограничен количеством и размером порций и не зависит от размера файла.
+ * <p>
+ * Формат CSV (UTF-8, разделитель - запятая, пустые строки и строки, начинающиеся с {@code #}, пропускаются):
+ * <pre>
+ * A,&lt;номер счета&gt;,&lt;владелец&gt;
+ * T,&lt;номер счета&gt;,&lt;UUID&gt;,&lt;дата yyyy-MM-dd HH:mm:ss&gt;,&lt;тип&gt;,&lt;статус&gt;,&lt;сумма&gt;,&lt;номер второго счета&gt;
+ * </pre>
+ * Тип и статус задаются названиями констант ({@code DEPOSIT}, {@code COMMITTED} и т.д.), сумма - в основных
+ * единицах валюты (например, {@code 1500.25}). Пустой UUID заменяется новым, пустой номер второго счета
+ * означает его отсутствие.
+ * <p>
+ * Двоичный формат: сигнатура {@code BAMI} и версия ({@code short}), затем записи счетов
+ * ({@code 'A'}, номер счета, длина и байты имени владельца в UTF-8) и транзакций ({@code 'T'}, номер
+ * счета-владельца, UUID, дата в микросекундах от начала эпохи UTC, порядковые номера типа и статуса
+ * ({@code byte}), сумма в минимальных единицах валюты, номер второго счета или {@code 0}).
+ * <p>
+ * Счет должен быть объявлен в файле раньше транзакций, которые на него ссылаются. Строки с ошибкой
+ * формата или некорректными значениями, счета с существующими номерами, транзакции несуществующих
+ * счетов и транзакции с UUID, который уже есть в счете или повторяется в файле, отклоняются и учитываются
+ * в отчете. Ошибка чтения файла или поврежденная двоичная запись прерывают импорт; строки, примененные
+ * до ошибки, остаются в сервисе.
+ * <p>Импорт недоступен при запущенном движке операций.
+ */
+public class BulkImporter {
+    private static final int MAX_REPORTED_REJECTIONS = 10;
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+    private static final TransactionStatus[] TRANSACTION_STATUSES = TransactionStatus.values();
+
+    private final BankService bankService;
+    private final Path path;
+    private final ImportFormat format;
+    private final int chunkSize;
+    private final int chunksCount;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Служебный конструктор для создания объекта через {@link Builder}.
+     *
+     * @param builder статический вложенный класс-источник данных для заполнения
+     */
+    private BulkImporter(Builder builder) {
+        this.bankService = builder.bankService;
+        this.path = builder.path;
+        this.format = builder.format != null ? builder.format : ImportFormat.of(builder.path);
+        this.chunkSize = builder.chunkSize;
+        this.chunksCount = builder.chunksCount;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Точка входа импорта: загружает счета из хранилища данных, импортирует файл и сохраняет счета.
+     * <p>
+     * Аргументы: путь к файлу и, необязательно, формат ({@code csv} или {@code binary}; по умолчанию
+     * определяется по расширению). Хранилище задается системным свойством {@code bam.storage}, как
+     * в {@link Application}; размер и количество порций - свойствами {@code bam.import.chunkSize} (8192)
+     * и {@code bam.import.chunks} (4).
+     *
+     * @throws Exception если не удалось загрузить счета, импортировать файл или сохранить счета
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Использование: BulkImporter <файл> [csv|binary]");
+            return;
+        }
+
+        Path path = Path.of(args[0]);
+        ImportFormat format = args.length > 1
+                ? ImportFormat.valueOf(args[1].toUpperCase(Locale.ROOT))
+                : ImportFormat.of(path);
+        DataStorage dataStorage = Application.getDataStorage(System.getProperty("bam.storage", "file"));
+
+        try {
+            BankService bankService = new BankService(dataStorage);
+
+            try {
+                bankService.loadAccounts();
+            } catch (NoSuchFileException _) {
+                // Файла данных еще нет: импорт выполняется в пустой банк
+            }
+
+            ImportReport report = new Builder()
+                    .setBankService(bankService)
+                    .setPath(path)
+                    .setFormat(format)
+                    .setChunkSize(Integer.getInteger("bam.import.chunkSize", 8192))
+                    .setChunksCount(Integer.getInteger("bam.import.chunks", 4))
+                    .build()
+                    .run();
+
+            bankService.saveAccounts();
+            System.out.println(report);
+        } finally {
+            if (dataStorage instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * Выполняет импорт файла.
+     *
+     * @return отчет об импорте
+     *
+     * @throws IOException если не удалось прочитать файл, данные файла повреждены
+     *                     или поток импорта был прерван
+     * @throws IllegalStateException если запущен движок операций
+     * @throws java.io.UncheckedIOException если хранилищу данных не удалось сохранить счета или транзакции
+     */
+    public ImportReport run() throws IOException {
+        BlockingQueue<ImportChunk> freeChunks = new ArrayBlockingQueue<>(chunksCount);
+        BlockingQueue<ImportChunk> parsedChunks = new ArrayBlockingQueue<>(chunksCount);
+
+        for (int i = 0; i < chunksCount; i++) {
+            freeChunks.add(new ImportChunk(chunkSize));
+        }
+
+        ImportParser parser = ImportParser.open(path, format);
+        ImportTotals totals = new ImportTotals();
+        long startTime = System.nanoTime();
+
+        Thread parserThread = new Thread(() -> parse(parser, freeChunks, parsedChunks), "bam-import-parser");
+        parserThread.setDaemon(true);
+        parserThread.start();
+
+        try {
+            while (true) {
+                ImportChunk chunk = parsedChunks.take();
+
+                apply(chunk, totals);
+
+                if (chunk.getFailure() instanceof IOException failure) {
+                    throw failure;
+                } else if (chunk.getFailure() instanceof RuntimeException failure) {
+                    throw failure;
+                } else if (chunk.getFailure() instanceof Error failure) {
+                    throw failure;
+                } else if (chunk.isLast()) {
+                    break;
+                }
+
+                freeChunks.put(chunk);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException("Импорт прерван").initCause(exception);
+        } finally {
+            parserThread.interrupt();
+            joinUninterruptibly(parserThread);
+            parser.close();
+        }
+
+        return new ImportReport(path, format, Duration.ofNanos(System.nanoTime() - startTime), totals.rowsCount,
+                totals.accountsCount, totals.transactionsCount, totals.rejectedRowsCount, totals.rejections);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Разбирает файл порциями до конца файла или до ошибки (выполняется потоком разбора).
+     * <p>Последняя порция отмечается признаком {@link ImportChunk#isLast()} и, при ошибке, содержит ее.
+     *
+     * @param parser разбор файла
+     * @param freeChunks свободные порции
+     * @param parsedChunks разобранные порции для применения
+     */
+    private static void parse(ImportParser parser, BlockingQueue<ImportChunk> freeChunks,
+                              BlockingQueue<ImportChunk> parsedChunks)
+    {
+        try {
+            while (true) {
+                ImportChunk chunk = freeChunks.take();
+                chunk.clear();
+
+                try {
+                    if (!parser.readChunk(chunk)) {
+                        chunk.setLast();
+                    }
+                } catch (IOException | RuntimeException | Error exception) {
+                    // Строки, разобранные до ошибки, применяются вместе с последней порцией
+                    chunk.validate();
+                    chunk.setFailure(exception);
+                }
+
+                parsedChunks.put(chunk);
+
+                if (chunk.isLast()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException _) {
+            // Импорт прерван потоком применения
+        }
+    }
+
+    /**
+     * Применяет порцию: создает счета и транзакции строк, прошедших проверку, и добавляет их в сервис.
+     *
+     * @param chunk разобранная порция
+     * @param totals итоги импорта
+     *
+     * @throws IOException если сервис отклонил проверенные строки порции
+     */
+    private void apply(ImportChunk chunk, ImportTotals totals) throws IOException {
+        List<Account> accounts = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>(chunk.size());
+        LongHashMap<Account> accountsByNumber = new LongHashMap<>();
+        Set<UUID> uuids = HashSet.newHashSet(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            long rowNumber = chunk.getRowNumber(i);
+            long accountNumber = chunk.getAccountNumber(i);
+
+            if (!chunk.isValid(i)) {
+                totals.reject(rowNumber, chunk.getRejectionReason(i));
+            } else if (chunk.getKind(i) == ImportChunk.ACCOUNT_ROW) {
+                if (accountsByNumber.containsKey(accountNumber) || bankService.findAccount(accountNumber) != null) {
+                    totals.reject(rowNumber, MessageFormat.format(
+                            "счет с номером {0} уже существует", Long.toString(accountNumber)));
+                    continue;
+                }
+
+                Account account = new Account.Builder()
+                        .setAccountNumber(accountNumber)
+                        .setHolderName(chunk.getHolderName(i))
+                        .setTransactions(new ArrayList<>())
+                        .buildWithoutValidations();
+
+                accountsByNumber.put(accountNumber, account);
+                accounts.add(account);
+            } else {
+                long toAccountNumber = chunk.getToAccountNumber(i);
+                Account fromAccount = findAccount(accountsByNumber, accountNumber);
+                Account toAccount = toAccountNumber == 0 ? null : findAccount(accountsByNumber, toAccountNumber);
+
+                if (fromAccount == null || (toAccountNumber != 0 && toAccount == null)) {
+                    totals.reject(rowNumber, MessageFormat.format("счет с номером {0} не найден",
+                            Long.toString(fromAccount == null ? accountNumber : toAccountNumber)));
+                    continue;
+                }
+
+                // Проверка на уникальность транзакции в счете до добавления порции в сервис
+                UUID uuid = chunk.getUuid(i);
+
+                if ((!uuids.add(uuid) && containsTransaction(transactions, fromAccount, uuid))
+                        || fromAccount.getTransaction(uuid) != null)
+                {
+                    totals.reject(rowNumber, MessageFormat.format("транзакция {0} уже есть в счете {1}",
+                            uuid, Long.toString(accountNumber)));
+                    continue;
+                }
+
+                transactions.add(new Transaction.Builder()
+                        .setUUID(uuid)
+                        .setDate(chunk.getDate(i))
+                        .setFromAccount(fromAccount)
+                        .setTransactionType(TRANSACTION_TYPES[chunk.getType(i)])
+                        .setAmount(Money.ofMinorUnits(chunk.getAmount(i)))
+                        .setToAccount(toAccount)
+                        .setStatus(TRANSACTION_STATUSES[chunk.getStatus(i)])
+                        .buildWithoutValidations());
+            }
+        }
+
+        try {
+            bankService.addImportedAccounts(accounts);
+            bankService.addImportedTransactions(transactions);
+        } catch (IllegalArgumentException exception) {
+            String errMsg = MessageFormat.format("Не удалось импортировать строки {0}-{1}: {2}",
+                    Long.toString(chunk.getRowNumber(0)), Long.toString(chunk.getRowNumber(chunk.size() - 1)),
+                    exception.getMessage());
+            throw new IOException(errMsg, exception);
+        }
+
+        totals.rowsCount += chunk.size();
+        totals.accountsCount += accounts.size();
+        totals.transactionsCount += transactions.size();
+    }
+
+    /**
+     * Проверяет, есть ли среди транзакций порции транзакция счета с указанным UUID.
+     * <p>Вызывается только для UUID, уже встречавшихся в порции, поэтому обычно не вызывается совсем.
+     *
+     * @param transactions транзакции порции
+     * @param fromAccount счет-владелец транзакции
+     * @param uuid UUID транзакции
+     *
+     * @return {@code true}, если транзакция есть
+     */
+    private static boolean containsTransaction(List<Transaction> transactions, Account fromAccount, UUID uuid) {
+        for (Transaction transaction : transactions) {
+            if (transaction.getFromAccount() == fromAccount && transaction.getUuid().equals(uuid)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Ищет счет среди счетов текущей порции, а затем среди счетов сервиса.
+     *
+     * @param accountsByNumber счета текущей порции, еще не добавленные в сервис
+     * @param accountNumber номер счета
+     *
+     * @return счет или {@code null}, если счета с таким номером нет
+     */
+    private Account findAccount(LongHashMap<Account> accountsByNumber, long accountNumber) {
+        Account account = accountsByNumber.get(accountNumber);
+        return account != null ? account : bankService.findAccount(accountNumber);
+    }
+
+    /**
+     * Ожидает завершения потока, сохраняя признак прерывания текущего потока.
+     *
+     * @param thread поток
+     */
+    private static void joinUninterruptibly(Thread thread) {
+        boolean isInterrupted = false;
+
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException _) {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // IMPORT TOTALS NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс итогов импорта, накапливаемых потоком применения.
+     */
+    private static final class ImportTotals {
+        private long rowsCount;
+        private long accountsCount;
+        private long transactionsCount;
+        private long rejectedRowsCount;
+        private final List<String> rejections = new ArrayList<>();
+
+        /**
+         * Учитывает отклоненную строку; описание сохраняется для первых {@link #MAX_REPORTED_REJECTIONS} строк.
+         *
+         * @param rowNumber номер строки (записи) в файле
+         * @param reason причина отклонения
+         */
+        private void reject(long rowNumber, String reason) {
+            rejectedRowsCount++;
+
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(MessageFormat.format("Строка {0}: {1}", Long.toString(rowNumber), reason));
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // BUILDER NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный статичный класс, представляющий построитель родительского класса {@link BulkImporter}.
+     * <p>Содержит поля идентичные полям родительского класса.
+     * Каждое поле имеет set-метод для установки значения.
+     */
+    public static class Builder {
+        private BankService bankService;
+        private Path path;
+        private ImportFormat format;
+        private int chunkSize = 8192;
+        private int chunksCount = 4;
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. CONSTRUCTORS
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Создает построитель для последующего создания основного класса {@link BulkImporter}.
+         * <p>По умолчанию: формат по расширению файла, 4 порции по 8192 строки.
+         */
+        public Builder() {
+            super();
+        }
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. SETTERS
+        // -------------------------------------------------------------------------------------------------------------
+
+        public Builder setBankService(BankService bankService) {
+            this.bankService = bankService;
+            return this;
+        }
+
+        public Builder setPath(Path path) {
+            this.path = path;
+            return this;
+        }
+
+        public Builder setFormat(ImportFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        public Builder setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public Builder setChunksCount(int chunksCount) {
+            this.chunksCount = chunksCount;
+            return this;
+        }
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. BUILDING
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Валидирует значения полей и создает экземпляр основного класса {@link BulkImporter}.
+         *
+         * @return новый импорт
+         *
+         * @throws NullPointerException если сервис или путь к файлу равны {@code null}
+         * @throws IllegalArgumentException если размер порции не больше нуля или порций меньше двух
+         */
+        public BulkImporter build() {
+            validate();
+            return new BulkImporter(this);
+        }
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. MISC
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Валидирует результат заполнения полей построителя.
+         */
+        private void validate() {
+            Objects.requireNonNull(bankService, "Сервис банковских операций не должен быть null");
+            Objects.requireNonNull(path, "Путь к файлу импорта не должен быть null");
+
+            // Две порции позволяют разбирать следующую порцию, пока применяется текущая
+            if (chunkSize <= 0 || chunksCount < 2) {
+                String errMsg = MessageFormat.format(
+                        "Некорректные параметры импорта (размер порции \"{0}\", порций \"{1}\"): " +
+                                "размер порции должен быть больше нуля, порций должно быть не меньше двух",
+                        chunkSize, chunksCount
+                );
+                throw new IllegalArgumentException(errMsg);
+            }
+        }
+    }
+}
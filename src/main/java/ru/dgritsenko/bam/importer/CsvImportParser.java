@@ -0,0 +1,455 @@
+package ru.dgritsenko.bam.importer;
+
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.bank.TransactionType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Класс разбора файла импорта в формате CSV (UTF-8, разделитель - запятая, без кавычек).
+ * <p>Поля разбираются непосредственно из байтов буфера чтения, без создания строк для каждой строки файла.
+ */
+final class CsvImportParser extends ImportParser {
+    private static final int MAX_FIELDS = 8;
+    private static final int ACCOUNT_FIELDS = 3;
+    private static final int TRANSACTION_FIELDS = 8;
+    private static final int UUID_LENGTH = 36;
+    private static final int DATE_LENGTH = 19;
+
+    private static final byte[][] TYPE_NAMES = getNames(TransactionType.values());
+    private static final byte[][] STATUS_NAMES = getNames(TransactionStatus.values());
+
+    // Границы полей текущей строки (начало и конец каждого поля)
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+
+    // Индекс в буфере, с которого продолжается поиск конца строки
+    private int scanPosition;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Открывает файл импорта в формате CSV.
+     *
+     * @param path путь к файлу
+     *
+     * @throws IOException если не удалось открыть файл
+     */
+    CsvImportParser(Path path) throws IOException {
+        super(path);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Читает очередную непустую строку файла, не являющуюся комментарием, и добавляет ее в порцию.
+     *
+     * @param chunk порция
+     *
+     * @return {@code false}, если файл закончился
+     *
+     * @throws IOException если произошла ошибка ввода-вывода или строка превышает размер буфера чтения
+     */
+    @Override
+    protected boolean readRow(ImportChunk chunk) throws IOException {
+        while (true) {
+            int lineStart = buffer.position();
+            int lineEnd = findLineEnd();
+
+            if (lineEnd < 0) {
+                // Строка не помещается в непрочитанную часть буфера: буфер сдвигается и дочитывается
+                int scannedBytes = buffer.remaining();
+
+                if (ensureAvailable(scannedBytes + 1)) {
+                    scanPosition = buffer.position() + scannedBytes;
+                    continue;
+                } else if (!buffer.hasRemaining()) {
+                    return false;
+                }
+
+                // Последняя строка файла без перевода строки (буфер мог быть сдвинут при дочитывании)
+                lineStart = buffer.position();
+                lineEnd = buffer.limit();
+            }
+
+            rowNumber++;
+            buffer.position(Math.min(lineEnd + 1, buffer.limit()));
+            scanPosition = buffer.position();
+
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            if (lineEnd > lineStart && buffer.get(lineStart) != '#') {
+                parseLine(chunk, lineStart, lineEnd);
+                return true;
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. PARSING
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Разбирает строку и добавляет ее в порцию; строка с ошибкой формата добавляется как отклоненная.
+     *
+     * @param chunk порция
+     * @param start индекс первого байта строки
+     * @param end индекс байта после строки
+     */
+    private void parseLine(ImportChunk chunk, int start, int end) {
+        int fieldsCount = splitFields(start, end);
+
+        try {
+            byte kind = fieldEnds[0] - fieldStarts[0] == 1 ? buffer.get(fieldStarts[0]) : 0;
+
+            if (kind == ImportChunk.ACCOUNT_ROW && fieldsCount == ACCOUNT_FIELDS) {
+                chunk.addAccountRow(rowNumber, parseLong(1), parseHolderName(buffer, fieldStarts[2], fieldEnds[2]));
+            } else if (kind == ImportChunk.TRANSACTION_ROW && fieldsCount == TRANSACTION_FIELDS) {
+                chunk.addTransactionRow(rowNumber, parseLong(1), parseUuid(2), parseDate(3),
+                        parseName(4, TYPE_NAMES, "тип транзакции"), parseName(5, STATUS_NAMES, "статус транзакции"),
+                        parseAmount(6), isEmpty(7) ? 0 : parseLong(7));
+            } else {
+                String errMsg = MessageFormat.format(
+                        "некорректная строка: ожидается \"A,<номер счета>,<владелец>\" или " +
+                                "\"T,<номер счета>,<UUID>,<дата>,<тип>,<статус>,<сумма>,<номер счета получателя>\"" +
+                                " ({0} полей)",
+                        fieldsCount);
+                throw new IllegalArgumentException(errMsg);
+            }
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeException exception) {
+            chunk.addRejectedRow(rowNumber, exception.getMessage());
+        }
+    }
+
+    /**
+     * Определяет границы полей строки.
+     *
+     * @param start индекс первого байта строки
+     * @param end индекс байта после строки
+     *
+     * @return количество полей (больше {@link #MAX_FIELDS}, если полей слишком много)
+     */
+    private int splitFields(int start, int end) {
+        int fieldsCount = 0;
+        int fieldStart = start;
+
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == ',') {
+                if (fieldsCount < MAX_FIELDS) {
+                    fieldStarts[fieldsCount] = fieldStart;
+                    fieldEnds[fieldsCount] = i;
+                }
+
+                fieldsCount++;
+                fieldStart = i + 1;
+            }
+        }
+
+        return fieldsCount;
+    }
+
+    /**
+     * Разбирает поле с неотрицательным целым числом.
+     *
+     * @param field номер поля
+     *
+     * @return число
+     *
+     * @throws IllegalArgumentException если поле не является числом
+     */
+    private long parseLong(int field) {
+        long value = 0;
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw getFieldException(field, "число");
+            }
+
+            value = value * 10 + digit;
+        }
+
+        if (start == end) {
+            throw getFieldException(field, "число");
+        }
+
+        return value;
+    }
+
+    /**
+     * Разбирает поле с суммой (например, {@code 1500.25}) в минимальные единицы валюты.
+     *
+     * @param field номер поля
+     *
+     * @return сумма в минимальных единицах валюты
+     *
+     * @throws IllegalArgumentException если поле не является суммой с не более чем {@link Money#SCALE} знаками
+     *                                  после точки
+     */
+    private long parseAmount(int field) {
+        long value = 0;
+        int fractionDigits = -1;
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+
+        for (int i = start; i < end; i++) {
+            byte symbol = buffer.get(i);
+
+            if (symbol == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+
+            int digit = symbol - '0';
+
+            if (digit < 0 || digit > 9 || fractionDigits >= Money.SCALE || value > (Long.MAX_VALUE - digit) / 10) {
+                throw getFieldException(field, "сумма");
+            }
+
+            value = value * 10 + digit;
+
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+
+        if (start == end) {
+            throw getFieldException(field, "сумма");
+        }
+
+        for (int i = Math.max(fractionDigits, 0); i < Money.SCALE; i++) {
+            value = Math.multiplyExact(value, 10);
+        }
+
+        return value;
+    }
+
+    /**
+     * Разбирает поле с UUID; для пустого поля создается новый UUID.
+     *
+     * @param field номер поля
+     *
+     * @return UUID
+     *
+     * @throws IllegalArgumentException если поле не является UUID
+     */
+    private UUID parseUuid(int field) {
+        if (isEmpty(field)) {
+            return UUID.randomUUID();
+        }
+
+        int start = fieldStarts[field];
+
+        if (fieldEnds[field] - start != UUID_LENGTH) {
+            throw getFieldException(field, "UUID");
+        }
+
+        long mostSignificantBits = 0;
+        long leastSignificantBits = 0;
+
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            byte symbol = buffer.get(start + i);
+
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (symbol != '-') {
+                    throw getFieldException(field, "UUID");
+                }
+                continue;
+            }
+
+            int digit = Character.digit(symbol, 16);
+
+            if (digit < 0) {
+                throw getFieldException(field, "UUID");
+            }
+
+            if (i < 18) {
+                mostSignificantBits = (mostSignificantBits << 4) | digit;
+            } else {
+                leastSignificantBits = (leastSignificantBits << 4) | digit;
+            }
+        }
+
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Разбирает поле с датой в формате {@code yyyy-MM-dd HH:mm:ss} (или {@code yyyy-MM-ddTHH:mm:ss}).
+     *
+     * @param field номер поля
+     *
+     * @return дата
+     *
+     * @throws IllegalArgumentException если поле не соответствует формату
+     * @throws DateTimeException если дата не существует
+     */
+    private LocalDateTime parseDate(int field) {
+        int start = fieldStarts[field];
+
+        if (fieldEnds[field] - start != DATE_LENGTH
+                || buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-'
+                || (buffer.get(start + 10) != ' ' && buffer.get(start + 10) != 'T')
+                || buffer.get(start + 13) != ':' || buffer.get(start + 16) != ':') {
+            throw getFieldException(field, "дата в формате yyyy-MM-dd HH:mm:ss");
+        }
+
+        return LocalDateTime.of(
+                parseDigits(field, start, 4), parseDigits(field, start + 5, 2), parseDigits(field, start + 8, 2),
+                parseDigits(field, start + 11, 2), parseDigits(field, start + 14, 2),
+                parseDigits(field, start + 17, 2));
+    }
+
+    /**
+     * Разбирает фиксированное количество цифр поля с датой.
+     *
+     * @param field номер поля
+     * @param start индекс первой цифры
+     * @param length количество цифр
+     *
+     * @return число
+     *
+     * @throws IllegalArgumentException если среди байтов есть не цифра
+     */
+    private int parseDigits(int field, int start, int length) {
+        int value = 0;
+
+        for (int i = start; i < start + length; i++) {
+            int digit = buffer.get(i) - '0';
+
+            if (digit < 0 || digit > 9) {
+                throw getFieldException(field, "дата в формате yyyy-MM-dd HH:mm:ss");
+            }
+
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    /**
+     * Разбирает поле с названием константы перечисления.
+     *
+     * @param field номер поля
+     * @param names названия констант в байтах
+     * @param description описание поля для сообщения об ошибке
+     *
+     * @return порядковый номер константы
+     *
+     * @throws IllegalArgumentException если константа с таким названием не найдена
+     */
+    private byte parseName(int field, byte[][] names, String description) {
+        int start = fieldStarts[field];
+        int length = fieldEnds[field] - start;
+
+        for (int ordinal = 0; ordinal < names.length; ordinal++) {
+            byte[] name = names[ordinal];
+
+            if (name.length == length && isEqual(start, name)) {
+                return (byte) ordinal;
+            }
+        }
+
+        throw getFieldException(field, description);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Ищет конец строки, начиная с последней непросмотренной позиции буфера.
+     *
+     * @return индекс символа перевода строки или {@code -1}, если он не найден в непрочитанной части буфера
+     */
+    private int findLineEnd() {
+        int limit = buffer.limit();
+
+        for (int i = Math.max(scanPosition, buffer.position()); i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+
+        scanPosition = limit;
+        return -1;
+    }
+
+    /**
+     * Сравнивает байты буфера с образцом.
+     *
+     * @param start индекс первого байта в буфере
+     * @param sample образец
+     *
+     * @return {@code true}, если байты буфера совпадают с образцом
+     */
+    private boolean isEqual(int start, byte[] sample) {
+        for (int i = 0; i < sample.length; i++) {
+            if (buffer.get(start + i) != sample[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Проверяет, пусто ли поле.
+     *
+     * @param field номер поля
+     *
+     * @return {@code true}, если поле пусто
+     */
+    private boolean isEmpty(int field) {
+        return fieldStarts[field] == fieldEnds[field];
+    }
+
+    /**
+     * Возвращает исключение о некорректном значении поля.
+     *
+     * @param field номер поля
+     * @param expected описание ожидаемого значения
+     *
+     * @return исключение
+     */
+    private IllegalArgumentException getFieldException(int field, String expected) {
+        byte[] bytes = new byte[fieldEnds[field] - fieldStarts[field]];
+        buffer.get(fieldStarts[field], bytes);
+
+        String errMsg = MessageFormat.format("некорректное поле {0} \"{1}\": ожидается {2}",
+                field + 1, new String(bytes, StandardCharsets.UTF_8), expected);
+        return new IllegalArgumentException(errMsg);
+    }
+
+    /**
+     * Возвращает названия констант перечисления в байтах.
+     *
+     * @param constants константы перечисления
+     *
+     * @return названия констант, индексированные порядковым номером
+     */
+    private static byte[][] getNames(Enum<?>[] constants) {
+        byte[][] names = new byte[constants.length][];
+
+        for (Enum<?> constant : constants) {
+            names[constant.ordinal()] = constant.name().getBytes(StandardCharsets.US_ASCII);
+        }
+
+        return names;
+    }
+}
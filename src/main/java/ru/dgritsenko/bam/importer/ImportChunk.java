@@ -0,0 +1,308 @@
+package ru.dgritsenko.bam.importer;
+
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.bank.TransactionType;
+
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Класс, представляющий порцию разобранных строк файла импорта.
+ * <p>
+ * Поля строк хранятся по столбцам в массивах, созданных один раз: порции переиспользуются потоком разбора
+ * и потоком применения, поэтому объем памяти импорта ограничен количеством порций и не зависит от размера
+ * файла. Строки с ошибкой формата сохраняются как отклоненные вместе с описанием ошибки.
+ * <p>Перед передачей на применение порция проходит предварительную проверку ({@link #validate()}).
+ */
+final class ImportChunk {
+    static final byte ACCOUNT_ROW = 'A';
+    static final byte TRANSACTION_ROW = 'T';
+    static final byte REJECTED_ROW = 0;
+
+    // Диапазон номеров счетов (см. Account): от 100 000 000 до 999 999 999
+    private static final long MIN_ACCOUNT_NUMBER = 100_000_000;
+    private static final long MAX_ACCOUNT_NUMBER = 999_999_999;
+
+    private static final int TYPES_COUNT = TransactionType.values().length;
+    private static final int STATUSES_COUNT = TransactionStatus.values().length;
+    private static final int TRANSFER_ORDINAL = TransactionType.TRANSFER.ordinal();
+
+    // Столбцы строк порции
+    private final byte[] kinds;
+    private final long[] rowNumbers;
+    private final long[] accountNumbers;
+    private final long[] toAccountNumbers;
+    private final long[] amounts;
+    private final byte[] types;
+    private final byte[] statuses;
+    private final UUID[] uuids;
+    private final LocalDateTime[] dates;
+
+    // Имя владельца для строк счетов или описание ошибки для отклоненных строк
+    private final String[] texts;
+
+    // Результат предварительной проверки строк
+    private final boolean[] valid;
+
+    private int size;
+    private boolean isLast;
+    private Throwable failure;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает пустую порцию.
+     *
+     * @param capacity максимальное количество строк порции
+     */
+    ImportChunk(int capacity) {
+        this.kinds = new byte[capacity];
+        this.rowNumbers = new long[capacity];
+        this.accountNumbers = new long[capacity];
+        this.toAccountNumbers = new long[capacity];
+        this.amounts = new long[capacity];
+        this.types = new byte[capacity];
+        this.statuses = new byte[capacity];
+        this.uuids = new UUID[capacity];
+        this.dates = new LocalDateTime[capacity];
+        this.texts = new String[capacity];
+        this.valid = new boolean[capacity];
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == kinds.length;
+    }
+
+    boolean isLast() {
+        return isLast;
+    }
+
+    Throwable getFailure() {
+        return failure;
+    }
+
+    byte getKind(int index) {
+        return kinds[index];
+    }
+
+    long getRowNumber(int index) {
+        return rowNumbers[index];
+    }
+
+    long getAccountNumber(int index) {
+        return accountNumbers[index];
+    }
+
+    long getToAccountNumber(int index) {
+        return toAccountNumbers[index];
+    }
+
+    long getAmount(int index) {
+        return amounts[index];
+    }
+
+    byte getType(int index) {
+        return types[index];
+    }
+
+    byte getStatus(int index) {
+        return statuses[index];
+    }
+
+    UUID getUuid(int index) {
+        return uuids[index];
+    }
+
+    LocalDateTime getDate(int index) {
+        return dates[index];
+    }
+
+    String getHolderName(int index) {
+        return texts[index];
+    }
+
+    boolean isValid(int index) {
+        return valid[index];
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // SETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Отмечает порцию как последнюю: после нее строк в файле нет.
+     */
+    void setLast() {
+        this.isLast = true;
+    }
+
+    /**
+     * Отмечает порцию как последнюю из-за ошибки чтения файла.
+     *
+     * @param failure ошибка чтения
+     */
+    void setFailure(Throwable failure) {
+        this.failure = failure;
+        this.isLast = true;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Добавляет строку счета.
+     *
+     * @param rowNumber номер строки (записи) в файле
+     * @param accountNumber номер счета
+     * @param holderName отформатированное имя владельца
+     */
+    void addAccountRow(long rowNumber, long accountNumber, String holderName) {
+        int index = addRow(ACCOUNT_ROW, rowNumber);
+        accountNumbers[index] = accountNumber;
+        texts[index] = holderName;
+    }
+
+    /**
+     * Добавляет строку транзакции.
+     *
+     * @param rowNumber номер строки (записи) в файле
+     * @param accountNumber номер счета-владельца транзакции
+     * @param uuid UUID транзакции
+     * @param date дата транзакции
+     * @param type порядковый номер типа транзакции
+     * @param status порядковый номер статуса транзакции
+     * @param amount сумма в минимальных единицах валюты
+     * @param toAccountNumber номер второго счета операции или {@code 0}
+     */
+    void addTransactionRow(long rowNumber, long accountNumber, UUID uuid, LocalDateTime date,
+                           byte type, byte status, long amount, long toAccountNumber)
+    {
+        int index = addRow(TRANSACTION_ROW, rowNumber);
+        accountNumbers[index] = accountNumber;
+        uuids[index] = uuid;
+        dates[index] = date;
+        types[index] = type;
+        statuses[index] = status;
+        amounts[index] = amount;
+        toAccountNumbers[index] = toAccountNumber;
+    }
+
+    /**
+     * Добавляет строку, которую не удалось разобрать.
+     *
+     * @param rowNumber номер строки (записи) в файле
+     * @param error описание ошибки
+     */
+    void addRejectedRow(long rowNumber, String error) {
+        int index = addRow(REJECTED_ROW, rowNumber);
+        texts[index] = error;
+    }
+
+    /**
+     * Выполняет предварительную проверку полей всех строк порции.
+     * <p>Проверка выполняется одним проходом по столбцам примитивных типов без ветвлений, поэтому
+     * JIT-компилятор может векторизовать цикл. Причина отклонения строки определяется отдельно
+     * и только для отклоненных строк ({@link #getRejectionReason(int)}).
+     */
+    void validate() {
+        for (int i = 0; i < size; i++) {
+            long accountNumber = accountNumbers[i];
+            long toAccountNumber = toAccountNumbers[i];
+            int type = types[i];
+            int status = statuses[i];
+            boolean isTransaction = kinds[i] == TRANSACTION_ROW;
+
+            boolean isAccountNumberValid = accountNumber >= MIN_ACCOUNT_NUMBER & accountNumber <= MAX_ACCOUNT_NUMBER;
+            boolean isToAccountNumberValid = (toAccountNumber == 0 & type != TRANSFER_ORDINAL)
+                    | (toAccountNumber >= MIN_ACCOUNT_NUMBER & toAccountNumber <= MAX_ACCOUNT_NUMBER);
+            boolean isTransactionValid = amounts[i] > 0
+                    & type >= 0 & type < TYPES_COUNT
+                    & status >= 0 & status < STATUSES_COUNT
+                    & isToAccountNumberValid;
+
+            valid[i] = kinds[i] != REJECTED_ROW & isAccountNumberValid & (!isTransaction | isTransactionValid);
+        }
+    }
+
+    /**
+     * Возвращает причину отклонения строки, не прошедшей предварительную проверку.
+     *
+     * @param index индекс строки в порции
+     *
+     * @return описание ошибки
+     */
+    String getRejectionReason(int index) {
+        long accountNumber = accountNumbers[index];
+        long toAccountNumber = toAccountNumbers[index];
+        int type = types[index];
+
+        if (kinds[index] == REJECTED_ROW) {
+            return texts[index];
+        } else if (accountNumber < MIN_ACCOUNT_NUMBER || accountNumber > MAX_ACCOUNT_NUMBER) {
+            return MessageFormat.format("некорректный номер счета \"{0}\"", Long.toString(accountNumber));
+        } else if (amounts[index] <= 0) {
+            return MessageFormat.format("некорректная сумма \"{0}\": сумма должна быть больше нуля",
+                    Long.toString(amounts[index]));
+        } else if (type < 0 || type >= TYPES_COUNT) {
+            return MessageFormat.format("некорректный тип транзакции \"{0}\"", type);
+        } else if (statuses[index] < 0 || statuses[index] >= STATUSES_COUNT) {
+            return MessageFormat.format("некорректный статус транзакции \"{0}\"", statuses[index]);
+        } else if (toAccountNumber == 0) {
+            return "счет получателя обязателен для перевода";
+        }
+
+        return MessageFormat.format("некорректный номер счета получателя \"{0}\"", Long.toString(toAccountNumber));
+    }
+
+    /**
+     * Очищает порцию для повторного использования.
+     */
+    void clear() {
+        Arrays.fill(uuids, 0, size, null);
+        Arrays.fill(dates, 0, size, null);
+        Arrays.fill(texts, 0, size, null);
+
+        size = 0;
+        isLast = false;
+        failure = null;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Добавляет строку с пустыми полями.
+     *
+     * @param kind вид строки
+     * @param rowNumber номер строки (записи) в файле
+     *
+     * @return индекс строки в порции
+     */
+    private int addRow(byte kind, long rowNumber) {
+        int index = size++;
+
+        kinds[index] = kind;
+        rowNumbers[index] = rowNumber;
+        accountNumbers[index] = 0;
+        toAccountNumbers[index] = 0;
+        amounts[index] = 0;
+        types[index] = 0;
+        statuses[index] = 0;
+
+        return index;
+    }
+}
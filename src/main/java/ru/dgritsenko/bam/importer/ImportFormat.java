@@ -0,0 +1,66 @@
+package ru.dgritsenko.bam.importer;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Перечисление, представляющее форматы файлов импорта.
+ * <p>Описание форматов приведено в {@link BulkImporter}.
+ */
+public enum ImportFormat {
+    CSV("CSV"),
+    BINARY("Двоичный");
+
+    private final String title;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает строковое представление формата.
+     *
+     * @return строковое представление формата
+     */
+    @Override
+    public String toString() {
+        return getTitle();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Конструктор перечисления.
+     *
+     * @param title название формата
+     */
+    ImportFormat(String title) {
+        this.title = title;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public String getTitle() {
+        return title;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. GETTING DATA
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Определяет формат файла по расширению: файлы {@code .csv} - {@link #CSV}, остальные - {@link #BINARY}.
+     *
+     * @param path путь к файлу
+     *
+     * @return формат файла
+     */
+    public static ImportFormat of(Path path) {
+        String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return fileName.endsWith(".csv") ? CSV : BINARY;
+    }
+}
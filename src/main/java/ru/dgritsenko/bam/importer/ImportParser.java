@@ -0,0 +1,194 @@
+package ru.dgritsenko.bam.importer;
+
+import ru.dgritsenko.bam.bank.Account;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+
+/**
+ * Базовый класс разбора файла импорта.
+ * <p>Файл читается последовательно через {@link FileChannel} в буфер фиксированного размера,
+ * поэтому объем памяти разбора не зависит от размера файла. Запись не может превышать размер буфера.
+ */
+abstract class ImportParser implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private boolean isEndOfFile;
+
+    // Буфер чтения (в режиме чтения: непрочитанные байты между position и limit)
+    protected final ByteBuffer buffer;
+
+    // Номер последней прочитанной строки (записи) файла
+    protected long rowNumber;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Открывает файл импорта для чтения.
+     *
+     * @param path путь к файлу
+     *
+     * @throws IOException если не удалось открыть файл
+     */
+    protected ImportParser(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).flip();
+    }
+
+    /**
+     * Открывает файл импорта для разбора в указанном формате.
+     *
+     * @param path путь к файлу
+     * @param format формат файла
+     *
+     * @return разбор файла
+     *
+     * @throws IOException если не удалось открыть файл
+     */
+    static ImportParser open(Path path, ImportFormat format) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvImportParser(path);
+            case BINARY -> new BinaryImportParser(path);
+        };
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Заполняет порцию строками файла до ее заполнения или до конца файла и выполняет предварительную
+     * проверку порции.
+     *
+     * @param chunk пустая порция
+     *
+     * @return {@code true}, если в порцию прочитана хотя бы одна строка
+     *
+     * @throws IOException если произошла ошибка ввода-вывода или данные файла повреждены
+     */
+    boolean readChunk(ImportChunk chunk) throws IOException {
+        while (!chunk.isFull() && readRow(chunk)) {
+            // Строки добавляются в порцию методом readRow
+        }
+
+        chunk.validate();
+        return chunk.size() > 0;
+    }
+
+    /**
+     * Закрывает файл импорта.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при закрытии
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Читает очередную строку (запись) файла и добавляет ее в порцию.
+     *
+     * @param chunk порция
+     *
+     * @return {@code false}, если файл закончился
+     *
+     * @throws IOException если произошла ошибка ввода-вывода или данные файла повреждены
+     */
+    protected abstract boolean readRow(ImportChunk chunk) throws IOException;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Дочитывает файл в буфер, пока в нем не станет не меньше указанного количества непрочитанных байт.
+     *
+     * @param bytes необходимое количество байт
+     *
+     * @return {@code false}, если файл закончился раньше
+     *
+     * @throws IOException если произошла ошибка ввода-вывода или запись превышает размер буфера
+     */
+    protected boolean ensureAvailable(int bytes) throws IOException {
+        if (bytes > buffer.capacity()) {
+            String errMsg = MessageFormat.format(
+                    "Запись {0} превышает размер буфера чтения ({1} байт)",
+                    Long.toString(rowNumber + 1), buffer.capacity());
+            throw new IOException(errMsg);
+        }
+
+        while (buffer.remaining() < bytes) {
+            if (isEndOfFile) {
+                return false;
+            }
+
+            buffer.compact();
+            isEndOfFile = channel.read(buffer) < 0;
+            buffer.flip();
+        }
+
+        return true;
+    }
+
+    /**
+     * Проверяет имя владельца в байтах (фамилия и первая буква имени на латинице, например "Ivanov I")
+     * и возвращает отформатированное имя.
+     *
+     * @param source буфер с именем
+     * @param start индекс первого байта имени
+     * @param end индекс байта после имени
+     *
+     * @return отформатированное имя владельца
+     *
+     * @throws IllegalArgumentException если имя не соответствует формату
+     */
+    protected static String parseHolderName(ByteBuffer source, int start, int end) {
+        while (start < end && source.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && source.get(end - 1) == ' ') {
+            end--;
+        }
+
+        int length = end - start;
+        boolean isCorrect = length >= 4 && source.get(end - 2) == ' ' && isLatinLetter(source.get(end - 1));
+
+        for (int i = start; isCorrect && i < end - 2; i++) {
+            isCorrect = isLatinLetter(source.get(i));
+        }
+
+        byte[] bytes = new byte[Math.max(length, 0)];
+        source.get(start, bytes);
+        String holderName = new String(bytes, StandardCharsets.UTF_8);
+
+        if (!isCorrect) {
+            String errMsg = MessageFormat.format(
+                    "некорректное имя владельца \"{0}\": " +
+                            "имя владельца должно состоять из фамилии и первой буквы имени на латинице",
+                    holderName);
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        return Account.getFormattedHolderName(holderName);
+    }
+
+    /**
+     * Проверяет, является ли байт латинской буквой.
+     *
+     * @param value байт
+     *
+     * @return {@code true}, если байт - латинская буква
+     */
+    private static boolean isLatinLetter(byte value) {
+        return (value >= 'A' && value <= 'Z') || (value >= 'a' && value <= 'z');
+    }
+}
@@ -0,0 +1,139 @@
+package ru.dgritsenko.bam.importer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Класс, представляющий результаты импорта {@link BulkImporter}: количество строк, импортированных счетов
+ * и транзакций, отклоненные строки и пропускная способность.
+ */
+public class ImportReport {
+    private final Path path;
+    private final ImportFormat format;
+    private final Duration duration;
+    private final long rowsCount;
+    private final long accountsCount;
+    private final long transactionsCount;
+    private final long rejectedRowsCount;
+    private final List<String> rejections;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает отчет: количество строк по результатам, длительность, пропускную способность
+     * и первые отклоненные строки.
+     *
+     * @return строковое представление отчета
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+
+        report.append(String.format("Файл: %s, формат: %s%n", path, format));
+        report.append(String.format("Строк: %d, счетов: %d, транзакций: %d, отклонено: %d%n",
+                rowsCount, accountsCount, transactionsCount, rejectedRowsCount));
+        report.append(String.format("Длительность: %.1f с, пропускная способность: %.0f строк/с%n",
+                getDurationSeconds(), getRowsPerSecond()));
+
+        if (!rejections.isEmpty()) {
+            report.append(String.format("%nОтклоненные строки (первые %d):%n", rejections.size()));
+
+            for (String rejection : rejections) {
+                report.append(String.format("  %s%n", rejection));
+            }
+        }
+
+        return report.toString();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает отчет об импорте.
+     *
+     * @param path путь к файлу импорта
+     * @param format формат файла
+     * @param duration длительность импорта
+     * @param rowsCount количество прочитанных строк
+     * @param accountsCount количество импортированных счетов
+     * @param transactionsCount количество импортированных транзакций
+     * @param rejectedRowsCount количество отклоненных строк
+     * @param rejections описания первых отклоненных строк
+     */
+    ImportReport(Path path, ImportFormat format, Duration duration, long rowsCount, long accountsCount,
+                 long transactionsCount, long rejectedRowsCount, List<String> rejections)
+    {
+        this.path = path;
+        this.format = format;
+        this.duration = duration;
+        this.rowsCount = rowsCount;
+        this.accountsCount = accountsCount;
+        this.transactionsCount = transactionsCount;
+        this.rejectedRowsCount = rejectedRowsCount;
+        this.rejections = List.copyOf(rejections);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public Path getPath() {
+        return path;
+    }
+
+    public ImportFormat getFormat() {
+        return format;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public long getRowsCount() {
+        return rowsCount;
+    }
+
+    public long getAccountsCount() {
+        return accountsCount;
+    }
+
+    public long getTransactionsCount() {
+        return transactionsCount;
+    }
+
+    public long getRejectedRowsCount() {
+        return rejectedRowsCount;
+    }
+
+    public List<String> getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Возвращает пропускную способность импорта.
+     *
+     * @return количество прочитанных строк в секунду
+     */
+    public double getRowsPerSecond() {
+        double durationSeconds = getDurationSeconds();
+        return durationSeconds > 0 ? rowsCount / durationSeconds : 0;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает длительность импорта в секундах.
+     *
+     * @return длительность в секундах
+     */
+    private double getDurationSeconds() {
+        return duration.toNanos() / 1e9;
+    }
+}
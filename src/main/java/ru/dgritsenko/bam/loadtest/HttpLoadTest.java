@@ -0,0 +1,361 @@
+package ru.dgritsenko.bam.loadtest;
+
+import ru.dgritsenko.bam.bank.BankService;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.datastorage.DataStorage;
+import ru.dgritsenko.bam.userinterface.http.HttpUserInterface;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Точка входа нагрузочного теста HTTP API ({@link HttpUserInterface}) через localhost.
+ * <p>
+ * Каждое соединение моделируется отдельным виртуальным потоком, который последовательно выполняет запросы:
+ * пополнение (30%), снятие (20%), перевод (40%) и выписку (10%) по счетам с распределением Ципфа.
+ * Результаты выводятся в формате {@link LoadReport}: пропускная способность и задержки p50/p99/p999 по типам
+ * операций, включая сетевой обмен и разбор JSON.
+ * <p>
+ * Параметры задаются системными свойствами:
+ * <ul>
+ *     <li>{@code bam.load.url} - адрес запущенного сервера, например {@code http://127.0.0.1:8080}; если не задан,
+ *     сервер запускается в этом же процессе на свободном порту с хранилищем {@code bam.storage}
+ *     (см. {@link LoadTest});</li>
+ *     <li>{@code bam.load.connections} - количество одновременных соединений (1000);</li>
+ *     <li>{@code bam.load.accounts} - количество счетов (1000);</li>
+ *     <li>{@code bam.load.warmup} и {@code bam.load.duration} - длительность разогрева и нагрузки
+ *     в секундах (5 и 30);</li>
+ *     <li>{@code bam.load.theta} - параметр распределения Ципфа (0.99).</li>
+ * </ul>
+ * Для десятков тысяч соединений требуется соответствующий лимит открытых файлов ОС: при запуске сервера
+ * в этом же процессе каждое соединение занимает два дескриптора.
+ */
+public class HttpLoadTest {
+    private static final String HOLDER_NAME = "Loadtest L";
+    private static final String INITIAL_DEPOSIT = "1000000.00";
+    private static final int MAX_AMOUNT_MINOR_UNITS = 10_000;
+    private static final int STATEMENT_SIZE = 20;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Pattern ACCOUNT_NUMBER_PATTERN = Pattern.compile("\"accountNumber\":(\\d+)");
+
+    // Типы операций и накопленные веса для выбора операции
+    private static final OperationType[] OPERATION_TYPES = {
+            OperationType.DEPOSIT, OperationType.WITHDRAW, OperationType.TRANSFER, OperationType.STATEMENT
+    };
+    private static final int[] CUMULATIVE_WEIGHTS = {30, 50, 90, 100};
+
+    /**
+     * Точка входа нагрузочного теста HTTP API.
+     *
+     * @throws Exception если не удалось запустить сервер, создать счета или выполнить нагрузку
+     */
+    public static void main(String[] args) throws Exception {
+        int connectionsCount = Integer.getInteger("bam.load.connections", 1000);
+        int accountsCount = Integer.getInteger("bam.load.accounts", 1000);
+        Duration warmUpDuration = Duration.ofSeconds(Long.getLong("bam.load.warmup", 5));
+        Duration duration = Duration.ofSeconds(Long.getLong("bam.load.duration", 30));
+        double zipfianTheta = Double.parseDouble(System.getProperty("bam.load.theta", "0.99"));
+
+        String url = System.getProperty("bam.load.url");
+        Path directory = null;
+        DataStorage dataStorage = null;
+        HttpUserInterface server = null;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(executor)
+                     .connectTimeout(REQUEST_TIMEOUT)
+                     .build())
+        {
+            if (url == null) {
+                directory = Files.createTempDirectory("bam-http-load");
+                dataStorage = LoadTest.getDataStorage(System.getProperty("bam.storage", "none"), directory);
+
+                server = new HttpUserInterface(new InetSocketAddress("127.0.0.1", 0), connectionsCount + 1024);
+                server.setBankService(new BankService(dataStorage));
+                server.start();
+                url = "http://127.0.0.1:" + server.getAddress().getPort();
+            }
+
+            Client bankClient = new Client(client, url);
+            List<Long> accountNumbers = bankClient.createAccounts(accountsCount);
+            ZipfianGenerator accountGenerator = new ZipfianGenerator(accountNumbers.size(), zipfianTheta);
+
+            List<Worker> workers = new ArrayList<>(connectionsCount);
+            List<Thread> threads = new ArrayList<>(connectionsCount);
+            CountDownLatch startLatch = new CountDownLatch(1);
+
+            long startTime = System.nanoTime();
+            long measureStartTime = startTime + warmUpDuration.toNanos();
+            long endTime = measureStartTime + duration.toNanos();
+
+            for (int i = 0; i < connectionsCount; i++) {
+                Worker worker = new Worker(bankClient, accountNumbers, accountGenerator, new SplittableRandom(i),
+                        startLatch, measureStartTime, endTime);
+                workers.add(worker);
+                threads.add(Thread.ofVirtual().name("bam-http-load-" + i).start(worker));
+            }
+
+            startLatch.countDown();
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            Map<OperationType, LoadReport.OperationStats> operationStats = new EnumMap<>(OperationType.class);
+
+            for (OperationType operationType : OperationType.values()) {
+                LoadReport.OperationStats stats = new LoadReport.OperationStats();
+
+                for (Worker worker : workers) {
+                    stats.add(worker.operationStats.get(operationType));
+                }
+
+                operationStats.put(operationType, stats);
+            }
+
+            System.out.println(MessageFormat.format("Сервер: {0}, соединений: {1}", url,
+                    String.valueOf(connectionsCount)));
+            System.out.println(new LoadReport(duration, connectionsCount, 0, operationStats));
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+
+            if (dataStorage instanceof Closeable closeable) {
+                closeable.close();
+            }
+
+            if (directory != null) {
+                LoadTest.deleteDirectory(directory);
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CLIENT NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс клиента HTTP API банковского приложения.
+     */
+    private static final class Client {
+        private final HttpClient client;
+        private final String url;
+
+        private Client(HttpClient client, String url) {
+            this.client = client;
+            this.url = url;
+        }
+
+        /**
+         * Создает счета с начальным пополнением.
+         *
+         * @param accountsCount количество счетов
+         *
+         * @return номера созданных счетов
+         *
+         * @throws IllegalStateException если сервер вернул ошибку
+         */
+        private List<Long> createAccounts(int accountsCount) {
+            List<Long> accountNumbers = new ArrayList<>(accountsCount);
+
+            for (int i = 0; i < accountsCount; i++) {
+                String body = send("POST", "/accounts", "{\"holderName\":\"" + HOLDER_NAME + "\"}");
+                Matcher matcher = ACCOUNT_NUMBER_PATTERN.matcher(body);
+
+                if (!matcher.find()) {
+                    throw new IllegalStateException("В ответе нет номера счета: " + body);
+                }
+
+                long accountNumber = Long.parseLong(matcher.group(1));
+                send("POST", "/accounts/" + accountNumber + "/deposit", "{\"amount\":" + INITIAL_DEPOSIT + "}");
+                accountNumbers.add(accountNumber);
+            }
+
+            return accountNumbers;
+        }
+
+        /**
+         * Выполняет запрос и возвращает тело успешного ответа.
+         *
+         * @param method метод запроса
+         * @param path путь запроса
+         * @param body тело запроса или {@code null}
+         *
+         * @return тело ответа
+         *
+         * @throws UncheckedIOException если произошла ошибка ввода-вывода
+         * @throws IllegalStateException если сервер вернул код ошибки
+         */
+        private String send(String method, String path, String body) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .method(method, body == null
+                            ? HttpRequest.BodyPublishers.noBody()
+                            : HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            HttpResponse<String> response;
+
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Запрос прерван", exception);
+            }
+
+            if (response.statusCode() >= 300) {
+                String errMsg = MessageFormat.format("HTTP {0}: {1}",
+                        String.valueOf(response.statusCode()), response.body());
+                throw new IllegalStateException(errMsg);
+            }
+
+            return response.body();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // WORKER NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс соединения нагрузки.
+     * <p>Результаты накапливаются в собственных гистограммах соединения и объединяются после завершения нагрузки.
+     */
+    private static final class Worker implements Runnable {
+        private final Client client;
+        private final List<Long> accountNumbers;
+        private final ZipfianGenerator accountGenerator;
+        private final SplittableRandom random;
+        private final CountDownLatch startLatch;
+        private final long measureStartTime;
+        private final long endTime;
+        private final Map<OperationType, LoadReport.OperationStats> operationStats =
+                new EnumMap<>(OperationType.class);
+
+        private Worker(Client client, List<Long> accountNumbers, ZipfianGenerator accountGenerator,
+                       SplittableRandom random, CountDownLatch startLatch, long measureStartTime, long endTime)
+        {
+            this.client = client;
+            this.accountNumbers = accountNumbers;
+            this.accountGenerator = accountGenerator;
+            this.random = random;
+            this.startLatch = startLatch;
+            this.measureStartTime = measureStartTime;
+            this.endTime = endTime;
+
+            for (OperationType operationType : OperationType.values()) {
+                operationStats.put(operationType, new LoadReport.OperationStats());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                startLatch.await();
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            while (true) {
+                long operationStartTime = System.nanoTime();
+
+                if (operationStartTime >= endTime) {
+                    return;
+                }
+
+                OperationType operationType = nextOperationType();
+                LoadReport.OperationStats stats = operationStats.get(operationType);
+
+                try {
+                    TransactionStatus status = perform(operationType);
+
+                    if (operationStartTime >= measureStartTime) {
+                        stats.record(System.nanoTime() - operationStartTime, status);
+                    }
+                } catch (RuntimeException exception) {
+                    if (operationStartTime >= measureStartTime) {
+                        stats.recordFailure(System.nanoTime() - operationStartTime, exception);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Выполняет запрос операции.
+         *
+         * @param operationType тип операции
+         *
+         * @return статус операции (для выписки - {@link TransactionStatus#COMMITTED})
+         */
+        private TransactionStatus perform(OperationType operationType) {
+            int accountIndex = accountGenerator.nextIndex(random);
+            String accountPath = "/accounts/" + accountNumbers.get(accountIndex);
+            int amountMinorUnits = 1 + random.nextInt(MAX_AMOUNT_MINOR_UNITS);
+            String amount = String.format("%d.%02d", amountMinorUnits / 100, amountMinorUnits % 100);
+
+            String body = switch (operationType) {
+                case DEPOSIT -> client.send("POST", accountPath + "/deposit", "{\"amount\":" + amount + "}");
+                case WITHDRAW -> client.send("POST", accountPath + "/withdraw", "{\"amount\":" + amount + "}");
+                case TRANSFER -> {
+                    int toAccountIndex = accountGenerator.nextIndex(random);
+
+                    if (toAccountIndex == accountIndex) {
+                        toAccountIndex = (accountIndex + 1) % accountNumbers.size();
+                    }
+
+                    yield client.send("POST", accountPath + "/transfer", "{\"amount\":" + amount
+                            + ",\"toAccountNumber\":" + accountNumbers.get(toAccountIndex) + "}");
+                }
+                case STATEMENT -> {
+                    client.send("GET", accountPath + "/transactions?limit=" + STATEMENT_SIZE, null);
+                    yield "\"COMMITTED\"";
+                }
+            };
+
+            return body.contains("\"COMMITTED\"") ? TransactionStatus.COMMITTED : TransactionStatus.CANCELED;
+        }
+
+        /**
+         * Выбирает тип операции согласно весам.
+         *
+         * @return тип операции
+         */
+        private OperationType nextOperationType() {
+            int value = random.nextInt(CUMULATIVE_WEIGHTS[CUMULATIVE_WEIGHTS.length - 1]);
+            int i = 0;
+
+            while (value >= CUMULATIVE_WEIGHTS[i]) {
+                i++;
+            }
+
+            return OPERATION_TYPES[i];
+        }
+    }
+}
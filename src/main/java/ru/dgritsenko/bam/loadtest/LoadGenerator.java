@@ -0,0 +1,492 @@
+package ru.dgritsenko.bam.loadtest;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.BankService;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.bank.TransactionType;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор синтетической нагрузки на {@link BankService}.
+ * <p>
+ * Создает счета и в нескольких потоках выполняет смесь операций с заданными весами: пополнение, снятие
+ * наличных, перевод и выписку (последние транзакции и баланс счета). Счета операций выбираются по
+ * распределению Ципфа, поэтому нагрузка сосредоточена на небольшой части "популярных" счетов.
+ * <p>
+ * Операции выполняются с максимальной скоростью или с заданной общей интенсивностью. При заданной
+ * интенсивности задержка отсчитывается от запланированного времени начала операции, а не от фактического,
+ * поэтому отставание от графика (например, из-за длительной паузы хранилища) входит в задержки последующих
+ * операций, а не скрывается.
+ * <p>Генератор работает с любым хранилищем данных, переданным {@link BankService}.
+ */
+public class LoadGenerator {
+    private static final String HOLDER_NAME = "Loadtest L";
+    private static final Money INITIAL_DEPOSIT = Money.of(1_000_000);
+    private static final long MAX_AMOUNT_MINOR_UNITS = 10_000;
+    private static final int STATEMENT_SIZE = 20;
+
+    private final BankService bankService;
+    private final int accountsCount;
+    private final int threadsCount;
+    private final double targetRate;
+    private final Duration warmUpDuration;
+    private final Duration duration;
+    private final double zipfianTheta;
+    private final OperationType[] operationTypes;
+    private final int[] cumulativeWeights;
+    private final long seed;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Служебный конструктор для создания объекта через {@link Builder}.
+     *
+     * @param builder статический вложенный класс-источник данных для заполнения
+     */
+    private LoadGenerator(Builder builder) {
+        this.bankService = builder.bankService;
+        this.accountsCount = builder.accountsCount;
+        this.threadsCount = builder.threadsCount;
+        this.targetRate = builder.targetRate;
+        this.warmUpDuration = builder.warmUpDuration;
+        this.duration = builder.duration;
+        this.zipfianTheta = builder.zipfianTheta;
+        this.seed = builder.seed;
+
+        // Типы операций с ненулевым весом и накопленные веса для выбора операции
+        List<OperationType> weightedTypes = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int totalWeight = 0;
+
+        for (Map.Entry<OperationType, Integer> entry : builder.operationWeights.entrySet()) {
+            if (entry.getValue() > 0) {
+                totalWeight += entry.getValue();
+                weightedTypes.add(entry.getKey());
+                weights.add(totalWeight);
+            }
+        }
+
+        this.operationTypes = weightedTypes.toArray(new OperationType[0]);
+        this.cumulativeWeights = weights.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает счета, выполняет нагрузку и возвращает ее результаты.
+     * <p>Операции периода разогрева выполняются, но не учитываются в результатах.
+     *
+     * @return результаты нагрузки
+     *
+     * @throws InterruptedException если поток прерван во время ожидания завершения нагрузки
+     */
+    public LoadReport run() throws InterruptedException {
+        List<Account> accounts = createAccounts();
+        ZipfianGenerator accountGenerator = new ZipfianGenerator(accounts.size(), zipfianTheta);
+
+        List<Worker> workers = new ArrayList<>(threadsCount);
+        List<Thread> threads = new ArrayList<>(threadsCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
+
+        long startTime = System.nanoTime();
+        long measureStartTime = startTime + warmUpDuration.toNanos();
+        long endTime = measureStartTime + duration.toNanos();
+
+        for (int i = 0; i < threadsCount; i++) {
+            Worker worker = new Worker(accounts, accountGenerator, new SplittableRandom(seed + i),
+                    startLatch, startTime, measureStartTime, endTime);
+            Thread thread = new Thread(worker, "bam-load-" + i);
+
+            workers.add(worker);
+            threads.add(thread);
+            thread.start();
+        }
+
+        startLatch.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<OperationType, LoadReport.OperationStats> operationStats = new EnumMap<>(OperationType.class);
+
+        for (OperationType operationType : OperationType.values()) {
+            LoadReport.OperationStats stats = new LoadReport.OperationStats();
+
+            for (Worker worker : workers) {
+                stats.add(worker.operationStats.get(operationType));
+            }
+
+            operationStats.put(operationType, stats);
+        }
+
+        return new LoadReport(duration, threadsCount, targetRate, operationStats);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает счета с начальным пополнением и перемешивает их, чтобы популярность счета не зависела
+     * от порядка создания.
+     *
+     * @return созданные счета
+     */
+    private List<Account> createAccounts() {
+        List<Account> accounts = new ArrayList<>(accountsCount);
+
+        for (int i = 0; i < accountsCount; i++) {
+            Account account = bankService.createAccount(HOLDER_NAME);
+            bankService.performTransaction(TransactionType.DEPOSIT, account, INITIAL_DEPOSIT);
+            accounts.add(account);
+        }
+
+        Collections.shuffle(accounts, new Random(seed));
+        return accounts;
+    }
+
+    /**
+     * Выбирает тип операции согласно весам.
+     *
+     * @param random источник случайных чисел
+     *
+     * @return тип операции
+     */
+    private OperationType nextOperationType(SplittableRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+
+        while (value >= cumulativeWeights[i]) {
+            i++;
+        }
+
+        return operationTypes[i];
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // WORKER NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс потока нагрузки.
+     * <p>Результаты накапливаются в собственных гистограммах потока и объединяются после завершения нагрузки.
+     */
+    private final class Worker implements Runnable {
+        private final List<Account> accounts;
+        private final ZipfianGenerator accountGenerator;
+        private final SplittableRandom random;
+        private final CountDownLatch startLatch;
+        private final long startTime;
+        private final long measureStartTime;
+        private final long endTime;
+        private final Map<OperationType, LoadReport.OperationStats> operationStats =
+                new EnumMap<>(OperationType.class);
+
+        /**
+         * Создает поток нагрузки.
+         *
+         * @param accounts счета
+         * @param accountGenerator генератор индексов счетов
+         * @param random источник случайных чисел потока
+         * @param startLatch сигнал начала нагрузки
+         * @param startTime время начала нагрузки ({@link System#nanoTime()})
+         * @param measureStartTime время окончания разогрева
+         * @param endTime время окончания нагрузки
+         */
+        private Worker(List<Account> accounts, ZipfianGenerator accountGenerator, SplittableRandom random,
+                       CountDownLatch startLatch, long startTime, long measureStartTime, long endTime)
+        {
+            this.accounts = accounts;
+            this.accountGenerator = accountGenerator;
+            this.random = random;
+            this.startLatch = startLatch;
+            this.startTime = startTime;
+            this.measureStartTime = measureStartTime;
+            this.endTime = endTime;
+
+            for (OperationType operationType : OperationType.values()) {
+                operationStats.put(operationType, new LoadReport.OperationStats());
+            }
+        }
+
+        /**
+         * Выполняет операции до окончания нагрузки.
+         */
+        @Override
+        public void run() {
+            try {
+                startLatch.await();
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // Интервал между операциями потока при заданной интенсивности
+            long intervalNanos = targetRate > 0 ? (long) (1e9 * threadsCount / targetRate) : 0;
+            long scheduledTime = startTime;
+
+            while (true) {
+                long operationStartTime;
+
+                if (intervalNanos > 0) {
+                    scheduledTime += intervalNanos;
+                    waitUntil(scheduledTime);
+                    operationStartTime = scheduledTime;
+                } else {
+                    operationStartTime = System.nanoTime();
+                }
+
+                if (operationStartTime >= endTime || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                OperationType operationType = nextOperationType(random);
+                LoadReport.OperationStats stats = operationStats.get(operationType);
+                TransactionStatus status;
+
+                try {
+                    status = perform(operationType);
+                } catch (RuntimeException exception) {
+                    if (operationStartTime >= measureStartTime) {
+                        stats.recordFailure(System.nanoTime() - operationStartTime, exception);
+                    }
+                    continue;
+                }
+
+                if (operationStartTime >= measureStartTime) {
+                    stats.record(System.nanoTime() - operationStartTime, status);
+                }
+            }
+        }
+
+        /**
+         * Выполняет операцию над случайными счетами.
+         *
+         * @param operationType тип операции
+         *
+         * @return статус операции ({@link TransactionStatus#COMMITTED} для выписки)
+         */
+        private TransactionStatus perform(OperationType operationType) {
+            int accountIndex = accountGenerator.nextIndex(random);
+            Account account = accounts.get(accountIndex);
+            Money amount = Money.ofMinorUnits(random.nextLong(1, MAX_AMOUNT_MINOR_UNITS + 1));
+
+            return switch (operationType) {
+                case DEPOSIT -> bankService.performTransaction(TransactionType.DEPOSIT, account, amount);
+                case WITHDRAW -> bankService.performTransaction(TransactionType.WITHDRAW, account, amount);
+                case TRANSFER -> bankService.performTransaction(
+                        TransactionType.TRANSFER, account, amount, nextAccountExcept(accountIndex));
+                case STATEMENT -> {
+                    int transactionCount = account.getTransactionCount();
+                    account.getTransactions(Math.max(0, transactionCount - STATEMENT_SIZE), transactionCount);
+                    account.getBalance();
+                    yield TransactionStatus.COMMITTED;
+                }
+            };
+        }
+
+        /**
+         * Выбирает по распределению Ципфа счет, отличный от указанного.
+         *
+         * @param accountIndex индекс исключаемого счета
+         *
+         * @return счет
+         */
+        private Account nextAccountExcept(int accountIndex) {
+            int otherAccountIndex = accountGenerator.nextIndex(random);
+
+            if (otherAccountIndex == accountIndex) {
+                otherAccountIndex = (accountIndex + 1) % accounts.size();
+            }
+
+            return accounts.get(otherAccountIndex);
+        }
+
+        /**
+         * Ожидает наступления указанного времени.
+         *
+         * @param time время ({@link System#nanoTime()})
+         */
+        private void waitUntil(long time) {
+            long remainingNanos;
+
+            while ((remainingNanos = time - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(remainingNanos);
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // BUILDER NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный статичный класс, представляющий построитель родительского класса {@link LoadGenerator}.
+     * <p>Каждое поле имеет set-метод для установки значения.
+     */
+    public static class Builder {
+        private BankService bankService;
+        private int accountsCount = 10_000;
+        private int threadsCount = Runtime.getRuntime().availableProcessors();
+        private double targetRate;
+        private Duration warmUpDuration = Duration.ofSeconds(5);
+        private Duration duration = Duration.ofSeconds(30);
+        private double zipfianTheta = 0.99;
+        private final Map<OperationType, Integer> operationWeights = new EnumMap<>(OperationType.class);
+        private long seed = 1;
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. CONSTRUCTORS
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Создает построитель для последующего создания основного класса {@link LoadGenerator}.
+         * <p>По умолчанию: 10000 счетов, поток на каждый процессор, максимальная интенсивность,
+         * 5 секунд разогрева и 30 секунд нагрузки, theta = 0.99, смесь операций 30/20/40/10
+         * (пополнение/снятие/перевод/выписка).
+         */
+        public Builder() {
+            operationWeights.put(OperationType.DEPOSIT, 30);
+            operationWeights.put(OperationType.WITHDRAW, 20);
+            operationWeights.put(OperationType.TRANSFER, 40);
+            operationWeights.put(OperationType.STATEMENT, 10);
+        }
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. SETTERS
+        // -------------------------------------------------------------------------------------------------------------
+
+        public Builder setBankService(BankService bankService) {
+            this.bankService = bankService;
+            return this;
+        }
+
+        public Builder setAccountsCount(int accountsCount) {
+            this.accountsCount = accountsCount;
+            return this;
+        }
+
+        public Builder setThreadsCount(int threadsCount) {
+            this.threadsCount = threadsCount;
+            return this;
+        }
+
+        /**
+         * Устанавливает общую интенсивность операций всех потоков.
+         *
+         * @param targetRate операций в секунду ({@code 0} - максимальная интенсивность)
+         *
+         * @return построитель
+         */
+        public Builder setTargetRate(double targetRate) {
+            this.targetRate = targetRate;
+            return this;
+        }
+
+        public Builder setWarmUpDuration(Duration warmUpDuration) {
+            this.warmUpDuration = warmUpDuration;
+            return this;
+        }
+
+        public Builder setDuration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        public Builder setZipfianTheta(double zipfianTheta) {
+            this.zipfianTheta = zipfianTheta;
+            return this;
+        }
+
+        /**
+         * Устанавливает вес типа операции в смеси операций.
+         *
+         * @param operationType тип операции
+         * @param weight вес ({@code 0} - операция не выполняется)
+         *
+         * @return построитель
+         */
+        public Builder setOperationWeight(OperationType operationType, int weight) {
+            operationWeights.put(operationType, weight);
+            return this;
+        }
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. BUILDING
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Валидирует значения полей и создает экземпляр основного класса {@link LoadGenerator}.
+         *
+         * @return новый генератор нагрузки
+         *
+         * @throws NullPointerException если {@code bankService}, {@code warmUpDuration} или {@code duration}
+         *                              равен {@code null}
+         * @throws IllegalArgumentException если параметры нагрузки некорректны
+         */
+        public LoadGenerator build() {
+            validate();
+            return new LoadGenerator(this);
+        }
+
+        // -------------------------------------------------------------------------------------------------------------
+        // BUILDER. MISC
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Валидирует результат заполнения полей построителя.
+         */
+        private void validate() {
+            Objects.requireNonNull(bankService, "Сервис банковских операций не должен быть null");
+            Objects.requireNonNull(warmUpDuration, "Длительность разогрева не должна быть null");
+            Objects.requireNonNull(duration, "Длительность нагрузки не должна быть null");
+
+            int totalWeight = 0;
+
+            for (int weight : operationWeights.values()) {
+                if (weight < 0) {
+                    totalWeight = -1;
+                    break;
+                }
+                totalWeight += weight;
+            }
+
+            boolean hasTransfers = operationWeights.get(OperationType.TRANSFER) > 0;
+
+            if (accountsCount <= 0 || (hasTransfers && accountsCount < 2) || threadsCount <= 0
+                    || targetRate < 0 || warmUpDuration.isNegative() || duration.isNegative() || duration.isZero()
+                    || totalWeight <= 0)
+            {
+                String errMsg = MessageFormat.format(
+                        "Некорректные параметры нагрузки (счетов \"{0}\", потоков \"{1}\", интенсивность \"{2}\", " +
+                                "разогрев \"{3}\", длительность \"{4}\", веса операций \"{5}\")",
+                        accountsCount, threadsCount, targetRate, warmUpDuration, duration, operationWeights
+                );
+                throw new IllegalArgumentException(errMsg);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package ru.dgritsenko.bam.loadtest;
+
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Класс, представляющий результаты нагрузки {@link LoadGenerator}: количество операций каждого типа
+ * по результатам и гистограммы их задержек.
+ */
+public class LoadReport {
+    private final Duration duration;
+    private final int threadsCount;
+    private final double targetRate;
+    private final Map<OperationType, OperationStats> operationStats;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает отчет в виде таблицы: пропускная способность и задержки (в микросекундах) по типам операций.
+     *
+     * @return строковое представление отчета
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+
+        report.append(String.format("Потоков: %d, интенсивность: %s, длительность: %d с%n",
+                threadsCount, targetRate > 0 ? String.format("%.0f оп/с", targetRate) : "максимальная",
+                duration.toSeconds()));
+        report.append(String.format("Пропускная способность: %.0f оп/с%n%n", getThroughput()));
+        report.append(String.format("%-16s %10s %10s %8s %8s %10s %10s %10s %10s%n",
+                "Операция", "оп/с", "Успешно", "Отмена", "Ошибки", "p50", "p99", "p999", "max"));
+
+        for (Map.Entry<OperationType, OperationStats> entry : operationStats.entrySet()) {
+            OperationStats stats = entry.getValue();
+            LatencyHistogram histogram = stats.getHistogram();
+
+            report.append(String.format("%-16s %10.0f %10d %8d %8d %10.1f %10.1f %10.1f %10.1f%n",
+                    entry.getKey(),
+                    stats.getCount() / getDurationSeconds(),
+                    stats.getCommittedCount(),
+                    stats.getCanceledCount(),
+                    stats.getFailedCount(),
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMax() / 1000.0
+            ));
+        }
+
+        for (Map.Entry<OperationType, OperationStats> entry : operationStats.entrySet()) {
+            if (entry.getValue().getFirstFailure() != null) {
+                report.append(String.format("%nПервая ошибка операции \"%s\": %s",
+                        entry.getKey(), entry.getValue().getFirstFailure()));
+            }
+        }
+
+        return report.toString();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает отчет о нагрузке.
+     *
+     * @param duration длительность нагрузки (без разогрева)
+     * @param threadsCount количество потоков
+     * @param targetRate заданная интенсивность ({@code 0} - максимальная)
+     * @param operationStats результаты операций по типам
+     */
+    LoadReport(Duration duration, int threadsCount, double targetRate,
+               Map<OperationType, OperationStats> operationStats)
+    {
+        this.duration = duration;
+        this.threadsCount = threadsCount;
+        this.targetRate = targetRate;
+        this.operationStats = Collections.unmodifiableMap(new EnumMap<>(operationStats));
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Map<OperationType, OperationStats> getOperationStats() {
+        return operationStats;
+    }
+
+    /**
+     * Возвращает общую пропускную способность.
+     *
+     * @return количество операций всех типов в секунду
+     */
+    public double getThroughput() {
+        long count = 0;
+
+        for (OperationStats stats : operationStats.values()) {
+            count += stats.getCount();
+        }
+
+        return count / getDurationSeconds();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает длительность нагрузки в секундах.
+     *
+     * @return длительность в секундах
+     */
+    private double getDurationSeconds() {
+        return duration.toNanos() / 1e9;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OPERATION STATS NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс, представляющий результаты операций одного типа.
+     * <p>Счетчики заполняются одним потоком нагрузки, затем результаты потоков объединяются.
+     */
+    public static class OperationStats {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long committedCount;
+        private long canceledCount;
+        private long failedCount;
+        private String firstFailure;
+
+        // -------------------------------------------------------------------------------------------------------------
+        // OPERATION STATS. GETTERS
+        // -------------------------------------------------------------------------------------------------------------
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public long getCommittedCount() {
+            return committedCount;
+        }
+
+        public long getCanceledCount() {
+            return canceledCount;
+        }
+
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        public String getFirstFailure() {
+            return firstFailure;
+        }
+
+        /**
+         * Возвращает количество выполненных операций с любым результатом.
+         *
+         * @return количество операций
+         */
+        public long getCount() {
+            return committedCount + canceledCount + failedCount;
+        }
+
+        // -------------------------------------------------------------------------------------------------------------
+        // OPERATION STATS. MISC
+        // -------------------------------------------------------------------------------------------------------------
+
+        /**
+         * Учитывает завершенную операцию.
+         *
+         * @param latencyNanos задержка операции в наносекундах
+         * @param status статус операции
+         */
+        void record(long latencyNanos, TransactionStatus status) {
+            histogram.record(latencyNanos);
+
+            if (status.isCommitted()) {
+                committedCount++;
+            } else {
+                canceledCount++;
+            }
+        }
+
+        /**
+         * Учитывает операцию, завершившуюся исключением.
+         *
+         * @param latencyNanos задержка операции в наносекундах
+         * @param exception исключение
+         */
+        void recordFailure(long latencyNanos, RuntimeException exception) {
+            histogram.record(latencyNanos);
+            failedCount++;
+
+            if (firstFailure == null) {
+                firstFailure = exception.toString();
+            }
+        }
+
+        /**
+         * Добавляет результаты операций другого потока.
+         *
+         * @param stats результаты операций
+         */
+        void add(OperationStats stats) {
+            histogram.add(stats.histogram);
+            committedCount += stats.committedCount;
+            canceledCount += stats.canceledCount;
+            failedCount += stats.failedCount;
+
+            if (firstFailure == null) {
+                firstFailure = stats.firstFailure;
+            }
+        }
+    }
+}
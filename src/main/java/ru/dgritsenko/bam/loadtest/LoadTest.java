@@ -0,0 +1,198 @@
+package ru.dgritsenko.bam.loadtest;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.BankService;
+import ru.dgritsenko.bam.datastorage.BackgroundDataStorage;
+import ru.dgritsenko.bam.datastorage.DataStorage;
+import ru.dgritsenko.bam.datastorage.FileService;
+import ru.dgritsenko.bam.datastorage.FsyncPolicy;
+import ru.dgritsenko.bam.datastorage.InstrumentedDataStorage;
+import ru.dgritsenko.bam.datastorage.JournalFileService;
+import ru.dgritsenko.bam.datastorage.MappedFileService;
+import ru.dgritsenko.bam.datastorage.ShardedFileService;
+import ru.dgritsenko.bam.metrics.MetricsRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Точка входа нагрузочного теста {@link BankService} без пользовательского интерфейса.
+ * <p>
+ * Параметры задаются системными свойствами:
+ * <ul>
+ *     <li>{@code bam.storage} - хранилище данных: {@code none} (без сохранения, по умолчанию), {@code file},
+ *     {@code mapped}, {@code journal} или {@code sharded}; файлы создаются во временном каталоге
+ *     и удаляются после теста;</li>
+ *     <li>{@code bam.async} - фоновое сохранение изменений ({@link BackgroundDataStorage});</li>
+ *     <li>{@code bam.engine} - выполнение операций движком с единственным потоком изменения счетов
+ *     ({@link BankService#startEngine()});</li>
+ *     <li>{@code bam.load.accounts} - количество счетов (10000);</li>
+ *     <li>{@code bam.load.threads} - количество потоков (по количеству процессоров);</li>
+ *     <li>{@code bam.load.rate} - общая интенсивность в операциях в секунду ({@code 0} - максимальная);</li>
+ *     <li>{@code bam.load.warmup} и {@code bam.load.duration} - длительность разогрева и нагрузки
+ *     в секундах (5 и 30);</li>
+ *     <li>{@code bam.load.theta} - параметр распределения Ципфа (0.99);</li>
+ *     <li>{@code bam.load.mix} - веса операций, например {@code deposit=30,withdraw=20,transfer=40,statement=10}.</li>
+ * </ul>
+ * После нагрузки все счета сохраняются в хранилище, и время сохранения выводится вместе с отчетом
+ * и метриками приложения ({@link MetricsRegistry}), если они не отключены свойством {@code bam.metrics=false}.
+ */
+public class LoadTest {
+    /**
+     * Точка входа нагрузочного теста.
+     *
+     * @throws Exception если не удалось создать хранилище, выполнить нагрузку или сохранить счета
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("bam-load");
+        String storageName = System.getProperty("bam.storage", "none");
+        DataStorage dataStorage = getDataStorage(storageName, directory);
+
+        if (MetricsRegistry.ENABLED) {
+            dataStorage = new InstrumentedDataStorage(dataStorage, storageName);
+        }
+
+        if (Boolean.getBoolean("bam.async")) {
+            dataStorage = new BackgroundDataStorage(dataStorage);
+        }
+
+        try {
+            BankService bankService = new BankService(dataStorage);
+
+            if (MetricsRegistry.ENABLED) {
+                bankService.registerMetrics();
+            }
+
+            if (Boolean.getBoolean("bam.engine")) {
+                bankService.startEngine();
+            }
+
+            LoadGenerator.Builder builder = new LoadGenerator.Builder()
+                    .setBankService(bankService)
+                    .setAccountsCount(Integer.getInteger("bam.load.accounts", 10_000))
+                    .setThreadsCount(Integer.getInteger("bam.load.threads",
+                            Runtime.getRuntime().availableProcessors()))
+                    .setTargetRate(Double.parseDouble(System.getProperty("bam.load.rate", "0")))
+                    .setWarmUpDuration(Duration.ofSeconds(Long.getLong("bam.load.warmup", 5)))
+                    .setDuration(Duration.ofSeconds(Long.getLong("bam.load.duration", 30)))
+                    .setZipfianTheta(Double.parseDouble(System.getProperty("bam.load.theta", "0.99")));
+
+            setOperationWeights(builder, System.getProperty("bam.load.mix"));
+
+            LoadReport report = builder.build().run();
+            System.out.println(report);
+
+            bankService.stopEngine();
+
+            long saveStartTime = System.nanoTime();
+            bankService.saveAccounts();
+            System.out.printf("%nСохранение счетов: %.1f мс%n", (System.nanoTime() - saveStartTime) / 1e6);
+
+            if (MetricsRegistry.ENABLED) {
+                System.out.printf("%n%s", MetricsRegistry.getDefault().dump());
+                bankService.unregisterMetrics();
+            }
+        } finally {
+            if (dataStorage instanceof Closeable closeable) {
+                closeable.close();
+            }
+
+            deleteDirectory(directory);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает хранилище данных в указанном каталоге по названию способа хранения.
+     *
+     * @param storageName название способа хранения
+     * @param directory каталог файлов хранилища
+     *
+     * @return хранилище данных
+     *
+     * @throws IllegalArgumentException если способ хранения неизвестен
+     */
+    static DataStorage getDataStorage(String storageName, Path directory) {
+        return switch (storageName) {
+            case "none" -> new DataStorage() {
+                @Override
+                public List<Account> loadAccounts() {
+                    return List.of();
+                }
+
+                @Override
+                public void saveAccounts(List<Account> accounts) {}
+            };
+            case "file" -> new FileService(directory.resolve("accounts.data"));
+            case "mapped" -> new MappedFileService(directory.resolve("accounts.data"));
+            case "journal" -> new JournalFileService(directory, FsyncPolicy.GROUP_COMMIT, 100, 0);
+            case "sharded" -> new ShardedFileService(directory, 16);
+            default -> {
+                String errMsg = MessageFormat.format("Неизвестный способ хранения \"{0}\"", storageName);
+                throw new IllegalArgumentException(errMsg);
+            }
+        };
+    }
+
+    /**
+     * Устанавливает веса операций из строки вида {@code deposit=30,withdraw=20,transfer=40,statement=10}.
+     * <p>Операции, не указанные в строке, не выполняются.
+     *
+     * @param builder построитель генератора нагрузки
+     * @param mix веса операций или {@code null} (веса по умолчанию)
+     *
+     * @throws IllegalArgumentException если строка имеет неверный формат
+     */
+    private static void setOperationWeights(LoadGenerator.Builder builder, String mix) {
+        if (mix == null) {
+            return;
+        }
+
+        for (OperationType operationType : OperationType.values()) {
+            builder.setOperationWeight(operationType, 0);
+        }
+
+        for (String item : mix.split(",")) {
+            String[] parts = item.trim().split("=");
+
+            try {
+                OperationType operationType = OperationType.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+                builder.setOperationWeight(operationType, Integer.parseInt(parts[1].trim()));
+            } catch (RuntimeException exception) {
+                String errMsg = MessageFormat.format(
+                        "Некорректный вес операции \"{0}\": ожидается <операция>=<вес>, операции - {1}",
+                        item, Stream.of(OperationType.values())
+                                .map(type -> type.name().toLowerCase(Locale.ROOT))
+                                .toList()
+                );
+                throw new IllegalArgumentException(errMsg, exception);
+            }
+        }
+    }
+
+    /**
+     * Удаляет каталог вместе с содержимым.
+     *
+     * @param directory каталог
+     *
+     * @throws IOException если произошла ошибка ввода-вывода при удалении
+     */
+    static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.dgritsenko.bam.loadtest;
+
+/**
+ * Перечисление, представляющее типы операций нагрузочного теста.
+ */
+public enum OperationType {
+    DEPOSIT("Пополнение"),
+    WITHDRAW("Снятие наличных"),
+    TRANSFER("Перевод"),
+    STATEMENT("Выписка");
+
+    private final String title;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает строковое представление типа операции.
+     *
+     * @return строковое представление типа операции
+     */
+    @Override
+    public String toString() {
+        return getTitle();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Конструктор перечисления.
+     *
+     * @param title название типа операции
+     */
+    OperationType(String title) {
+        this.title = title;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public String getTitle() {
+        return title;
+    }
+}
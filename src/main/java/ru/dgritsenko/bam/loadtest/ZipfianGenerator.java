@@ -0,0 +1,98 @@
+package ru.dgritsenko.bam.loadtest;
+
+import java.text.MessageFormat;
+import java.util.random.RandomGenerator;
+
+/**
+ * Генератор индексов с распределением Ципфа: индекс {@code i} выбирается с вероятностью,
+ * пропорциональной {@code 1 / (i + 1)^theta}, поэтому небольшая часть счетов получает большую часть операций.
+ * <p>
+ * Используется аналитическое приближение обратной функции распределения (Gray et al., "Quickly Generating
+ * Billion-Record Synthetic Databases"): после однократного расчета нормирующей суммы каждый индекс
+ * генерируется за постоянное время.
+ */
+final class ZipfianGenerator {
+    private final int itemsCount;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает генератор индексов от {@code 0} до {@code itemsCount - 1}.
+     *
+     * @param itemsCount количество элементов
+     * @param theta параметр распределения (чем больше, тем сильнее перекос; обычно 0.99)
+     *
+     * @throws IllegalArgumentException если {@code itemsCount} <= {@code 0}
+     *                                  или {@code theta} вне интервала от {@code 0} до {@code 1}
+     */
+    ZipfianGenerator(int itemsCount, double theta) {
+        if (itemsCount <= 0 || !(theta > 0 && theta < 1)) {
+            String errMsg = MessageFormat.format(
+                    "Некорректные параметры распределения (элементов \"{0}\", theta \"{1}\"): количество элементов " +
+                            "должно быть больше нуля, theta - в интервале от 0 до 1",
+                    itemsCount, theta
+            );
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        this.itemsCount = itemsCount;
+        this.theta = theta;
+        this.zetaN = zeta(itemsCount, theta);
+        this.alpha = 1 / (1 - theta);
+        this.eta = (1 - Math.pow(2.0 / itemsCount, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает следующий индекс.
+     *
+     * @param random источник случайных чисел
+     *
+     * @return индекс от {@code 0} до {@code itemsCount - 1}
+     */
+    int nextIndex(RandomGenerator random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < 1 + Math.pow(0.5, theta)) {
+            return Math.min(1, itemsCount - 1);
+        }
+
+        int index = (int) (itemsCount * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(index, itemsCount - 1);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Рассчитывает нормирующую сумму {@code 1 + 1/2^theta + ... + 1/n^theta}.
+     *
+     * @param n количество слагаемых
+     * @param theta параметр распределения
+     *
+     * @return сумма
+     */
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+
+        return sum;
+    }
+}
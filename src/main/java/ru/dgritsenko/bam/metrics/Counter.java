@@ -0,0 +1,54 @@
+package ru.dgritsenko.bam.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Потокобезопасный счетчик событий.
+ * <p>Параллельные увеличения распределяются по ячейкам {@link LongAdder}, поэтому счетчик не становится
+ * точкой конкуренции потоков, а увеличение не выделяет память.
+ */
+public class Counter {
+    private final LongAdder count = new LongAdder();
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает текущее значение счетчика.
+     * <p>Увеличения, выполняемые параллельно с вызовом, могут быть не учтены.
+     *
+     * @return значение счетчика
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Увеличивает счетчик на единицу.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Увеличивает счетчик на указанное значение.
+     *
+     * @param value значение
+     */
+    public void add(long value) {
+        count.add(value);
+    }
+
+    /**
+     * Обнуляет счетчик.
+     * <p>Увеличения, выполняемые параллельно с очисткой, могут быть учтены частично.
+     */
+    public void reset() {
+        count.reset();
+    }
+}
@@ -0,0 +1,16 @@
+package ru.dgritsenko.bam.metrics;
+
+/**
+ * Функциональный интерфейс показателя, значение которого вычисляется при чтении
+ * (например, количество счетов или размер очереди).
+ */
+@FunctionalInterface
+public interface Gauge {
+    /**
+     * Возвращает текущее значение показателя.
+     * <p>Вызывается при чтении метрик, а не на пути выполнения операций.
+     *
+     * @return значение показателя
+     */
+    long getValue();
+}
@@ -0,0 +1,201 @@
+package ru.dgritsenko.bam.metrics;
+
+import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасная гистограмма длительностей (в наносекундах) для расчета перцентилей.
+ * <p>
+ * Значения распределяются по логарифмически-линейным интервалам: каждый диапазон от {@code 2^k} до
+ * {@code 2^(k+1)} делится на {@value #SUB_BUCKET_HALF_COUNT} равных интервалов, а значения меньше
+ * {@code 2 * }{@value #SUB_BUCKET_HALF_COUNT} хранятся точно. Поэтому относительная погрешность перцентиля
+ * не превышает 1/{@value #SUB_BUCKET_HALF_COUNT} при фиксированном объеме памяти (около 30 КБ) для любых
+ * значений {@code long}, а запись значения - одна атомарная операция без выделения памяти.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS_COUNT = (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT
+            + 2 * SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // OVERRIDDEN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает краткую сводку гистограммы в микросекундах.
+     *
+     * @return строковое представление гистограммы
+     */
+    @Override
+    public String toString() {
+        return MessageFormat.format("count={0}, p50={1} мкс, p99={2} мкс, p999={3} мкс, max={4} мкс",
+                Long.toString(getCount()),
+                toMicros(getValueAtPercentile(50)),
+                toMicros(getValueAtPercentile(99)),
+                toMicros(getValueAtPercentile(99.9)),
+                toMicros(getMax())
+        );
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Возвращает среднее значение.
+     *
+     * @return среднее значение или {@code 0}, если значений нет
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalValue.get() / count;
+    }
+
+    /**
+     * Возвращает значение, не меньше которого {@code percentile} процентов записанных значений
+     * (верхнюю границу интервала, в который попадает перцентиль).
+     *
+     * @param percentile перцентиль от {@code 0} до {@code 100}
+     *
+     * @return значение перцентиля или {@code 0}, если значений нет
+     *
+     * @throws IllegalArgumentException если {@code percentile} вне диапазона от {@code 0} до {@code 100}
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            String errMsg = MessageFormat.format(
+                    "Некорректный перцентиль \"{0}\": значение должно быть от 0 до 100", percentile);
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        long count = totalCount.get();
+
+        if (count == 0) {
+            return 0;
+        }
+
+        long targetCount = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long accumulatedCount = 0;
+
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            accumulatedCount += counts.get(i);
+
+            if (accumulatedCount >= targetCount) {
+                return Math.min(getHighestValue(i), maxValue.get());
+            }
+        }
+
+        return maxValue.get();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Записывает значение.
+     *
+     * @param value значение (отрицательные значения записываются как {@code 0})
+     */
+    public void record(long value) {
+        long recordedValue = Math.max(value, 0);
+
+        counts.incrementAndGet(getBucketIndex(recordedValue));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(recordedValue);
+
+        // Максимум изменяется редко, поэтому атомарное обновление выполняется только для нового максимума
+        if (recordedValue > maxValue.get()) {
+            maxValue.accumulateAndGet(recordedValue, Math::max);
+        }
+    }
+
+    /**
+     * Добавляет к гистограмме значения другой гистограммы.
+     *
+     * @param histogram гистограмма
+     */
+    public void add(LatencyHistogram histogram) {
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            long count = histogram.counts.get(i);
+
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+
+        totalCount.addAndGet(histogram.totalCount.get());
+        totalValue.addAndGet(histogram.totalValue.get());
+        maxValue.accumulateAndGet(histogram.maxValue.get(), Math::max);
+    }
+
+    /**
+     * Удаляет все записанные значения.
+     * <p>Значения, записываемые параллельно с очисткой, могут быть учтены частично.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            counts.set(i, 0);
+        }
+
+        totalCount.set(0);
+        totalValue.set(0);
+        maxValue.set(0);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает индекс интервала значения.
+     *
+     * @param value неотрицательное значение
+     *
+     * @return индекс интервала
+     */
+    private static int getBucketIndex(long value) {
+        int shift = Math.max(0, (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS);
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * Возвращает наибольшее значение интервала.
+     *
+     * @param index индекс интервала
+     *
+     * @return наибольшее значение
+     */
+    private static long getHighestValue(int index) {
+        int shift = Math.max(0, index / SUB_BUCKET_HALF_COUNT - 1);
+        long subBucket = index - (long) shift * SUB_BUCKET_HALF_COUNT;
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Переводит наносекунды в микросекунды с одним знаком после запятой.
+     *
+     * @param nanos значение в наносекундах
+     *
+     * @return значение в микросекундах
+     */
+    private static String toMicros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+}
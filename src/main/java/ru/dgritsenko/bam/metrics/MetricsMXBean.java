@@ -0,0 +1,43 @@
+package ru.dgritsenko.bam.metrics;
+
+import java.util.Map;
+
+/**
+ * Интерфейс управления метриками приложения через JMX.
+ * <p>Регистрируется {@link MetricsRegistry#registerMBean()} под именем {@value MetricsRegistry#OBJECT_NAME}.
+ */
+public interface MetricsMXBean {
+    /**
+     * Возвращает значения счетчиков.
+     *
+     * @return значения счетчиков по названиям
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Возвращает значения показателей.
+     *
+     * @return значения показателей по названиям
+     */
+    Map<String, Long> getGauges();
+
+    /**
+     * Возвращает количество значений, перцентили и максимум гистограмм задержек в наносекундах.
+     *
+     * @return значения по названиям вида {@code <гистограмма>.count}, {@code <гистограмма>.p50},
+     *         {@code <гистограмма>.p99}, {@code <гистограмма>.p999} и {@code <гистограмма>.max}
+     */
+    Map<String, Long> getLatencies();
+
+    /**
+     * Возвращает текстовый отчет по всем метрикам.
+     *
+     * @return отчет
+     */
+    String dump();
+
+    /**
+     * Обнуляет счетчики и гистограммы задержек.
+     */
+    void reset();
+}
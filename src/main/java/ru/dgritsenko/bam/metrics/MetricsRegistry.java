@@ -0,0 +1,236 @@
+package ru.dgritsenko.bam.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Реестр метрик приложения: счетчиков, показателей и гистограмм задержек.
+ * <p>
+ * Метрики создаются по названию один раз, а инструментируемый код сохраняет их в полях, поэтому запись
+ * события не обращается к реестру и не выделяет память: увеличение счетчика - одна операция
+ * {@link java.util.concurrent.atomic.LongAdder}, запись задержки - несколько атомарных операций
+ * {@link LatencyHistogram}. Показатели вычисляются только при чтении метрик.
+ * <p>
+ * Метрики доступны через JMX ({@link #registerMBean()}) и в виде периодического текстового отчета
+ * ({@link #startPeriodicDump(Duration, Consumer)}). Инструментирование отключается системным свойством
+ * {@code bam.metrics=false} (см. {@link #ENABLED}).
+ */
+public class MetricsRegistry implements MetricsMXBean {
+    /**
+     * Признак записи метрик инструментируемым кодом (системное свойство {@code bam.metrics}, по умолчанию
+     * {@code true}). Значение постоянно, поэтому при отключенных метриках проверки исключаются JIT-компилятором.
+     */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("bam.metrics", "true"));
+
+    /**
+     * Имя MBean реестра метрик.
+     */
+    public static final String OBJECT_NAME = "ru.dgritsenko.bam:type=Metrics";
+
+    private static final MetricsRegistry DEFAULT_REGISTRY = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    // Поток периодического вывода отчета (создается при первом запуске вывода)
+    private ScheduledExecutorService dumpExecutor;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает реестр метрик приложения.
+     *
+     * @return реестр метрик
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT_REGISTRY;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.getCount()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getValue()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getLatencies() {
+        Map<String, Long> values = new TreeMap<>();
+
+        histograms.forEach((name, histogram) -> {
+            values.put(name + ".count", histogram.getCount());
+            values.put(name + ".p50", histogram.getValueAtPercentile(50));
+            values.put(name + ".p99", histogram.getValueAtPercentile(99));
+            values.put(name + ".p999", histogram.getValueAtPercentile(99.9));
+            values.put(name + ".max", histogram.getMax());
+        });
+
+        return values;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает счетчик с указанным названием, создавая его при первом обращении.
+     *
+     * @param name название счетчика
+     *
+     * @return счетчик
+     *
+     * @throws NullPointerException если {@code name} равен {@code null}
+     */
+    public Counter counter(String name) {
+        Objects.requireNonNull(name, "Название метрики не должно быть null");
+        return counters.computeIfAbsent(name, _ -> new Counter());
+    }
+
+    /**
+     * Возвращает гистограмму задержек с указанным названием, создавая ее при первом обращении.
+     *
+     * @param name название гистограммы
+     *
+     * @return гистограмма задержек
+     *
+     * @throws NullPointerException если {@code name} равен {@code null}
+     */
+    public LatencyHistogram histogram(String name) {
+        Objects.requireNonNull(name, "Название метрики не должно быть null");
+        return histograms.computeIfAbsent(name, _ -> new LatencyHistogram());
+    }
+
+    /**
+     * Регистрирует показатель с указанным названием.
+     * <p>Ранее зарегистрированный показатель с тем же названием заменяется.
+     *
+     * @param name название показателя
+     * @param gauge показатель
+     *
+     * @throws NullPointerException если любой из параметров равен {@code null}
+     */
+    public void gauge(String name, Gauge gauge) {
+        Objects.requireNonNull(name, "Название метрики не должно быть null");
+        Objects.requireNonNull(gauge, "Показатель не должен быть null");
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Удаляет показатель с указанным названием, если зарегистрирован именно этот показатель.
+     * <p>Показатель, заменивший переданный, не удаляется.
+     *
+     * @param name название показателя
+     * @param gauge ранее зарегистрированный показатель
+     *
+     * @throws NullPointerException если любой из параметров равен {@code null}
+     */
+    public void removeGauge(String name, Gauge gauge) {
+        Objects.requireNonNull(name, "Название метрики не должно быть null");
+        Objects.requireNonNull(gauge, "Показатель не должен быть null");
+        gauges.remove(name, gauge);
+    }
+
+    /**
+     * Возвращает текстовый отчет по всем метрикам: по строке на метрику в порядке названий,
+     * задержки - в микросекундах.
+     *
+     * @return отчет
+     */
+    @Override
+    public String dump() {
+        StringBuilder report = new StringBuilder();
+        report.append(MessageFormat.format("Метрики на {0}{1}", Instant.now(), System.lineSeparator()));
+
+        getCounters().forEach((name, value) -> report.append(String.format("counter %s = %d%n", name, value)));
+        getGauges().forEach((name, value) -> report.append(String.format("gauge   %s = %d%n", name, value)));
+        new TreeMap<>(histograms).forEach((name, histogram) ->
+                report.append(String.format("latency %s: %s%n", name, histogram)));
+
+        return report.toString();
+    }
+
+    /**
+     * Обнуляет счетчики и гистограммы задержек. Показатели не изменяются.
+     */
+    @Override
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Регистрирует реестр в платформенном MBean-сервере под именем {@value #OBJECT_NAME}.
+     * <p>Повторная регистрация не выполняется.
+     *
+     * @throws IllegalStateException если не удалось зарегистрировать MBean
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException _) {
+            // Реестр уже зарегистрирован
+        } catch (JMException exception) {
+            throw new IllegalStateException("Не удалось зарегистрировать MBean метрик", exception);
+        }
+    }
+
+    /**
+     * Запускает периодический вывод отчета по метрикам в фоновом потоке.
+     * <p>Если вывод отчета завершился исключением, периодический вывод прекращается.
+     *
+     * @param interval интервал вывода
+     * @param output получатель отчета
+     *
+     * @return задача периодического вывода (для остановки вывода)
+     *
+     * @throws NullPointerException если любой из параметров равен {@code null}
+     * @throws IllegalArgumentException если {@code interval} не положителен
+     */
+    public synchronized ScheduledFuture<?> startPeriodicDump(Duration interval, Consumer<String> output) {
+        Objects.requireNonNull(interval, "Интервал не должен быть null");
+        Objects.requireNonNull(output, "Получатель отчета не должен быть null");
+
+        if (interval.isNegative() || interval.isZero()) {
+            String errMsg = MessageFormat.format(
+                    "Некорректный интервал вывода метрик \"{0}\": интервал должен быть положительным", interval);
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        if (dumpExecutor == null) {
+            dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "bam-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        long intervalNanos = interval.toNanos();
+        return dumpExecutor.scheduleAtFixedRate(
+                () -> output.accept(dump()), intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -1,6 +1,7 @@
 package ru.dgritsenko.bam.printer;
 
 import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
 import ru.dgritsenko.bam.bank.Transaction;
 
 import java.text.MessageFormat;
@@ -10,6 +11,7 @@ import java.util.List;
  * Класс-обработчик вывода данных класса {@link Account} в консоль.
  */
 public class AccountConsolePrinter {
+    private static final int TRANSACTIONS_PAGE_SIZE = 1000;
 
     /**
      * Выводит информацию о текущем балансе счета.
@@ -17,45 +19,48 @@ public class AccountConsolePrinter {
      * @param account счет-источник данных
      */
     public static void printBalance(Account account) {
-        double balance = account.getBalance();
+        Money balance = account.getBalance();
         String msg = MessageFormat.format("Счет: {0}, баланс: {1}", account, balance);
         System.out.println(msg);
     }
 
     /**
      * Выводит список всех транзакций по счету.
+     * <p>Транзакции читаются и выводятся страницами по {@value #TRANSACTIONS_PAGE_SIZE},
+     * поэтому вывод не загружает историю счета в память целиком.
      *
      * @param account счет-источник данных
      */
     public static void printTransactions(Account account) {
-        String msg;
-        List<Transaction> transactions = account.getTransactions();
+        int transactionCount = account.getTransactionCount();
 
-        if (transactions.isEmpty()) {
-            msg = MessageFormat.format("Счет: {0}, список транзакций пуст...", account);
-        } else {
-            StringBuilder transactionsView = new StringBuilder();
+        if (transactionCount == 0) {
+            String msg = MessageFormat.format("Счет: {0}, список транзакций пуст...", account);
+            System.out.println(msg);
+            return;
+        }
 
-            String title = MessageFormat.format("Счет: {0}, транзакции:\n", account);
-            transactionsView.append(title);
+        String title = MessageFormat.format("Счет: {0}, транзакции:", account);
+        System.out.println(title);
+
+        for (int pageStart = 0; pageStart < transactionCount; pageStart += TRANSACTIONS_PAGE_SIZE) {
+            int pageEnd = Math.min(pageStart + TRANSACTIONS_PAGE_SIZE, transactionCount);
+            List<Transaction> transactions = account.getTransactions(pageStart, pageEnd);
+            StringBuilder transactionsView = new StringBuilder();
 
-            int i = 1;
+            int i = pageStart + 1;
 
             for (Transaction transaction : transactions) {
                 String transactionView = transactionView(transaction);
-
-                String transactionInfoTemplate = (i == 1)
-                        ? "\t{0} - {1}, операция: {2}, сумма {3}"
-                        : "\n\t{0} - {1}, операция: {2}, сумма {3}";
-                String transactionInfo = MessageFormat.format(transactionInfoTemplate,
+                String transactionInfo = MessageFormat.format("\t{0} - {1}, операция: {2}, сумма {3}\n",
                         i, transaction, transactionView, transaction.getAmount()
                 );
                 transactionsView.append(transactionInfo);
                 i++;
             }
-            msg = transactionsView.toString();
+
+            System.out.print(transactionsView);
         }
-        System.out.println(msg);
     }
 
     // -----------------------------------------------------------------------------------------------------------------
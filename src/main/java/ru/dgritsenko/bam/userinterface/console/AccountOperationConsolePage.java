@@ -1,6 +1,7 @@
 package ru.dgritsenko.bam.userinterface.console;
 
 import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
 import ru.dgritsenko.bam.bank.TransactionStatus;
 import ru.dgritsenko.bam.bank.TransactionType;
 import ru.dgritsenko.bam.bank.BankService;
@@ -98,8 +99,8 @@ public class AccountOperationConsolePage extends ConsolePage {
     }
 
     private void processOperation(TransactionType transactionType, Account toAccount) {
-        double amount = getAmount("Введите сумму операции", true);
-        if (amount > 0) {
+        Money amount = getAmount("Введите сумму операции", true);
+        if (amount.isPositive()) {
             Account currentFromAccount = super.consoleUserInterface.getCurrentFromAccount();
             TransactionStatus result;
 
@@ -1,5 +1,8 @@
 package ru.dgritsenko.bam.userinterface.console;
 
+import ru.dgritsenko.bam.bank.Money;
+
+import java.math.BigDecimal;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -123,8 +126,8 @@ public abstract class ConsolePage {
      *
      * @return введенная сумма
      */
-    protected double getAmount(String actionTitle, boolean isCancellationAvail) {
-        double amount = -1;
+    protected Money getAmount(String actionTitle, boolean isCancellationAvail) {
+        Money amount;
 
         String cancellationOption = isCancellationAvail ? "0" : null;
         String actionMsg = getFormattedActionTitle(actionTitle, cancellationOption);
@@ -132,16 +135,20 @@ public abstract class ConsolePage {
 
         while (true) {
             System.out.print(actionMsg);
+            amount = null;
 
-            boolean hasNextDouble = scanner.hasNextDouble();
-            if (hasNextDouble) {
-                amount = scanner.nextDouble();
+            boolean hasNextBigDecimal = scanner.hasNextBigDecimal();
+            if (hasNextBigDecimal) {
+                amount = getMoneyOrNull(scanner.nextBigDecimal());
             }
 
-            if (!isCancellationAvail || amount < 0) {
+            boolean isAmountCorrect = amount != null
+                    && (isCancellationAvail ? !amount.isNegative() : amount.isPositive());
+
+            if (!isAmountCorrect) {
                 System.out.println("\n! Ошибка: введите корректную сумму");
 
-                if (!hasNextDouble) {
+                if (!hasNextBigDecimal) {
                     scanner.next();
                 }
             } else {
@@ -249,4 +256,23 @@ public abstract class ConsolePage {
 
         return MessageFormat.format("\n> {0}{1}: ", actionTitle, cancellationHint);
     }
+
+    /**
+     * Преобразует введенное значение в денежную сумму.
+     *
+     * @param value введенное значение
+     *
+     * @return денежная сумма или {@code null}, если значение имеет больше знаков после запятой, чем допустимо
+     */
+    private static Money getMoneyOrNull(BigDecimal value) {
+        Money money;
+
+        try {
+            money = Money.of(value);
+        } catch (ArithmeticException _) {
+            money = null;
+        }
+
+        return money;
+    }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import ru.dgritsenko.bam.bank.BankService;
 import ru.dgritsenko.bam.userinterface.UserInterface;
 
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.text.MessageFormat;
 import java.util.Scanner;
 
@@ -16,6 +17,9 @@ public class ConsoleUserInterface implements UserInterface {
     private BankService bankService;
     private Account currentFromAccount;
 
+    // Признак того, что сохраненные данные существуют, но не загружены: их нельзя перезаписывать
+    private boolean isDataLoadFailed;
+
     private ConsolePage mainConsolePage;
     private ConsolePage accountConsolePage;
     private ConsolePage accountCreatingConsolePage;
@@ -56,7 +60,7 @@ public class ConsoleUserInterface implements UserInterface {
     /**
      * Запускает главный цикл обработки пользовательского ввода.
      * Перед запуском загружает ранее сохраненные данные,
-     * перед завершением сохраняет измененные данные.
+     * перед завершением сохраняет измененные данные (если сохраненные данные были загружены или отсутствовали).
      */
     @Override
     public void run() {
@@ -158,14 +162,37 @@ public class ConsoleUserInterface implements UserInterface {
 
     /**
      * Загружает данные для работы.
+     * <p>По умолчанию история транзакций счетов загружается при обращении к ней. Если подготовка счетов
+     * включена системным свойством {@code bam.warmup=true}, до показа главного меню загружается вся история
+     * транзакций, а ход подготовки выводится в консоль.
+     * <p>Если файла данных нет, работа начинается без начальных данных. Если данные не удалось загрузить
+     * по другой причине, работа также продолжается без них, но при завершении данные не сохраняются,
+     * чтобы не перезаписать существующий файл.
      */
     private void loadData() {
         clearText();
 
         try {
-            bankService.loadAccounts();
+            if (Boolean.getBoolean("bam.warmup")) {
+                bankService.loadAccounts(this::printLoadProgress);
+                System.out.println();
+            } else {
+                bankService.loadAccounts();
+            }
+        } catch (NoSuchFileException exception) {
+            String errMsg = MessageFormat.format("Сохраненные данные не найдены: {0}" +
+                            "\n> Нажмите Enter чтобы начать работу без начальных данных...",
+                    exception.getMessage()
+            );
+
+            System.out.println(errMsg);
+            Scanner scanner = new Scanner(System.in);
+            scanner.nextLine();
         } catch (Exception exception) {
+            isDataLoadFailed = true;
+
             String errMsg = MessageFormat.format("Не удалось загрузить сохраненные данные: {0}" +
+                            "\n> Сохраненные данные не будут перезаписаны: изменения при завершении не сохраняются." +
                             "\n> Нажмите Enter чтобы продолжить работу без начальных данных...",
                     exception.getMessage()
             );
@@ -176,12 +203,36 @@ public class ConsoleUserInterface implements UserInterface {
         }
     }
 
+    /**
+     * Выводит в консоль ход подготовки загруженных счетов, перезаписывая текущую строку.
+     *
+     * @param preparedAccounts количество подготовленных счетов
+     * @param totalAccounts общее количество загруженных счетов
+     */
+    private void printLoadProgress(int preparedAccounts, int totalAccounts) {
+        int percent = totalAccounts == 0 ? 100 : (int) (100L * preparedAccounts / totalAccounts);
+        String message = MessageFormat.format("\rЗагрузка данных: {0}% ({1} из {2} счетов)",
+                percent, preparedAccounts, totalAccounts);
+
+        System.out.print(message);
+        System.out.flush();
+    }
+
     /**
      * Сохраняет данные по результату работы.
+     * <p>Если сохраненные данные не удалось загрузить, данные не сохраняются, чтобы не перезаписать файл.
      */
     private void saveData() {
         clearText();
 
+        if (isDataLoadFailed) {
+            System.out.println("Данные не сохранены: сохраненные данные не были загружены и не перезаписываются" +
+                    "\n> Нажмите Enter чтобы завершить работу...");
+            Scanner scanner = new Scanner(System.in);
+            scanner.nextLine();
+            return;
+        }
+
         try {
             bankService.saveAccounts();
         } catch (IOException exception) {
@@ -39,7 +39,7 @@ public class TransactionConsolePage extends ConsolePage {
         boolean transactionsExist = false;
 
         for (Account account : bankService.getAccounts()) {
-            if (!account.getTransactions().isEmpty()) {
+            if (account.getTransactionCount() > 0) {
                 transactionsExist = true;
                 AccountConsolePrinter.printTransactions(account);
                 System.out.println();
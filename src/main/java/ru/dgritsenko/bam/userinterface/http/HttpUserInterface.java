@@ -0,0 +1,693 @@
+package ru.dgritsenko.bam.userinterface.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.BankService;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.bank.TransactionType;
+import ru.dgritsenko.bam.userinterface.UserInterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Класс пользовательского интерфейса банковского приложения в виде HTTP-сервера с JSON API.
+ * <p>
+ * Сервер построен на {@link HttpServer} из состава JDK, каждый запрос обрабатывается в отдельном виртуальном
+ * потоке, поэтому ожидание блокировок счетов и хранилища данных не занимает потоки платформы, а количество
+ * одновременно обслуживаемых соединений ограничено только ресурсами ОС. Несколько операторов могут работать
+ * с приложением одновременно.
+ * <p>
+ * API (тела запросов и ответов - JSON-объекты, суммы - десятичные числа с двумя знаками после запятой):
+ * <ul>
+ *     <li>{@code POST /accounts} {@code {"holderName": "Ivanov I"}} - создание счета;</li>
+ *     <li>{@code GET /accounts/<номер>} - счет: номер, владелец, баланс, количество транзакций;</li>
+ *     <li>{@code POST /accounts/<номер>/deposit} {@code {"amount": 100.00}} - пополнение;</li>
+ *     <li>{@code POST /accounts/<номер>/withdraw} {@code {"amount": 100.00}} - снятие наличных;</li>
+ *     <li>{@code POST /accounts/<номер>/transfer} {@code {"amount": 100.00, "toAccountNumber": <номер>}} -
+ *     перевод;</li>
+ *     <li>{@code GET /accounts/<номер>/transactions?offset=0&limit=50} - страница выписки
+ *     (транзакции в порядке проведения и общее количество транзакций).</li>
+ * </ul>
+ * Операции возвращают статус транзакции ({@code COMMITTED} или {@code CANCELED} при недостатке средств).
+ * Ошибки возвращаются с кодами 400 (некорректный запрос), 404 (счет не найден), 405 (метод не поддерживается)
+ * и 500 (ошибка хранилища данных) в виде {@code {"error": "<сообщение>"}}.
+ * <p>
+ * Адрес сервера задается системными свойствами {@code bam.http.host} (по умолчанию {@code 127.0.0.1})
+ * и {@code bam.http.port} (8080), очередь входящих соединений - {@code bam.http.backlog} (16384).
+ * <p>
+ * Если не заданы явно, свойства сервера JDK устанавливаются при запуске: {@code sun.net.httpserver.nodelay=true}
+ * (без него небольшие ответы задерживаются алгоритмом Нейгла до 40 мс на каждый запрос соединения) и
+ * {@code sun.net.httpserver.maxIdleConnections} по длине очереди соединений (по умолчанию JDK сохраняет
+ * между запросами только 200 соединений).
+ */
+public class HttpUserInterface implements UserInterface {
+    private static final String DEFAULT_HOST = "127.0.0.1";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_BACKLOG = 16384;
+    private static final int MAX_REQUEST_BYTES = 64 * 1024;
+    private static final int DEFAULT_STATEMENT_LIMIT = 50;
+    private static final int MAX_STATEMENT_LIMIT = 1000;
+    private static final int STOP_DELAY_SECONDS = 1;
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final String MAX_IDLE_CONNECTIONS_PROPERTY = "sun.net.httpserver.maxIdleConnections";
+
+    private final InetSocketAddress address;
+    private final int backlog;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private BankService bankService;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает HTTP-интерфейс с адресом и очередью соединений из системных свойств
+     * {@code bam.http.host}, {@code bam.http.port} и {@code bam.http.backlog}.
+     */
+    public HttpUserInterface() {
+        this(new InetSocketAddress(System.getProperty("bam.http.host", DEFAULT_HOST),
+                        Integer.getInteger("bam.http.port", DEFAULT_PORT)),
+                Integer.getInteger("bam.http.backlog", DEFAULT_BACKLOG));
+    }
+
+    /**
+     * Создает HTTP-интерфейс с указанным адресом.
+     *
+     * @param address адрес сервера (порт {@code 0} - любой свободный порт)
+     * @param backlog максимальная длина очереди входящих соединений
+     *
+     * @throws NullPointerException если {@code address} равен {@code null}
+     * @throws IllegalArgumentException если {@code backlog} не положителен
+     */
+    public HttpUserInterface(InetSocketAddress address, int backlog) {
+        this.address = Objects.requireNonNull(address, "Адрес не должен быть null");
+
+        if (backlog <= 0) {
+            String errMsg = MessageFormat.format(
+                    "Некорректная длина очереди соединений \"{0}\": значение должно быть больше 0", backlog);
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        this.backlog = backlog;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // SETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void setBankService(BankService bankService) {
+        this.bankService = bankService;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // GETTERS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает адрес запущенного сервера.
+     *
+     * @return адрес сервера
+     *
+     * @throws IllegalStateException если сервер не запущен
+     */
+    public synchronized InetSocketAddress getAddress() {
+        if (server == null) {
+            throw new IllegalStateException("Сервер не запущен");
+        }
+
+        return server.getAddress();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Загружает ранее сохраненные данные, запускает сервер и обслуживает запросы до остановки
+     * ({@link #stop()} или завершения JVM, например, по Ctrl+C), после чего сохраняет данные.
+     *
+     * @throws IllegalStateException если не удалось загрузить сохраненные данные
+     * @throws UncheckedIOException если не удалось запустить сервер
+     */
+    @Override
+    public void run() {
+        loadData();
+
+        Thread shutdownHook = new Thread(() -> {
+            stop();
+            awaitUninterruptibly(terminated);
+        }, "bam-http-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        try {
+            start();
+            System.out.println(MessageFormat.format(
+                    "HTTP-сервер запущен: http://{0}:{1}/accounts (Ctrl+C - остановить)",
+                    getAddress().getHostString(), String.valueOf(getAddress().getPort())));
+
+            awaitUninterruptibly(stopped);
+            saveData();
+        } finally {
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Запускает сервер без загрузки данных.
+     *
+     * @throws IllegalStateException если сервис банковского приложения не установлен или сервер уже запущен
+     * @throws UncheckedIOException если не удалось открыть порт сервера
+     */
+    public synchronized void start() {
+        if (bankService == null) {
+            throw new IllegalStateException("Сервис банковского приложения не установлен");
+        } else if (server != null) {
+            throw new IllegalStateException("Сервер уже запущен");
+        }
+
+        // Свойства читаются сервером JDK однократно, поэтому устанавливаются до создания первого сервера
+        setDefaultProperty(NODELAY_PROPERTY, "true");
+        setDefaultProperty(MAX_IDLE_CONNECTIONS_PROPERTY, String.valueOf(backlog));
+
+        try {
+            server = HttpServer.create(address, backlog);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/accounts", this::handle);
+        server.start();
+    }
+
+    /**
+     * Останавливает сервер: прекращает прием соединений и ожидает завершения обрабатываемых запросов
+     * не более секунды. Повторный вызов не выполняет действий.
+     */
+    public synchronized void stop() {
+        if (server != null && stopped.getCount() > 0) {
+            server.stop(STOP_DELAY_SECONDS);
+            executor.close();
+        }
+
+        stopped.countDown();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. REQUEST HANDLING
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Обрабатывает запрос к {@code /accounts} и отправляет ответ.
+     *
+     * @param exchange запрос и ответ
+     *
+     * @throws IOException если не удалось отправить ответ
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int statusCode;
+            String body;
+
+            try {
+                body = route(exchange);
+                statusCode = isAccountCreation(exchange) ? 201 : 200;
+            } catch (RequestException exception) {
+                statusCode = exception.getStatusCode();
+                body = getErrorJson(exception.getMessage());
+            } catch (IllegalArgumentException | ArithmeticException | IndexOutOfBoundsException exception) {
+                statusCode = 400;
+                body = getErrorJson(exception.getMessage());
+            } catch (UncheckedIOException exception) {
+                statusCode = 500;
+                body = getErrorJson(exception.getCause().getMessage());
+            } catch (RuntimeException exception) {
+                statusCode = 500;
+                body = getErrorJson(exception.toString());
+            }
+
+            sendJson(exchange, statusCode, body);
+        }
+    }
+
+    /**
+     * Выбирает действие по методу и пути запроса и выполняет его.
+     *
+     * @param exchange запрос
+     *
+     * @return тело ответа
+     *
+     * @throws IOException если не удалось прочитать тело запроса
+     */
+    private String route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String[] segments = path.substring("/accounts".length()).split("/");
+
+        // Путь /accounts или /accounts/ - первый сегмент пуст
+        if (segments.length <= 1) {
+            if (!segments[0].isEmpty()) {
+                throw new RequestException(404, MessageFormat.format("Ресурс \"{0}\" не найден", path));
+            }
+
+            requireMethod(method, "POST");
+            return createAccount(readBody(exchange));
+        }
+
+        if (!segments[0].isEmpty() || segments.length > 3) {
+            throw new RequestException(404, MessageFormat.format("Ресурс \"{0}\" не найден", path));
+        }
+
+        Account account = getAccount(segments[1]);
+
+        if (segments.length == 2) {
+            requireMethod(method, "GET");
+            return getAccountJson(account);
+        }
+
+        return switch (segments[2]) {
+            case "deposit" -> {
+                requireMethod(method, "POST");
+                yield performTransaction(TransactionType.DEPOSIT, account, readBody(exchange));
+            }
+            case "withdraw" -> {
+                requireMethod(method, "POST");
+                yield performTransaction(TransactionType.WITHDRAW, account, readBody(exchange));
+            }
+            case "transfer" -> {
+                requireMethod(method, "POST");
+                yield performTransaction(TransactionType.TRANSFER, account, readBody(exchange));
+            }
+            case "transactions" -> {
+                requireMethod(method, "GET");
+                yield getStatement(account, getQueryParameters(exchange));
+            }
+            default -> throw new RequestException(404, MessageFormat.format("Ресурс \"{0}\" не найден", path));
+        };
+    }
+
+    /**
+     * Создает счет.
+     *
+     * @param request параметры запроса ({@code holderName})
+     *
+     * @return счет в формате JSON
+     */
+    private String createAccount(Map<String, String> request) {
+        Account account = bankService.createAccount(getRequiredValue(request, "holderName"));
+        return getAccountJson(account);
+    }
+
+    /**
+     * Выполняет операцию по счету.
+     *
+     * @param transactionType тип операции
+     * @param account счет отправителя
+     * @param request параметры запроса ({@code amount}, для перевода - {@code toAccountNumber})
+     *
+     * @return статус операции в формате JSON
+     */
+    private String performTransaction(TransactionType transactionType, Account account, Map<String, String> request) {
+        Money amount = Money.parse(getRequiredValue(request, "amount"));
+        TransactionStatus status;
+
+        if (transactionType.hasToAccount()) {
+            Account toAccount = getAccount(getRequiredValue(request, "toAccountNumber"));
+
+            if (toAccount == account) {
+                throw new IllegalArgumentException("Счет получателя должен отличаться от счета отправителя");
+            }
+
+            status = bankService.performTransaction(transactionType, account, amount, toAccount);
+        } else {
+            status = bankService.performTransaction(transactionType, account, amount);
+        }
+
+        return "{\"status\":" + Json.quote(status.name()) + "}";
+    }
+
+    /**
+     * Возвращает страницу выписки по счету.
+     *
+     * @param account счет
+     * @param parameters параметры запроса ({@code offset} и {@code limit})
+     *
+     * @return транзакции страницы и общее количество транзакций в формате JSON
+     */
+    private String getStatement(Account account, Map<String, String> parameters) {
+        int offset = getIntParameter(parameters, "offset", 0);
+        int limit = getIntParameter(parameters, "limit", DEFAULT_STATEMENT_LIMIT);
+
+        if (offset < 0 || limit < 0 || limit > MAX_STATEMENT_LIMIT) {
+            String errMsg = MessageFormat.format(
+                    "Некорректная страница выписки: offset должен быть не меньше 0, limit - от 0 до {0}",
+                    String.valueOf(MAX_STATEMENT_LIMIT));
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        int total = account.getTransactionCount();
+        int fromIndex = Math.min(offset, total);
+        int toIndex = (int) Math.min((long) fromIndex + limit, total);
+        List<Transaction> transactions = account.getTransactions(fromIndex, toIndex);
+
+        StringBuilder json = new StringBuilder(64 + transactions.size() * 192);
+        json.append("{\"accountNumber\":").append(account.getAccountNumber())
+                .append(",\"total\":").append(total)
+                .append(",\"offset\":").append(fromIndex)
+                .append(",\"transactions\":[");
+
+        for (int i = 0; i < transactions.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+
+            appendTransactionJson(json, transactions.get(i));
+        }
+
+        return json.append("]}").toString();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Загружает ранее сохраненные данные (с подготовкой счетов к работе, если задано системное свойство
+     * {@code bam.warmup=true}).
+     * <p>Если файла данных еще нет, сервер работает без начальных данных. Если данные загрузить не удалось,
+     * сервер не запускается: иначе при остановке пустой банк перезаписал бы сохраненные данные.
+     *
+     * @throws IllegalStateException если не удалось загрузить сохраненные данные
+     */
+    private void loadData() {
+        try {
+            if (Boolean.getBoolean("bam.warmup")) {
+                bankService.loadAccounts((_, _) -> {});
+            } else {
+                bankService.loadAccounts();
+            }
+        } catch (NoSuchFileException exception) {
+            System.out.println(MessageFormat.format(
+                    "Файл данных {0} не найден. Работа начинается без начальных данных.", exception.getFile()));
+        } catch (Exception exception) {
+            String errMsg = MessageFormat.format(
+                    "Не удалось загрузить сохраненные данные: {0}. Сервер не запущен.", exception.getMessage());
+            throw new IllegalStateException(errMsg, exception);
+        }
+    }
+
+    /**
+     * Сохраняет данные по результату работы.
+     */
+    private void saveData() {
+        try {
+            bankService.saveAccounts();
+        } catch (IOException exception) {
+            System.out.println(MessageFormat.format("Не удалось сохранить данные: {0}", exception.getMessage()));
+        }
+    }
+
+    /**
+     * Возвращает счет по номеру из запроса.
+     *
+     * @param accountNumber номер счета
+     *
+     * @return счет
+     *
+     * @throws RequestException если номер счета некорректен или счета с таким номером нет
+     */
+    private Account getAccount(String accountNumber) {
+        Account account;
+
+        try {
+            account = bankService.findAccount(Long.parseLong(accountNumber));
+        } catch (NumberFormatException _) {
+            account = null;
+        }
+
+        if (account == null) {
+            throw new RequestException(404, MessageFormat.format("Счет \"{0}\" не найден", accountNumber));
+        }
+
+        return account;
+    }
+
+    /**
+     * Проверяет, является ли запрос созданием счета.
+     *
+     * @param exchange запрос
+     *
+     * @return {@code true}, если запрос - {@code POST /accounts}
+     */
+    private static boolean isAccountCreation(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        return exchange.getRequestMethod().equals("POST") && (path.equals("/accounts") || path.equals("/accounts/"));
+    }
+
+    /**
+     * Проверяет метод запроса.
+     *
+     * @param method метод запроса
+     * @param expectedMethod поддерживаемый метод
+     *
+     * @throws RequestException если метод не поддерживается
+     */
+    private static void requireMethod(String method, String expectedMethod) {
+        if (!method.equals(expectedMethod)) {
+            String errMsg = MessageFormat.format(
+                    "Метод \"{0}\" не поддерживается, ожидается \"{1}\"", method, expectedMethod);
+            throw new RequestException(405, errMsg);
+        }
+    }
+
+    /**
+     * Читает тело запроса как JSON-объект.
+     *
+     * @param exchange запрос
+     *
+     * @return значения полей объекта
+     *
+     * @throws IOException если не удалось прочитать тело запроса
+     * @throws RequestException если тело запроса слишком велико
+     * @throws IllegalArgumentException если тело запроса не является JSON-объектом
+     */
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        InputStream inputStream = exchange.getRequestBody();
+        byte[] body = inputStream.readNBytes(MAX_REQUEST_BYTES + 1);
+
+        if (body.length > MAX_REQUEST_BYTES) {
+            throw new RequestException(413, "Слишком большой запрос");
+        }
+
+        return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Возвращает обязательное значение из параметров запроса.
+     *
+     * @param request параметры запроса
+     * @param name название параметра
+     *
+     * @return значение параметра
+     *
+     * @throws IllegalArgumentException если параметр не указан
+     */
+    private static String getRequiredValue(Map<String, String> request, String name) {
+        String value = request.get(name);
+
+        if (value == null) {
+            throw new IllegalArgumentException(MessageFormat.format("Не указан параметр \"{0}\"", name));
+        }
+
+        return value;
+    }
+
+    /**
+     * Возвращает параметры строки запроса.
+     *
+     * @param exchange запрос
+     *
+     * @return значения параметров по названиям
+     */
+    private static Map<String, String> getQueryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+
+        for (String parameter : query.split("&")) {
+            int separatorIndex = parameter.indexOf('=');
+            String name = separatorIndex < 0 ? parameter : parameter.substring(0, separatorIndex);
+            String value = separatorIndex < 0 ? "" : parameter.substring(separatorIndex + 1);
+
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Возвращает целочисленный параметр строки запроса.
+     *
+     * @param parameters параметры запроса
+     * @param name название параметра
+     * @param defaultValue значение, если параметр не указан
+     *
+     * @return значение параметра
+     *
+     * @throws NumberFormatException если значение параметра не является целым числом
+     */
+    private static int getIntParameter(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * Возвращает счет в формате JSON.
+     *
+     * @param account счет
+     *
+     * @return счет в формате JSON
+     */
+    private static String getAccountJson(Account account) {
+        return "{\"accountNumber\":" + account.getAccountNumber()
+                + ",\"holderName\":" + Json.quote(account.getHolderName())
+                + ",\"balance\":" + account.getBalance()
+                + ",\"transactionCount\":" + account.getTransactionCount()
+                + "}";
+    }
+
+    /**
+     * Добавляет транзакцию в формате JSON.
+     *
+     * @param json формируемый ответ
+     * @param transaction транзакция
+     */
+    private static void appendTransactionJson(StringBuilder json, Transaction transaction) {
+        json.append("{\"uuid\":").append(Json.quote(transaction.getUuid().toString()))
+                .append(",\"date\":").append(Json.quote(transaction.getDate().toString()))
+                .append(",\"type\":").append(Json.quote(transaction.getTransactionType().name()))
+                .append(",\"amount\":").append(transaction.getAmount())
+                .append(",\"fromAccountNumber\":").append(transaction.getFromAccount().getAccountNumber())
+                .append(",\"toAccountNumber\":")
+                .append(transaction.getToAccount() != null ? transaction.getToAccount().getAccountNumber() : "null")
+                .append(",\"status\":").append(Json.quote(transaction.getStatus().name()))
+                .append('}');
+    }
+
+    /**
+     * Возвращает описание ошибки в формате JSON.
+     *
+     * @param message сообщение об ошибке
+     *
+     * @return описание ошибки в формате JSON
+     */
+    private static String getErrorJson(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    /**
+     * Отправляет ответ в формате JSON.
+     *
+     * @param exchange запрос и ответ
+     * @param statusCode код ответа
+     * @param body тело ответа
+     *
+     * @throws IOException если не удалось отправить ответ
+     */
+    private static void sendJson(HttpExchange exchange, int statusCode, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Устанавливает системное свойство, если оно не задано.
+     *
+     * @param name название свойства
+     * @param value значение свойства
+     */
+    private static void setDefaultProperty(String name, String value) {
+        if (System.getProperty(name) == null) {
+            System.setProperty(name, value);
+        }
+    }
+
+    /**
+     * Ожидает открытия защелки, сохраняя признак прерывания потока.
+     *
+     * @param latch защелка
+     */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean isInterrupted = false;
+
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException _) {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // REQUEST EXCEPTION NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс исключения, прерывающего обработку запроса с указанным кодом ответа.
+     */
+    private static final class RequestException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        private RequestException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+
+        private int getStatusCode() {
+            return statusCode;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package ru.dgritsenko.bam.userinterface.http;
+
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Служебный класс для чтения и записи JSON без внешних зависимостей.
+ * <p>Поддерживает только то, что нужно API: чтение плоского объекта со строковыми, числовыми, логическими
+ * значениями и {@code null} и экранирование строк при записи ответов.
+ */
+final class Json {
+
+    private Json() {}
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Читает плоский JSON-объект.
+     * <p>Числа и логические значения возвращаются в исходной записи (например, {@code "10.50"}),
+     * поэтому суммы не теряют точность. Значения {@code null} не включаются в результат.
+     *
+     * @param text текст объекта
+     *
+     * @return значения полей объекта по названиям
+     *
+     * @throws IllegalArgumentException если текст не является плоским JSON-объектом
+     */
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> values = parser.readObject();
+        parser.expectEnd();
+
+        return values;
+    }
+
+    /**
+     * Возвращает строку в виде строкового литерала JSON (в кавычках, с экранированием).
+     *
+     * @param value строка или {@code null}
+     *
+     * @return литерал JSON или {@code null}, если {@code value} равен {@code null}
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+                }
+            }
+        }
+
+        return literal.append('"').toString();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // PARSER NESTED CLASS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Вложенный класс разбора текста JSON-объекта.
+     */
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Читает объект, начинающийся с текущей позиции.
+         *
+         * @return значения полей объекта по названиям
+         */
+        private Map<String, String> readObject() {
+            Map<String, String> values = new HashMap<>();
+            expect('{');
+
+            if (peek() == '}') {
+                position++;
+                return values;
+            }
+
+            while (true) {
+                String name = readString();
+                expect(':');
+                String value = readValue();
+
+                if (value != null) {
+                    values.put(name, value);
+                }
+
+                char c = next();
+
+                if (c == '}') {
+                    return values;
+                } else if (c != ',') {
+                    throw error("ожидается \",\" или \"}\"");
+                }
+            }
+        }
+
+        /**
+         * Читает значение поля: строку, число, логическое значение или {@code null}.
+         *
+         * @return значение или {@code null}
+         */
+        private String readValue() {
+            char c = peek();
+
+            if (c == '"') {
+                return readString();
+            }
+
+            int start = position;
+
+            while (position < text.length() && "{}[],:\" \t\r\n".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+
+            String token = text.substring(start, position);
+
+            if (token.equals("null")) {
+                return null;
+            } else if (token.equals("true") || token.equals("false") || isNumber(token)) {
+                return token;
+            }
+
+            throw error("ожидается строка, число, логическое значение или null");
+        }
+
+        /**
+         * Читает строковый литерал.
+         *
+         * @return строка без кавычек и экранирования
+         */
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("строка не завершена");
+                }
+
+                char c = text.charAt(position++);
+
+                if (c == '"') {
+                    return value.toString();
+                } else if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+
+                if (position >= text.length()) {
+                    throw error("строка не завершена");
+                }
+
+                char escaped = text.charAt(position++);
+
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw error("некорректная escape-последовательность");
+                        }
+
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException _) {
+                            throw error("некорректная escape-последовательность");
+                        }
+
+                        position += 4;
+                    }
+                    default -> throw error("некорректная escape-последовательность");
+                }
+            }
+        }
+
+        /**
+         * Проверяет, что после объекта нет других данных, кроме пробелов.
+         */
+        private void expectEnd() {
+            skipWhitespace();
+
+            if (position != text.length()) {
+                throw error("лишние данные после объекта");
+            }
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error(MessageFormat.format("ожидается \"{0}\"", expected));
+            }
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private char peek() {
+            skipWhitespace();
+
+            if (position >= text.length()) {
+                throw error("неожиданный конец данных");
+            }
+
+            return text.charAt(position);
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private static boolean isNumber(String token) {
+            return token.matches("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?");
+        }
+
+        private IllegalArgumentException error(String reason) {
+            String errMsg = MessageFormat.format("Некорректный JSON (позиция {0}): {1}", String.valueOf(position), reason);
+            return new IllegalArgumentException(errMsg);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package ru.dgritsenko.bam.util;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Хэш-таблица с ключами примитивного типа {@code long} и открытой адресацией (линейное пробирование).
+ * <p>Ключи хранятся в массиве {@code long[]} без упаковки в {@link Long}, поэтому поиск и вставка
+ * не создают объектов. Ключ {@code 0} используется как признак пустой ячейки и хранится отдельно.
+ * <p>Класс не потокобезопасен.
+ *
+ * @param <V> тип значений
+ */
+public class LongHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    // Значение для ключа 0 (0 в массиве keys означает пустую ячейку)
+    private boolean hasZeroKey;
+    private Object zeroKeyValue;
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает пустую таблицу с емкостью по умолчанию.
+     */
+    public LongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Создает пустую таблицу, способную вместить {@code expectedSize} элементов без перестроения.
+     *
+     * @param expectedSize ожидаемое количество элементов
+     *
+     * @throws IllegalArgumentException если {@code expectedSize} меньше {@code 0}
+     */
+    public LongHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            String errMsg = MessageFormat.format(
+                    "Некорректный размер таблицы \"{0}\": размер не должен быть меньше нуля",
+                    expectedSize
+            );
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        allocate(getCapacity(expectedSize));
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. GETTING DATA
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает количество элементов в таблице.
+     *
+     * @return количество элементов
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Проверяет, пуста ли таблица.
+     *
+     * @return {@code true}, если в таблице нет элементов
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     *
+     * @param key ключ
+     *
+     * @return значение или {@code null}, если ключа нет в таблице
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return (V) zeroKeyValue;
+        }
+
+        int index = getIndex(key);
+        long currentKey;
+
+        while ((currentKey = keys[index]) != 0) {
+            if (currentKey == key) {
+                return (V) values[index];
+            }
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Проверяет наличие ключа в таблице.
+     *
+     * @param key ключ
+     *
+     * @return {@code true}, если ключ есть в таблице
+     */
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+
+        int index = getIndex(key);
+        long currentKey;
+
+        while ((currentKey = keys[index]) != 0) {
+            if (currentKey == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return false;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MODIFYING
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Добавляет или заменяет значение по ключу.
+     *
+     * @param key ключ
+     * @param value значение
+     *
+     * @return предыдущее значение или {@code null}, если ключа не было в таблице
+     *
+     * @throws NullPointerException если {@code value} равен {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "Значение не должно быть null");
+
+        if (key == 0) {
+            Object previousValue = zeroKeyValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroKeyValue = value;
+            return (V) previousValue;
+        }
+
+        int index = getIndex(key);
+        long currentKey;
+
+        while ((currentKey = keys[index]) != 0) {
+            if (currentKey == key) {
+                Object previousValue = values[index];
+                values[index] = value;
+                return (V) previousValue;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+
+        if (++size > resizeThreshold) {
+            resize(keys.length << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Добавляет значение по ключу, если ключа еще нет в таблице.
+     *
+     * @param key ключ
+     * @param value значение
+     *
+     * @return текущее значение по ключу или {@code null}, если значение было добавлено
+     *
+     * @throws NullPointerException если {@code value} равен {@code null}
+     */
+    public V putIfAbsent(long key, V value) {
+        V currentValue = get(key);
+
+        if (currentValue == null) {
+            put(key, value);
+        }
+
+        return currentValue;
+    }
+
+    /**
+     * Удаляет значение по ключу.
+     * <p>Последующие элементы цепочки сдвигаются назад, поэтому таблица не содержит "удаленных" ячеек.
+     *
+     * @param key ключ
+     *
+     * @return удаленное значение или {@code null}, если ключа не было в таблице
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            Object previousValue = zeroKeyValue;
+            if (hasZeroKey) {
+                hasZeroKey = false;
+                zeroKeyValue = null;
+                size--;
+            }
+            return (V) previousValue;
+        }
+
+        int index = getIndex(key);
+        long currentKey;
+
+        while ((currentKey = keys[index]) != 0) {
+            if (currentKey == key) {
+                Object previousValue = values[index];
+                shiftKeys(index);
+                size--;
+                return (V) previousValue;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Удаляет все элементы таблицы.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroKeyValue = null;
+        size = 0;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Возвращает начальную ячейку для ключа.
+     *
+     * @param key ключ
+     *
+     * @return индекс ячейки
+     */
+    private int getIndex(long key) {
+        // Перемешивание битов (финализатор MurmurHash3), чтобы близкие ключи не образовывали длинных цепочек
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return (int) hash & mask;
+    }
+
+    /**
+     * Сдвигает элементы цепочки на место удаленного элемента.
+     *
+     * @param freedIndex индекс освобожденной ячейки
+     */
+    private void shiftKeys(int freedIndex) {
+        int last = freedIndex;
+        int index = (freedIndex + 1) & mask;
+        long currentKey;
+
+        while ((currentKey = keys[index]) != 0) {
+            int homeIndex = getIndex(currentKey);
+
+            // Элемент переносится, если его исходная ячейка не лежит между освобожденной и текущей
+            boolean isMovable = last <= index
+                    ? (homeIndex <= last || homeIndex > index)
+                    : (homeIndex <= last && homeIndex > index);
+
+            if (isMovable) {
+                keys[last] = currentKey;
+                values[last] = values[index];
+                last = index;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[last] = 0;
+        values[last] = null;
+    }
+
+    /**
+     * Перестраивает таблицу с новой емкостью.
+     *
+     * @param newCapacity новая емкость (степень двойки)
+     */
+    private void resize(int newCapacity) {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Превышена максимальная емкость таблицы");
+        }
+
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+
+            if (key != 0) {
+                int index = getIndex(key);
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Выделяет массивы ячеек указанной емкости.
+     *
+     * @param capacity емкость (степень двойки)
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Вычисляет емкость таблицы (степень двойки) для ожидаемого количества элементов.
+     *
+     * @param expectedSize ожидаемое количество элементов
+     *
+     * @return емкость таблицы
+     */
+    private static int getCapacity(int expectedSize) {
+        long minCapacity = Math.max(DEFAULT_CAPACITY, (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1);
+
+        if (minCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Превышена максимальная емкость таблицы");
+        }
+
+        return Integer.highestOneBit((int) (minCapacity - 1)) << 1;
+    }
+}
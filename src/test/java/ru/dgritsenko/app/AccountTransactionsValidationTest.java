@@ -0,0 +1,215 @@
+package ru.dgritsenko.app;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.bank.TransactionType;
+
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Тест проверки списка транзакций при создании счета ({@link Account.Builder#build()}) на больших списках.
+ * <p>Проверяется, что список без дублей принимается, а в сообщении об ошибке перечисляются
+ * все повторяющиеся UUID, и выводится время проверки каждого списка.
+ * <p>Параметр: {@code bam.test.transactions} (1 000 000 транзакций в списке).
+ */
+public class AccountTransactionsValidationTest {
+    private static final int TRANSACTIONS_COUNT = Integer.getInteger("bam.test.transactions", 1_000_000);
+
+    private static final Account OWNER = new Account.Builder().setHolderName("Ivanov I").build();
+    private static final LocalDateTime DATE = LocalDateTime.now();
+
+    /**
+     * Точка входа для теста.
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        testWithoutDuplicates();
+        testWithOneDuplicate();
+        testWithSeveralDuplicates();
+
+        System.out.println("Все проверки пройдены");
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. TESTS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Проверяет, что список без дублей принимается целиком.
+     */
+    private static void testWithoutDuplicates() {
+        List<Transaction> transactions = createTransactions(TRANSACTIONS_COUNT);
+
+        long startTime = System.nanoTime();
+        Account account = buildAccount(transactions);
+        printDuration("без дублей", startTime);
+
+        check(account.getTransactions().size() == TRANSACTIONS_COUNT, MessageFormat.format(
+                "Ожидалось {0} транзакций, получено {1}", TRANSACTIONS_COUNT, account.getTransactions().size()));
+        check(account.getBalance().equals(Money.ofMinorUnits(TRANSACTIONS_COUNT)), MessageFormat.format(
+                "Некорректный баланс счета {0}", account.getBalance()));
+    }
+
+    /**
+     * Проверяет, что единственный дубль в конце списка обнаруживается и указывается в сообщении.
+     */
+    private static void testWithOneDuplicate() {
+        List<Transaction> transactions = createTransactions(TRANSACTIONS_COUNT - 1);
+        UUID duplicateUuid = transactions.getFirst().getUuid();
+        transactions.add(createTransaction(duplicateUuid));
+
+        long startTime = System.nanoTime();
+        String errMsg = getValidationError(transactions);
+        printDuration("с одним дублем", startTime);
+
+        check(errMsg.contains(duplicateUuid.toString()), MessageFormat.format(
+                "В сообщении нет дубля {0}: {1}", duplicateUuid, errMsg));
+        check(countUuids(errMsg) == 1, MessageFormat.format(
+                "В сообщении должен быть указан один UUID: {0}", errMsg));
+    }
+
+    /**
+     * Проверяет, что в сообщении перечисляются все повторяющиеся UUID, причем каждый по одному разу,
+     * даже если он повторяется в списке несколько раз.
+     */
+    private static void testWithSeveralDuplicates() {
+        List<Transaction> transactions = createTransactions(TRANSACTIONS_COUNT - 20);
+        List<UUID> duplicateUuids = new ArrayList<>();
+
+        // 10 UUID, разбросанных по списку, каждый повторяется дважды
+        for (int i = 0; i < 10; i++) {
+            UUID uuid = transactions.get(i * (transactions.size() / 10)).getUuid();
+            duplicateUuids.add(uuid);
+            transactions.add(createTransaction(uuid));
+            transactions.add(createTransaction(uuid));
+        }
+
+        long startTime = System.nanoTime();
+        String errMsg = getValidationError(transactions);
+        printDuration("с несколькими дублями", startTime);
+
+        for (UUID uuid : duplicateUuids) {
+            check(errMsg.contains(uuid.toString()), MessageFormat.format(
+                    "В сообщении нет дубля {0}: {1}", uuid, errMsg));
+        }
+
+        check(countUuids(errMsg) == duplicateUuids.size(), MessageFormat.format(
+                "В сообщении должно быть указано {0} UUID: {1}", duplicateUuids.size(), errMsg));
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает список транзакций пополнения на 0.01 со случайными UUID.
+     *
+     * @param count количество транзакций
+     *
+     * @return изменяемый список транзакций
+     */
+    private static List<Transaction> createTransactions(int count) {
+        List<Transaction> transactions = new ArrayList<>(count + 20);
+
+        for (int i = 0; i < count; i++) {
+            transactions.add(createTransaction(UUID.randomUUID()));
+        }
+
+        return transactions;
+    }
+
+    /**
+     * Создает транзакцию пополнения на 0.01 с указанным UUID.
+     *
+     * @param uuid UUID транзакции
+     *
+     * @return транзакция
+     */
+    private static Transaction createTransaction(UUID uuid) {
+        return new Transaction.Builder()
+                .setUUID(uuid)
+                .setDate(DATE)
+                .setFromAccount(OWNER)
+                .setTransactionType(TransactionType.DEPOSIT)
+                .setAmount(Money.ofMinorUnits(1))
+                .setStatus(TransactionStatus.COMMITTED)
+                .build();
+    }
+
+    /**
+     * Создает счет с указанным списком транзакций.
+     *
+     * @param transactions список транзакций
+     *
+     * @return созданный счет
+     */
+    private static Account buildAccount(List<Transaction> transactions) {
+        return new Account.Builder()
+                .setAccountNumber(OWNER.getAccountNumber())
+                .setHolderName(OWNER.getHolderName())
+                .setTransactions(transactions)
+                .build();
+    }
+
+    /**
+     * Создает счет со списком, содержащим дубли, и возвращает сообщение об ошибке проверки.
+     *
+     * @param transactions список транзакций
+     *
+     * @return сообщение об ошибке
+     *
+     * @throws AssertionError если список принят без ошибки
+     */
+    private static String getValidationError(List<Transaction> transactions) {
+        try {
+            buildAccount(transactions);
+        } catch (IllegalArgumentException exception) {
+            return exception.getMessage();
+        }
+
+        throw new AssertionError("Список транзакций с дублями принят без ошибки");
+    }
+
+    /**
+     * Возвращает количество UUID в сообщении.
+     *
+     * @param message сообщение
+     *
+     * @return количество UUID
+     */
+    private static int countUuids(String message) {
+        return message.split("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}", -1).length - 1;
+    }
+
+    /**
+     * Выводит длительность проверки списка.
+     *
+     * @param listDescription описание списка
+     * @param startTime время начала проверки в наносекундах
+     */
+    private static void printDuration(String listDescription, long startTime) {
+        System.out.printf("Список из %d транзакций %s: %.0f мс%n",
+                TRANSACTIONS_COUNT, listDescription, (System.nanoTime() - startTime) / 1e6);
+    }
+
+    /**
+     * Проверяет условие теста.
+     *
+     * @param condition условие
+     * @param errMsg сообщение об ошибке, если условие не выполнено
+     *
+     * @throws AssertionError если условие не выполнено
+     */
+    private static void check(boolean condition, String errMsg) {
+        if (!condition) {
+            throw new AssertionError(errMsg);
+        }
+    }
+}
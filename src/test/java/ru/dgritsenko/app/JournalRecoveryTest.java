@@ -0,0 +1,345 @@
+package ru.dgritsenko.app;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.BankService;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.TransactionType;
+import ru.dgritsenko.bam.datastorage.FsyncPolicy;
+import ru.dgritsenko.bam.datastorage.JournalFileService;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Тест восстановления счетов из журнала предзаписи {@link JournalFileService}.
+ * <p>
+ * Проверяется, что после повторного открытия журнала воспроизводятся все счета и операции, неполная
+ * последняя запись отбрасывается вместе с операцией и сегмент усекается, операции, попавшие одновременно
+ * в снимок и в сегмент журнала, не дублируются, а контрольная точка удаляет учтенные в снимке сегменты.
+ * Состояние счетов (балансы и количество транзакций) сравнивается с состоянием до закрытия журнала.
+ */
+public class JournalRecoveryTest {
+    private static final String HOLDER_NAME = "Ivanov I";
+    private static final String FIRST_SEGMENT_FILE_NAME = "accounts.journal.1";
+    private static final String SECOND_SEGMENT_FILE_NAME = "accounts.journal.2";
+    private static final String SNAPSHOT_FILE_NAME = "accounts.snapshot";
+
+    /**
+     * Точка входа для теста.
+     *
+     * @param args аргументы командной строки
+     *
+     * @throws Exception если журнал не удалось записать или загрузить
+     */
+    public static void main(String[] args) throws Exception {
+        testReplay();
+        testTornTail();
+        testDuplicateReplay();
+        testCheckpointCompaction();
+
+        System.out.println("Все проверки пройдены");
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. TESTS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Проверяет воспроизведение счетов и операций из журнала.
+     *
+     * @throws Exception если журнал не удалось записать или загрузить
+     */
+    private static void testReplay() throws Exception {
+        Path directory = Files.createTempDirectory("bam-journal");
+
+        try {
+            Map<Long, String> expectedState;
+
+            try (JournalFileService journal = createJournal(directory)) {
+                BankService bankService = loadBankService(journal);
+                performOperations(bankService, createAccounts(bankService, 4));
+                expectedState = getState(bankService);
+            }
+
+            checkState(directory, expectedState, "Воспроизведение журнала");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Проверяет, что неполная последняя запись отбрасывается, сегмент усекается до последней корректной
+     * записи, а журнал после усечения доступен для записи.
+     *
+     * @throws Exception если журнал не удалось записать или загрузить
+     */
+    private static void testTornTail() throws Exception {
+        Path directory = Files.createTempDirectory("bam-journal");
+        Path segmentPath = directory.resolve(FIRST_SEGMENT_FILE_NAME);
+
+        try {
+            Map<Long, String> expectedState;
+            long validSize;
+            long accountNumber;
+
+            try (JournalFileService journal = createJournal(directory)) {
+                BankService bankService = loadBankService(journal);
+                List<Account> accounts = createAccounts(bankService, 3);
+                performOperations(bankService, accounts);
+
+                expectedState = getState(bankService);
+                validSize = Files.size(segmentPath);
+
+                // Последняя операция будет оборвана на середине записи
+                accountNumber = accounts.getFirst().getAccountNumber();
+                bankService.performTransaction(TransactionType.DEPOSIT, accounts.getFirst(), Money.of(500));
+            }
+
+            long fullSize = Files.size(segmentPath);
+            check(fullSize > validSize, "Последняя операция не записана в журнал");
+
+            try (FileChannel segmentChannel = FileChannel.open(segmentPath, StandardOpenOption.WRITE)) {
+                segmentChannel.truncate(validSize + (fullSize - validSize) / 2);
+            }
+
+            checkState(directory, expectedState, "Усечение неполной записи");
+            check(Files.size(segmentPath) == validSize, MessageFormat.format(
+                    "Сегмент не усечен до последней корректной записи: {0} байт вместо {1}",
+                    Files.size(segmentPath), validSize));
+
+            // Запись продолжается с конца последней корректной записи
+            try (JournalFileService journal = createJournal(directory)) {
+                BankService bankService = loadBankService(journal);
+                bankService.performTransaction(
+                        TransactionType.DEPOSIT, bankService.findAccount(accountNumber), Money.of(7));
+                expectedState = getState(bankService);
+            }
+
+            checkState(directory, expectedState, "Запись после усечения");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Проверяет, что счета и операции, записанные и в снимок, и в сегмент журнала (как при операциях,
+     * выполненных во время контрольной точки), воспроизводятся однократно по номеру счета и UUID транзакции.
+     *
+     * @throws Exception если журнал не удалось записать или загрузить
+     */
+    private static void testDuplicateReplay() throws Exception {
+        Path directory = Files.createTempDirectory("bam-journal");
+
+        try {
+            Map<Long, String> expectedState;
+            byte[] checkpointedRecords;
+
+            try (JournalFileService journal = createJournal(directory)) {
+                BankService bankService = loadBankService(journal);
+                performOperations(bankService, createAccounts(bankService, 4));
+
+                checkpointedRecords = Files.readAllBytes(directory.resolve(FIRST_SEGMENT_FILE_NAME));
+                journal.checkpoint();
+                expectedState = getState(bankService);
+            }
+
+            // Записи, уже учтенные в снимке, повторяются в сегменте после контрольной точки
+            Files.write(directory.resolve(SECOND_SEGMENT_FILE_NAME), checkpointedRecords, StandardOpenOption.APPEND);
+
+            checkState(directory, expectedState, "Повторное воспроизведение записей");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Проверяет, что контрольная точка записывает снимок и удаляет учтенные в нем сегменты, а счета
+     * восстанавливаются из снимка и сегмента, созданного после него.
+     *
+     * @throws Exception если журнал не удалось записать или загрузить
+     */
+    private static void testCheckpointCompaction() throws Exception {
+        Path directory = Files.createTempDirectory("bam-journal");
+
+        try {
+            Map<Long, String> expectedState;
+
+            try (JournalFileService journal = createJournal(directory)) {
+                BankService bankService = loadBankService(journal);
+                List<Account> accounts = createAccounts(bankService, 4);
+                performOperations(bankService, accounts);
+
+                journal.checkpoint();
+
+                check(Files.exists(directory.resolve(SNAPSHOT_FILE_NAME)), "Снимок не создан");
+                check(!Files.exists(directory.resolve(FIRST_SEGMENT_FILE_NAME)),
+                        "Сегмент, учтенный в снимке, не удален");
+                check(Files.exists(directory.resolve(SECOND_SEGMENT_FILE_NAME)),
+                        "Новый сегмент журнала не создан");
+
+                // Операции после контрольной точки записываются только в новый сегмент
+                accounts.add(bankService.createAccount(HOLDER_NAME));
+                performOperations(bankService, accounts);
+                expectedState = getState(bankService);
+            }
+
+            checkState(directory, expectedState, "Восстановление после контрольной точки");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает журнал со сбросом каждой записи и контрольными точками только по вызову.
+     *
+     * @param directory каталог журнала
+     *
+     * @return журнал
+     */
+    private static JournalFileService createJournal(Path directory) {
+        return new JournalFileService(directory, FsyncPolicy.PER_RECORD, 100, 0);
+    }
+
+    /**
+     * Создает сервис банка и загружает счета из журнала.
+     *
+     * @param journal журнал
+     *
+     * @return сервис банка
+     *
+     * @throws Exception если журнал не удалось загрузить
+     */
+    private static BankService loadBankService(JournalFileService journal) throws Exception {
+        BankService bankService = new BankService(journal);
+        bankService.loadAccounts();
+
+        return bankService;
+    }
+
+    /**
+     * Создает счета.
+     *
+     * @param bankService сервис банка
+     * @param accountsCount количество счетов
+     *
+     * @return созданные счета
+     */
+    private static List<Account> createAccounts(BankService bankService, int accountsCount) {
+        List<Account> accounts = new ArrayList<>(accountsCount);
+
+        for (int i = 0; i < accountsCount; i++) {
+            accounts.add(bankService.createAccount(HOLDER_NAME));
+        }
+
+        return accounts;
+    }
+
+    /**
+     * Выполняет пополнение, переводы по кругу, снятие и снятие сверх баланса (отменяемое) для каждого счета.
+     *
+     * @param bankService сервис банка
+     * @param accounts счета
+     */
+    private static void performOperations(BankService bankService, List<Account> accounts) {
+        for (Account account : accounts) {
+            bankService.performTransaction(TransactionType.DEPOSIT, account, Money.of(1_000));
+        }
+
+        for (int i = 0; i < accounts.size(); i++) {
+            Account toAccount = accounts.get((i + 1) % accounts.size());
+            bankService.performTransaction(
+                    TransactionType.TRANSFER, accounts.get(i), Money.ofMinorUnits(12_345L * (i + 1)), toAccount);
+        }
+
+        for (Account account : accounts) {
+            bankService.performTransaction(TransactionType.WITHDRAW, account, Money.ofMinorUnits(99));
+            bankService.performTransaction(TransactionType.WITHDRAW, account, Money.of(1_000_000));
+        }
+    }
+
+    /**
+     * Возвращает состояние счетов: баланс и количество транзакций по номеру счета.
+     *
+     * @param bankService сервис банка
+     *
+     * @return состояние счетов
+     */
+    private static Map<Long, String> getState(BankService bankService) {
+        Map<Long, String> state = new TreeMap<>();
+
+        for (Account account : bankService.getAccounts()) {
+            check(account.verifyBalance(), MessageFormat.format(
+                    "Баланс счета {0} не совпадает с историей транзакций",
+                    Long.toString(account.getAccountNumber())));
+            state.put(account.getAccountNumber(), account.getBalance() + " / " + account.getTransactionCount());
+        }
+
+        return state;
+    }
+
+    /**
+     * Загружает счета из журнала и сравнивает их состояние с ожидаемым.
+     *
+     * @param directory каталог журнала
+     * @param expectedState ожидаемое состояние счетов
+     * @param checkName название проверки для сообщений
+     *
+     * @throws Exception если журнал не удалось загрузить
+     */
+    private static void checkState(Path directory, Map<Long, String> expectedState, String checkName)
+            throws Exception
+    {
+        Map<Long, String> actualState;
+
+        try (JournalFileService journal = createJournal(directory)) {
+            actualState = getState(loadBankService(journal));
+        }
+
+        check(actualState.equals(expectedState), MessageFormat.format(
+                "{0}: состояние счетов {1} не совпадает с ожидаемым {2}", checkName, actualState, expectedState));
+
+        System.out.println(checkName + ": счетов " + actualState.size() + ", состояние совпадает");
+    }
+
+    /**
+     * Удаляет каталог журнала вместе с файлами.
+     *
+     * @param directory каталог
+     *
+     * @throws IOException если файлы не удалось удалить
+     */
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (var paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Проверяет условие теста.
+     *
+     * @param condition условие
+     * @param errMsg сообщение об ошибке, если условие не выполнено
+     *
+     * @throws AssertionError если условие не выполнено
+     */
+    private static void check(boolean condition, String errMsg) {
+        if (!condition) {
+            throw new AssertionError(errMsg);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package ru.dgritsenko.app;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+import ru.dgritsenko.bam.bank.TransactionType;
+import ru.dgritsenko.bam.datastorage.DataStorage;
+import ru.dgritsenko.bam.datastorage.FileService;
+import ru.dgritsenko.bam.datastorage.MappedFileService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Тест загрузки файла данных прежнего формата (стандартная сериализация Java, суммы транзакций в {@code double}).
+ * <p>Файл записан исходной версией приложения: счет Ivanov I (№100000001) пополнен на 1000.10 и перевел
+ * 250.25 счету Petrov P (№100000002), который снял 0.15, а снятие 5000 было отменено. Проверяется, что
+ * {@link FileService} и {@link MappedFileService} загружают файл с теми же суммами и балансами, а после
+ * сохранения файл перезаписывается в новом формате и загружается повторно.
+ */
+public class LegacyFileLoadTest {
+    private static final long IVANOV_ACCOUNT_NUMBER = 100_000_001L;
+    private static final long PETROV_ACCOUNT_NUMBER = 100_000_002L;
+
+    // Файл данных исходной версии приложения (List<Account>, записанный ObjectOutputStream)
+    private static final String LEGACY_FILE_BASE64 =
+            "rO0ABXNyABNqYXZhLnV0aWwuQXJyYXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAACdwQAAAACc3IAHnJ1LmRncml0c2Vu" +
+            "a28uYmFtLmJhbmsuQWNjb3VudAAAAAAAAAABAgADSgANYWNjb3VudE51bWJlckwACmhvbGRlck5hbWV0ABJMamF2YS9sYW5n" +
+            "L1N0cmluZztMAAx0cmFuc2FjdGlvbnN0ABBMamF2YS91dGlsL0xpc3Q7eHAAAAAABfXhAXQACEl2YW5vdiBJc3EAfgAAAAAA" +
+            "AncEAAAAAnNyACJydS5kZ3JpdHNlbmtvLmJhbS5iYW5rLlRyYW5zYWN0aW9uAAAAAAAAAAECAAdEAAZhbW91bnRMAARkYXRl" +
+            "dAAZTGphdmEvdGltZS9Mb2NhbERhdGVUaW1lO0wAC2Zyb21BY2NvdW50dAAgTHJ1L2Rncml0c2Vua28vYmFtL2JhbmsvQWNj" +
+            "b3VudDtMAAZzdGF0dXN0ACpMcnUvZGdyaXRzZW5rby9iYW0vYmFuay9UcmFuc2FjdGlvblN0YXR1cztMAAl0b0FjY291bnRx" +
+            "AH4ACkwAD3RyYW5zYWN0aW9uVHlwZXQAKExydS9kZ3JpdHNlbmtvL2JhbS9iYW5rL1RyYW5zYWN0aW9uVHlwZTtMAAR1dWlk" +
+            "dAAQTGphdmEvdXRpbC9VVUlEO3hwQI9AzMzMzM1zcgANamF2YS50aW1lLlNlcpVdhLobIkiyDAAAeHB3DgUAAAfqChEDJDEz" +
+            "Pog6eHEAfgAFfnIAKHJ1LmRncml0c2Vua28uYmFtLmJhbmsuVHJhbnNhY3Rpb25TdGF0dXMAAAAAAAAAABIAAHhyAA5qYXZh" +
+            "LmxhbmcuRW51bQAAAAAAAAAAEgAAeHB0AAlDT01NSVRURURwfnIAJnJ1LmRncml0c2Vua28uYmFtLmJhbmsuVHJhbnNhY3Rp" +
+            "b25UeXBlAAAAAAAAAAASAAB4cQB+ABJ0AAdERVBPU0lUc3IADmphdmEudXRpbC5VVUlEvJkD95hthS8CAAJKAAxsZWFzdFNp" +
+            "Z0JpdHNKAAttb3N0U2lnQml0c3hwpMhy7GfV/dAvfVdt/2xI1HNxAH4ACEBvSAAAAAAAc3EAfgAPdw4FAAAH6goRAyQxM0gl" +
+            "bHhxAH4ABXEAfgATc3EAfgACAAAAAAX14QJ0AAhQZXRyb3YgUHNxAH4AAAAAAAN3BAAAAANzcQB+AAhAb0gAAAAAAHNxAH4A" +
+            "D3cOBQAAB+oKEQMkMTNHcAt4cQB+ABxxAH4AE3EAfgAFfnEAfgAVdAAGQ1JFRElUc3EAfgAYtCuTCz/c1BrfJIz5XBdGJHNx" +
+            "AH4ACD/DMzMzMzMzc3EAfgAPdw4FAAAH6goRAyQxM0jk+3hxAH4AHHEAfgATcH5xAH4AFXQACFdJVEhEUkFXc3EAfgAYpQXP" +
+            "q9SaQiIF5KpZmqtHHnNxAH4ACECziAAAAAAAc3EAfgAPdw4FAAAH6goRAyQxM0koTnhxAH4AHH5xAH4AEXQACENBTkNFTEVE" +
+            "cHEAfgAmc3EAfgAYv2Zvu/0dxuswpaLjG0BKaHh+cQB+ABV0AAhUUkFOU0ZFUnNxAH4AGLS9SqD+8MxFEyvaFd+KQ/x4cQB+" +
+            "ABx4";
+
+    /**
+     * Точка входа для теста.
+     *
+     * @param args аргументы командной строки
+     *
+     * @throws Exception если файл не удалось загрузить или сохранить
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("bam-legacy");
+
+        try {
+            testFileService(directory.resolve("file.data"));
+            testMappedFileService(directory.resolve("mapped.data"));
+        } finally {
+            try (var paths = Files.list(directory)) {
+                for (Path path : paths.toList()) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+
+        System.out.println("Все проверки пройдены");
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. TESTS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Проверяет загрузку и пересохранение файла прежнего формата через {@link FileService}.
+     *
+     * @param path путь к файлу данных
+     *
+     * @throws Exception если файл не удалось загрузить или сохранить
+     */
+    private static void testFileService(Path path) throws Exception {
+        writeLegacyFile(path);
+        loadAndResave(new FileService(path), "FileService");
+        loadAndCheck(new FileService(path), "FileService (новый формат)");
+    }
+
+    /**
+     * Проверяет загрузку и пересохранение файла прежнего формата через {@link MappedFileService}.
+     *
+     * @param path путь к файлу данных
+     *
+     * @throws Exception если файл не удалось загрузить или сохранить
+     */
+    private static void testMappedFileService(Path path) throws Exception {
+        writeLegacyFile(path);
+        loadAndResave(new MappedFileService(path), "MappedFileService");
+        loadAndCheck(new MappedFileService(path), "MappedFileService (новый формат)");
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Записывает файл прежнего формата.
+     *
+     * @param path путь к файлу
+     *
+     * @throws IOException если файл не удалось записать
+     */
+    private static void writeLegacyFile(Path path) throws IOException {
+        Files.write(path, Base64.getDecoder().decode(LEGACY_FILE_BASE64));
+    }
+
+    /**
+     * Загружает счета, проверяет их и сохраняет в том же хранилище.
+     *
+     * @param storage хранилище данных
+     * @param storageName название хранилища для сообщений
+     *
+     * @throws Exception если файл не удалось загрузить или сохранить
+     */
+    private static <T extends DataStorage & Closeable> void loadAndResave(T storage, String storageName)
+            throws Exception
+    {
+        try (storage) {
+            List<Account> accounts = storage.loadAccounts();
+            checkAccounts(accounts, storageName);
+            storage.saveAccounts(accounts);
+        }
+    }
+
+    /**
+     * Загружает счета и проверяет их.
+     *
+     * @param storage хранилище данных
+     * @param storageName название хранилища для сообщений
+     *
+     * @throws Exception если файл не удалось загрузить
+     */
+    private static <T extends DataStorage & Closeable> void loadAndCheck(T storage, String storageName)
+            throws Exception
+    {
+        try (storage) {
+            checkAccounts(storage.loadAccounts(), storageName);
+        }
+    }
+
+    /**
+     * Проверяет загруженные счета, их балансы и транзакции.
+     *
+     * @param accounts загруженные счета
+     * @param storageName название хранилища для сообщений
+     */
+    private static void checkAccounts(List<Account> accounts, String storageName) {
+        check(accounts.size() == 2, MessageFormat.format(
+                "{0}: ожидалось 2 счета, загружено {1}", storageName, accounts.size()));
+
+        Account ivanov = accounts.get(0);
+        Account petrov = accounts.get(1);
+
+        check(ivanov.getAccountNumber() == IVANOV_ACCOUNT_NUMBER
+                && petrov.getAccountNumber() == PETROV_ACCOUNT_NUMBER, MessageFormat.format(
+                "{0}: некорректные номера счетов {1}, {2}", storageName, ivanov, petrov));
+        check(ivanov.getBalance().equals(Money.parse("749.85")), MessageFormat.format(
+                "{0}: некорректный баланс счета {1}: {2}", storageName, ivanov, ivanov.getBalance()));
+        check(petrov.getBalance().equals(Money.parse("250.10")), MessageFormat.format(
+                "{0}: некорректный баланс счета {1}: {2}", storageName, petrov, petrov.getBalance()));
+
+        checkTransactions(ivanov, storageName,
+                TransactionType.DEPOSIT, "1000.10", TransactionStatus.COMMITTED,
+                TransactionType.TRANSFER, "250.25", TransactionStatus.COMMITTED);
+        checkTransactions(petrov, storageName,
+                TransactionType.CREDIT, "250.25", TransactionStatus.COMMITTED,
+                TransactionType.WITHDRAW, "0.15", TransactionStatus.COMMITTED,
+                TransactionType.WITHDRAW, "5000.00", TransactionStatus.CANCELED);
+
+        // Перевод ссылается на загруженный счет-получатель
+        Transaction transfer = ivanov.getTransactions().get(1);
+        check(transfer.getToAccount() == petrov, MessageFormat.format(
+                "{0}: счет-получатель перевода не совпадает с загруженным счетом", storageName));
+
+        for (Account account : accounts) {
+            check(account.verifyBalance(), MessageFormat.format(
+                    "{0}: баланс счета {1} не совпадает с историей транзакций", storageName, account));
+        }
+    }
+
+    /**
+     * Проверяет типы, суммы и статусы транзакций счета.
+     *
+     * @param account счет
+     * @param storageName название хранилища для сообщений
+     * @param expected ожидаемые тройки: тип, сумма, статус
+     */
+    private static void checkTransactions(Account account, String storageName, Object... expected) {
+        List<Transaction> transactions = account.getTransactions();
+
+        check(transactions.size() == expected.length / 3, MessageFormat.format(
+                "{0}: ожидалось {1} транзакций счета {2}, загружено {3}",
+                storageName, expected.length / 3, account, transactions.size()));
+
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+
+            check(transaction.getTransactionType() == expected[3 * i]
+                    && transaction.getAmount().equals(Money.parse((String) expected[3 * i + 1]))
+                    && transaction.getStatus() == expected[3 * i + 2], MessageFormat.format(
+                    "{0}: некорректная транзакция {1} счета {2}: {3} {4} {5}", storageName, i, account,
+                    transaction.getTransactionType(), transaction.getAmount(), transaction.getStatus()));
+        }
+    }
+
+    /**
+     * Проверяет условие теста.
+     *
+     * @param condition условие
+     * @param errMsg сообщение об ошибке, если условие не выполнено
+     *
+     * @throws AssertionError если условие не выполнено
+     */
+    private static void check(boolean condition, String errMsg) {
+        if (!condition) {
+            throw new AssertionError(errMsg);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package ru.dgritsenko.app;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.BankService;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.Transaction;
+import ru.dgritsenko.bam.bank.TransactionType;
+import ru.dgritsenko.bam.datastorage.ShardedFileService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Тест сохранения и загрузки счетов, распределенных по сегментам {@link ShardedFileService}.
+ * <p>
+ * Проверяется, что каждый счет сохраняется в сегмент {@code accounts.shard.N}, где {@code N} - остаток
+ * от деления номера счета на количество сегментов, переводы между счетами разных сегментов после загрузки
+ * ссылаются на загруженные счета, при сохранении перезаписываются только сегменты измененных счетов,
+ * а при изменении количества сегментов счета перераспределяются и сегменты прежнего распределения удаляются.
+ */
+public class ShardedFileLoadTest {
+    private static final String HOLDER_NAME = "Ivanov I";
+    private static final String SHARD_FILE_PREFIX = "accounts.shard.";
+    private static final int SHARD_COUNT = 4;
+    private static final int CHANGED_SHARD_COUNT = 3;
+    private static final int ACCOUNTS_COUNT = 12;
+
+    /**
+     * Точка входа для теста.
+     *
+     * @param args аргументы командной строки
+     *
+     * @throws Exception если сегменты не удалось сохранить или загрузить
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("bam-sharded");
+
+        try {
+            Map<Long, String> expectedState = testSaveAndLoad(directory);
+            expectedState = testChangedShardsSave(directory, expectedState);
+            testReshard(directory, expectedState);
+        } finally {
+            try (var paths = Files.list(directory)) {
+                for (Path path : paths.toList()) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+
+        System.out.println("Все проверки пройдены");
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. TESTS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Проверяет распределение счетов по сегментам и их загрузку.
+     *
+     * @param directory каталог сегментов
+     *
+     * @return состояние сохраненных счетов
+     *
+     * @throws Exception если сегменты не удалось сохранить или загрузить
+     */
+    private static Map<Long, String> testSaveAndLoad(Path directory) throws Exception {
+        // Счета создаются без загрузки: пустое хранилище загружает файл данных приложения
+        BankService bankService = new BankService(new ShardedFileService(directory, SHARD_COUNT));
+        List<Account> accounts = new ArrayList<>(ACCOUNTS_COUNT);
+
+        for (int i = 0; i < ACCOUNTS_COUNT; i++) {
+            accounts.add(bankService.createAccount(HOLDER_NAME));
+        }
+
+        performOperations(bankService, accounts);
+        bankService.saveAccounts();
+
+        Map<Long, String> expectedState = getState(bankService);
+
+        for (Account account : accounts) {
+            Path shardPath = getShardPath(directory, account.getAccountNumber() % SHARD_COUNT);
+            check(Files.exists(shardPath), MessageFormat.format(
+                    "Сегмент {0} счета {1} не создан",
+                    shardPath.getFileName(), Long.toString(account.getAccountNumber())));
+        }
+
+        checkShardFiles(directory, SHARD_COUNT);
+        checkState(directory, SHARD_COUNT, expectedState, "Загрузка сегментов");
+
+        return expectedState;
+    }
+
+    /**
+     * Проверяет, что при сохранении перезаписывается только сегмент измененного счета.
+     *
+     * @param directory каталог сегментов
+     * @param savedState состояние сохраненных счетов
+     *
+     * @return состояние счетов после изменения
+     *
+     * @throws Exception если сегменты не удалось сохранить или загрузить
+     */
+    private static Map<Long, String> testChangedShardsSave(Path directory, Map<Long, String> savedState)
+            throws Exception
+    {
+        BankService bankService = new BankService(new ShardedFileService(directory, SHARD_COUNT));
+        bankService.loadAccounts();
+
+        Account account = bankService.findAccount(savedState.keySet().iterator().next());
+        long changedShardNumber = account.getAccountNumber() % SHARD_COUNT;
+        List<byte[]> shardsBefore = readShards(directory, SHARD_COUNT);
+
+        bankService.performTransaction(TransactionType.DEPOSIT, account, Money.of(25));
+        bankService.saveAccounts();
+
+        List<byte[]> shardsAfter = readShards(directory, SHARD_COUNT);
+
+        for (int shardNumber = 0; shardNumber < SHARD_COUNT; shardNumber++) {
+            boolean isChanged = !Arrays.equals(shardsBefore.get(shardNumber), shardsAfter.get(shardNumber));
+
+            check(isChanged == (shardNumber == changedShardNumber), MessageFormat.format(
+                    "Сегмент {0} {1}перезаписан при изменении счета сегмента {2}",
+                    shardNumber, isChanged ? "" : "не ", changedShardNumber));
+        }
+
+        Map<Long, String> expectedState = getState(bankService);
+        checkState(directory, SHARD_COUNT, expectedState, "Сохранение измененного сегмента");
+
+        return expectedState;
+    }
+
+    /**
+     * Проверяет перераспределение счетов при изменении количества сегментов.
+     *
+     * @param directory каталог сегментов
+     * @param savedState состояние сохраненных счетов
+     *
+     * @throws Exception если сегменты не удалось сохранить или загрузить
+     */
+    private static void testReshard(Path directory, Map<Long, String> savedState) throws Exception {
+        BankService bankService = new BankService(new ShardedFileService(directory, CHANGED_SHARD_COUNT));
+        bankService.loadAccounts();
+
+        check(getState(bankService).equals(savedState), "Счета прежнего распределения загружены некорректно");
+
+        bankService.saveAccounts();
+
+        checkShardFiles(directory, CHANGED_SHARD_COUNT);
+        checkState(directory, CHANGED_SHARD_COUNT, savedState, "Перераспределение сегментов");
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Выполняет пополнение и переводы между соседними счетами (как правило, разных сегментов).
+     *
+     * @param bankService сервис банка
+     * @param accounts счета
+     */
+    private static void performOperations(BankService bankService, List<Account> accounts) {
+        for (Account account : accounts) {
+            bankService.performTransaction(TransactionType.DEPOSIT, account, Money.of(1_000));
+        }
+
+        for (int i = 0; i < accounts.size(); i++) {
+            Account toAccount = accounts.get((i + 1) % accounts.size());
+            bankService.performTransaction(
+                    TransactionType.TRANSFER, accounts.get(i), Money.ofMinorUnits(10_001L * (i + 1)), toAccount);
+        }
+    }
+
+    /**
+     * Возвращает состояние счетов: баланс и количество транзакций по номеру счета.
+     * <p>Также проверяет, что переводы ссылаются на счета сервиса банка.
+     *
+     * @param bankService сервис банка
+     *
+     * @return состояние счетов
+     */
+    private static Map<Long, String> getState(BankService bankService) {
+        Map<Long, String> state = new TreeMap<>();
+
+        for (Account account : bankService.getAccounts()) {
+            String accountNumber = Long.toString(account.getAccountNumber());
+
+            check(account.verifyBalance(), MessageFormat.format(
+                    "Баланс счета {0} не совпадает с историей транзакций", accountNumber));
+
+            for (Transaction transaction : account.getTransactions()) {
+                Account toAccount = transaction.getToAccount();
+
+                check(toAccount == null || toAccount == bankService.findAccount(toAccount.getAccountNumber()),
+                        MessageFormat.format("Перевод счета {0} ссылается на незагруженный счет", accountNumber));
+            }
+
+            state.put(account.getAccountNumber(), account.getBalance() + " / " + account.getTransactionCount());
+        }
+
+        return state;
+    }
+
+    /**
+     * Загружает счета из сегментов и сравнивает их состояние с ожидаемым.
+     *
+     * @param directory каталог сегментов
+     * @param shardCount количество сегментов
+     * @param expectedState ожидаемое состояние счетов
+     * @param checkName название проверки для сообщений
+     *
+     * @throws Exception если сегменты не удалось загрузить
+     */
+    private static void checkState(Path directory, int shardCount, Map<Long, String> expectedState,
+                                   String checkName) throws Exception
+    {
+        BankService bankService = new BankService(new ShardedFileService(directory, shardCount));
+        bankService.loadAccounts();
+
+        Map<Long, String> actualState = getState(bankService);
+
+        check(actualState.equals(expectedState), MessageFormat.format(
+                "{0}: состояние счетов {1} не совпадает с ожидаемым {2}", checkName, actualState, expectedState));
+
+        System.out.println(checkName + ": счетов " + actualState.size() + ", состояние совпадает");
+    }
+
+    /**
+     * Проверяет, что в каталоге есть только файлы сегментов с номерами меньше количества сегментов.
+     *
+     * @param directory каталог сегментов
+     * @param shardCount количество сегментов
+     *
+     * @throws IOException если каталог не удалось прочитать
+     */
+    private static void checkShardFiles(Path directory, int shardCount) throws IOException {
+        try (var paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                String fileName = path.getFileName().toString();
+                boolean isCurrentShard = false;
+
+                for (int shardNumber = 0; shardNumber < shardCount; shardNumber++) {
+                    isCurrentShard |= fileName.equals(SHARD_FILE_PREFIX + shardNumber);
+                }
+
+                check(isCurrentShard, MessageFormat.format(
+                        "Лишний файл {0} при количестве сегментов {1}", fileName, shardCount));
+            }
+        }
+    }
+
+    /**
+     * Читает содержимое файлов сегментов.
+     * <p>Сегмент без счетов не сохраняется, и его содержимое равно {@code null}.
+     *
+     * @param directory каталог сегментов
+     * @param shardCount количество сегментов
+     *
+     * @return содержимое файлов по номеру сегмента
+     *
+     * @throws IOException если файлы не удалось прочитать
+     */
+    private static List<byte[]> readShards(Path directory, int shardCount) throws IOException {
+        List<byte[]> shards = new ArrayList<>(shardCount);
+
+        for (int shardNumber = 0; shardNumber < shardCount; shardNumber++) {
+            Path shardPath = getShardPath(directory, shardNumber);
+            shards.add(Files.exists(shardPath) ? Files.readAllBytes(shardPath) : null);
+        }
+
+        return shards;
+    }
+
+    /**
+     * Возвращает путь к файлу сегмента.
+     *
+     * @param directory каталог сегментов
+     * @param shardNumber номер сегмента
+     *
+     * @return путь к файлу сегмента
+     */
+    private static Path getShardPath(Path directory, long shardNumber) {
+        return directory.resolve(SHARD_FILE_PREFIX + shardNumber);
+    }
+
+    /**
+     * Проверяет условие теста.
+     *
+     * @param condition условие
+     * @param errMsg сообщение об ошибке, если условие не выполнено
+     *
+     * @throws AssertionError если условие не выполнено
+     */
+    private static void check(boolean condition, String errMsg) {
+        if (!condition) {
+            throw new AssertionError(errMsg);
+        }
+    }
+}
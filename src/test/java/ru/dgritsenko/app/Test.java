@@ -1,6 +1,7 @@
 package ru.dgritsenko.app;
 
 import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
 import ru.dgritsenko.bam.bank.TransactionService;
 import ru.dgritsenko.bam.printer.AccountConsolePrinter;
 
@@ -66,16 +67,16 @@ public class Test {
         Account petrov = accounts.get("petrov");
 
         // Выполнение операций через обработчик
-        TransactionService.deposit(ivanov, 50000);
-        TransactionService.transfer(ivanov, 10000, sidorov);
+        TransactionService.deposit(ivanov, Money.of(50000));
+        TransactionService.transfer(ivanov, Money.of(10000), sidorov);
 
-        TransactionService.withdrawal(sidorov, 1000);
-        TransactionService.transfer(sidorov, 2000, petrov);
-        TransactionService.withdrawal(sidorov, 8000);
+        TransactionService.withdrawal(sidorov, Money.of(1000));
+        TransactionService.transfer(sidorov, Money.of(2000), petrov);
+        TransactionService.withdrawal(sidorov, Money.of(8000));
 
-        TransactionService.transfer(petrov, 5000, ivanov);
-        TransactionService.deposit(petrov, 5000);
-        TransactionService.transfer(petrov, 5000, ivanov);
+        TransactionService.transfer(petrov, Money.of(5000), ivanov);
+        TransactionService.deposit(petrov, Money.of(5000));
+        TransactionService.transfer(petrov, Money.of(5000), ivanov);
     }
 
     /**
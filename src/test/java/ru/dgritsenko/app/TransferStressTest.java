@@ -0,0 +1,219 @@
+package ru.dgritsenko.app;
+
+import ru.dgritsenko.bam.bank.Account;
+import ru.dgritsenko.bam.bank.Money;
+import ru.dgritsenko.bam.bank.TransactionService;
+import ru.dgritsenko.bam.bank.TransactionStatus;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Нагрузочный тест параллельных переводов между счетами.
+ * <p>
+ * Потоки одновременно выполняют переводы в обоих направлениях между небольшим набором счетов,
+ * поэтому одни и те же пары счетов блокируются в разном порядке. Тест проверяет, что потоки
+ * не взаимоблокируются, а общая сумма денег на счетах не изменяется.
+ * <p>Параметры: {@code bam.stress.threads} (64), {@code bam.stress.accounts} (8),
+ * {@code bam.stress.transfers} (20 000 переводов на поток), {@code bam.stress.timeoutSeconds} (120).
+ */
+public class TransferStressTest {
+    private static final Money INITIAL_DEPOSIT = Money.of(1_000);
+    private static final int MAX_TRANSFER_MINOR_UNITS = 50_000;
+
+    /**
+     * Точка входа для нагрузочного теста.
+     *
+     * @param args аргументы командной строки
+     *
+     * @throws InterruptedException если поток теста был прерван
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threadsCount = Integer.getInteger("bam.stress.threads", 64);
+        int accountsCount = Integer.getInteger("bam.stress.accounts", 8);
+        int transfersPerThread = Integer.getInteger("bam.stress.transfers", 20_000);
+        long timeoutSeconds = Long.getLong("bam.stress.timeoutSeconds", 120);
+
+        List<Account> accounts = createAccounts(accountsCount);
+        long expectedTotal = getTotalBalance(accounts);
+
+        AtomicLong committedCount = new AtomicLong();
+        AtomicLong canceledCount = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CountDownLatch doneLatch = new CountDownLatch(threadsCount);
+
+        for (int i = 0; i < threadsCount; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    startLatch.await();
+                    performTransfers(accounts, transfersPerThread, committedCount, canceledCount);
+                } catch (Throwable throwable) {
+                    failure.compareAndSet(null, throwable);
+                } finally {
+                    doneLatch.countDown();
+                }
+            }, "bam-stress-" + i);
+
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long startTime = System.nanoTime();
+        startLatch.countDown();
+
+        if (!doneLatch.await(timeoutSeconds, TimeUnit.SECONDS)) {
+            String errMsg = MessageFormat.format(
+                    "Переводы не завершились за {0} с, взаимоблокировка потоков:{1}",
+                    timeoutSeconds, getDeadlockedThreads()
+            );
+            throw new AssertionError(errMsg);
+        }
+
+        long durationNanos = System.nanoTime() - startTime;
+
+        if (failure.get() != null) {
+            throw new AssertionError("Перевод завершился с ошибкой", failure.get());
+        }
+
+        // Проверка сохранения общей суммы и корректности балансов
+        long actualTotal = getTotalBalance(accounts);
+
+        check(actualTotal == expectedTotal, MessageFormat.format(
+                "Общая сумма на счетах изменилась: было {0}, стало {1}",
+                Money.ofMinorUnits(expectedTotal), Money.ofMinorUnits(actualTotal)));
+
+        for (Account account : accounts) {
+            String accountNumber = Long.toString(account.getAccountNumber());
+
+            check(!account.getBalance().isNegative(), MessageFormat.format(
+                    "Отрицательный баланс счета {0}: {1}", accountNumber, account.getBalance()));
+            check(account.verifyBalance(), MessageFormat.format(
+                    "Баланс счета {0} не совпадает с историей транзакций", accountNumber));
+        }
+
+        System.out.printf("Потоков: %d, счетов: %d, переводов: %d (выполнено %d, отменено %d) за %.1f с%n",
+                threadsCount, accountsCount, (long) threadsCount * transfersPerThread,
+                committedCount.get(), canceledCount.get(), durationNanos / 1e9);
+        System.out.printf("Общая сумма на счетах не изменилась: %s%n", Money.ofMinorUnits(actualTotal));
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. PROCESSING
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Выполняет переводы случайных сумм между случайными парами различных счетов.
+     *
+     * @param accounts счета
+     * @param transfersCount количество переводов
+     * @param committedCount счетчик выполненных переводов
+     * @param canceledCount счетчик переводов, отмененных из-за недостатка средств
+     */
+    private static void performTransfers(List<Account> accounts, int transfersCount,
+                                         AtomicLong committedCount, AtomicLong canceledCount)
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int i = 0; i < transfersCount; i++) {
+            int fromIndex = random.nextInt(accounts.size());
+            int toIndex = (fromIndex + random.nextInt(1, accounts.size())) % accounts.size();
+            Money amount = Money.ofMinorUnits(random.nextInt(1, MAX_TRANSFER_MINOR_UNITS));
+
+            TransactionStatus status = TransactionService.transfer(
+                    accounts.get(fromIndex), amount, accounts.get(toIndex));
+
+            if (status == TransactionStatus.COMMITTED) {
+                committedCount.incrementAndGet();
+            } else {
+                canceledCount.incrementAndGet();
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // METHODS. MISC
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Создает счета с начальным пополнением.
+     *
+     * @param accountsCount количество счетов
+     *
+     * @return созданные счета
+     */
+    private static List<Account> createAccounts(int accountsCount) {
+        List<Account> accounts = new ArrayList<>(accountsCount);
+
+        for (int i = 0; i < accountsCount; i++) {
+            Account account = new Account.Builder().setHolderName("Ivanov I").build();
+            TransactionService.deposit(account, INITIAL_DEPOSIT);
+            accounts.add(account);
+        }
+
+        return accounts;
+    }
+
+    /**
+     * Возвращает общую сумму на счетах.
+     *
+     * @param accounts счета
+     *
+     * @return сумма балансов в минимальных единицах валюты
+     */
+    private static long getTotalBalance(List<Account> accounts) {
+        long total = 0;
+
+        for (Account account : accounts) {
+            total = Math.addExact(total, account.getBalance().getMinorUnits());
+        }
+
+        return total;
+    }
+
+    /**
+     * Возвращает описание взаимоблокированных потоков.
+     *
+     * @return стеки взаимоблокированных потоков или пустая строка, если их нет
+     */
+    private static String getDeadlockedThreads() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long[] threadIds = threadBean.findDeadlockedThreads();
+
+        if (threadIds == null) {
+            return " не обнаружена (потоки не успели завершиться)";
+        }
+
+        StringBuilder description = new StringBuilder();
+
+        for (ThreadInfo threadInfo : threadBean.getThreadInfo(threadIds, true, true)) {
+            description.append(System.lineSeparator()).append(threadInfo);
+        }
+
+        return description.toString();
+    }
+
+    /**
+     * Проверяет условие теста.
+     *
+     * @param condition условие
+     * @param errMsg сообщение об ошибке, если условие не выполнено
+     *
+     * @throws AssertionError если условие не выполнено
+     */
+    private static void check(boolean condition, String errMsg) {
+        if (!condition) {
+            throw new AssertionError(errMsg);
+        }
+    }
+}